@@ -17,6 +17,7 @@ package com.hazelcast.simulator.coordinator;
 
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
 import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.HdrHistogram.Histogram;
 
 import java.util.Comparator;
 import java.util.HashMap;
@@ -41,14 +42,19 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * Responsible for storing and formatting performance metrics from Simulator workers.
+ *
+ * If the workers send interval histograms, the histograms of all workers are merged to show the real cluster-wide
+ * latency percentiles. For every worker and test the interval histograms are also added to a running total.
  */
 public class PerformanceStatsCollector {
 
     public static final int OPERATION_COUNT_FORMAT_LENGTH = 14;
     public static final int THROUGHPUT_FORMAT_LENGTH = 12;
     public static final int LATENCY_FORMAT_LENGTH = 10;
+    public static final int COST_FORMAT_LENGTH = 8;
 
     private static final long DISPLAY_LATENCY_AS_MICROS_MAX_VALUE = MILLISECONDS.toMicros(10);
+    private static final double[] PERCENTILES = {50, 99, 99.9, 99.99};
 
     // holds a map per Worker SimulatorAddress which contains the lastDelta PerformanceStats per testCaseId
     private final ConcurrentMap<SimulatorAddress, WorkerPerformance> workerPerformanceInfoMap
@@ -71,11 +77,21 @@ public class PerformanceStatsCollector {
             return "";
         }
 
+        Histogram intervalHistogram = getHistogram(testId, false);
+        if (intervalHistogram.getTotalCount() > 0) {
+            return format("%s ops %s ops/s %s%s%s",
+                    formatLong(latest.getOperationCount(), OPERATION_COUNT_FORMAT_LENGTH),
+                    formatDouble(latest.getIntervalThroughput(), THROUGHPUT_FORMAT_LENGTH),
+                    formatLatency(intervalHistogram),
+                    formatPauses(latest),
+                    formatCost(latest));
+        }
+
         double latencyAvgNs = latest.getIntervalLatencyAvgNanos();
         double latency999PercentileNs = latest.getIntervalLatency999PercentileNanos();
         double latencyMaxNs = latest.getIntervalLatencyMaxNanos();
 
-        return format("%s ops %s ops/s %s %s (avg) %s %s (%sth) %s %s (max)",
+        return format("%s ops %s ops/s %s %s (avg) %s %s (%sth) %s %s (max)%s%s",
                 formatLong(latest.getOperationCount(), OPERATION_COUNT_FORMAT_LENGTH),
                 formatDouble(latest.getIntervalThroughput(), THROUGHPUT_FORMAT_LENGTH),
                 formatLong(toPrettyValue(latencyAvgNs), LATENCY_FORMAT_LENGTH),
@@ -84,7 +100,63 @@ public class PerformanceStatsCollector {
                 toPrettyUnit(latency999PercentileNs),
                 INTERVAL_LATENCY_PERCENTILE,
                 formatLong(toPrettyValue(latencyMaxNs), LATENCY_FORMAT_LENGTH),
-                toPrettyUnit(latencyMaxNs));
+                toPrettyUnit(latencyMaxNs),
+                formatPauses(latest),
+                formatCost(latest));
+    }
+
+    /**
+     * Formats the pauses of the worker JVMs, so a latency spike can be correlated with a stall of the workers.
+     */
+    private static String formatPauses(PerformanceStats stats) {
+        if (stats.getIntervalPauseMaxNanos() <= 0) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder(" worker pauses");
+        appendLatency(sb, stats.getIntervalPauseTotalNanos(), "total");
+        appendLatency(sb, stats.getIntervalPauseMaxNanos(), "max");
+        return sb.toString();
+    }
+
+    /**
+     * Formats the bytes allocated and the cpu time per operation of the load generating threads, so a client side
+     * regression shows up even if the latency doesn't change.
+     */
+    private static String formatCost(PerformanceStats stats) {
+        StringBuilder sb = new StringBuilder();
+        if (stats.getIntervalAllocatedBytesPerOp() >= 0) {
+            sb.append(' ').append(formatLong(round(stats.getIntervalAllocatedBytesPerOp()), COST_FORMAT_LENGTH))
+                    .append(" B/op");
+        }
+        if (stats.getIntervalCpuNanosPerOp() >= 0) {
+            sb.append(' ').append(formatLong(round(stats.getIntervalCpuNanosPerOp()), COST_FORMAT_LENGTH))
+                    .append(" ns cpu/op");
+        }
+        return sb.toString();
+    }
+
+    private static String formatLatency(Histogram histogram) {
+        StringBuilder sb = new StringBuilder();
+        appendLatency(sb, histogram.getMean(), "avg");
+        for (double percentile : PERCENTILES) {
+            appendLatency(sb, histogram.getValueAtPercentile(percentile), "p" + formatPercentile(percentile));
+        }
+        appendLatency(sb, histogram.getMaxValue(), "max");
+        return sb.toString();
+    }
+
+    private static void appendLatency(StringBuilder sb, double valueNs, String label) {
+        if (sb.length() > 0) {
+            sb.append(' ');
+        }
+        sb.append(formatLong(toPrettyValue(valueNs), LATENCY_FORMAT_LENGTH))
+                .append(' ').append(toPrettyUnit(valueNs))
+                .append(" (").append(label).append(')');
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
     }
 
     /**
@@ -125,10 +197,59 @@ public class PerformanceStatsCollector {
         return result;
     }
 
+    /**
+     * Returns the number of operations of a test, summed over all workers.
+     *
+     * @param testCaseId the id of the test.
+     * @return the number of operations.
+     */
+    long getOperationCount(String testCaseId) {
+        long operationCount = 0;
+        for (WorkerPerformance workerPerformance : workerPerformanceInfoMap.values()) {
+            PerformanceStats performanceStats = workerPerformance.get(testCaseId, true);
+            if (!performanceStats.isEmpty()) {
+                operationCount += performanceStats.getOperationCount();
+            }
+        }
+        return operationCount;
+    }
+
+    /**
+     * Merges the histograms of all workers for the given test.
+     *
+     * @param testCaseId the id of the test.
+     * @param total      {@code true} for the running total, {@code false} for the last interval.
+     * @return the merged histogram; empty if the workers didn't send histograms.
+     */
+    Histogram getHistogram(String testCaseId, boolean total) {
+        Histogram result = PerformanceStats.newHistogram();
+        for (WorkerPerformance workerPerformance : workerPerformanceInfoMap.values()) {
+            workerPerformance.addHistogram(testCaseId, total, result);
+        }
+        return result;
+    }
+
     public String detailedPerformanceInfo(String testId, long runningTimeMs) {
+        return detailedPerformanceInfo(testId, runningTimeMs, false);
+    }
+
+    /**
+     * Returns the performance of a test over the whole run.
+     *
+     * @param testId                the id of the test.
+     * @param runningTimeMs         the running time of the test as seen by the coordinator.
+     * @param throughputFromWorkers {@code true} to sum the total throughput of the workers, each measured over its own
+     *                              window, e.g. from the moment the worker reached steady state; {@code false} to divide
+     *                              the operation count by the running time.
+     * @return the performance info.
+     */
+    public String detailedPerformanceInfo(String testId, long runningTimeMs, boolean throughputFromWorkers) {
         PerformanceStats totalPerformanceStats = new PerformanceStats();
         Map<SimulatorAddress, PerformanceStats> agentPerformanceStatsMap = new HashMap<>();
         calculatePerformanceStats(testId, totalPerformanceStats, agentPerformanceStatsMap);
+        Histogram totalHistogram = PerformanceStats.newHistogram();
+        Map<SimulatorAddress, Histogram> agentHistogramMap = new HashMap<>();
+        calculateHistograms(testId, totalHistogram, agentHistogramMap);
 
         long totalOperationCount = totalPerformanceStats.getOperationCount();
 
@@ -140,28 +261,57 @@ public class PerformanceStatsCollector {
 
         StringBuilder sb = new StringBuilder();
 
-        double throughput = totalOperationCount / runningTimeSeconds;
+        double throughput = throughputFromWorkers
+                ? totalPerformanceStats.getTotalThroughput()
+                : totalOperationCount / runningTimeSeconds;
         sb.append("Total running time " + secondsToHuman(Math.round(runningTimeSeconds)) + "\n");
 
         sb.append(format("Total throughput        %s%% %s ops %s ops/s\n",
                 formatPercentage(1, 1),
                 formatLong(totalOperationCount, OPERATION_COUNT_FORMAT_LENGTH),
                 formatDouble(throughput, THROUGHPUT_FORMAT_LENGTH)));
-
+        if (totalHistogram.getTotalCount() > 0) {
+            sb.append("Total latency          ").append(formatLatency(totalHistogram)).append('\n');
+        }
 
         for (SimulatorAddress address : sort(agentPerformanceStatsMap.keySet())) {
             PerformanceStats performanceStats = agentPerformanceStatsMap.get(address);
 
             long operationCount = performanceStats.getOperationCount();
+            double agentThroughput = throughputFromWorkers
+                    ? performanceStats.getTotalThroughput()
+                    : operationCount / runningTimeSeconds;
             sb.append(format("  Agent %-15s %s%% %s ops %s ops/s\n",
                     address,
                     formatPercentage(operationCount, totalOperationCount),
                     formatLong(operationCount, OPERATION_COUNT_FORMAT_LENGTH),
-                    formatDouble(operationCount / runningTimeSeconds, THROUGHPUT_FORMAT_LENGTH)));
+                    formatDouble(agentThroughput, THROUGHPUT_FORMAT_LENGTH)));
+
+            Histogram agentHistogram = agentHistogramMap.get(address);
+            if (agentHistogram != null && agentHistogram.getTotalCount() > 0) {
+                sb.append("        latency         ").append(formatLatency(agentHistogram)).append('\n');
+            }
         }
         return sb.toString();
     }
 
+    void calculateHistograms(String testId, Histogram totalHistogram, Map<SimulatorAddress, Histogram> agentHistogramMap) {
+        for (Map.Entry<SimulatorAddress, WorkerPerformance> entry : workerPerformanceInfoMap.entrySet()) {
+            SimulatorAddress agentAddress = entry.getKey().getParent();
+            Histogram agentHistogram = agentHistogramMap.get(agentAddress);
+            if (agentHistogram == null) {
+                agentHistogram = PerformanceStats.newHistogram();
+                agentHistogramMap.put(agentAddress, agentHistogram);
+            }
+
+            entry.getValue().addHistogram(testId, true, agentHistogram);
+        }
+
+        for (Histogram agentHistogram : agentHistogramMap.values()) {
+            totalHistogram.add(agentHistogram);
+        }
+    }
+
     void calculatePerformanceStats(String testId,
                                    PerformanceStats totalPerformanceStats,
                                    Map<SimulatorAddress, PerformanceStats> agentPerformanceStatsMap) {
@@ -192,59 +342,82 @@ public class PerformanceStatsCollector {
 
     /**
      * Contains the performance info for a given worker.
+     *
+     * The updates are done by the thread that receives the messages and the reads by the threads that log the
+     * performance; the histograms are mutable, so the access is synchronized.
      */
-    private final class WorkerPerformance {
+    private static final class WorkerPerformance {
         // contains the performance per test. Key is test-id.
-        private final ConcurrentMap<String, TestPerformance> testPerformanceMap
-                = new ConcurrentHashMap<>();
+        private final Map<String, TestPerformance> testPerformanceMap = new HashMap<>();
 
-        private void updateAll(Map<String, PerformanceStats> deltas) {
+        private synchronized void updateAll(Map<String, PerformanceStats> deltas) {
             for (Map.Entry<String, PerformanceStats> entry : deltas.entrySet()) {
                 update(entry.getKey(), entry.getValue());
             }
         }
 
         private void update(String testId, PerformanceStats delta) {
-            for (; ; ) {
-                TestPerformance current = testPerformanceMap.get(testId);
-                if (current == null) {
-                    if (testPerformanceMap.putIfAbsent(testId, new TestPerformance(delta, delta)) == null) {
-                        return;
-                    }
-                } else {
-                    TestPerformance update = current.update(delta);
-                    if (testPerformanceMap.replace(testId, current, update)) {
-                        return;
-                    }
-                }
+            TestPerformance current = testPerformanceMap.get(testId);
+            if (current == null) {
+                testPerformanceMap.put(testId, new TestPerformance(delta));
+            } else {
+                current.update(delta);
             }
         }
 
-        private PerformanceStats get(String testId, boolean aggregated) {
+        private synchronized PerformanceStats get(String testId, boolean aggregated) {
             TestPerformance testPerformance = testPerformanceMap.get(testId);
             if (testPerformance == null) {
                 return new PerformanceStats();
             }
             return aggregated ? testPerformance.aggregated : testPerformance.lastDelta;
         }
+
+        private synchronized void addHistogram(String testId, boolean total, Histogram result) {
+            TestPerformance testPerformance = testPerformanceMap.get(testId);
+            if (testPerformance == null) {
+                return;
+            }
+
+            Histogram histogram = total ? testPerformance.totalHistogram : testPerformance.lastIntervalHistogram;
+            if (histogram != null) {
+                result.add(histogram);
+            }
+        }
     }
 
     /**
      * Contains the latest and aggregated performance info.
      */
-    private final class TestPerformance {
-        private final PerformanceStats aggregated;
-        private final PerformanceStats lastDelta;
-
-        private TestPerformance(PerformanceStats aggregated, PerformanceStats lastDelta) {
-            this.aggregated = aggregated;
-            this.lastDelta = lastDelta;
+    private static final class TestPerformance {
+        private PerformanceStats aggregated;
+        private PerformanceStats lastDelta;
+        private Histogram lastIntervalHistogram;
+        private Histogram totalHistogram;
+
+        private TestPerformance(PerformanceStats delta) {
+            this.aggregated = delta;
+            this.lastDelta = delta;
+            this.lastIntervalHistogram = delta.getIntervalHistogram();
+            if (lastIntervalHistogram != null) {
+                this.totalHistogram = lastIntervalHistogram.copy();
+            }
         }
 
-        private TestPerformance update(PerformanceStats delta) {
+        private void update(PerformanceStats delta) {
             PerformanceStats newAggregated = new PerformanceStats(aggregated);
             newAggregated.add(delta, false);
-            return new TestPerformance(newAggregated, delta);
+            this.aggregated = newAggregated;
+            this.lastDelta = delta;
+
+            this.lastIntervalHistogram = delta.getIntervalHistogram();
+            if (lastIntervalHistogram != null) {
+                if (totalHistogram == null) {
+                    totalHistogram = lastIntervalHistogram.copy();
+                } else {
+                    totalHistogram.add(lastIntervalHistogram);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.coordinator;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.worker.testcontainer.IllegalTestException;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.hazelcast.simulator.utils.FormatUtils.formatDouble;
+import static com.hazelcast.simulator.utils.FormatUtils.formatLong;
+import static com.hazelcast.simulator.worker.testcontainer.MetronomeSupplier.parseInterval;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.round;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Searches the maximum sustainable throughput of a test under a latency SLO like 'p99<2ms'.
+ *
+ * The search is done in a single run phase, using steps of a fixed length. Every step runs at a single rate; the
+ * {@link TestCaseRunner} changes the rate on all workers and measures the step using the merged histograms of the
+ * timestep and operation probes of the workers. A step meets the SLO if the latency at the percentile is within the
+ * bound and the workers kept up with the offered rate. The offered rate is the sum of the rates the workers applied to
+ * their execution groups; the achieved rate is taken from the operation counts of the workers.
+ *
+ * The search starts at the configured 'ratePerSecond' and doubles the rate until a step fails (or halves it until a
+ * step passes). Then it does a binary search between the highest rate that passed and the lowest rate that failed,
+ * until they are within 'sloPrecision' of each other.
+ *
+ * The rates are per worker and execution group, just like the 'ratePerSecond' property of the test.
+ */
+final class SloSearch {
+
+    static final String PROPERTY_SLO = "slo";
+    static final String PROPERTY_STEP_SECONDS = "sloStepSeconds";
+    static final String PROPERTY_MIN_RATE = "sloMinRatePerSecond";
+    static final String PROPERTY_MAX_RATE = "sloMaxRatePerSecond";
+    static final String PROPERTY_PRECISION = "sloPrecision";
+
+    private static final Pattern SLO_PATTERN = Pattern.compile("p([0-9]+(\\.[0-9]+)?)<(.+)");
+    private static final int DEFAULT_STEP_SECONDS = 30;
+    private static final double DEFAULT_PRECISION = 0.05;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final int RATE_FORMAT_LENGTH = 12;
+    private static final int LATENCY_FORMAT_LENGTH = 10;
+
+    private final String slo;
+    private final double percentile;
+    private final long latencyNanos;
+    private final int stepSeconds;
+    private final double minRatePerSecond;
+    private final double maxRatePerSecond;
+    private final double precision;
+    private final int workerCount;
+    private final List<Step> steps = new ArrayList<>();
+    // the highest rate that met the SLO; 0 if none did
+    private double passRatePerSecond;
+    // the rate offered by all workers at the highest rate that met the SLO
+    private double passOfferedPerSecond;
+    // the lowest rate that didn't meet the SLO; infinite if all did
+    private double failRatePerSecond = Double.POSITIVE_INFINITY;
+    private double ratePerSecond;
+    private boolean done;
+
+    SloSearch(String slo, double ratePerSecond, int stepSeconds, double minRatePerSecond, double maxRatePerSecond,
+              double precision, int workerCount) {
+        Matcher matcher = SLO_PATTERN.matcher(slo);
+        if (!matcher.matches()) {
+            throw new IllegalTestException(format("%s has an invalid value [%s], it should be like 'p99<2ms'",
+                    PROPERTY_SLO, slo));
+        }
+        this.slo = slo;
+        this.percentile = Double.parseDouble(matcher.group(1));
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalTestException(format("%s has an invalid percentile [%s]", PROPERTY_SLO, slo));
+        }
+        this.latencyNanos = parseInterval(PROPERTY_SLO, matcher.group(3));
+
+        if (ratePerSecond <= 0) {
+            throw new IllegalTestException(format("%s requires ratePerSecond to be configured", PROPERTY_SLO));
+        }
+        if (stepSeconds <= 0) {
+            throw new IllegalTestException(PROPERTY_STEP_SECONDS + " must be larger than 0");
+        }
+        if (minRatePerSecond <= 0) {
+            throw new IllegalTestException(PROPERTY_MIN_RATE + " must be larger than 0");
+        }
+        if (maxRatePerSecond != 0 && maxRatePerSecond < minRatePerSecond) {
+            throw new IllegalTestException(PROPERTY_MAX_RATE + " can't be smaller than " + PROPERTY_MIN_RATE);
+        }
+        if (precision <= 0 || precision >= 1) {
+            throw new IllegalTestException(PROPERTY_PRECISION + " must be between 0 and 1");
+        }
+
+        this.stepSeconds = stepSeconds;
+        this.minRatePerSecond = minRatePerSecond;
+        this.maxRatePerSecond = maxRatePerSecond;
+        this.precision = precision;
+        this.workerCount = workerCount;
+        this.ratePerSecond = clamp(ratePerSecond);
+    }
+
+    /**
+     * Creates the SloSearch for a test.
+     *
+     * @param testCase    the test.
+     * @param workerCount the number of workers running the test.
+     * @return the SloSearch, or null if the test has no SLO configured.
+     * @throws IllegalTestException if the SLO properties are invalid.
+     */
+    static SloSearch load(TestCase testCase, int workerCount) {
+        String slo = testCase.getProperty(PROPERTY_SLO);
+        if (slo == null) {
+            return null;
+        }
+
+        try {
+            return new SloSearch(slo,
+                    parseDouble(testCase, "ratePerSecond", 0),
+                    (int) parseDouble(testCase, PROPERTY_STEP_SECONDS, DEFAULT_STEP_SECONDS),
+                    parseDouble(testCase, PROPERTY_MIN_RATE, 1),
+                    parseDouble(testCase, PROPERTY_MAX_RATE, 0),
+                    parseDouble(testCase, PROPERTY_PRECISION, DEFAULT_PRECISION),
+                    workerCount);
+        } catch (NumberFormatException e) {
+            throw new IllegalTestException(format("Test [%s] has an invalid SLO property: %s", testCase.getId(),
+                    e.getMessage()), e);
+        }
+    }
+
+    private static double parseDouble(TestCase testCase, String property, double defaultValue) {
+        String value = testCase.getProperty(property);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    String getSlo() {
+        return slo;
+    }
+
+    int getStepSeconds() {
+        return stepSeconds;
+    }
+
+    /**
+     * Returns the rate of the current step.
+     *
+     * @return the rate per worker.
+     */
+    double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Returns the highest rate that met the SLO.
+     *
+     * @return the rate per worker, or 0 if no step met the SLO.
+     */
+    double getMaxSustainableRatePerSecond() {
+        return passRatePerSecond;
+    }
+
+    /**
+     * Returns the rate offered by all workers at the highest rate that met the SLO.
+     *
+     * @return the total rate, or 0 if no step met the SLO.
+     */
+    double getMaxSustainableOfferedPerSecond() {
+        return passOfferedPerSecond;
+    }
+
+    List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Completes the current step and determines the rate of the next step.
+     *
+     * @param histogram        the latencies of the operations of all workers during the step.
+     * @param operationCount   the number of operations of all workers during the step.
+     * @param durationMs       the duration of the measurement.
+     * @param offeredPerSecond the rate the workers applied for the step, or 0 if it is unknown; then the rate is assumed
+     *                         to be applied to a single execution group per worker.
+     * @return the completed step.
+     */
+    Step complete(Histogram histogram, long operationCount, long durationMs, double offeredPerSecond) {
+        double offered = offeredPerSecond > 0 ? offeredPerSecond : ratePerSecond * workerCount;
+        double achieved = durationMs == 0 ? 0 : operationCount * 1000d / durationMs;
+        long latency = histogram.getTotalCount() == 0 ? Long.MAX_VALUE : histogram.getValueAtPercentile(percentile);
+        boolean passed = latency <= latencyNanos && achieved >= (1 - precision) * offered;
+
+        Step step = new Step(steps.size() + 1, ratePerSecond, offered, achieved, histogram, passed);
+        steps.add(step);
+
+        if (passed) {
+            if (ratePerSecond >= passRatePerSecond) {
+                passRatePerSecond = ratePerSecond;
+                passOfferedPerSecond = offered;
+            }
+        } else {
+            failRatePerSecond = min(failRatePerSecond, ratePerSecond);
+        }
+        ratePerSecond = nextRatePerSecond();
+        return step;
+    }
+
+    private double nextRatePerSecond() {
+        double next;
+        if (failRatePerSecond == Double.POSITIVE_INFINITY) {
+            // all steps passed so far
+            next = clamp(ratePerSecond * 2);
+        } else if (passRatePerSecond == 0) {
+            // all steps failed so far
+            next = clamp(ratePerSecond / 2);
+        } else {
+            double gap = failRatePerSecond - passRatePerSecond;
+            next = gap <= precision * passRatePerSecond ? ratePerSecond : round((passRatePerSecond + failRatePerSecond) / 2);
+        }
+
+        // when the rate doesn't change, we either hit a bound or the search converged.
+        done = next == ratePerSecond || next == passRatePerSecond || next == failRatePerSecond;
+        return next;
+    }
+
+    private double clamp(double rate) {
+        double result = max(minRatePerSecond, round(rate));
+        return maxRatePerSecond == 0 ? result : min(maxRatePerSecond, result);
+    }
+
+    /**
+     * Formats the latency curve of all steps as a table.
+     *
+     * @return the table.
+     */
+    String formatSteps() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(format("%4s %s %s %s", "step",
+                formatColumn("rate/worker", RATE_FORMAT_LENGTH),
+                formatColumn("offered", RATE_FORMAT_LENGTH),
+                formatColumn("achieved", RATE_FORMAT_LENGTH)));
+        for (double p : PERCENTILES) {
+            sb.append(' ').append(formatColumn("p" + formatPercentile(p) + "(us)", LATENCY_FORMAT_LENGTH));
+        }
+        sb.append(' ').append(formatColumn("max(us)", LATENCY_FORMAT_LENGTH)).append(" result\n");
+
+        for (Step step : steps) {
+            sb.append(format("%4d %s %s %s", step.index,
+                    formatDouble(step.ratePerSecond, RATE_FORMAT_LENGTH),
+                    formatDouble(step.offeredPerSecond, RATE_FORMAT_LENGTH),
+                    formatDouble(step.achievedPerSecond, RATE_FORMAT_LENGTH)));
+            for (long latency : step.percentileLatenciesNanos) {
+                sb.append(' ').append(formatLong(NANOSECONDS.toMicros(latency), LATENCY_FORMAT_LENGTH));
+            }
+            sb.append(' ').append(formatLong(NANOSECONDS.toMicros(step.maxLatencyNanos), LATENCY_FORMAT_LENGTH))
+                    .append(step.passed ? " pass" : " fail").append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats the latency curve of all steps as csv; the latencies are in microseconds.
+     *
+     * @return the csv.
+     */
+    String toCsv() {
+        StringBuilder sb = new StringBuilder("step,rate-per-worker,offered-operations/second,achieved-operations/second");
+        for (double p : PERCENTILES) {
+            sb.append(",p").append(formatPercentile(p)).append("(us)");
+        }
+        sb.append(",max(us),slo,result\n");
+
+        for (Step step : steps) {
+            sb.append(step.index).append(',').append(step.ratePerSecond)
+                    .append(',').append(step.offeredPerSecond)
+                    .append(',').append(step.achievedPerSecond);
+            for (long latency : step.percentileLatenciesNanos) {
+                sb.append(',').append(NANOSECONDS.toMicros(latency));
+            }
+            sb.append(',').append(NANOSECONDS.toMicros(step.maxLatencyNanos))
+                    .append(',').append(slo)
+                    .append(',').append(step.passed ? "pass" : "fail").append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static String formatColumn(String column, int length) {
+        return format("%" + length + "s", column);
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+
+    @Override
+    public String toString() {
+        return format("%s using steps of %ss", slo, stepSeconds) + (maxRatePerSecond == 0 ? "" : format(
+                " and a maximum rate of %s ops/s per worker", formatLong(round(maxRatePerSecond), 0)));
+    }
+
+    /**
+     * The result of a single step of the search.
+     */
+    static final class Step {
+        private final int index;
+        private final double ratePerSecond;
+        private final double offeredPerSecond;
+        private final double achievedPerSecond;
+        private final long[] percentileLatenciesNanos = new long[PERCENTILES.length];
+        private final long maxLatencyNanos;
+        private final boolean passed;
+
+        private Step(int index, double ratePerSecond, double offeredPerSecond, double achievedPerSecond,
+                     Histogram histogram, boolean passed) {
+            this.index = index;
+            this.ratePerSecond = ratePerSecond;
+            this.offeredPerSecond = offeredPerSecond;
+            this.achievedPerSecond = achievedPerSecond;
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                percentileLatenciesNanos[i] = histogram.getValueAtPercentile(PERCENTILES[i]);
+            }
+            this.maxLatencyNanos = histogram.getMaxValue();
+            this.passed = passed;
+        }
+
+        double getRatePerSecond() {
+            return ratePerSecond;
+        }
+
+        double getOfferedPerSecond() {
+            return offeredPerSecond;
+        }
+
+        double getAchievedPerSecond() {
+            return achievedPerSecond;
+        }
+
+        boolean isPassed() {
+            return passed;
+        }
+
+        @Override
+        public String toString() {
+            return format("step %d %s ops/s per worker: offered %s ops/s, achieved %s ops/s, %s",
+                    index, formatLong(round(ratePerSecond), 0), formatLong(round(offeredPerSecond), 0),
+                    formatLong(round(achievedPerSecond), 0), passed ? "meets the SLO" : "doesn't meet the SLO");
+        }
+    }
+}
@@ -26,13 +26,19 @@ import com.hazelcast.simulator.protocol.message.SimulatorMessage;
 import com.hazelcast.simulator.worker.messages.CreateTestMessage;
 import com.hazelcast.simulator.worker.messages.StartPhaseMessage;
 import com.hazelcast.simulator.worker.messages.StopRunMessage;
+import com.hazelcast.simulator.worker.messages.UpdateRateMessage;
+import org.HdrHistogram.Histogram;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -52,10 +58,15 @@ import static com.hazelcast.simulator.utils.CommonUtils.getElapsedSeconds;
 import static com.hazelcast.simulator.utils.CommonUtils.rethrow;
 import static com.hazelcast.simulator.utils.CommonUtils.sleepSeconds;
 import static com.hazelcast.simulator.utils.CommonUtils.sleepUntilMs;
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.FileUtils.writeText;
+import static com.hazelcast.simulator.utils.FormatUtils.formatLong;
 import static com.hazelcast.simulator.utils.FormatUtils.formatPercentage;
 import static com.hazelcast.simulator.utils.FormatUtils.padRight;
 import static com.hazelcast.simulator.utils.FormatUtils.secondsToHuman;
 import static java.lang.Math.min;
+import static java.lang.Math.round;
 import static java.lang.String.format;
 import static java.lang.System.currentTimeMillis;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
@@ -69,6 +80,8 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 public final class TestCaseRunner {
 
     private static final int RUN_PHASE_LOG_INTERVAL_SECONDS = 30;
+    private static final String RATE_PER_SECOND = "ratePerSecond";
+    private static final String GROUP_RATE_PER_SECOND = "RatePerSecond";
     private static final int WAIT_FOR_PHASE_COMPLETION_LOG_INTERVAL_SECONDS = 30;
     private static final int WAIT_FOR_PHASE_COMPLETION_LOG_VERBOSE_DELAY_SECONDS = 300;
     private static final Logger LOGGER = LogManager.getLogger(TestCaseRunner.class);
@@ -88,6 +101,17 @@ public final class TestCaseRunner {
     private final int logRunPhaseIntervalSeconds;
     private final List<WorkerData> targets;
     private final WorkerData globalTarget;
+    private final String runPath;
+    private final SloSearch sloSearch;
+    private boolean sloSearchActive;
+    private long sloStepStartMs;
+    private long sloMeasureStartMs;
+    private Histogram sloStepStartHistogram;
+    private long sloStepStartOperationCount;
+    // the rate the workers applied for the current step; 0 if unknown.
+    private double sloStepOfferedPerSecond;
+    private final boolean measureAfterSteadyState;
+    private long steadyStateMs;
 
     @SuppressWarnings("checkstyle:parameternumber")
     public TestCaseRunner(TestData test,
@@ -118,6 +142,24 @@ public final class TestCaseRunner {
         } else {
             this.logRunPhaseIntervalSeconds = RUN_PHASE_LOG_INTERVAL_SECONDS;
         }
+        this.runPath = coordinatorParameters.getSimulatorProperties().get("run_path");
+        this.sloSearch = loadSloSearch();
+        this.measureAfterSteadyState = Boolean.parseBoolean(testCase.getProperty("measureAfterSteadyState"));
+    }
+
+    private SloSearch loadSloSearch() {
+        SloSearch search = SloSearch.load(testCase, targetCount);
+        if (search == null) {
+            return null;
+        }
+
+        // the first performance interval of a step is skipped, so the measurement only contains the new rate.
+        if (performanceMonitorIntervalSeconds <= 0 || search.getStepSeconds() < 2 * performanceMonitorIntervalSeconds) {
+            throw new IllegalArgumentException(format("%s of test [%s] requires performance monitoring and %s of at least"
+                            + " twice performance_monitor_interval_seconds [%s]", SloSearch.PROPERTY_SLO, testCase.getId(),
+                    SloSearch.PROPERTY_STEP_SECONDS, performanceMonitorIntervalSeconds));
+        }
+        return search;
     }
 
     public boolean run() {
@@ -179,6 +221,34 @@ public final class TestCaseRunner {
         awaitCompletion(futures);
     }
 
+    /**
+     * Changes the rate on all workers.
+     *
+     * @return the sum of the rates the workers applied, or 0 if a worker didn't report it.
+     */
+    private double updateRateOnTargets(UpdateRateMessage msg) {
+        double appliedRatePerSecond = 0;
+        boolean reported = true;
+        for (Future f : submitToTargets(false, msg).values()) {
+            Object answer;
+            try {
+                answer = f.get();
+            } catch (InterruptedException e) {
+                throw new RuntimeException();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+
+            try {
+                appliedRatePerSecond += Double.parseDouble(String.valueOf(answer));
+            } catch (NumberFormatException e) {
+                // an older worker answers 'ok'
+                reported = false;
+            }
+        }
+        return reported ? appliedRatePerSecond : 0;
+    }
+
     private Map<WorkerData, Future> submitToTargets(boolean singleTarget, SimulatorMessage msg) {
         Map<WorkerData, Future> futures = new HashMap<>();
 
@@ -235,6 +305,10 @@ public final class TestCaseRunner {
         Map<WorkerData, Future> futures = startRun();
 
         long startMs = currentTimeMillis();
+        if (sloSearch != null) {
+            log("Searching the maximum sustainable throughput for " + sloSearch);
+            sloSearchActive = startSloStep(startMs);
+        }
 
         long durationSeconds = testSuite.getDurationSeconds();
         long durationMs;
@@ -266,6 +340,20 @@ public final class TestCaseRunner {
                 break;
             }
 
+            if (steadyStateMs == 0 && performanceStatsCollector.get(testCase.getId(), false).isSteadyState()) {
+                steadyStateMs = nowMs;
+                log(format("All workers reached steady state after %s", secondsToHuman(MILLISECONDS.toSeconds(nowMs - startMs))));
+            }
+
+            if (runPath != null) {
+                updateRateFromFile();
+            }
+
+            if (sloSearch != null && !updateSloSearch(nowMs)) {
+                log("Test finished SLO search");
+                break;
+            }
+
             iteration++;
             if (iteration % logRunPhaseIntervalSeconds == 0) {
                 logProgress(nowMs - startMs, durationMs);
@@ -278,9 +366,140 @@ public final class TestCaseRunner {
 
         logFinalPerformanceInfo(startMs);
 
+        if (sloSearch != null) {
+            logSloSearchResult();
+        }
+
         waitForGlobalTestPhaseCompletion(RUN);
     }
 
+    /**
+     * Changes the rate of the running test if there is a '[testId].rate' file in the run directory. The file contains
+     * 'ratePerSecond=[rate]' to change the rate of all execution groups, or '[executionGroup]RatePerSecond=[rate]'
+     * to change the rate of a single execution group, just like the properties of the test. The file is deleted once
+     * it has been read.
+     *
+     * The file should be moved into place so it isn't read while being written; see 'perftest update_rate'.
+     */
+    private void updateRateFromFile() {
+        File file = new File(runPath, testCase.getId() + ".rate");
+        if (!file.exists()) {
+            return;
+        }
+
+        String text = fileAsText(file);
+        deleteQuiet(file);
+
+        if (sloSearchActive) {
+            log(format("Ignoring %s, the rate is controlled by the SLO search", file.getName()));
+            return;
+        }
+
+        Properties properties = new Properties();
+        try {
+            properties.load(new StringReader(text));
+        } catch (IOException e) {
+            throw rethrow(e);
+        }
+
+        for (String key : properties.stringPropertyNames()) {
+            String executionGroup;
+            if (key.equals(RATE_PER_SECOND)) {
+                executionGroup = null;
+            } else if (key.endsWith(GROUP_RATE_PER_SECOND)) {
+                executionGroup = key.substring(0, key.length() - GROUP_RATE_PER_SECOND.length());
+            } else {
+                LOGGER.warn(format("%sIgnoring unknown property [%s] in %s", prefix, key, file.getName()));
+                continue;
+            }
+
+            String value = properties.getProperty(key).trim();
+            double ratePerSecond;
+            try {
+                ratePerSecond = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                LOGGER.warn(format("%s%s has an invalid value [%s] in %s", prefix, key, value, file.getName()));
+                continue;
+            }
+
+            log(format("Changing rate%s to %s ops/s per worker",
+                    executionGroup == null ? "" : " of executionGroup [" + executionGroup + "]", value));
+            try {
+                invokeOnTargets(new UpdateRateMessage(testCase.getId(), ratePerSecond, executionGroup));
+            } catch (RuntimeException e) {
+                LOGGER.error(prefix + "Failed to change the rate", e);
+            }
+        }
+    }
+
+    private boolean startSloStep(long nowMs) {
+        log(format("Starting SLO search step %d at %s ops/s per worker", sloSearch.getSteps().size() + 1,
+                formatLong(round(sloSearch.getRatePerSecond()), 0)));
+        try {
+            UpdateRateMessage msg = new UpdateRateMessage(testCase.getId(), sloSearch.getRatePerSecond());
+            sloStepOfferedPerSecond = updateRateOnTargets(msg);
+        } catch (RuntimeException e) {
+            LOGGER.error(prefix + "Failed to change the rate, aborting SLO search", e);
+            return false;
+        }
+        sloStepStartMs = nowMs;
+        sloStepStartHistogram = null;
+        return true;
+    }
+
+    /**
+     * Measures the current step of the SLO search and starts the next step when the current step is complete.
+     *
+     * The steps are measured using the difference between the total histograms of the workers, skipping the first
+     * performance monitor interval since that can still contain latencies of the previous step.
+     *
+     * @return false if the search is done, true otherwise.
+     */
+    private boolean updateSloSearch(long nowMs) {
+        if (!sloSearchActive) {
+            return false;
+        }
+
+        if (sloStepStartHistogram == null) {
+            if (nowMs - sloStepStartMs >= SECONDS.toMillis(performanceMonitorIntervalSeconds)) {
+                sloStepStartHistogram = performanceStatsCollector.getHistogram(testCase.getId(), true);
+                sloStepStartOperationCount = performanceStatsCollector.getOperationCount(testCase.getId());
+                sloMeasureStartMs = nowMs;
+            }
+            return true;
+        }
+
+        if (nowMs - sloStepStartMs < SECONDS.toMillis(sloSearch.getStepSeconds())) {
+            return true;
+        }
+
+        Histogram histogram = performanceStatsCollector.getHistogram(testCase.getId(), true);
+        histogram.subtract(sloStepStartHistogram);
+        long operationCount = performanceStatsCollector.getOperationCount(testCase.getId()) - sloStepStartOperationCount;
+        log(sloSearch.complete(histogram, operationCount, nowMs - sloMeasureStartMs, sloStepOfferedPerSecond).toString());
+        sloSearchActive = !sloSearch.isDone() && startSloStep(nowMs);
+        return sloSearchActive;
+    }
+
+    private void logSloSearchResult() {
+        String result;
+        if (sloSearch.getMaxSustainableRatePerSecond() > 0) {
+            result = format("Maximum sustainable throughput for %s is %s ops/s per worker (%s ops/s in total)",
+                    sloSearch.getSlo(), formatLong(round(sloSearch.getMaxSustainableRatePerSecond()), 0),
+                    formatLong(round(sloSearch.getMaxSustainableOfferedPerSecond()), 0));
+        } else {
+            result = format("No rate met %s", sloSearch.getSlo());
+        }
+        if (!sloSearch.isDone()) {
+            result += " (search incomplete)";
+        }
+        LOGGER.info(format("SLO search %s: %s%n%s", testCase.getId(), result, sloSearch.formatSteps()));
+
+        if (runPath != null) {
+            writeText(sloSearch.toCsv(), new File(runPath, testCase.getId() + ".slo-search.csv"));
+        }
+    }
+
     private boolean isAllDone(Map<WorkerData, Future> futures) {
         for (Future f : futures.values()) {
             if (!f.isDone()) {
@@ -298,12 +517,25 @@ public final class TestCaseRunner {
 
         // then we need to subtract the warmup.
         long durationMillis = durationWithWarmupMillis;
+        // every worker counts the operations from the moment it reached steady state itself, which is earlier than the
+        // moment the coordinator sees that all workers are steady; so the throughput is taken from the workers.
+        boolean throughputFromWorkers = false;
 
         if (performanceMonitorIntervalSeconds > 0) {
+            if (measureAfterSteadyState) {
+                if (steadyStateMs == 0) {
+                    LOGGER.warn(prefix + "Not all workers reached steady state, so the performance is incomplete");
+                } else {
+                    durationMillis = currentTimeMillis() - steadyStateMs;
+                    throughputFromWorkers = true;
+                }
+            }
+
             LOGGER.info(testCase.getId() + " Waiting for all performance info");
             sleepSeconds(performanceMonitorIntervalSeconds);
 
-            String performanceInfo = performanceStatsCollector.detailedPerformanceInfo(testCase.getId(), durationMillis);
+            String performanceInfo = performanceStatsCollector.detailedPerformanceInfo(
+                    testCase.getId(), durationMillis, throughputFromWorkers);
             LOGGER.info("Performance " + testCase.getId() + "\n"
                     + performanceInfo);
         }
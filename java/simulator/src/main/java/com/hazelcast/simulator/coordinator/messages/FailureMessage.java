@@ -18,17 +18,24 @@ package com.hazelcast.simulator.coordinator.messages;
 import com.hazelcast.simulator.common.FailureType;
 import com.hazelcast.simulator.common.TestCase;
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
-import com.hazelcast.simulator.protocol.message.SimulatorMessage;
+import com.hazelcast.simulator.protocol.message.BinaryMessage;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+import static com.hazelcast.simulator.protocol.message.BinaryMessageCodec.readString;
+import static com.hazelcast.simulator.protocol.message.BinaryMessageCodec.writeString;
 import static com.hazelcast.simulator.utils.CommonUtils.throwableToString;
 import static com.hazelcast.simulator.utils.FormatUtils.NEW_LINE;
 
 /**
  * Reports a Simulator Worker failure.
  */
-public class FailureMessage implements SimulatorMessage {
+public class FailureMessage implements BinaryMessage {
 
-    private final long timestamp = System.currentTimeMillis();
+    private long timestamp = System.currentTimeMillis();
 
     private String message;
     private String type;
@@ -44,6 +51,10 @@ public class FailureMessage implements SimulatorMessage {
         this.message = message;
     }
 
+    // for the binary message codec
+    private FailureMessage() {
+    }
+
     public FailureMessage(String message, FailureType type, SimulatorAddress workerAddress, String agentAddress,
                           Throwable cause) {
         this(message, type, workerAddress, agentAddress, null, null, cause == null ? "" : throwableToString(cause));
@@ -127,6 +138,52 @@ public class FailureMessage implements SimulatorMessage {
         return cause;
     }
 
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        out.writeLong(timestamp);
+        writeString(out, message);
+        writeString(out, type);
+        writeString(out, workerAddress);
+        writeString(out, agentAddress);
+        writeString(out, workerId);
+        writeString(out, testId);
+        writeString(out, cause);
+        out.writeLong(durationMs);
+
+        out.writeBoolean(testCase != null);
+        if (testCase != null) {
+            writeString(out, testCase.getId());
+            Map<String, String> properties = testCase.getProperties();
+            out.writeInt(properties.size());
+            for (Map.Entry<String, String> entry : properties.entrySet()) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        timestamp = in.readLong();
+        message = readString(in);
+        type = readString(in);
+        workerAddress = readString(in);
+        agentAddress = readString(in);
+        workerId = readString(in);
+        testId = readString(in);
+        cause = readString(in);
+        durationMs = in.readLong();
+
+        if (in.readBoolean()) {
+            testCase = new TestCase(readString(in));
+            int size = in.readInt();
+            for (int k = 0; k < size; k++) {
+                // the properties are added directly; setProperty would upgrade deprecated properties again.
+                testCase.getProperties().put(readString(in), readString(in));
+            }
+        }
+    }
+
     public String getLogMessage(int failureNumber) {
         StringBuilder sb = new StringBuilder();
         sb.append("Failure #").append(failureNumber);
@@ -40,6 +40,17 @@ public interface LatencyProbe {
 
     void reset();
 
+    /**
+     * Sets the {@link SlowOperationRecorder} the recorded values are offered to. Probes that don't support recording
+     * slow operations ignore it.
+     *
+     * Should be called before the recording threads are started.
+     *
+     * @param slowOperationRecorder the recorder, or null to stop recording slow operations.
+     */
+    default void setSlowOperationRecorder(SlowOperationRecorder slowOperationRecorder) {
+    }
+
     default long negativeCount(){
         return 0;
     }
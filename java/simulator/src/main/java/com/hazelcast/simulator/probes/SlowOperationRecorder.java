@@ -0,0 +1,232 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.probes;
+
+import org.HdrHistogram.WriterReaderPhaser;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Records the slowest operations of every interval, so an outlier in the latency histograms can be lined up with the
+ * logs of the members and the GC logs.
+ *
+ * Every recording thread gets a stripe of its own which keeps the slowest operations above the threshold, so recording
+ * is uncontended. An operation under the threshold only costs a comparison; the entries of a stripe are preallocated
+ * and reused, so apart from the stripe created by the first call on a thread, nothing is allocated on the recording
+ * threads. The thread calling {@link #drain(List)} swaps the entries of the stripes using a {@link WriterReaderPhaser},
+ * so the recording threads never block. The stripe of a thread that has terminated is removed once it has been drained.
+ *
+ * A thread can set a tag, e.g. the key or the partition id, using {@link #tag(Object)}. The tag is added to the slow
+ * operations recorded by the thread until it is replaced, so a test using tags should set the tag for every operation.
+ */
+public final class SlowOperationRecorder {
+
+    private final long thresholdNanos;
+    private final int capacity;
+    private final WriterReaderPhaser phaser = new WriterReaderPhaser();
+    private final List<Stripe> stripes = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Stripe> threadStripe = ThreadLocal.withInitial(() -> newStripe(null));
+
+    /**
+     * Creates a SlowOperationRecorder.
+     *
+     * @param thresholdNanos the minimum latency of an operation to be recorded.
+     * @param capacity       the maximum number of operations recorded per thread per interval.
+     */
+    public SlowOperationRecorder(long thresholdNanos, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity can't be smaller than 1, but was " + capacity);
+        }
+        this.thresholdNanos = thresholdNanos;
+        this.capacity = capacity;
+    }
+
+    public long getThresholdNanos() {
+        return thresholdNanos;
+    }
+
+    /**
+     * Registers the calling thread, so its slow operations are recorded with the execution group. A thread that isn't
+     * registered, e.g. a thread completing asynchronous operations, is recorded without an execution group.
+     *
+     * @param executionGroup the execution group of the thread.
+     */
+    public void registerThread(String executionGroup) {
+        threadStripe.set(newStripe(executionGroup));
+    }
+
+    /**
+     * Sets the tag of the operations of the calling thread.
+     *
+     * @param tag the tag, or null to remove the tag.
+     */
+    public void tag(Object tag) {
+        threadStripe.get().tag = tag;
+    }
+
+    /**
+     * Records the operation if it is slow.
+     *
+     * @param operation    the name of the operation, e.g. the timestep method.
+     * @param latencyNanos the latency of the operation.
+     */
+    public void record(String operation, long latencyNanos) {
+        if (latencyNanos < thresholdNanos) {
+            return;
+        }
+
+        Stripe stripe = threadStripe.get();
+        long startMillis = System.currentTimeMillis() - NANOSECONDS.toMillis(latencyNanos);
+        long criticalValue = phaser.writerCriticalSectionEnter();
+        try {
+            stripe.active.offer(startMillis, latencyNanos, operation, stripe.tag);
+        } finally {
+            phaser.writerCriticalSectionExit(criticalValue);
+        }
+    }
+
+    /**
+     * Moves the slow operations recorded since the previous call to the result.
+     *
+     * Should only be called by a single thread.
+     *
+     * @param result the list to add the slow operations to.
+     */
+    public void drain(List<SlowOperation> result) {
+        phaser.readerLock();
+        try {
+            for (Stripe stripe : stripes) {
+                // checked before the swap; a terminated thread can't record anymore, so its stripe is fully drained.
+                stripe.terminated = !stripe.owner.isAlive();
+                Entries entries = stripe.active;
+                stripe.active = stripe.inactive;
+                stripe.inactive = entries;
+            }
+            // waits till the recording threads are done with the entries they had before the swap
+            phaser.flipPhase();
+            for (Stripe stripe : stripes) {
+                stripe.inactive.drainTo(stripe, result);
+                if (stripe.terminated) {
+                    stripes.remove(stripe);
+                }
+            }
+        } finally {
+            phaser.readerUnlock();
+        }
+    }
+
+    int stripeCount() {
+        return stripes.size();
+    }
+
+    private Stripe newStripe(String executionGroup) {
+        Stripe stripe = new Stripe(executionGroup, Thread.currentThread().getName(), capacity);
+        stripes.add(stripe);
+        return stripe;
+    }
+
+    /**
+     * A recorded slow operation.
+     *
+     * @param startMillis    the wall clock time the operation started.
+     * @param latencyNanos   the latency of the operation.
+     * @param executionGroup the execution group, or null if not known.
+     * @param operation      the name of the operation.
+     * @param threadName     the name of the thread that recorded the operation.
+     * @param tag            the tag set by the test, or null if there is no tag.
+     */
+    public record SlowOperation(long startMillis, long latencyNanos, String executionGroup, String operation,
+                                String threadName, Object tag) {
+    }
+
+    private static final class Stripe {
+        private final Thread owner = Thread.currentThread();
+        private final String executionGroup;
+        private final String threadName;
+        private volatile Entries active;
+        // only accessed by the thread calling drain
+        private Entries inactive;
+        // only accessed by the thread calling drain
+        private boolean terminated;
+        // only accessed by the owning thread
+        private Object tag;
+
+        private Stripe(String executionGroup, String threadName, int capacity) {
+            this.executionGroup = executionGroup;
+            this.threadName = threadName;
+            this.active = new Entries(capacity);
+            this.inactive = new Entries(capacity);
+        }
+    }
+
+    /**
+     * The slowest operations; once full, the fastest entry is replaced by a slower operation.
+     */
+    private static final class Entries {
+        private final long[] startMillis;
+        private final long[] latencyNanos;
+        private final String[] operations;
+        private final Object[] tags;
+        private int size;
+        private int fastestIndex;
+
+        private Entries(int capacity) {
+            this.startMillis = new long[capacity];
+            this.latencyNanos = new long[capacity];
+            this.operations = new String[capacity];
+            this.tags = new Object[capacity];
+        }
+
+        private void offer(long startMillis, long latencyNanos, String operation, Object tag) {
+            int index;
+            if (size < this.latencyNanos.length) {
+                index = size;
+                size++;
+            } else if (latencyNanos > this.latencyNanos[fastestIndex]) {
+                index = fastestIndex;
+            } else {
+                return;
+            }
+
+            this.startMillis[index] = startMillis;
+            this.latencyNanos[index] = latencyNanos;
+            this.operations[index] = operation;
+            this.tags[index] = tag;
+
+            if (size == this.latencyNanos.length) {
+                fastestIndex = 0;
+                for (int i = 1; i < size; i++) {
+                    if (this.latencyNanos[i] < this.latencyNanos[fastestIndex]) {
+                        fastestIndex = i;
+                    }
+                }
+            }
+        }
+
+        private void drainTo(Stripe stripe, List<SlowOperation> result) {
+            for (int i = 0; i < size; i++) {
+                result.add(new SlowOperation(startMillis[i], latencyNanos[i], stripe.executionGroup, operations[i],
+                        stripe.threadName, tags[i]));
+                operations[i] = null;
+                tags[i] = null;
+            }
+            size = 0;
+        }
+    }
+}
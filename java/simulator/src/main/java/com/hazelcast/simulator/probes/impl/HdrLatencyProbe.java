@@ -16,6 +16,7 @@
 package com.hazelcast.simulator.probes.impl;
 
 import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.probes.SlowOperationRecorder;
 import org.HdrHistogram.Recorder;
 
 import java.util.concurrent.atomic.AtomicLong;
@@ -33,10 +34,10 @@ public class HdrLatencyProbe implements LatencyProbe {
     private final AtomicLong negativeCount = new AtomicLong();
 
     // we care only about microsecond accuracy.
-    private static final long LOWEST_DISCERNIBLE_VALUE = MICROSECONDS.toNanos(1);
+    static final long LOWEST_DISCERNIBLE_VALUE = MICROSECONDS.toNanos(1);
 
     // since we care about u    s, the value should be 1000 according to the javadoc of Recorder.
-    private static final int NUMBER_OF_SIGNIFICANT_VALUE_DIGITS = 3;
+    static final int NUMBER_OF_SIGNIFICANT_VALUE_DIGITS = 3;
 
     // these settings come the website; just above the following link
     //https://github.com/HdrHistogram/HdrHistogram#histogram-variants-and-internal-representation
@@ -47,6 +48,8 @@ public class HdrLatencyProbe implements LatencyProbe {
 
     private final boolean includeInThroughput;
     private final String name;
+    // null if slow operations are not recorded
+    private SlowOperationRecorder slowOperationRecorder;
 
     public HdrLatencyProbe(String name, boolean includeInThroughput) {
         this.name = name;
@@ -88,6 +91,11 @@ public class HdrLatencyProbe implements LatencyProbe {
             latencyNanos = HIGHEST_TRACKABLE_VALUE_NANOS;
         }
         recorder.recordValue(latencyNanos);
+
+        SlowOperationRecorder slowOperationRecorder = this.slowOperationRecorder;
+        if (slowOperationRecorder != null) {
+            slowOperationRecorder.record(name, latencyNanos);
+        }
     }
 
     public Recorder getRecorder() {
@@ -104,6 +112,11 @@ public class HdrLatencyProbe implements LatencyProbe {
         return negativeCount.get();
     }
 
+    @Override
+    public void setSlowOperationRecorder(SlowOperationRecorder slowOperationRecorder) {
+        this.slowOperationRecorder = slowOperationRecorder;
+    }
+
     @Override
     public String name() {
         return name;
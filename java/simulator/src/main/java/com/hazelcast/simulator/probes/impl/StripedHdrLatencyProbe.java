@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.probes.impl;
+
+import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.probes.SlowOperationRecorder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hazelcast.simulator.probes.impl.HdrLatencyProbe.HIGHEST_TRACKABLE_VALUE_NANOS;
+import static com.hazelcast.simulator.probes.impl.HdrLatencyProbe.LOWEST_DISCERNIBLE_VALUE;
+import static com.hazelcast.simulator.probes.impl.HdrLatencyProbe.NUMBER_OF_SIGNIFICANT_VALUE_DIGITS;
+
+/**
+ * HDR-Histogram implementation of the {@link LatencyProbe} where every recording thread gets its own
+ * {@link SingleWriterRecorder}.
+ *
+ * With the {@link HdrLatencyProbe} all timestep threads record into the same {@link org.HdrHistogram.Recorder} and
+ * the counts array of the histogram becomes a contention point with high thread counts. This probe gives every
+ * thread a stripe of its own, so recording is uncontended and allocation free. The stripes are only merged when
+ * the interval histogram is requested by the {@link com.hazelcast.simulator.worker.performance.TestOperationsTracker}.
+ *
+ * The price is memory; every stripe has its own pair of histograms. So this probe is intended for a moderate number
+ * of (platform) threads. The stripe of a thread that has terminated is removed once its last interval has been
+ * merged, so threads that come and go don't accumulate stripes. It can be selected using the 'probeClass' test
+ * property.
+ */
+public class StripedHdrLatencyProbe implements LatencyProbe {
+
+    private final AtomicLong negativeCount = new AtomicLong();
+    private final List<Stripe> stripes = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<SingleWriterRecorder> threadRecorder = ThreadLocal.withInitial(this::newStripe);
+
+    private final boolean includeInThroughput;
+    private final String name;
+    // null if slow operations are not recorded
+    private SlowOperationRecorder slowOperationRecorder;
+
+    public StripedHdrLatencyProbe(String name, boolean includeInThroughput) {
+        this.name = name;
+        this.includeInThroughput = includeInThroughput;
+    }
+
+    @Override
+    public boolean includeInThroughput() {
+        return includeInThroughput;
+    }
+
+    @Override
+    public void done(long startNanos) {
+        if (startNanos <= 0) {
+            throw new IllegalArgumentException("startedNanos has to be a positive number");
+        }
+
+        long nowNanos = System.nanoTime();
+        recordValue(nowNanos - startNanos);
+    }
+
+    @Override
+    public void recordValue(long latencyNanos) {
+        if (latencyNanos < 0) {
+            negativeCount.incrementAndGet();
+
+            // see HdrLatencyProbe.recordValue for the negative value handling.
+            if (latencyNanos == Long.MIN_VALUE) {
+                latencyNanos = HIGHEST_TRACKABLE_VALUE_NANOS;
+            } else {
+                latencyNanos = -latencyNanos;
+            }
+        }
+
+        if (latencyNanos > HIGHEST_TRACKABLE_VALUE_NANOS) {
+            latencyNanos = HIGHEST_TRACKABLE_VALUE_NANOS;
+        }
+        threadRecorder.get().recordValue(latencyNanos);
+
+        SlowOperationRecorder slowOperationRecorder = this.slowOperationRecorder;
+        if (slowOperationRecorder != null) {
+            slowOperationRecorder.record(name, latencyNanos);
+        }
+    }
+
+    /**
+     * Gets the interval histogram of all stripes merged into a single histogram.
+     *
+     * Should only be called by a single thread; just like {@link org.HdrHistogram.Recorder#getIntervalHistogram()}
+     * the recorded values are reset.
+     *
+     * @return the merged interval histogram.
+     */
+    public Histogram getIntervalHistogram() {
+        Histogram merged = newHistogram();
+        for (Stripe stripe : stripes) {
+            // checked before draining; a terminated thread can't record anymore, so its stripe is fully drained.
+            boolean terminated = !stripe.owner.isAlive();
+            stripe.intervalHistogram = stripe.recorder.getIntervalHistogram(stripe.intervalHistogram);
+            merged.add(stripe.intervalHistogram);
+            if (terminated) {
+                stripes.remove(stripe);
+            }
+        }
+        return merged;
+    }
+
+    int stripeCount() {
+        return stripes.size();
+    }
+
+    @Override
+    public void reset() {
+        for (Stripe stripe : stripes) {
+            stripe.recorder.reset();
+        }
+    }
+
+    @Override
+    public long negativeCount() {
+        return negativeCount.get();
+    }
+
+    @Override
+    public void setSlowOperationRecorder(SlowOperationRecorder slowOperationRecorder) {
+        this.slowOperationRecorder = slowOperationRecorder;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    private SingleWriterRecorder newStripe() {
+        Stripe stripe = new Stripe();
+        stripes.add(stripe);
+        return stripe.recorder;
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(LOWEST_DISCERNIBLE_VALUE, HIGHEST_TRACKABLE_VALUE_NANOS, NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+    }
+
+    private static final class Stripe {
+        private final Thread owner = Thread.currentThread();
+        private final SingleWriterRecorder recorder = new SingleWriterRecorder(
+                LOWEST_DISCERNIBLE_VALUE,
+                HIGHEST_TRACKABLE_VALUE_NANOS,
+                NUMBER_OF_SIGNIFICANT_VALUE_DIGITS);
+
+        // only accessed by the thread calling getIntervalHistogram; recycled to prevent litter.
+        private Histogram intervalHistogram;
+    }
+}
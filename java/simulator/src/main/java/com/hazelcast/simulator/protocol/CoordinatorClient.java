@@ -19,8 +19,9 @@ import com.hazelcast.simulator.common.FailureType;
 import com.hazelcast.simulator.coordinator.FailureCollector;
 import com.hazelcast.simulator.coordinator.messages.FailureMessage;
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
-import com.hazelcast.simulator.protocol.message.SimulatorMessageCodec;
-import com.hazelcast.simulator.protocol.message.MessageType;
+import com.hazelcast.simulator.protocol.message.JsonMessageCodec;
+import com.hazelcast.simulator.protocol.message.MessageCodec;
+import com.hazelcast.simulator.protocol.message.MessageCodecs;
 import com.hazelcast.simulator.protocol.message.SimulatorMessage;
 import com.hazelcast.simulator.utils.SimulatorUtils;
 import org.apache.logging.log4j.LogManager;
@@ -50,10 +51,10 @@ import java.util.concurrent.TimeoutException;
 
 import static com.hazelcast.simulator.common.SimulatorProperties.DEFAULT_AGENT_PORT;
 import static com.hazelcast.simulator.protocol.core.SimulatorAddress.coordinatorAddress;
-import static com.hazelcast.simulator.protocol.message.MessageType.getMessageType;
 import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
 import static com.hazelcast.simulator.utils.UuidUtil.newUnsecureUuidString;
 import static java.lang.String.format;
+import static java.util.Collections.singletonList;
 import static java.lang.System.currentTimeMillis;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static javax.jms.DeliveryMode.NON_PERSISTENT;
@@ -76,6 +77,7 @@ public class CoordinatorClient implements Closeable {
     private MessageHandler processor;
     private int remoteBrokerPort = DEFAULT_AGENT_PORT;
     private FailureCollector failureCollector;
+    private MessageCodec messageCodec = JsonMessageCodec.INSTANCE;
     private volatile boolean stop;
 
     public CoordinatorClient() {
@@ -92,6 +94,18 @@ public class CoordinatorClient implements Closeable {
         return this;
     }
 
+    /**
+     * Sets the {@link MessageCodec} used to encode the messages to the agents and workers. The default is JSON, which is
+     * understood by all agents and workers.
+     *
+     * @param messageCodec the MessageCodec.
+     * @return this;
+     */
+    public CoordinatorClient setMessageCodec(MessageCodec messageCodec) {
+        this.messageCodec = messageCodec;
+        return this;
+    }
+
     public CoordinatorClient setAgentBrokerPort(int port) {
         this.remoteBrokerPort = port;
         return this;
@@ -271,7 +285,7 @@ public class CoordinatorClient implements Closeable {
         }
 
         private void run() throws JMSException {
-            Message message = remoteBroker.session.createMessage();
+            Message message = messageCodec.encode(remoteBroker.sendSession, singletonList(msg));
 
             if (requestId != null) {
                 message.setJMSReplyTo(remoteBroker.replyQueue);
@@ -280,8 +294,6 @@ public class CoordinatorClient implements Closeable {
 
             message.setStringProperty("source", coordinatorAddress().toString());
             message.setStringProperty("target", target.toString());
-            message.setStringProperty("payload", SimulatorMessageCodec.toJson(msg));
-            message.setIntProperty("msgType", getMessageType(msg).toInt());
 
             switch (target.getAddressLevel()) {
                 case AGENT:
@@ -313,7 +325,10 @@ public class CoordinatorClient implements Closeable {
 
     final class RemoteBroker implements Closeable, ExceptionListener {
         private volatile boolean closed;
+        // the session for the consumers; it is only used by the ResponseHandlerThread.
         private final Session session;
+        // the session for the producers; it is only used by the SendThread.
+        private final Session sendSession;
         private final Connection connection;
         private final MessageProducer agentProducer;
         private final MessageProducer workerProducer;
@@ -330,11 +345,12 @@ public class CoordinatorClient implements Closeable {
             connection = connectionFactory.newConnection("tcp://" + ip + ":" + remoteBrokerPort, this);
             connected = true;
             session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            sendSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
 
-            agentProducer = session.createProducer(session.createTopic("agents"));
+            agentProducer = sendSession.createProducer(sendSession.createTopic("agents"));
             agentProducer.setDeliveryMode(NON_PERSISTENT);
 
-            workerProducer = session.createProducer(session.createTopic("workers"));
+            workerProducer = sendSession.createProducer(sendSession.createTopic("workers"));
             workerProducer.setDeliveryMode(NON_PERSISTENT);
 
             coordinatorConsumer = session.createConsumer(session.createTopic("coordinator"));
@@ -387,6 +403,9 @@ public class CoordinatorClient implements Closeable {
 
         private static final int DELAY_MILLIS = 100;
 
+        // there are only a few agents and workers; so their addresses are parsed once.
+        private final Map<String, SimulatorAddress> sourceAddresses = new HashMap<>();
+
         @Override
         public void run() {
             try {
@@ -433,17 +452,16 @@ public class CoordinatorClient implements Closeable {
                     return false;
                 }
 
-                MessageType msgType = MessageType.fromInt(message.getIntProperty("msgType"));
-                String msgData = message.getStringProperty("payload");
-
-                SimulatorMessage msg = SimulatorMessageCodec.fromJson(msgData, msgType.getClassType());
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Received " + msg);
-                }
+                SimulatorAddress source = toSourceAddress(message.getStringProperty("source"));
 
-                SimulatorAddress source = SimulatorAddress.fromString(message.getStringProperty("source"));
+                // a server that coalesces its messages can send multiple messages in a single JMS message.
+                for (SimulatorMessage msg : MessageCodecs.decode(message)) {
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Received " + msg);
+                    }
 
-                processor.process(msg, source, EmptyPromise.INSTANCE);
+                    processor.process(msg, source, EmptyPromise.INSTANCE);
+                }
                 return true;
             } catch (Exception e) {
                 if (!stop) {
@@ -454,6 +472,15 @@ public class CoordinatorClient implements Closeable {
             }
         }
 
+        private SimulatorAddress toSourceAddress(String source) {
+            SimulatorAddress address = sourceAddresses.get(source);
+            if (address == null) {
+                address = SimulatorAddress.fromString(source);
+                sourceAddresses.put(source, address);
+            }
+            return address;
+        }
+
         private boolean processResponses(RemoteBroker remoteBroker) {
             try {
                 Message replyMessage = remoteBroker.replyQueueConsumer.receiveNoWait();
@@ -16,9 +16,11 @@
 package com.hazelcast.simulator.protocol;
 
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
-import com.hazelcast.simulator.protocol.message.SimulatorMessageCodec;
-import com.hazelcast.simulator.protocol.message.MessageType;
+import com.hazelcast.simulator.protocol.message.JsonMessageCodec;
+import com.hazelcast.simulator.protocol.message.MessageCodec;
+import com.hazelcast.simulator.protocol.message.MessageCodecs;
 import com.hazelcast.simulator.protocol.message.SimulatorMessage;
+import com.hazelcast.simulator.utils.EmptyStatement;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -32,14 +34,20 @@ import javax.jms.MessageProducer;
 import javax.jms.Session;
 import javax.jms.Topic;
 import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import static com.hazelcast.simulator.common.SimulatorProperties.DEFAULT_AGENT_PORT;
-import static com.hazelcast.simulator.protocol.message.MessageType.getMessageType;
 import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
 import static com.hazelcast.simulator.utils.Preconditions.checkNotNull;
 import static com.hazelcast.simulator.utils.SimulatorUtils.localIp;
 import static java.lang.String.format;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static javax.jms.DeliveryMode.NON_PERSISTENT;
 
 
@@ -50,19 +58,34 @@ import static javax.jms.DeliveryMode.NON_PERSISTENT;
  *
  * If you are a client, this is the class you want to study thoroughly. It contains most of the logic needed for understanding
  * how to integrate your client.
+ *
+ * Messages to the coordinator and replies are sent using a single session and cached producers; the session is guarded
+ * by a lock so that messages can be sent by any thread. Optionally the messages to the coordinator can be coalesced: a
+ * background thread collects the messages sent within a short window and sends them as a single JMS message. This
+ * reduces the load on the broker when many messages are sent, e.g. the performance stats and log messages of many tests.
+ * Once the server is closed, the messages to the coordinator are sent directly again, so they are never lost silently.
  */
 public class Server implements Closeable {
     private static final Logger LOGGER = LogManager.getLogger(Server.class);
+    private static final int MAX_BATCH_SIZE = 100;
 
     private final String topic;
     private final ConnectionFactory connectionFactory = new ConnectionFactory();
     private final ServerThread serverThread = new ServerThread();
+    private final Object sendLock = new Object();
     private SimulatorAddress selfAddress;
     private MessageHandler processor;
     private MessageConsumer consumer;
     private Session session;
     private Topic destination;
     private Connection connection;
+    // the session used for sending; the session of the consumer is owned by the ServerThread.
+    private Session sendSession;
+    private MessageProducer coordinatorProducer;
+    private MessageProducer replyProducer;
+    private long coalescingWindowMillis;
+    private MessageCodec messageCodec = JsonMessageCodec.INSTANCE;
+    private CoalescingThread coalescingThread;
     private String brokerURL;
     private String selfAddressString;
     private ExceptionListener exceptionListener = e -> LOGGER.error("JMS Exception occurred", e);
@@ -107,6 +130,30 @@ public class Server implements Closeable {
         return this;
     }
 
+    /**
+     * Sets the window in which messages to the coordinator are coalesced into a single JMS message. A value of 0 or
+     * smaller disables coalescing; so every message is send immediately.
+     *
+     * @param coalescingWindowMillis the window in milliseconds.
+     * @return this;
+     */
+    public Server setCoalescingWindowMillis(long coalescingWindowMillis) {
+        this.coalescingWindowMillis = coalescingWindowMillis;
+        return this;
+    }
+
+    /**
+     * Sets the {@link MessageCodec} used to encode the messages to the coordinator. The coordinator detects the codec
+     * of a message; so it doesn't need to be configured.
+     *
+     * @param messageCodec the MessageCodec.
+     * @return this;
+     */
+    public Server setMessageCodec(MessageCodec messageCodec) {
+        this.messageCodec = checkNotNull(messageCodec, "messageCodec can't be null");
+        return this;
+    }
+
     public Server setBrokerURL(String brokerURL) {
         this.brokerURL = brokerURL;
         return this;
@@ -137,6 +184,19 @@ public class Server implements Closeable {
             String selector = "target='" + selfAddress + "'";
             LOGGER.info(format("Using messageSelector [%s]", selector));
             this.consumer = session.createConsumer(destination, selector);
+
+            this.sendSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            this.coordinatorProducer = sendSession.createProducer(sendSession.createTopic("coordinator"));
+            coordinatorProducer.setTimeToLive(MINUTES.toMillis(1));
+            coordinatorProducer.setDeliveryMode(NON_PERSISTENT);
+            // the replyTo destination is different for every request; so the destination is passed on send.
+            this.replyProducer = sendSession.createProducer(null);
+
+            if (coalescingWindowMillis > 0) {
+                LOGGER.info("Coalescing messages to the coordinator within " + coalescingWindowMillis + " ms");
+                coalescingThread = new CoalescingThread();
+                coalescingThread.start();
+            }
             serverThread.start();
 
             LOGGER.info("Successfully started server for " + selfAddressString);
@@ -152,27 +212,37 @@ public class Server implements Closeable {
     public void close() {
         stop = true;
         serverThread.interrupt();
+        if (coalescingThread != null) {
+            coalescingThread.shutdown();
+        }
         closeQuietly(connection);
         LOGGER.info("Server Stopped");
     }
 
     public void sendCoordinator(SimulatorMessage msg) {
-        try {
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("sending [" + msg + "]");
-            }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("sending [" + msg + "]");
+        }
 
-            Destination topic = session.createTopic("coordinator");
-            MessageProducer producer = session.createProducer(topic);
-            producer.setTimeToLive(MINUTES.toMillis(1));
-            producer.setDeliveryMode(NON_PERSISTENT);
+        CoalescingThread coalescingThread = this.coalescingThread;
+        if (coalescingThread == null || !coalescingThread.offer(msg)) {
+            // if the server is closed, the send fails and is logged.
+            sendCoordinator(singletonList(msg));
+        }
+    }
 
-            Message message = session.createMessage();
-            message.setStringProperty("source", selfAddressString);
-            message.setStringProperty("payload", SimulatorMessageCodec.toJson(msg));
-            message.setIntProperty("msgType", getMessageType(msg).toInt());
+    // just for testing
+    int coalescingQueueSize() {
+        return coalescingThread == null ? 0 : coalescingThread.queue.size();
+    }
 
-            producer.send(message);
+    private void sendCoordinator(List<SimulatorMessage> msgs) {
+        try {
+            synchronized (sendLock) {
+                Message message = messageCodec.encode(sendSession, msgs);
+                message.setStringProperty("source", selfAddressString);
+                coordinatorProducer.send(message);
+            }
         } catch (JMSException e) {
             LOGGER.error(e);
         }
@@ -194,30 +264,107 @@ public class Server implements Closeable {
             }
 
             try {
-                Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
-                Message message = session.createMessage();
-                message.setJMSCorrelationID(correlationId);
-                message.setStringProperty("source", selfAddressString);
-
-                if (o instanceof Throwable) {
-                    Throwable throwable = (Throwable) o;
-                    message.setBooleanProperty("error", true);
-                    message.setStringProperty("message", throwable.getMessage());
-                } else {
-                    message.setBooleanProperty("error", false);
-                    // hack
-                    message.setStringProperty("payload", "" + o);
+                synchronized (sendLock) {
+                    Message message = sendSession.createMessage();
+                    message.setJMSCorrelationID(correlationId);
+                    message.setStringProperty("source", selfAddressString);
+
+                    if (o instanceof Throwable) {
+                        Throwable throwable = (Throwable) o;
+                        message.setBooleanProperty("error", true);
+                        message.setStringProperty("message", throwable.getMessage());
+                    } else {
+                        message.setBooleanProperty("error", false);
+                        // hack
+                        message.setStringProperty("payload", "" + o);
+                    }
+
+                    replyProducer.send(replyTo, message);
                 }
-
-                MessageProducer producer = session.createProducer(replyTo);
-                producer.send(message);
-                session.close();
             } catch (JMSException e) {
                 LOGGER.error(e);
             }
         }
     }
 
+    /**
+     * Collects the messages to the coordinator that are sent within the coalescing window and sends them as a single
+     * JMS message.
+     */
+    private class CoalescingThread extends Thread {
+        private final BlockingQueue<SimulatorMessage> queue = new LinkedBlockingQueue<>();
+        private final List<SimulatorMessage> batch = new ArrayList<>();
+        private volatile boolean shutdown;
+        private volatile boolean drained;
+
+        CoalescingThread() {
+            super("CoalescingThread");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!shutdown) {
+                    batch.add(queue.take());
+                    long deadlineNanos = System.nanoTime() + MILLISECONDS.toNanos(coalescingWindowMillis);
+                    while (batch.size() < MAX_BATCH_SIZE) {
+                        long remainingNanos = deadlineNanos - System.nanoTime();
+                        SimulatorMessage msg = remainingNanos <= 0 ? queue.poll() : queue.poll(remainingNanos, NANOSECONDS);
+                        if (msg == null) {
+                            break;
+                        }
+                        batch.add(msg);
+                    }
+                    flush();
+                }
+            } catch (InterruptedException e) {
+                EmptyStatement.ignore(e);
+            }
+
+            // the messages that have been sent before the shutdown are still sent.
+            drained = true;
+            queue.drainTo(batch);
+            while (!batch.isEmpty()) {
+                List<SimulatorMessage> chunk = batch.subList(0, Math.min(batch.size(), MAX_BATCH_SIZE));
+                sendCoordinator(new ArrayList<>(chunk));
+                chunk.clear();
+            }
+        }
+
+        /**
+         * Offers a message to be coalesced.
+         *
+         * @param msg the message.
+         * @return true if the message will be sent by this thread, false if the thread has already drained its queue
+         * and the caller needs to send the message itself.
+         */
+        private boolean offer(SimulatorMessage msg) {
+            queue.add(msg);
+            if (!drained) {
+                // the queue is drained after drained is set, so the message is included.
+                return true;
+            }
+            // if the final drain took the message, it is sent by this thread; otherwise the caller owns it.
+            return !queue.remove(msg);
+        }
+
+        private void flush() {
+            sendCoordinator(new ArrayList<>(batch));
+            batch.clear();
+        }
+
+        private void shutdown() {
+            shutdown = true;
+            interrupt();
+            try {
+                join(MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
     private class ServerThread extends Thread {
 
         @Override
@@ -238,9 +385,8 @@ public class Server implements Closeable {
         private void handle() throws Exception {
             Message message = consumer.receive();
 
-            MessageType msgType = MessageType.fromInt(message.getIntProperty("msgType"));
-            String msgData = message.getStringProperty("payload");
-            SimulatorMessage msg = SimulatorMessageCodec.fromJson(msgData, msgType.getClassType());
+            // requests are never coalesced; so a message contains a single request.
+            SimulatorMessage msg = MessageCodecs.decode(message).get(0);
             if (LOGGER.isDebugEnabled()) {
                 LOGGER.debug("Received msg:" + msg);
             }
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.message;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A {@link SimulatorMessage} with a hand-written binary encoding for the {@link BinaryMessageCodec}.
+ *
+ * Messages that are send frequently, like the {@link com.hazelcast.simulator.worker.messages.PerformanceStatsMessage},
+ * should implement this interface; all other messages are encoded as JSON by the {@link BinaryMessageCodec}.
+ *
+ * An implementation needs a no-arg constructor; {@link #readData(DataInput)} is called on a new instance.
+ */
+public interface BinaryMessage extends SimulatorMessage {
+
+    void writeData(DataOutput out) throws IOException;
+
+    void readData(DataInput in) throws IOException;
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.message;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.hazelcast.simulator.protocol.message.MessageType.getMessageType;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A {@link MessageCodec} that stores the messages in the body of a {@link BytesMessage}.
+ *
+ * The JMS message is tagged with the 'codecVersion' property, so a receiver can tell it apart from the JSON encoding and
+ * from future versions of this encoding. The body contains the number of messages, followed by every message:
+ * <ol>
+ * <li>the classId of its {@link MessageType}</li>
+ * <li>a flag if the message is a {@link BinaryMessage}</li>
+ * <li>the data written by {@link BinaryMessage#writeData(DataOutput)} or else the message as JSON</li>
+ * </ol>
+ */
+public final class BinaryMessageCodec implements MessageCodec {
+
+    public static final BinaryMessageCodec INSTANCE = new BinaryMessageCodec();
+
+    static final String CODEC_VERSION = "codecVersion";
+    /**
+     * The version of the encoding; it has to be increased when the data written by a {@link BinaryMessage} changes, so a
+     * worker and a coordinator of different builds reject each other's messages instead of misreading them.
+     *
+     * 1: initial version
+     * 2: the {@link com.hazelcast.simulator.worker.performance.PerformanceStats} include the interval histogram, the
+     * steady state flag, the pauses and the cost per operation
+     */
+    static final int VERSION = 2;
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final int NULL_LENGTH = -1;
+
+    private final ConcurrentMap<Class<? extends SimulatorMessage>, Constructor<? extends SimulatorMessage>> constructors
+            = new ConcurrentHashMap<>();
+
+    private BinaryMessageCodec() {
+    }
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+
+    @Override
+    public Message encode(Session session, List<SimulatorMessage> msgs) throws JMSException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(msgs.size());
+            for (SimulatorMessage msg : msgs) {
+                out.writeInt(getMessageType(msg).toInt());
+                if (msg instanceof BinaryMessage) {
+                    out.writeBoolean(true);
+                    ((BinaryMessage) msg).writeData(out);
+                } else {
+                    out.writeBoolean(false);
+                    writeString(out, SimulatorMessageCodec.toJson(msg));
+                }
+            }
+        } catch (IOException e) {
+            throw newJMSException("Failed to encode " + msgs, e);
+        }
+
+        BytesMessage message = session.createBytesMessage();
+        message.setIntProperty(CODEC_VERSION, VERSION);
+        message.writeBytes(bytes.toByteArray());
+        return message;
+    }
+
+    @Override
+    public List<SimulatorMessage> decode(Message message) throws JMSException {
+        int version = message.getIntProperty(CODEC_VERSION);
+        if (version != VERSION) {
+            throw new JMSException("Unsupported codec version " + version + ", expected " + VERSION);
+        }
+
+        BytesMessage bytesMessage = (BytesMessage) message;
+        byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(bytes);
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int count = in.readInt();
+            List<SimulatorMessage> msgs = new ArrayList<>(count);
+            for (int k = 0; k < count; k++) {
+                MessageType msgType = MessageType.fromInt(in.readInt());
+                if (in.readBoolean()) {
+                    BinaryMessage msg = (BinaryMessage) newInstance(msgType.getClassType());
+                    msg.readData(in);
+                    msgs.add(msg);
+                } else {
+                    msgs.add(SimulatorMessageCodec.fromJson(readString(in), msgType.getClassType()));
+                }
+            }
+            return msgs;
+        } catch (IOException e) {
+            throw newJMSException("Failed to decode " + message, e);
+        }
+    }
+
+    private SimulatorMessage newInstance(Class<? extends SimulatorMessage> classType) throws JMSException {
+        try {
+            Constructor<? extends SimulatorMessage> constructor = constructors.get(classType);
+            if (constructor == null) {
+                constructor = classType.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                constructors.put(classType, constructor);
+            }
+            return constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw newJMSException("Failed to create an instance of " + classType.getName(), e);
+        }
+    }
+
+    private static JMSException newJMSException(String message, Exception cause) {
+        JMSException exception = new JMSException(message);
+        exception.setLinkedException(cause);
+        exception.initCause(cause);
+        return exception;
+    }
+
+    /**
+     * Writes a string that can be <code>null</code> and isn't limited to 64 KB like {@link DataOutput#writeUTF(String)}.
+     *
+     * @param out   the output to write to.
+     * @param value the string to write.
+     * @throws IOException if writing fails.
+     */
+    public static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutput, String)}.
+     *
+     * @param in the input to read from.
+     * @return the read string; can be <code>null</code>.
+     * @throws IOException if reading fails.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.message;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hazelcast.simulator.protocol.message.MessageType.getMessageType;
+import static java.util.Collections.singletonList;
+
+/**
+ * A {@link MessageCodec} that stores the messages as JSON in string properties of the JMS message.
+ *
+ * A single message is stored in the 'msgType' and 'payload' properties. A batch of messages stores the number of
+ * messages in the 'batchSize' property and every message in the 'msgType_i' and 'payload_i' properties.
+ *
+ * This is the original wire format, so it is understood by every agent, worker and coordinator.
+ */
+public final class JsonMessageCodec implements MessageCodec {
+
+    public static final JsonMessageCodec INSTANCE = new JsonMessageCodec();
+
+    static final String BATCH_SIZE = "batchSize";
+
+    private static final String MSG_TYPE = "msgType";
+    private static final String PAYLOAD = "payload";
+
+    private JsonMessageCodec() {
+    }
+
+    @Override
+    public String getName() {
+        return "json";
+    }
+
+    @Override
+    public Message encode(Session session, List<SimulatorMessage> msgs) throws JMSException {
+        Message message = session.createMessage();
+        encode(message, msgs);
+        return message;
+    }
+
+    void encode(Message message, List<SimulatorMessage> msgs) throws JMSException {
+        if (msgs.size() == 1) {
+            encode(message, msgs.get(0), MSG_TYPE, PAYLOAD);
+            return;
+        }
+
+        message.setIntProperty(BATCH_SIZE, msgs.size());
+        for (int k = 0; k < msgs.size(); k++) {
+            encode(message, msgs.get(k), MSG_TYPE + "_" + k, PAYLOAD + "_" + k);
+        }
+    }
+
+    private static void encode(Message message, SimulatorMessage msg, String msgTypeProperty, String payloadProperty)
+            throws JMSException {
+        message.setStringProperty(payloadProperty, SimulatorMessageCodec.toJson(msg));
+        message.setIntProperty(msgTypeProperty, getMessageType(msg).toInt());
+    }
+
+    @Override
+    public List<SimulatorMessage> decode(Message message) throws JMSException {
+        if (!message.propertyExists(BATCH_SIZE)) {
+            return singletonList(decode(message, MSG_TYPE, PAYLOAD));
+        }
+
+        int batchSize = message.getIntProperty(BATCH_SIZE);
+        List<SimulatorMessage> msgs = new ArrayList<>(batchSize);
+        for (int k = 0; k < batchSize; k++) {
+            msgs.add(decode(message, MSG_TYPE + "_" + k, PAYLOAD + "_" + k));
+        }
+        return msgs;
+    }
+
+    private static SimulatorMessage decode(Message message, String msgTypeProperty, String payloadProperty)
+            throws JMSException {
+        MessageType msgType = MessageType.fromInt(message.getIntProperty(msgTypeProperty));
+        String msgData = message.getStringProperty(payloadProperty);
+        return SimulatorMessageCodec.fromJson(msgData, msgType.getClassType());
+    }
+}
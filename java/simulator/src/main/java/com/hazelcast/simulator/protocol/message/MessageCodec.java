@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.message;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.util.List;
+
+/**
+ * Encodes {@link SimulatorMessage} instances in a JMS {@link Message} and decodes them again.
+ *
+ * A JMS message can contain multiple simulator messages, e.g. when a {@link com.hazelcast.simulator.protocol.Server}
+ * coalesces its outgoing messages. The receiving side selects the codec based on the message; see
+ * {@link MessageCodecs#decode(Message)}. So a sender can pick a codec at startup without the receivers being configured.
+ */
+public interface MessageCodec {
+
+    /**
+     * Returns the name of the codec, e.g. 'json'.
+     *
+     * @return the name.
+     */
+    String getName();
+
+    /**
+     * Encodes the messages in a new JMS message.
+     *
+     * @param session the session to create the JMS message with.
+     * @param msgs    the messages to encode; should contain at least 1 message.
+     * @return the created JMS message.
+     * @throws JMSException if the JMS message could not be created.
+     */
+    Message encode(Session session, List<SimulatorMessage> msgs) throws JMSException;
+
+    /**
+     * Decodes the messages in a JMS message.
+     *
+     * @param message the JMS message.
+     * @return the decoded messages.
+     * @throws JMSException if the JMS message could not be read.
+     */
+    List<SimulatorMessage> decode(Message message) throws JMSException;
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.protocol.message;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.List;
+
+/**
+ * Looks up a {@link MessageCodec} by name and decodes JMS messages using the codec they were encoded with.
+ */
+public final class MessageCodecs {
+
+    private static final MessageCodec[] CODECS = {JsonMessageCodec.INSTANCE, BinaryMessageCodec.INSTANCE};
+
+    private MessageCodecs() {
+    }
+
+    /**
+     * Returns the {@link MessageCodec} with the given name.
+     *
+     * @param name the name of the codec, e.g. 'json' or 'binary'.
+     * @return the codec.
+     * @throws IllegalArgumentException if there is no codec with the given name.
+     */
+    public static MessageCodec fromName(String name) {
+        for (MessageCodec codec : CODECS) {
+            if (codec.getName().equals(name)) {
+                return codec;
+            }
+        }
+
+        StringBuilder names = new StringBuilder();
+        for (MessageCodec codec : CODECS) {
+            names.append(names.length() == 0 ? "" : ", ").append(codec.getName());
+        }
+        throw new IllegalArgumentException("Unknown message codec [" + name + "], valid codecs are: " + names);
+    }
+
+    /**
+     * Decodes a JMS message using the codec it was encoded with. A message without a 'codecVersion' property is
+     * decoded as JSON, so messages from agents and workers that don't know about the binary codec are still understood.
+     *
+     * @param message the JMS message.
+     * @return the decoded messages.
+     * @throws JMSException if the JMS message could not be decoded.
+     */
+    public static List<SimulatorMessage> decode(Message message) throws JMSException {
+        if (message.propertyExists(BinaryMessageCodec.CODEC_VERSION)) {
+            return BinaryMessageCodec.INSTANCE.decode(message);
+        }
+        return JsonMessageCodec.INSTANCE.decode(message);
+    }
+}
@@ -25,6 +25,7 @@ import com.hazelcast.simulator.worker.messages.PerformanceStatsMessage;
 import com.hazelcast.simulator.worker.messages.StartPhaseMessage;
 import com.hazelcast.simulator.worker.messages.StopRunMessage;
 import com.hazelcast.simulator.worker.messages.TerminateWorkerMessage;
+import com.hazelcast.simulator.worker.messages.UpdateRateMessage;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -53,7 +54,8 @@ public enum MessageType {
     CREATE_TEST(CreateTestMessage.class, 4002),
     EXECUTE_SCRIPT(ExecuteScriptMessage.class, 4003),
     START_TEST_PHASE(StartPhaseMessage.class, 4004),
-    STOP_TEST(StopRunMessage.class, 4005);
+    STOP_TEST(StopRunMessage.class, 4005),
+    UPDATE_RATE(UpdateRateMessage.class, 4006);
 
     private final Class<? extends SimulatorMessage> classType;
     private final int classId;
@@ -15,6 +15,9 @@
  */
 package com.hazelcast.simulator.test;
 
+import com.hazelcast.simulator.test.keys.KeyGenerator;
+import com.hazelcast.simulator.utils.FastRandom;
+
 import java.io.Serializable;
 import java.util.Random;
 
@@ -25,12 +28,22 @@ import java.util.Random;
  * This class is called BaseThreadState instead of ThreadState, since in most
  * cases a test needs to subclass BaseThreadState. In this case the prettier and
  * shorter name ThreadState can be used.
+ * <p>
+ * The {@link #random} is owned by the thread of the thread state; it isn't
+ * thread-safe and therefore doesn't pay for a CAS on every call.
+ * <p>
+ * If the 'keyDistribution' test property is configured, {@link #nextKey()}
+ * returns keys according to that distribution. See
+ * {@link com.hazelcast.simulator.test.keys.KeyDistribution} for the available
+ * distributions.
  */
 @SuppressWarnings("unused")
 public class BaseThreadState implements Serializable {
 
     @SuppressWarnings("checkstyle:visibilitymodifier")
-    public final Random random = new Random();
+    public final Random random = new FastRandom();
+
+    private transient KeyGenerator keyGenerator;
 
     /**
      * @return random generated double
@@ -56,8 +69,7 @@ public class BaseThreadState implements Serializable {
             throw new IllegalArgumentException("bound must be positive");
         }
 
-        // rounding will always be down towards 0. So the result will be exclusive the bound.
-        return (long) (random.nextDouble() * bound);
+        return random.nextLong(bound);
     }
 
     /**
@@ -82,4 +94,30 @@ public class BaseThreadState implements Serializable {
     public boolean randomBoolean() {
         return random.nextBoolean();
     }
+
+    /**
+     * Returns the next key according to the configured 'keyDistribution'.
+     *
+     * @return the next key between 0 (inclusive) and 'keyCount' (exclusive).
+     * @throws IllegalStateException if no key generator has been configured.
+     */
+    public long nextKey() {
+        if (keyGenerator == null) {
+            throw new IllegalStateException("No key generator configured, configure the 'keyDistribution' and "
+                    + "'keyCount' properties");
+        }
+        return keyGenerator.nextKey();
+    }
+
+    /**
+     * Sets the {@link KeyGenerator} used by {@link #nextKey()}.
+     *
+     * Normally there is no need to call this method since the key generator is configured by Simulator using the
+     * test properties.
+     *
+     * @param keyGenerator the key generator
+     */
+    public void setKeyGenerator(KeyGenerator keyGenerator) {
+        this.keyGenerator = keyGenerator;
+    }
 }
@@ -103,4 +103,17 @@ public interface TestContext {
      * @param args the arguments
      */
     void echoCoordinator(String msg, Object... args);
+
+    /**
+     * Tags the operations of the calling thread, e.g. with the key or the partition id, so a slow operation can be
+     * traced back. The tag is only used if the test records slow operations (see 'recordSlowOperationsThresholdNs')
+     * and applies to the operations of the thread until it is replaced.
+     * <p/>
+     * This method is threadsafe and doesn't allocate after the first call on a thread; the first call registers the
+     * thread with the recorder.
+     *
+     * @param tag the tag, or null to remove the tag.
+     */
+    default void tagOperation(Object tag) {
+    }
 }
@@ -95,6 +95,21 @@ import java.lang.annotation.Target;
  * and the {@link AfterRun} can take care of some post processing. For a full
  * example see the AtomicLongTest.
  * <p/>
+ * The {@link com.hazelcast.simulator.test.BaseThreadState} can also generate
+ * keys with a realistic access pattern using its nextKey method:
+ * <pre>
+ * {@code
+ *     class=yourtest
+ *     keyDistribution=zipfian
+ *     keyCount=1000000
+ * }
+ * </pre>
+ * The available distributions are uniform, zipfian, scrambledZipfian, hotspot,
+ * latest and sequential. The zipfian based distributions can be tuned using
+ * 'zipfianConstant' (defaults to 0.99) and the hotspot distribution using
+ * 'hotspotDataFraction' (defaults to 0.2) and 'hotspotOpFraction' (defaults to
+ * 0.8).
+ * <p/>
  * <h1>Code generation</h1>
  * The timestep based tests rely on code generation for the actual code to call
  * the timestep methods. This prevents the need for reflection and and the motto
@@ -142,6 +157,36 @@ import java.lang.annotation.Target;
  * </pre>
  * Threadcount defaults to 10.
  * <p/>
+ * Blocking timestep methods need a lot of threads to reach high concurrency.
+ * When the worker runs on Java 21 or newer, the timestep threads can be
+ * virtual threads:
+ * <pre>
+ * {@code
+ *     class=yourtest
+ *     threadCount=10000
+ *     threadType=virtual
+ * }
+ * </pre>
+ * Each virtual thread still gets its own thread state and metronome. Avoid the
+ * BusySpinningMetronome and the StripedHdrLatencyProbe in combination with
+ * virtual threads; the former occupies a carrier thread per timestep thread and
+ * the latter creates histograms per timestep thread. The threadType defaults to
+ * 'platform'.
+ * <p/>
+ * The timestep threads can be pinned to a set of cpus using the Linux cpu list
+ * format or 'isolated' for the cpus isolated using the isolcpus kernel parameter:
+ * <pre>
+ * {@code
+ *     class=yourtest
+ *     threadCount=4
+ *     affinity=4-7
+ * }
+ * </pre>
+ * If there are at least as many cpus as threads, every thread is pinned to a cpu
+ * of its own, otherwise all threads share the cpus. Affinity can't be combined
+ * with virtual threads. To keep the housekeeping threads of the worker away from
+ * these cpus, configure 'worker_housekeeping_cpus' in the tests.yaml.
+ * <p/>
  * If there are multiple execution groups, each group can be configured
  * independently. Imagine there is some kind of producer consumer test, then each
  * execution group is configured using:
@@ -217,6 +262,54 @@ import java.lang.annotation.Target;
  * are based on completion of the timestep method, but that doesn't need to mean
  * completion of the async call.
  * <p/>
+ * A timestep method can also return a CompletableFuture; the latency is then
+ * recorded when the future completes. Without a metronome the timestep thread
+ * will issue calls without any limit. To run with a fixed concurrency, the
+ * number of outstanding futures per timestep thread can be bounded:
+ * <pre>
+ * {@code
+ *     class=yourtest
+ *     threadCount=2
+ *     maxInFlight=100
+ * }
+ * </pre>
+ * In this example there are at most 200 outstanding calls. Just like threadCount,
+ * maxInFlight can be configured per execution group, e.g. producerMaxInFlight.
+ * <p/>
+ * For a latency versus throughput curve, the async calls should be issued at
+ * the configured rate no matter how many calls are still outstanding:
+ * <pre>
+ * {@code
+ *     class=yourtest
+ *     ratePerSecond=100000
+ *     openLoop=true
+ * }
+ * </pre>
+ * With an open loop, all threads of the execution group share a single schedule
+ * (the ConstantCombinedRateMetronome by default) and latency is recorded from the
+ * intended start time. If a call is issued more than missedScheduleThresholdNs
+ * (default 1ms) after its intended start time, the delay is recorded in the
+ * 'missedSchedule' probe. So the count of that probe is the number of calls that
+ * could not be issued on time. An open loop can't be combined with
+ * measureLatency=false.
+ * <p/>
+ * There is no separate scheduler thread: the calls are issued by the timestep
+ * threads, which don't wait for the completion of a call, but do wait for the
+ * method issuing it to return. So if issuing blocks, e.g. because of back
+ * pressure in the client, the threads fall behind the schedule. The
+ * missedSchedule probe only reports this lag; configure enough threads to keep
+ * it empty.
+ * <p/>
+ * By default all timestep threads record into a single shared HdrHistogram
+ * recorder. With high thread counts this can become a contention point and
+ * then the probe that gives every thread its own recorder can be used:
+ * <pre>
+ * {@code
+ *     class=yourtest
+ *     probeClass=com.hazelcast.simulator.probes.impl.StripedHdrLatencyProbe
+ * }
+ * </pre>
+ * <p/>
  * <h1>Logging</h1>
  * By default a timestep based thread will not log anything during the run/warmup
  * period. But sometimes some logging is required, e.g. when needing to do some
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.test.keys;
+
+import java.util.Random;
+
+/**
+ * A {@link KeyGenerator} where a fraction of the keys, the hot set, receives a fraction of the operations.
+ *
+ * The hot set are the lowest keys. Within the hot set and within the cold set the keys are uniformly distributed.
+ */
+public final class HotspotKeyGenerator implements KeyGenerator {
+
+    private final Random random;
+    private final long hotSetSize;
+    private final long coldSetSize;
+    private final double hotOpFraction;
+
+    /**
+     * Creates a {@link HotspotKeyGenerator}.
+     *
+     * @param random            the random to use.
+     * @param keyCount          the number of keys.
+     * @param hotspotDataFraction the fraction of the keys in the hot set, e.g. 0.2.
+     * @param hotspotOpFraction   the fraction of the operations on the hot set, e.g. 0.8.
+     */
+    public HotspotKeyGenerator(Random random, long keyCount, double hotspotDataFraction, double hotspotOpFraction) {
+        if (keyCount <= 0) {
+            throw new IllegalArgumentException("keyCount must be positive");
+        }
+        if (hotspotDataFraction < 0 || hotspotDataFraction > 1) {
+            throw new IllegalArgumentException("hotspotDataFraction must be between 0 and 1, found " + hotspotDataFraction);
+        }
+        if (hotspotOpFraction < 0 || hotspotOpFraction > 1) {
+            throw new IllegalArgumentException("hotspotOpFraction must be between 0 and 1, found " + hotspotOpFraction);
+        }
+
+        this.random = random;
+        this.hotSetSize = Math.max(1, Math.min(keyCount, (long) (keyCount * hotspotDataFraction)));
+        this.coldSetSize = keyCount - hotSetSize;
+        this.hotOpFraction = coldSetSize == 0 ? 1 : hotspotOpFraction;
+    }
+
+    @Override
+    public long nextKey() {
+        if (random.nextDouble() < hotOpFraction) {
+            return random.nextLong(hotSetSize);
+        } else {
+            return hotSetSize + random.nextLong(coldSetSize);
+        }
+    }
+}
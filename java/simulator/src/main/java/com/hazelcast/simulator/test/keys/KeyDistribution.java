@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.test.keys;
+
+/**
+ * The distributions of the keys that can be generated by a {@link KeyGenerator}.
+ *
+ * The distributions are the same as the request distributions of YCSB.
+ */
+public enum KeyDistribution {
+
+    /**
+     * Every key has the same probability.
+     */
+    UNIFORM("uniform"),
+    /**
+     * Low keys are popular; key 0 is the most popular, followed by key 1 etc.
+     */
+    ZIPFIAN("zipfian"),
+    /**
+     * Like {@link #ZIPFIAN}, but the popular keys are scattered over the key space.
+     */
+    SCRAMBLED_ZIPFIAN("scrambledZipfian"),
+    /**
+     * A fraction of the keys (the hot set) receives a fraction of the operations. Within the hot set and within the cold
+     * set, the keys are uniformly distributed.
+     */
+    HOTSPOT("hotspot"),
+    /**
+     * High keys are popular; assuming that keys are inserted in increasing order, the most recently inserted keys are the
+     * most popular.
+     */
+    LATEST("latest"),
+    /**
+     * The keys are returned in order. The threads of an execution group stripe the key space, so together they touch
+     * every key.
+     */
+    SEQUENTIAL("sequential");
+
+    private final String name;
+
+    KeyDistribution(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the {@link KeyDistribution} for the given name.
+     *
+     * @param name the name of the distribution as used in the test properties, e.g. 'scrambledZipfian'.
+     * @return the found {@link KeyDistribution}.
+     * @throws IllegalArgumentException if no {@link KeyDistribution} with the given name exists.
+     */
+    public static KeyDistribution fromName(String name) {
+        for (KeyDistribution distribution : values()) {
+            if (distribution.name.equals(name)) {
+                return distribution;
+            }
+        }
+
+        StringBuilder names = new StringBuilder();
+        for (KeyDistribution distribution : values()) {
+            if (names.length() > 0) {
+                names.append(", ");
+            }
+            names.append(distribution.name);
+        }
+        throw new IllegalArgumentException("Unknown key distribution [" + name + "], valid values are [" + names + "]");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.test.keys;
+
+/**
+ * Generates keys between 0 (inclusive) and the key count (exclusive) according to some distribution.
+ *
+ * A {@link KeyGenerator} is owned by a single thread; it isn't thread-safe. Implementations should not allocate and not
+ * lock when generating a key, since they are called on the hot path of the timestep threads.
+ *
+ * See {@link KeyDistribution} for the available distributions.
+ */
+public interface KeyGenerator {
+
+    /**
+     * Generates the next key.
+     *
+     * @return the next key.
+     */
+    long nextKey();
+}
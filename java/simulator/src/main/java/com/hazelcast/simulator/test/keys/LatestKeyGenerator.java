@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.test.keys;
+
+import java.util.Random;
+
+/**
+ * A {@link KeyGenerator} where the high keys are popular; the key count minus 1 is the most popular key, followed by
+ * the key count minus 2 etc.
+ *
+ * If keys are inserted in increasing order, the most recently inserted keys are the most popular ones.
+ */
+public final class LatestKeyGenerator implements KeyGenerator {
+
+    private final Random random;
+    private final ZipfianDistribution distribution;
+    private final long maxKey;
+
+    public LatestKeyGenerator(Random random, ZipfianDistribution distribution) {
+        this.random = random;
+        this.distribution = distribution;
+        this.maxKey = distribution.getKeyCount() - 1;
+    }
+
+    @Override
+    public long nextKey() {
+        return maxKey - distribution.sample(random.nextDouble());
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.test.keys;
+
+import java.util.Random;
+
+/**
+ * A {@link KeyGenerator} with a Zipfian distribution where the popular keys are scattered over the key space.
+ *
+ * Just like YCSB, the Zipfian key is hashed using the 64 bit FNV hash. Since multiple Zipfian keys can hash to the
+ * same key, the distribution is somewhat less skewed than the {@link ZipfianKeyGenerator}.
+ */
+public final class ScrambledZipfianKeyGenerator implements KeyGenerator {
+
+    private static final long FNV_OFFSET_BASIS_64 = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME_64 = 1099511628211L;
+    private static final int BYTES_PER_LONG = 8;
+    private static final int BITS_PER_BYTE = 8;
+    private static final long BYTE_MASK = 0xff;
+
+    private final Random random;
+    private final ZipfianDistribution distribution;
+    private final long keyCount;
+
+    public ScrambledZipfianKeyGenerator(Random random, ZipfianDistribution distribution) {
+        this.random = random;
+        this.distribution = distribution;
+        this.keyCount = distribution.getKeyCount();
+    }
+
+    @Override
+    public long nextKey() {
+        long key = distribution.sample(random.nextDouble());
+        return (hashFNV64(key) & Long.MAX_VALUE) % keyCount;
+    }
+
+    static long hashFNV64(long value) {
+        // from http://en.wikipedia.org/wiki/Fowler_Noll_Vo_hash
+        long hash = FNV_OFFSET_BASIS_64;
+        for (int k = 0; k < BYTES_PER_LONG; k++) {
+            long octet = value & BYTE_MASK;
+            value = value >> BITS_PER_BYTE;
+
+            hash = hash ^ octet;
+            hash = hash * FNV_PRIME_64;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.test.keys;
+
+/**
+ * A {@link KeyGenerator} that returns the keys of a range in order and wraps around at the end of the range.
+ *
+ * Multiple threads can partition the key space: thread i of n gets the contiguous range
+ * [i * keyCount / n, (i + 1) * keyCount / n). This way the threads together touch every key without sharing a
+ * counter, also if the key count isn't a multiple of the thread count. If there are more threads than keys, a range
+ * would be empty; then the thread gets the single key at the start of its range, so some keys are shared.
+ */
+public final class SequentialKeyGenerator implements KeyGenerator {
+
+    private final long first;
+    private final long end;
+    private long next;
+
+    public SequentialKeyGenerator(long keyCount) {
+        this(keyCount, 0, 1);
+    }
+
+    /**
+     * Creates a {@link SequentialKeyGenerator} for the range of a thread.
+     *
+     * @param keyCount    the number of keys.
+     * @param threadIndex the index of the thread.
+     * @param threadCount the number of threads sharing the keys.
+     */
+    public SequentialKeyGenerator(long keyCount, int threadIndex, int threadCount) {
+        if (keyCount <= 0) {
+            throw new IllegalArgumentException("keyCount must be positive");
+        }
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("threadCount must be positive");
+        }
+        if (threadIndex < 0 || threadIndex >= threadCount) {
+            throw new IllegalArgumentException("threadIndex must be between 0 and threadCount - 1, but was " + threadIndex);
+        }
+        this.first = rangeStart(keyCount, threadIndex, threadCount);
+        this.end = Math.max(rangeStart(keyCount, threadIndex + 1, threadCount), first + 1);
+        this.next = first;
+    }
+
+    // keyCount * threadIndex / threadCount without overflowing for large key counts
+    private static long rangeStart(long keyCount, int threadIndex, int threadCount) {
+        return keyCount / threadCount * threadIndex + keyCount % threadCount * threadIndex / threadCount;
+    }
+
+    @Override
+    public long nextKey() {
+        long key = next;
+        next++;
+        if (next == end) {
+            next = first;
+        }
+        return key;
+    }
+}
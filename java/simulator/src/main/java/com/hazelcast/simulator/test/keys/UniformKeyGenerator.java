@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.test.keys;
+
+import java.util.Random;
+
+/**
+ * A {@link KeyGenerator} where every key has the same probability.
+ */
+public final class UniformKeyGenerator implements KeyGenerator {
+
+    private final Random random;
+    private final long keyCount;
+
+    public UniformKeyGenerator(Random random, long keyCount) {
+        if (keyCount <= 0) {
+            throw new IllegalArgumentException("keyCount must be positive");
+        }
+        this.random = random;
+        this.keyCount = keyCount;
+    }
+
+    @Override
+    public long nextKey() {
+        return random.nextLong(keyCount);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.test.keys;
+
+/**
+ * The parameters of a Zipfian distribution over a fixed number of keys.
+ *
+ * Computing the parameters is expensive for a large number of keys, so a {@link ZipfianDistribution} should be created
+ * once and shared between the {@link KeyGenerator} instances of all threads. It is immutable, so sampling doesn't need
+ * any synchronization.
+ *
+ * The algorithm is from "Quickly Generating Billion-Record Synthetic Databases", Jim Gray et al, SIGMOD 1994.
+ */
+public final class ZipfianDistribution {
+
+    public static final double DEFAULT_ZIPFIAN_CONSTANT = 0.99;
+
+    // up to this number of keys zeta is calculated exactly; beyond it the Euler-Maclaurin formula is used.
+    static final long EXACT_ZETA_THRESHOLD = 1000 * 1000;
+
+    private static final int EULER_MACLAURIN_DENOMINATOR = 12;
+
+    private final long keyCount;
+    private final double theta;
+    private final double alpha;
+    private final double zetan;
+    private final double eta;
+    private final double secondKeyThreshold;
+
+    public ZipfianDistribution(long keyCount) {
+        this(keyCount, DEFAULT_ZIPFIAN_CONSTANT);
+    }
+
+    /**
+     * Creates a {@link ZipfianDistribution}.
+     *
+     * @param keyCount        the number of keys.
+     * @param zipfianConstant the skew of the distribution; must be larger than 0 and smaller than 1.
+     */
+    public ZipfianDistribution(long keyCount, double zipfianConstant) {
+        if (keyCount <= 0) {
+            throw new IllegalArgumentException("keyCount must be positive");
+        }
+        if (!(zipfianConstant > 0 && zipfianConstant < 1)) {
+            throw new IllegalArgumentException("zipfianConstant must be larger than 0 and smaller than 1, found "
+                    + zipfianConstant);
+        }
+
+        this.keyCount = keyCount;
+        this.theta = zipfianConstant;
+        this.alpha = 1.0 / (1.0 - theta);
+        this.zetan = zeta(keyCount, theta);
+        double zeta2theta = zeta(2, theta);
+        this.eta = (1 - Math.pow(2.0 / keyCount, 1 - theta)) / (1 - zeta2theta / zetan);
+        this.secondKeyThreshold = 1.0 + Math.pow(0.5, theta);
+    }
+
+    public long getKeyCount() {
+        return keyCount;
+    }
+
+    public double getZipfianConstant() {
+        return theta;
+    }
+
+    /**
+     * Converts a uniformly distributed value to a key with a Zipfian distribution.
+     *
+     * @param u a uniformly distributed value between 0 (inclusive) and 1 (exclusive).
+     * @return the key between 0 (inclusive) and the key count (exclusive).
+     */
+    public long sample(double u) {
+        double uz = u * zetan;
+        if (uz < 1.0) {
+            return 0;
+        }
+
+        if (uz < secondKeyThreshold) {
+            return Math.min(1, keyCount - 1);
+        }
+
+        long key = (long) (keyCount * Math.pow(eta * u - eta + 1, alpha));
+        return Math.min(key, keyCount - 1);
+    }
+
+    /**
+     * Calculates the generalized harmonic number; the sum of 1/i^theta for i in 1..n.
+     *
+     * For large n, the tail is approximated using the Euler-Maclaurin formula; so the calculation takes constant time
+     * instead of being linear to the number of keys.
+     *
+     * @param n     the number of keys.
+     * @param theta the Zipfian constant.
+     * @return zeta.
+     */
+    static double zeta(long n, double theta) {
+        long exactCount = Math.min(n, EXACT_ZETA_THRESHOLD);
+        double sum = 0;
+        for (long i = 1; i <= exactCount; i++) {
+            sum += 1 / Math.pow(i, theta);
+        }
+
+        if (n > exactCount) {
+            // sum of f(i) for i in m+1..n where f(x) = x^-theta
+            double m = exactCount;
+            double integral = (Math.pow(n, 1 - theta) - Math.pow(m, 1 - theta)) / (1 - theta);
+            double boundary = (Math.pow(n, -theta) - Math.pow(m, -theta)) / 2;
+            double derivative = (-theta * Math.pow(n, -theta - 1) + theta * Math.pow(m, -theta - 1))
+                    / EULER_MACLAURIN_DENOMINATOR;
+            sum += integral + boundary + derivative;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.test.keys;
+
+import java.util.Random;
+
+/**
+ * A {@link KeyGenerator} where the low keys are popular; key 0 is the most popular, followed by key 1 etc.
+ *
+ * If the popular keys should be scattered over the key space, use the {@link ScrambledZipfianKeyGenerator}.
+ */
+public final class ZipfianKeyGenerator implements KeyGenerator {
+
+    private final Random random;
+    private final ZipfianDistribution distribution;
+
+    public ZipfianKeyGenerator(Random random, ZipfianDistribution distribution) {
+        this.random = random;
+        this.distribution = distribution;
+    }
+
+    @Override
+    public long nextKey() {
+        return distribution.sample(random.nextDouble());
+    }
+}
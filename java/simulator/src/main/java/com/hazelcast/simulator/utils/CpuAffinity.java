@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.utils;
+
+import net.openhft.affinity.Affinity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.util.BitSet;
+
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+
+/**
+ * Utility to pin threads to a set of cpus.
+ *
+ * A set of cpus is configured using the Linux cpu list format, e.g. '0-3,8,10-11', or using 'isolated' to select the
+ * cpus isolated from the kernel scheduler (the isolcpus kernel parameter).
+ *
+ * A worker can configure a set of housekeeping cpus. The threads which are not part of the workload, like the
+ * ActiveMQ threads, the operations monitor and the jitter thread, will then run on the housekeeping cpus and all other
+ * threads on the remaining cpus. Threads inherit the affinity of the thread that created them; so the housekeeping
+ * affinity only needs to be applied to the thread that spawns the housekeeping threads.
+ *
+ * Pinning is best effort; if the OS or JVM doesn't support it, a warning is logged and the thread isn't pinned.
+ */
+public final class CpuAffinity {
+
+    public static final String ISOLATED = "isolated";
+
+    static final File ISOLATED_CPUS_FILE = new File("/sys/devices/system/cpu/isolated");
+
+    private static final Logger LOGGER = LogManager.getLogger(CpuAffinity.class);
+
+    private static volatile BitSet housekeepingCpus;
+    private static volatile BitSet workloadCpus;
+
+    private CpuAffinity() {
+    }
+
+    /**
+     * Parses a cpu list, e.g. '0-3,8,10-11', or 'isolated'.
+     *
+     * @param cpuList the cpu list to parse
+     * @return the parsed cpus
+     * @throws IllegalArgumentException if the cpu list is invalid or doesn't contain any cpu
+     */
+    public static BitSet parseCpuList(String cpuList) {
+        return parseCpuList(cpuList, ISOLATED_CPUS_FILE);
+    }
+
+    static BitSet parseCpuList(String cpuList, File isolatedCpusFile) {
+        Preconditions.checkNotNull(cpuList, "cpuList can't be null");
+
+        String value = cpuList.trim();
+        if (ISOLATED.equals(value)) {
+            if (!isolatedCpusFile.exists()) {
+                throw new IllegalArgumentException("Can't determine the isolated cpus, " + isolatedCpusFile
+                        + " doesn't exist");
+            }
+            value = fileAsText(isolatedCpusFile).trim();
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("There are no isolated cpus; see the isolcpus kernel parameter");
+            }
+        }
+
+        BitSet cpus = new BitSet();
+        for (String item : value.split(",")) {
+            item = item.trim();
+            int indexOfDash = item.indexOf('-');
+            if (indexOfDash == -1) {
+                cpus.set(parseCpu(cpuList, item));
+            } else {
+                int from = parseCpu(cpuList, item.substring(0, indexOfDash));
+                int to = parseCpu(cpuList, item.substring(indexOfDash + 1));
+                if (from > to) {
+                    throw new IllegalArgumentException("Invalid cpu list [" + cpuList + "], range [" + item
+                            + "] is descending");
+                }
+                cpus.set(from, to + 1);
+            }
+        }
+        return cpus;
+    }
+
+    private static int parseCpu(String cpuList, String cpu) {
+        try {
+            int result = Integer.parseInt(cpu.trim());
+            if (result >= 0) {
+                return result;
+            }
+        } catch (NumberFormatException e) {
+            EmptyStatement.ignore(e);
+        }
+        throw new IllegalArgumentException("Invalid cpu list [" + cpuList + "], [" + cpu + "] is not a valid cpu");
+    }
+
+    /**
+     * Returns the affinity of the current thread.
+     *
+     * @return the cpus the current thread is allowed to run on or <code>null</code> if it can't be determined
+     */
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    public static BitSet getAffinity() {
+        try {
+            return Affinity.getAffinity();
+        } catch (Throwable t) {
+            LOGGER.warn("Failed to determine the cpu affinity: " + t.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Pins the current thread to the given cpus.
+     *
+     * @param cpus the cpus to pin the current thread to; if <code>null</code> or empty, the call is ignored
+     * @return <code>true</code> if the thread was pinned, <code>false</code> otherwise
+     */
+    @SuppressWarnings("PMD.AvoidCatchingThrowable")
+    public static boolean setAffinity(BitSet cpus) {
+        if (cpus == null || cpus.isEmpty()) {
+            return false;
+        }
+
+        try {
+            Affinity.setAffinity(cpus);
+            return true;
+        } catch (Throwable t) {
+            LOGGER.warn("Failed to pin thread [" + Thread.currentThread().getName() + "] to cpus " + cpus + ": "
+                    + t.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Configures the housekeeping cpus for this JVM. The workload cpus are the cpus of the current thread minus the
+     * housekeeping cpus.
+     *
+     * @param cpus the housekeeping cpus
+     */
+    public static void configureHousekeepingCpus(BitSet cpus) {
+        BitSet workload = getAffinity();
+        if (workload != null) {
+            workload.andNot(cpus);
+            if (workload.isEmpty()) {
+                LOGGER.warn("All available cpus are configured as housekeeping cpus " + cpus);
+                workload = null;
+            }
+        }
+        housekeepingCpus = cpus;
+        workloadCpus = workload;
+        LOGGER.info("Housekeeping cpus " + cpus + ", workload cpus " + (workload == null ? "unchanged" : workload));
+    }
+
+    /**
+     * Pins the current thread to the housekeeping cpus. If no housekeeping cpus are configured, the call is ignored.
+     */
+    public static void applyHousekeepingAffinity() {
+        setAffinity(housekeepingCpus);
+    }
+
+    /**
+     * Pins the current thread to the cpus that are not configured as housekeeping cpus. If no housekeeping cpus are
+     * configured, the call is ignored.
+     */
+    public static void applyWorkloadAffinity() {
+        setAffinity(workloadCpus);
+    }
+
+    // just for testing
+    static void resetHousekeepingCpus() {
+        housekeepingCpus = null;
+        workloadCpus = null;
+    }
+}
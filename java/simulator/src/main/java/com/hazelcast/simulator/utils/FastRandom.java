@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.utils;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Random} that isn't thread-safe and therefore doesn't pay for a CAS on every call.
+ *
+ * It uses the SplitMix64 algorithm; the same algorithm as {@link java.util.SplittableRandom}. It extends {@link Random}
+ * so it can be used wherever a {@link Random} is expected, but an instance should only be used by a single thread.
+ *
+ * For more information see:
+ * https://prng.di.unimi.it/splitmix64.c
+ */
+public final class FastRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    private static final float FLOAT_UNIT = 0x1.0p-24f;
+    private static final AtomicLong SEED_GENERATOR = new AtomicLong(mix64(System.currentTimeMillis() ^ System.nanoTime()));
+
+    private long state;
+
+    /**
+     * Creates a {@link FastRandom} with a seed that is unique for every instance.
+     */
+    public FastRandom() {
+        this(SEED_GENERATOR.getAndAdd(GOLDEN_GAMMA * 2) ^ System.nanoTime());
+    }
+
+    /**
+     * Creates a {@link FastRandom} with the given seed.
+     *
+     * @param seed the seed.
+     */
+    public FastRandom(long seed) {
+        // the Random constructor calls setSeed
+        super(seed);
+    }
+
+    @Override
+    public void setSeed(long seed) {
+        this.state = mix64(seed);
+    }
+
+    @Override
+    protected int next(int bits) {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    @Override
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    @Override
+    public int nextInt() {
+        return (int) (nextLong() >>> 32);
+    }
+
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    @Override
+    public float nextFloat() {
+        return (nextLong() >>> 40) * FLOAT_UNIT;
+    }
+
+    @Override
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * Returns a random long between 0 (inclusive) and bound (exclusive).
+     *
+     * @param bound the upper bound (exclusive).  Must be positive.
+     * @return the random long.
+     * @throws IllegalArgumentException if bound smaller or equal than 0.
+     */
+    @Override
+    public long nextLong(long bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive");
+        }
+
+        long mask = bound - 1;
+        if ((bound & mask) == 0) {
+            // power of two
+            return nextLong() & mask;
+        }
+
+        // rejection sampling to prevent a bias towards the lower values.
+        long unsigned = nextLong() >>> 1;
+        long result = unsigned % bound;
+        while (unsigned + mask - result < 0) {
+            unsigned = nextLong() >>> 1;
+            result = unsigned % bound;
+        }
+        return result;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
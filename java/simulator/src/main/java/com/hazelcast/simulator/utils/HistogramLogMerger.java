@@ -26,27 +26,61 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
 import static com.hazelcast.simulator.utils.FileUtils.ensureExistingFile;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
- * The HistogramLogMerger merges the Histograms of multiple HDR files. This will be done based under the assumption that
- * every histogram spans the same duration.
+ * The HistogramLogMerger merges the Histograms of multiple HDR files.
  * <p>
- * It works like this; from each HistogramLogReader a Histogram is read and merged into a final Histogram and this Histogram
- * is written into the merged HDR. Once round is complete, the next Histogram is retrieved. The different HDR files don't need
- * to have the same length; as soon as a HDR is finished, it is ignored and this continues till all HDR files are fully processed.
+ * The intervals are aligned on time: every interval histogram is added to the time bucket its start timestamp falls in.
+ * So workers that started a bit later than others, or that skipped an interval, don't shift the intervals of the other
+ * workers. The HDR files are read in lockstep, so only a single histogram per file is kept in memory no matter how long
+ * the run took.
+ * <p>
+ * The bucket size should be the interval of the performance monitor of the workers (performance_monitor_interval_seconds);
+ * with a smaller bucket, a bucket only contains the intervals of the workers that happen to start in it. If the bucket
+ * size isn't given, it is inferred from the length of the first interval of the HDR files, rounded to whole seconds.
+ * <p>
+ * It can be used in 2 ways:
+ * <ol>
+ * <li>HistogramLogMerger &lt;runDir&gt; [bucketSeconds]: merges for every HDR file name the HDR files of all workers in
+ * the run directory into a HDR file with that name in the run directory. The different file names are merged in
+ * parallel.</li>
+ * <li>HistogramLogMerger &lt;outputFile&gt; &lt;hdr_files_list_file&gt;: merges the HDR files listed in the list
+ * file.</li>
+ * </ol>
  */
 public final class HistogramLogMerger {
 
+    /**
+     * Passed as bucket size to infer the bucket size from the lengths of the intervals.
+     */
+    public static final long INFER_BUCKET = 0;
+
+    private static final long MIN_BUCKET_MILLIS = SECONDS.toMillis(1);
+
     private HistogramLogMerger() {
     }
 
-    public static void main(String[] args) throws IOException {
-        File outputFile = new File(args[0]);
-        deleteQuiet(outputFile);
-        ensureExistingFile(outputFile);
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("Usage: HistogramLogMerger <runDir> [bucketSeconds] "
+                    + "or HistogramLogMerger <outputFile> <hdr_files_list_file>");
+        }
+
+        File first = new File(args[0]);
+        if (first.isDirectory()) {
+            long bucketMillis = args.length > 1 ? SECONDS.toMillis(Long.parseLong(args[1])) : INFER_BUCKET;
+            mergeRunDir(first, bucketMillis, Runtime.getRuntime().availableProcessors());
+            return;
+        }
 
         if (args.length < 2) {
             throw new IllegalArgumentException("Usage: HistogramLogMerger <outputFile> <hdr_files_list_file>");
@@ -59,52 +93,192 @@ public final class HistogramLogMerger {
 
         log("Using input files list from " + inputFilesListFile);
 
-        List<String> inputFiles = Files.readAllLines(inputFilesListFile.toPath());
-        ArrayList<HistogramLogReader> readers = new ArrayList<>(inputFiles.size());
-        inputFiles.forEach(p -> {
-            File file = new File(p);
+        List<File> inputFiles = new ArrayList<>();
+        for (String line : Files.readAllLines(inputFilesListFile.toPath())) {
+            if (!line.trim().isEmpty()) {
+                inputFiles.add(new File(line.trim()));
+            }
+        }
+        merge(inputFiles, first, INFER_BUCKET);
+    }
+
+    /**
+     * Merges the HDR files of all workers in a run directory. For every HDR file name, a merged HDR file with that name
+     * is written to the run directory.
+     *
+     * @param runDir       the run directory
+     * @param bucketMillis the size of the time buckets the intervals are merged into, or {@link #INFER_BUCKET}
+     * @param threadCount  the number of HDR file names that are merged in parallel
+     * @return the merged HDR files
+     * @throws Exception if merging fails
+     */
+    public static List<File> mergeRunDir(File runDir, long bucketMillis, int threadCount) throws Exception {
+        Map<String, List<File>> filesByName = findWorkerHdrFiles(runDir);
+        log("Merging " + filesByName.size() + " HDR file names in " + runDir);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, filesByName.size())));
+        try {
+            List<Future<File>> futures = new ArrayList<>();
+            for (Map.Entry<String, List<File>> entry : filesByName.entrySet()) {
+                File outputFile = new File(runDir, entry.getKey());
+                List<File> inputFiles = entry.getValue();
+                futures.add(executor.submit(() -> {
+                    merge(inputFiles, outputFile, bucketMillis);
+                    return outputFile;
+                }));
+            }
+
+            List<File> result = new ArrayList<>(futures.size());
+            for (Future<File> future : futures) {
+                result.add(future.get());
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // a worker directory has a name like 'A1_W1-192.168.1.1-member'
+    static Map<String, List<File>> findWorkerHdrFiles(File runDir) {
+        Map<String, List<File>> result = new TreeMap<>();
+        File[] workerDirs = runDir.listFiles();
+        if (workerDirs == null) {
+            throw new IllegalArgumentException("Run directory [" + runDir + "] can't be read");
+        }
+
+        for (File workerDir : workerDirs) {
+            String name = workerDir.getName();
+            if (!workerDir.isDirectory() || !name.startsWith("A") || !name.contains("-")) {
+                continue;
+            }
+
+            File[] files = workerDir.listFiles();
+            if (files == null) {
+                continue;
+            }
+
+            for (File file : files) {
+                if (file.getName().endsWith(".hdr")) {
+                    result.computeIfAbsent(file.getName(), k -> new ArrayList<>()).add(file);
+                }
+            }
+        }
+
+        for (List<File> files : result.values()) {
+            files.sort(null);
+        }
+        return result;
+    }
+
+    /**
+     * Merges HDR files into a single HDR file.
+     *
+     * @param inputFiles   the HDR files to merge
+     * @param outputFile   the merged HDR file
+     * @param bucketMillis the size of the time buckets the intervals are merged into, or {@link #INFER_BUCKET}
+     * @return the number of intervals written
+     * @throws IOException if reading or writing fails
+     */
+    public static int merge(List<File> inputFiles, File outputFile, long bucketMillis) throws IOException {
+        if (bucketMillis < 0) {
+            throw new IllegalArgumentException("bucketMillis can't be negative");
+        }
+
+        List<Source> sources = new ArrayList<>(inputFiles.size());
+        for (File file : inputFiles) {
             if (!file.exists()) {
                 throw new IllegalArgumentException("File [" + file + "] doesn't exist");
             }
-            try {
-                readers.add(new HistogramLogReader(p));
-            } catch (FileNotFoundException e) {
-                throw new RuntimeException(e);
+            Source source = new Source(file);
+            if (source.next != null) {
+                sources.add(source);
             }
-        });
+        }
+
+        if (bucketMillis == INFER_BUCKET) {
+            bucketMillis = inferBucketMillis(sources);
+            log("Inferred a bucket size of " + bucketMillis + " ms for " + outputFile);
+        }
+        for (Source source : sources) {
+            source.setBucketMillis(bucketMillis);
+        }
+
+        deleteQuiet(outputFile);
+        ensureExistingFile(outputFile);
 
         HistogramLogWriter writer = new HistogramLogWriter(outputFile);
-        String comment = "[Latency histograms for " + getBaseName(outputFile) + ']';
-        log(comment);
-        writer.outputComment(comment);
-        writer.outputLogFormatVersion();
-        writer.outputLegend();
-
-        int numberOfMergedHistograms = 0;
-        for (; ; ) {
+        try {
+            String comment = "[Latency histograms for " + getBaseName(outputFile) + ']';
+            log(comment);
+            writer.outputComment(comment);
+
+            long startMillis = Long.MAX_VALUE;
+            for (Source source : sources) {
+                startMillis = Math.min(startMillis, source.bucket * bucketMillis);
+            }
+            if (startMillis != Long.MAX_VALUE) {
+                writer.setBaseTime(startMillis);
+                writer.outputStartTime(startMillis);
+                writer.outputBaseTime(startMillis);
+            }
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+
             Histogram merged = null;
-            for (HistogramLogReader reader : readers) {
-                Histogram histogram = (Histogram) reader.nextIntervalHistogram();
-                if (histogram == null) {
-                    continue;
+            int numberOfMergedHistograms = 0;
+            for (; ; ) {
+                long bucket = Long.MAX_VALUE;
+                for (Source source : sources) {
+                    if (source.next != null && source.bucket < bucket) {
+                        bucket = source.bucket;
+                    }
+                }
+
+                if (bucket == Long.MAX_VALUE) {
+                    break;
                 }
 
                 if (merged == null) {
+                    Histogram histogram = sources.get(0).next;
                     merged = new Histogram(
                             histogram.getLowestDiscernibleValue(),
                             histogram.getHighestTrackableValue(),
                             histogram.getNumberOfSignificantValueDigits());
+                } else {
+                    merged.reset();
+                }
+
+                for (Source source : sources) {
+                    // a source can have multiple intervals in the same bucket if its intervals are smaller.
+                    while (source.next != null && source.bucket == bucket) {
+                        merged.add(source.next);
+                        source.advance();
+                    }
                 }
-                merged.add(histogram);
-            }
 
-            if (merged == null) {
-                break;
+                merged.setStartTimeStamp(bucket * bucketMillis);
+                merged.setEndTimeStamp((bucket + 1) * bucketMillis);
+                writer.outputIntervalHistogram(merged);
+                numberOfMergedHistograms++;
             }
 
-            writer.outputIntervalHistogram(merged);
-            log("Added merged histogram " + ++numberOfMergedHistograms + " to " + outputFile);
+            log("Added " + numberOfMergedHistograms + " merged histograms to " + outputFile);
+            return numberOfMergedHistograms;
+        } finally {
+            writer.close();
+        }
+    }
+
+    // the length of the first interval of the sources, rounded to whole seconds since the performance monitor interval
+    // is configured in seconds; the largest length is taken, so a bucket never holds a partial set of the intervals.
+    private static long inferBucketMillis(List<Source> sources) {
+        long bucketMillis = MIN_BUCKET_MILLIS;
+        for (Source source : sources) {
+            long lengthMillis = source.next.getEndTimeStamp() - source.next.getStartTimeStamp();
+            long roundedMillis = SECONDS.toMillis(Math.round(lengthMillis / (double) SECONDS.toMillis(1)));
+            bucketMillis = Math.max(bucketMillis, roundedMillis);
         }
+        return bucketMillis;
     }
 
     private static void log(String log) {
@@ -116,4 +290,36 @@ public final class HistogramLogMerger {
         int pos = name.lastIndexOf('.');
         return pos == -1 ? name : name.substring(0, pos);
     }
+
+    /**
+     * A HDR file and its next interval histogram.
+     */
+    private static final class Source {
+        private final HistogramLogReader reader;
+        private long bucketMillis;
+        private Histogram next;
+        private long bucket;
+
+        private Source(File file) throws FileNotFoundException {
+            this.reader = new HistogramLogReader(file);
+            next = (Histogram) reader.nextIntervalHistogram();
+            if (next == null) {
+                reader.close();
+            }
+        }
+
+        private void setBucketMillis(long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+            this.bucket = Math.floorDiv(next.getStartTimeStamp(), bucketMillis);
+        }
+
+        private void advance() {
+            next = (Histogram) reader.nextIntervalHistogram();
+            if (next == null) {
+                reader.close();
+            } else {
+                bucket = Math.floorDiv(next.getStartTimeStamp(), bucketMillis);
+            }
+        }
+    }
 }
@@ -50,6 +50,7 @@ public class HistogramLogProcessor implements Runnable {
 
         public int percentilesOutputTicksPerHalf = 5;
         public Double outputValueUnitRatio = 1000000.0; // default to msec units for output.
+        public double[] percentiles = PercentileExtractor.DEFAULT_PERCENTILES.clone();
 
         public boolean error = false;
         public String errorMessage = "";
@@ -80,6 +81,8 @@ public class HistogramLogProcessor implements Runnable {
                         percentilesOutputTicksPerHalf = Integer.parseInt(args[++i]);
                     } else if (args[i].equals("-outputValueUnitRatio")) {
                         outputValueUnitRatio = Double.parseDouble(args[++i]);
+                    } else if (args[i].equals("-percentiles")) {
+                        percentiles = PercentileExtractor.parsePercentiles(args[++i]);
                     } else if (args[i].equals("-h")) {
                         askedForHelp = true;
                         throw new Exception("Help: " + args[i]);
@@ -102,7 +105,7 @@ public class HistogramLogProcessor implements Runnable {
                 final String validArgs =
                         "\"[-csv] [-v] [-i inputFileName] [-o outputFileName] [-tag tag] " +
                                 "[-start rangeStartTimeSec] [-end rangeEndTimeSec] " +
-                                "[-outputValueUnitRatio r] [-listtags]";
+                                "[-outputValueUnitRatio r] [-percentiles p1,p2,..] [-listtags]";
 
                 System.err.println("valid arguments = " + validArgs);
 
@@ -117,6 +120,8 @@ public class HistogramLogProcessor implements Runnable {
                                 " [-end rangeEndTimeSec]      The end time for the range in the file, in seconds (default is infinite)\n" +
                                 " [-outputValueUnitRatio r]   The scaling factor by which to divide histogram recorded values units\n" +
                                 "                             in output. [default = 1000000.0 (1 msec in nsec)]\n" +
+                                " [-percentiles p1,p2,..]     The percentiles in the interval log\n" +
+                                "                             [default = 25,50,75,90,99,99.9,99.99,99.999]\n" +
                                 " [-listtags]                 list all tags found on histogram lines the input file."
                 );
                 exitWithError();
@@ -369,6 +374,7 @@ public class HistogramLogProcessor implements Runnable {
      * [-end rangeEndTimeSec]      The end time for the range in the file, in seconds (default is infinite)
      * [-outputValueUnitRatio r]   The scaling factor by which to divide histogram recorded values units
      *                             in output. [default = 1000000.0 (1 msec in nsec)]"
+     * [-percentiles p1,p2,..]     The percentiles in the interval log (default 25,50,75,90,99,99.9,99.99,99.999)
      * </pre>
      *
      * @param args command line arguments
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.utils;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Extracts the percentiles, min, max, mean and standard deviation of the interval histograms of a histogram log in a single
+ * pass over the recorded values of each interval histogram.
+ *
+ * Calling {@link Histogram#getValueAtPercentile(double)} for every percentile walks the counts of the histogram for every
+ * percentile; and {@link Histogram#getStdDeviation()} walks them twice. The extractor walks the interval histogram once
+ * and doesn't walk the accumulated histogram at all: for every percentile it keeps a cursor on the bucket of the
+ * accumulated histogram containing the percentile and the number of values up to and including that bucket. When an
+ * interval is added, the cursors are corrected using the values of the interval below them and then moved to their new
+ * bucket, which is normally close by. The mean and standard deviation of the accumulated histogram are combined from
+ * those of the intervals.
+ *
+ * The values returned are the same as those returned by the {@link Histogram} methods, apart from floating point
+ * rounding of the mean and standard deviation.
+ *
+ * The extractor isn't thread-safe and should be used for a single histogram log.
+ */
+public final class PercentileExtractor {
+
+    /**
+     * The percentiles written to the latency history by default.
+     */
+    public static final double[] DEFAULT_PERCENTILES = {25, 50, 75, 90, 99, 99.9, 99.99, 99.999};
+
+    private final double[] percentiles;
+    private final Statistics intervalStatistics;
+    private final Statistics totalStatistics;
+
+    // per percentile: the contribution of the current interval to the values up to the cursor
+    private final long[] contributions;
+    // per percentile: the highest equivalent value of the bucket in the accumulated histogram containing the percentile
+    private final long[] cursors;
+    // per percentile: the number of values in the accumulated histogram up to and including the bucket of the cursor
+    private final long[] countsUpToCursor;
+    private boolean cursorsInitialized;
+
+    /**
+     * Creates a {@link PercentileExtractor}.
+     *
+     * @param percentiles the percentiles to extract in ascending order, e.g. 50, 99.9
+     * @throws IllegalArgumentException if a percentile isn't between 0 and 100 or if the percentiles are not ascending
+     */
+    public PercentileExtractor(double... percentiles) {
+        checkPercentiles(percentiles);
+        this.percentiles = percentiles.clone();
+        this.intervalStatistics = new Statistics(percentiles.length);
+        this.totalStatistics = new Statistics(percentiles.length);
+        this.contributions = new long[percentiles.length];
+        this.cursors = new long[percentiles.length];
+        this.countsUpToCursor = new long[percentiles.length];
+    }
+
+    /**
+     * Parses a comma separated list of percentiles, e.g. '50,99,99.9'.
+     *
+     * @param percentiles the percentiles to parse
+     * @return the parsed percentiles in ascending order
+     * @throws IllegalArgumentException if the list contains an invalid percentile or a percentile more than once
+     */
+    public static double[] parsePercentiles(String percentiles) {
+        String[] items = percentiles.split(",");
+        double[] result = new double[items.length];
+        for (int k = 0; k < items.length; k++) {
+            try {
+                result[k] = Double.parseDouble(items[k].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid percentile [" + items[k] + "] in [" + percentiles + "]", e);
+            }
+        }
+        Arrays.sort(result);
+        checkPercentiles(result);
+        return result;
+    }
+
+    private static void checkPercentiles(double[] percentiles) {
+        for (int k = 0; k < percentiles.length; k++) {
+            if (!(percentiles[k] >= 0 && percentiles[k] <= 100)) {
+                throw new IllegalArgumentException("Percentile " + percentiles[k] + " isn't between 0 and 100");
+            }
+            if (k > 0 && percentiles[k] <= percentiles[k - 1]) {
+                throw new IllegalArgumentException("Percentiles " + Arrays.toString(percentiles)
+                        + " are not ascending");
+            }
+        }
+    }
+
+    /**
+     * Formats a percentile without trailing zeros, e.g. 99.9 as '99.9' and 50.0 as '50'.
+     *
+     * @param percentile the percentile to format
+     * @return the formatted percentile
+     */
+    public static String formatPercentile(double percentile) {
+        return BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString();
+    }
+
+    public double[] getPercentiles() {
+        return percentiles.clone();
+    }
+
+    /**
+     * Returns the statistics of the interval histogram passed to the last {@link #update(Histogram, Histogram)}.
+     *
+     * @return the interval statistics; the instance is reused by the next update
+     */
+    public Statistics getIntervalStatistics() {
+        return intervalStatistics;
+    }
+
+    /**
+     * Returns the statistics of the accumulated histogram passed to the last {@link #update(Histogram, Histogram)}.
+     *
+     * @return the accumulated statistics; the instance is reused by the next update
+     */
+    public Statistics getTotalStatistics() {
+        return totalStatistics;
+    }
+
+    /**
+     * Extracts the statistics of a single histogram.
+     *
+     * @param histogram the histogram
+     * @return the statistics
+     */
+    public Statistics extract(Histogram histogram) {
+        Statistics statistics = new Statistics(percentiles.length);
+        scan(histogram, statistics, false);
+        return statistics;
+    }
+
+    /**
+     * Updates the interval and accumulated statistics.
+     *
+     * The accumulated histogram should have the same structure as the interval histograms, it should already contain the
+     * interval histogram and it should only be changed by adding interval histograms passed to this method.
+     *
+     * @param intervalHistogram    the interval histogram
+     * @param accumulatedHistogram the accumulated histogram, including the interval histogram
+     */
+    public void update(Histogram intervalHistogram, Histogram accumulatedHistogram) {
+        if (!cursorsInitialized) {
+            // an empty accumulated histogram has all cursors in the first bucket with no values up to it
+            Arrays.fill(cursors, accumulatedHistogram.highestEquivalentValue(0));
+            cursorsInitialized = true;
+        }
+
+        Arrays.fill(contributions, 0);
+        scan(intervalHistogram, intervalStatistics, true);
+
+        long contribution = 0;
+        for (int k = 0; k < percentiles.length; k++) {
+            contribution += contributions[k];
+            countsUpToCursor[k] += contribution;
+        }
+
+        long totalCount = accumulatedHistogram.getTotalCount();
+        for (int k = 0; k < percentiles.length; k++) {
+            moveCursor(accumulatedHistogram, k, countAtPercentile(percentiles[k], totalCount));
+            totalStatistics.values[k] = valueAtPercentile(accumulatedHistogram, percentiles[k], totalCount, cursors[k]);
+        }
+
+        totalStatistics.combine(intervalStatistics);
+        totalStatistics.minValue = accumulatedHistogram.getMinValue();
+        totalStatistics.maxValue = accumulatedHistogram.getMaxValue();
+    }
+
+    private void scan(Histogram histogram, Statistics statistics, boolean updateContributions) {
+        long totalCount = histogram.getTotalCount();
+        statistics.reset();
+        statistics.totalCount = totalCount;
+        statistics.minValue = histogram.getMinValue();
+        statistics.maxValue = histogram.getMaxValue();
+
+        int percentileIndex = 0;
+        long percentileCount = percentiles.length == 0 ? 0 : countAtPercentile(percentiles[0], totalCount);
+        int cursorIndex = 0;
+        long countUpToValue = 0;
+        double mean = 0;
+        double squaredDeviations = 0;
+        for (HistogramIterationValue iterationValue : histogram.recordedValues()) {
+            long value = iterationValue.getValueIteratedTo();
+            long count = iterationValue.getCountAtValueIteratedTo();
+
+            countUpToValue += count;
+            while (percentileIndex < percentiles.length && countUpToValue >= percentileCount) {
+                statistics.values[percentileIndex] = percentiles[percentileIndex] == 0
+                        ? histogram.lowestEquivalentValue(value)
+                        : value;
+                percentileIndex++;
+                if (percentileIndex < percentiles.length) {
+                    percentileCount = countAtPercentile(percentiles[percentileIndex], totalCount);
+                }
+            }
+
+            if (updateContributions) {
+                // the values count for the first cursor at or above their bucket and, through the prefix sum in update,
+                // for all cursors above that one
+                while (cursorIndex < cursors.length && cursors[cursorIndex] < value) {
+                    cursorIndex++;
+                }
+                if (cursorIndex < cursors.length) {
+                    contributions[cursorIndex] += count;
+                }
+            }
+
+            // weighted variant of Welford's algorithm, using the same representative value as Histogram.getMean()
+            double medianValue = histogram.medianEquivalentValue(value);
+            double delta = medianValue - mean;
+            mean += delta * count / countUpToValue;
+            squaredDeviations += count * delta * (medianValue - mean);
+        }
+
+        statistics.mean = mean;
+        statistics.squaredDeviations = squaredDeviations;
+    }
+
+    private void moveCursor(Histogram accumulatedHistogram, int index, long targetCount) {
+        if (targetCount == 0) {
+            return;
+        }
+
+        long cursor = cursors[index];
+        long countUpToCursor = countsUpToCursor[index];
+
+        while (countUpToCursor < targetCount) {
+            cursor = accumulatedHistogram.highestEquivalentValue(cursor + 1);
+            countUpToCursor += accumulatedHistogram.getCountAtValue(cursor);
+        }
+
+        for (; ; ) {
+            long lowestValue = accumulatedHistogram.lowestEquivalentValue(cursor);
+            if (lowestValue == 0) {
+                break;
+            }
+            long countBelowCursor = countUpToCursor - accumulatedHistogram.getCountAtValue(cursor);
+            if (countBelowCursor < targetCount) {
+                break;
+            }
+            countUpToCursor = countBelowCursor;
+            cursor = accumulatedHistogram.highestEquivalentValue(lowestValue - 1);
+        }
+
+        cursors[index] = cursor;
+        countsUpToCursor[index] = countUpToCursor;
+    }
+
+    private static long valueAtPercentile(Histogram histogram, double percentile, long totalCount, long cursor) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        return percentile == 0 ? histogram.lowestEquivalentValue(cursor) : cursor;
+    }
+
+    // the number of values up to the percentile; the same calculation as Histogram.getValueAtPercentile()
+    private static long countAtPercentile(double percentile, long totalCount) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double requestedPercentile = Math.min(Math.max(Math.nextAfter(percentile, Double.NEGATIVE_INFINITY), 0.0), 100.0);
+        long count = (long) Math.ceil((requestedPercentile * totalCount) / 100.0);
+        return Math.max(count, 1);
+    }
+
+    /**
+     * The statistics of a histogram.
+     */
+    public static final class Statistics {
+
+        private final long[] values;
+        private long totalCount;
+        private long minValue;
+        private long maxValue;
+        private double mean;
+        private double squaredDeviations;
+
+        private Statistics(int percentileCount) {
+            this.values = new long[percentileCount];
+        }
+
+        private void reset() {
+            Arrays.fill(values, 0);
+            totalCount = 0;
+            minValue = 0;
+            maxValue = 0;
+            mean = 0;
+            squaredDeviations = 0;
+        }
+
+        // combines the mean and squared deviations with those of another histogram (Chan et al.)
+        private void combine(Statistics other) {
+            long count = totalCount + other.totalCount;
+            if (count == 0) {
+                return;
+            }
+            double delta = other.mean - mean;
+            squaredDeviations += other.squaredDeviations + delta * delta * totalCount * other.totalCount / count;
+            mean += delta * other.totalCount / count;
+            totalCount = count;
+        }
+
+        /**
+         * Returns the value at the percentile with the given index in the percentiles of the extractor.
+         *
+         * @param index the index of the percentile
+         * @return the value at the percentile
+         */
+        public long getValueAtPercentile(int index) {
+            return values[index];
+        }
+
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        public long getMinValue() {
+            return minValue;
+        }
+
+        public long getMaxValue() {
+            return maxValue;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getStdDeviation() {
+            return totalCount == 0 ? 0.0 : Math.sqrt(squaredDeviations / totalCount);
+        }
+    }
+}
@@ -21,218 +21,154 @@ import org.HdrHistogram.Histogram;
 import java.io.Closeable;
 import java.io.FileNotFoundException;
 
-@SuppressWarnings({"checkstyle:methodlength", "checkstyle:magicnumber"})
+/**
+ * A {@link HistogramLogProcessor} that writes the latency history of a histogram log; per interval the count, the
+ * configured percentiles, min, max, mean, standard deviation and throughput of the interval and of all intervals so far.
+ *
+ * The statistics of regular histograms are extracted by a {@link PercentileExtractor}, so a histogram log is processed
+ * in a single pass over every interval histogram no matter how many percentiles are configured.
+ */
+@SuppressWarnings("checkstyle:magicnumber")
 public class SimulatorHistogramLogProcessor extends HistogramLogProcessor implements Closeable {
 
     private final boolean areLatenciesFormattedAsCsv;
+    private final PercentileExtractor percentileExtractor;
 
     public SimulatorHistogramLogProcessor(String[] args, boolean forceLatencyFormatAsCsv) throws FileNotFoundException {
         super(args);
         this.areLatenciesFormattedAsCsv = config.logFormatCsv || forceLatencyFormatAsCsv;
+        this.percentileExtractor = new PercentileExtractor(config.percentiles);
     }
 
     @Override
     protected Object[] buildRegularHistogramStatistics(Histogram intervalHistogram, Histogram accumulatedHistogram) {
-        double intervalThroughput = ((double) (intervalHistogram.getTotalCount())
-                / (intervalHistogram.getEndTimeStamp() - intervalHistogram.getStartTimeStamp()));
-
-        double totalThroughput = ((double) accumulatedHistogram.getTotalCount())
-                / (accumulatedHistogram.getEndTimeStamp() - accumulatedHistogram.getStartTimeStamp());
-
-        return new Object[]{
-                ((intervalHistogram.getEndTimeStamp() / 1000.0) - logReader.getStartTimeSec()),
-                (intervalHistogram.getEndTimeStamp() / 1000.0),
-                // values recorded during the last reporting interval
-                intervalHistogram.getTotalCount(),
-                intervalHistogram.getValueAtPercentile(25.0) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(50.0) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(75.0) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(90.0) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(99.0) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(99.9) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(99.99) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(99.999) / config.outputValueUnitRatio,
-                intervalHistogram.getMinValue() / config.outputValueUnitRatio,
-                intervalHistogram.getMaxValue() / config.outputValueUnitRatio,
-                intervalHistogram.getMean() / config.outputValueUnitRatio,
-                intervalHistogram.getStdDeviation() / config.outputValueUnitRatio,
-                intervalThroughput / config.outputValueUnitRatio,
-
-                // values recorded from the beginning until now
-                accumulatedHistogram.getTotalCount(),
-                accumulatedHistogram.getValueAtPercentile(25.0) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(50.0) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(75.0) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(90.0) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(99.0) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(99.9) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(99.99) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(99.999) / config.outputValueUnitRatio,
-                accumulatedHistogram.getMinValue() / config.outputValueUnitRatio,
-                accumulatedHistogram.getMaxValue() / config.outputValueUnitRatio,
-                accumulatedHistogram.getMean() / config.outputValueUnitRatio,
-                accumulatedHistogram.getStdDeviation() / config.outputValueUnitRatio,
-                totalThroughput / config.outputValueUnitRatio,
-        };
+        percentileExtractor.update(intervalHistogram, accumulatedHistogram);
+        PercentileExtractor.Statistics interval = percentileExtractor.getIntervalStatistics();
+        PercentileExtractor.Statistics total = percentileExtractor.getTotalStatistics();
+
+        double[] percentiles = config.percentiles;
+        Object[] statistics = new Object[2 + 2 * (percentiles.length + 6)];
+        int index = 0;
+        statistics[index++] = (intervalHistogram.getEndTimeStamp() / 1000.0) - logReader.getStartTimeSec();
+        statistics[index++] = intervalHistogram.getEndTimeStamp() / 1000.0;
+
+        // values recorded during the last reporting interval
+        statistics[index++] = interval.getTotalCount();
+        for (int k = 0; k < percentiles.length; k++) {
+            statistics[index++] = interval.getValueAtPercentile(k) / config.outputValueUnitRatio;
+        }
+        statistics[index++] = interval.getMinValue() / config.outputValueUnitRatio;
+        statistics[index++] = interval.getMaxValue() / config.outputValueUnitRatio;
+        statistics[index++] = interval.getMean() / config.outputValueUnitRatio;
+        statistics[index++] = interval.getStdDeviation() / config.outputValueUnitRatio;
+        statistics[index++] = throughput(intervalHistogram) / config.outputValueUnitRatio;
+
+        // values recorded from the beginning until now
+        statistics[index++] = total.getTotalCount();
+        for (int k = 0; k < percentiles.length; k++) {
+            statistics[index++] = total.getValueAtPercentile(k) / config.outputValueUnitRatio;
+        }
+        statistics[index++] = total.getMinValue() / config.outputValueUnitRatio;
+        statistics[index++] = total.getMaxValue() / config.outputValueUnitRatio;
+        statistics[index++] = total.getMean() / config.outputValueUnitRatio;
+        statistics[index++] = total.getStdDeviation() / config.outputValueUnitRatio;
+        statistics[index] = throughput(accumulatedHistogram) / config.outputValueUnitRatio;
+        return statistics;
     }
 
     @Override
     protected Object[] buildDoubleHistogramStatistics(DoubleHistogram intervalHistogram, DoubleHistogram accumulatedHistogram) {
-        double intervalThroughput = ((double) (intervalHistogram.getTotalCount())
-                / (intervalHistogram.getEndTimeStamp() - intervalHistogram.getStartTimeStamp()));
-
-        double totalThroughput = ((double) accumulatedHistogram.getTotalCount())
-                / (accumulatedHistogram.getEndTimeStamp() - accumulatedHistogram.getStartTimeStamp());
-
-        return new Object[]{
-                ((intervalHistogram.getEndTimeStamp() / 1000.0) - logReader.getStartTimeSec()),
-                (intervalHistogram.getEndTimeStamp() / 1000.0),
-                // values recorded during the last reporting interval
-                intervalHistogram.getTotalCount(),
-                intervalHistogram.getValueAtPercentile(25.0) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(50.0) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(75) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(90.0) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(99.0) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(99.9) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(99.99) / config.outputValueUnitRatio,
-                intervalHistogram.getValueAtPercentile(99.999) / config.outputValueUnitRatio,
-                intervalHistogram.getMinValue() / config.outputValueUnitRatio,
-                intervalHistogram.getMaxValue() / config.outputValueUnitRatio,
-                intervalHistogram.getMean() / config.outputValueUnitRatio,
-                intervalHistogram.getStdDeviation() / config.outputValueUnitRatio,
-                intervalThroughput / config.outputValueUnitRatio,
-
-                // values recorded from the beginning until now
-                accumulatedHistogram.getTotalCount(),
-                accumulatedHistogram.getValueAtPercentile(25.0) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(50.0) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(75.0) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(90.0) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(99.0) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(99.9) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(99.99) / config.outputValueUnitRatio,
-                accumulatedHistogram.getValueAtPercentile(99.999) / config.outputValueUnitRatio,
-                accumulatedHistogram.getMinValue() / config.outputValueUnitRatio,
-                accumulatedHistogram.getMaxValue() / config.outputValueUnitRatio,
-                accumulatedHistogram.getMean() / config.outputValueUnitRatio,
-                accumulatedHistogram.getStdDeviation() / config.outputValueUnitRatio,
-                totalThroughput / config.outputValueUnitRatio,
-        };
+        double[] percentiles = config.percentiles;
+        Object[] statistics = new Object[2 + 2 * (percentiles.length + 6)];
+        int index = 0;
+        statistics[index++] = (intervalHistogram.getEndTimeStamp() / 1000.0) - logReader.getStartTimeSec();
+        statistics[index++] = intervalHistogram.getEndTimeStamp() / 1000.0;
+        index = addDoubleHistogramStatistics(statistics, index, intervalHistogram);
+        addDoubleHistogramStatistics(statistics, index, accumulatedHistogram);
+        return statistics;
+    }
+
+    private int addDoubleHistogramStatistics(Object[] statistics, int index, DoubleHistogram histogram) {
+        statistics[index++] = histogram.getTotalCount();
+        for (double percentile : config.percentiles) {
+            statistics[index++] = histogram.getValueAtPercentile(percentile) / config.outputValueUnitRatio;
+        }
+        statistics[index++] = histogram.getMinValue() / config.outputValueUnitRatio;
+        statistics[index++] = histogram.getMaxValue() / config.outputValueUnitRatio;
+        statistics[index++] = histogram.getMean() / config.outputValueUnitRatio;
+        statistics[index++] = histogram.getStdDeviation() / config.outputValueUnitRatio;
+        double throughput = ((double) histogram.getTotalCount())
+                / (histogram.getEndTimeStamp() - histogram.getStartTimeStamp());
+        statistics[index++] = throughput / config.outputValueUnitRatio;
+        return index;
+    }
+
+    private static double throughput(Histogram histogram) {
+        return ((double) histogram.getTotalCount()) / (histogram.getEndTimeStamp() - histogram.getStartTimeStamp());
     }
 
     @Override
     protected String buildLegend(boolean cvs) {
+        StringBuilder sb = new StringBuilder();
         if (cvs || areLatenciesFormattedAsCsv) {
-            return "\"Timestamp\","
-                    + "\"StartTime\","
-                    + "\"Int_Count\","
-                    + "\"Int_25%\","
-                    + "\"Int_50%\","
-                    + "\"Int_75%\","
-                    + "\"Int_90%\","
-                    + "\"Int_99%\","
-                    + "\"Int_99.9%\","
-                    + "\"Int_99.99%\","
-                    + "\"Int_99.999%\","
-                    + "\"Int_Min\","
-                    + "\"Int_Max\","
-                    + "\"Int_Mean\","
-                    + "\"Int_Std_Deviation\","
-                    + "\"Int_Throughput\","
-                    + "\"Total_Count\","
-                    + "\"Total_25%\","
-                    + "\"Total_50%\","
-                    + "\"Total_75%\","
-                    + "\"Total_90%\","
-                    + "\"Total_99%\","
-                    + "\"Total_99.9%\","
-                    + "\"Total_99.99%\","
-                    + "\"Total_99.999%\","
-                    + "\"Total_Min%\","
-                    + "\"Total_Max\","
-                    + "\"Total_Mean\","
-                    + "\"Total_Std_Deviation\","
-                    + "\"Total_Throughput\","
-                    ;
+            sb.append("\"Timestamp\",\"StartTime\",");
+            appendCsvLegend(sb, "Int_", "Int_Min");
+            appendCsvLegend(sb, "Total_", "Total_Min%");
         } else {
-            return "Time: StartTime: IntervalPercentiles:count "
-                    + "( 25% 50% 75% 90% 99.9% 99.99% 99.999% Min Max Mean Std-Deviation Throughput) "
-                    + "TotalPercentiles:count "
-                    + "( 25% 50% 75% 90% 99% 99.9% 99.99% 99.9% Min Max Mean Std-Deviation Throughput)";
+            sb.append("Time: StartTime: IntervalPercentiles:count ");
+            appendLegend(sb);
+            sb.append(" TotalPercentiles:count ");
+            appendLegend(sb);
         }
+        return sb.toString();
+    }
+
+    private void appendCsvLegend(StringBuilder sb, String prefix, String minColumn) {
+        sb.append('"').append(prefix).append("Count\",");
+        for (double percentile : config.percentiles) {
+            sb.append('"').append(prefix).append(PercentileExtractor.formatPercentile(percentile)).append("%\",");
+        }
+        sb.append('"').append(minColumn).append("\",");
+        sb.append('"').append(prefix).append("Max\",");
+        sb.append('"').append(prefix).append("Mean\",");
+        sb.append('"').append(prefix).append("Std_Deviation\",");
+        sb.append('"').append(prefix).append("Throughput\",");
+    }
+
+    private void appendLegend(StringBuilder sb) {
+        sb.append("( ");
+        for (double percentile : config.percentiles) {
+            sb.append(PercentileExtractor.formatPercentile(percentile)).append("% ");
+        }
+        sb.append("Min Max Mean Std-Deviation Throughput)");
     }
 
     @Override
     protected String buildLogFormat(boolean cvs) {
+        // per histogram: the count, the percentiles, min, max, mean, std deviation and throughput
+        int valueCount = config.percentiles.length + 5;
+        StringBuilder sb = new StringBuilder();
         if (cvs || areLatenciesFormattedAsCsv) {
-            return "%.3f," //timestamp
-                    + "%.3f," //timestamp
-                    + "%d," //int count
-                    + "%.3f," //int 25%
-                    + "%.3f," //int 50%
-                    + "%.3f," //int 75%
-                    + "%.3f," //int 90%
-                    + "%.3f," //int 99%
-                    + "%.3f," //int 99.9%
-                    + "%.3f," //int 99.99%
-                    + "%.3f," //int 99.999%
-                    + "%.3f," //int min
-                    + "%.3f," //int max
-                    + "%.3f," //int mean
-                    + "%.3f," //int std deviation
-                    + "%.3f," //int throughput
-
-                    + "%d," //total count
-                    + "%.3f," //total 25%
-                    + "%.3f," //total 50%
-                    + "%.3f," //total 75%
-                    + "%.3f," //total 90%
-                    + "%.3f," //total 99%
-                    + "%.3f," //total 99.9%
-                    + "%.3f," //total 99.99%
-                    + "%.3f," //total 99.999%
-                    + "%.3f," //total-min
-                    + "%.3f," //total-max
-                    + "%.3f," //total-mean
-                    + "%.3f," //total std deviation
-                    + "%.3f" //total throughput
-                    + "\n"
-            ;
+            sb.append("%.3f,%.3f,%d,");
+            appendFormat(sb, "%.3f,", valueCount);
+            sb.append("%d,");
+            appendFormat(sb, "%.3f,", valueCount);
+            // no trailing separator
+            sb.setLength(sb.length() - 1);
+            sb.append('\n');
         } else {
-            return "%4.3f: %4.3f: I"
-                    + ":%d " //int count
-                    + "( "
-                    + "%7.3f " //int 25%
-                    + "%7.3f " //int 50%
-                    + "%7.3f " //int 75%
-                    + "%7.3f " //int 90%
-                    + "%7.3f " //int 99%
-                    + "%7.3f " //int 99.9%
-                    + "%7.3f " //int 99.99%
-                    + "%7.3f " //int 99.999%
-                    + "%7.3f " //int min
-                    + "%7.3f " //int max
-                    + "%7.3f " //int mean
-                    + "%7.3f " //int std deviation
-                    + "%7.3f " //int throughput
-                    + ") "
-                    + "T:%d " //total count
-                    + "( "
-                    + "%7.3f " //total 25%
-                    + "%7.3f " //total 50%
-                    + "%7.3f " //total 75%
-                    + "%7.3f " //total 99%
-                    + "%7.3f " //total 99.9%
-                    + "%7.3f " //total 99.99%
-                    + "%7.3f " //total 99.999%
-                    + "%7.3f " //total min
-                    + "%7.3f " //total max
-                    + "%7.3f " //total mean
-                    + "%7.3f " //total std deviation
-                    + "%7.3f " //total throughput
-                    + ")\n"
-                    ;
+            sb.append("%4.3f: %4.3f: I:%d ( ");
+            appendFormat(sb, "%7.3f ", valueCount);
+            sb.append(") T:%d ( ");
+            appendFormat(sb, "%7.3f ", valueCount);
+            sb.append(")\n");
+        }
+        return sb.toString();
+    }
+
+    private static void appendFormat(StringBuilder sb, String format, int count) {
+        for (int k = 0; k < count; k++) {
+            sb.append(format);
         }
     }
 
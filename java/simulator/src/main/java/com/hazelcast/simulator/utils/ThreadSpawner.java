@@ -16,6 +16,9 @@
 package com.hazelcast.simulator.utils;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -35,9 +38,42 @@ import static com.hazelcast.simulator.utils.Preconditions.checkNotNull;
  *
  * You can also use your own threads in Simulator tests, but make sure that you detect thrown exceptions and report them to the
  * {@link ExceptionReporter} by yourself.
+ *
+ * Threads can also be spawned as virtual threads using {@link #spawnVirtual(String, Runnable)}. Simulator is compiled for
+ * Java 17, so virtual threads are created using reflection and are only available when running on Java 21+.
  */
 public class ThreadSpawner {
 
+    // Thread.ofVirtual(), Thread.Builder.name/unstarted and Thread.isVirtual(); null if the JVM doesn't support virtual
+    // threads.
+    private static final Method OF_VIRTUAL_METHOD;
+    private static final Method BUILDER_NAME_METHOD;
+    private static final Method BUILDER_UNSTARTED_METHOD;
+    private static final Method IS_VIRTUAL_METHOD;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderUnstarted = null;
+        Method isVirtual = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builderClass.getMethod("name", String.class);
+            builderUnstarted = builderClass.getMethod("unstarted", Runnable.class);
+            isVirtual = Thread.class.getMethod("isVirtual");
+            // on Java 19/20 virtual threads are a preview feature and the call fails when preview isn't enabled.
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            ofVirtual = null;
+            isVirtual = null;
+        }
+        OF_VIRTUAL_METHOD = ofVirtual;
+        BUILDER_NAME_METHOD = builderName;
+        BUILDER_UNSTARTED_METHOD = builderUnstarted;
+        IS_VIRTUAL_METHOD = isVirtual;
+    }
+
     private final List<Thread> threads = Collections.synchronizedList(new LinkedList<>());
     private final ConcurrentMap<String, AtomicInteger> idMap = new ConcurrentHashMap<>();
 
@@ -116,6 +152,77 @@ public class ThreadSpawner {
         return thread;
     }
 
+    /**
+     * Spawns a new virtual thread for the given {@link Runnable}.
+     *
+     * @param namePrefix the name prefix for the thread
+     * @param runnable   the {@link Runnable} to execute
+     * @return the created thread
+     * @throws UnsupportedOperationException if the JVM doesn't support virtual threads
+     */
+    public Thread spawnVirtual(String namePrefix, Runnable runnable) {
+        checkNotNull(namePrefix, "namePrefix can't be null");
+        checkNotNull(runnable, "runnable can't be null");
+
+        if (!isVirtualThreadSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported on Java "
+                    + System.getProperty("java.version"));
+        }
+
+        String name = newName(namePrefix);
+        Thread thread;
+        if (throwException) {
+            thread = newVirtualThread(name, runnable);
+            thread.setUncaughtExceptionHandler(exceptionHandler);
+        } else {
+            thread = newVirtualThread(name, new ReportExceptionRunnable(testId, runnable));
+        }
+        threads.add(thread);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Checks if the JVM supports virtual threads.
+     *
+     * @return <code>true</code> if virtual threads are supported, <code>false</code> otherwise
+     */
+    public static boolean isVirtualThreadSupported() {
+        return OF_VIRTUAL_METHOD != null;
+    }
+
+    /**
+     * Checks if a thread is a virtual thread.
+     *
+     * @param thread the thread to check
+     * @return <code>true</code> if the thread is a virtual thread, <code>false</code> otherwise
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL_METHOD == null) {
+            return false;
+        }
+
+        try {
+            return (Boolean) IS_VIRTUAL_METHOD.invoke(thread);
+        } catch (InvocationTargetException e) {
+            throw rethrow(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static Thread newVirtualThread(String name, Runnable runnable) {
+        try {
+            Object builder = OF_VIRTUAL_METHOD.invoke(null);
+            builder = BUILDER_NAME_METHOD.invoke(builder, name);
+            return (Thread) BUILDER_UNSTARTED_METHOD.invoke(builder, runnable);
+        } catch (InvocationTargetException e) {
+            throw rethrow(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw rethrow(e);
+        }
+    }
+
     /**
      * Waits for all threads to finish.
      *
@@ -134,6 +241,19 @@ public class ThreadSpawner {
         }
     }
 
+    /**
+     * Returns the threads spawned so far.
+     *
+     * This method is thread-safe.
+     *
+     * @return a copy of the list of spawned threads.
+     */
+    public List<Thread> getThreads() {
+        synchronized (threads) {
+            return new ArrayList<>(threads);
+        }
+    }
+
     /**
      * Interrupts all running threads.
      */
@@ -162,6 +282,28 @@ public class ThreadSpawner {
         }
     }
 
+    // a virtual thread can't be subclassed, so the exception reporting is done by wrapping the task.
+    private static class ReportExceptionRunnable implements Runnable {
+
+        private final String testId;
+        private final Runnable task;
+
+        ReportExceptionRunnable(String testId, Runnable task) {
+            this.testId = testId;
+            this.task = task;
+        }
+
+        @Override
+        @SuppressWarnings("PMD.AvoidCatchingThrowable")
+        public void run() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                ExceptionReporter.report(testId, t);
+            }
+        }
+    }
+
     private static class ReportExceptionThread extends Thread {
 
         private final String testId;
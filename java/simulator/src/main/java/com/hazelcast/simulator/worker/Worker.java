@@ -21,10 +21,13 @@ import com.hazelcast.simulator.common.ShutdownThread;
 import com.hazelcast.simulator.drivers.Driver;
 import com.hazelcast.simulator.protocol.Server;
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.protocol.message.MessageCodecs;
+import com.hazelcast.simulator.utils.CpuAffinity;
 import com.hazelcast.simulator.utils.ExceptionReporter;
 import com.hazelcast.simulator.worker.messages.TerminateWorkerMessage;
 import com.hazelcast.simulator.worker.performance.OperationsMonitor;
 import com.hazelcast.simulator.worker.testcontainer.TestManager;
+import com.hazelcast.simulator.worker.testcontainer.TimeStepLoopClassCache;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -72,6 +75,18 @@ public class Worker {
         this.server = new Server("workers")
                 .setBrokerURL(localIp(), parseInt(parameters.get("AGENT_PORT")))
                 .setSelfAddress(workerAddress);
+        String coalescingWindowMillis = parameters.get("worker_message_coalescing_millis");
+        if (coalescingWindowMillis != null && !coalescingWindowMillis.isEmpty()) {
+            server.setCoalescingWindowMillis(Long.parseLong(coalescingWindowMillis));
+        }
+        String messageCodec = parameters.get("worker_message_codec");
+        if (messageCodec != null && !messageCodec.isEmpty()) {
+            server.setMessageCodec(MessageCodecs.fromName(messageCodec));
+        }
+        String timeStepLoopCacheDir = parameters.get("worker_timestep_loop_cache_dir");
+        if (timeStepLoopCacheDir != null && !timeStepLoopCacheDir.isEmpty()) {
+            TimeStepLoopClassCache.setDirectory(new File(timeStepLoopCacheDir));
+        }
         this.testManager = new TestManager(server, driver);
 
         ScriptExecutor scriptExecutor = new ScriptExecutor(driver);
@@ -86,8 +101,7 @@ public class Worker {
     public void start() throws Exception {
         logInterestingJvmSettings();
 
-        server.start();
-        performanceMonitor.start();
+        startHousekeeping();
         driver.startDriverInstance();
 
         new ProcessSuicideThread(parameters.get("agent.pid"), parameters.intGet("WORKER_ORPHAN_INTERVAL_SECONDS")).start();
@@ -99,6 +113,26 @@ public class Worker {
         logHeader("Successfully started Worker #" + workerAddress);
     }
 
+    // the threads of the server and performance monitor inherit the affinity of the thread that starts them; so if
+    // housekeeping cpus are configured, they are started while the main thread is pinned to these cpus.
+    private void startHousekeeping() throws Exception {
+        String housekeepingCpus = parameters.get("worker_housekeeping_cpus");
+        if (housekeepingCpus == null || housekeepingCpus.isEmpty()) {
+            server.start();
+            performanceMonitor.start();
+            return;
+        }
+
+        CpuAffinity.configureHousekeepingCpus(CpuAffinity.parseCpuList(housekeepingCpus));
+        CpuAffinity.applyHousekeepingAffinity();
+        try {
+            server.start();
+            performanceMonitor.start();
+        } finally {
+            CpuAffinity.applyWorkloadAffinity();
+        }
+    }
+
     public void shutdown(TerminateWorkerMessage msg) {
         LOGGER.warn("Terminating worker");
         closeQuietly(server);
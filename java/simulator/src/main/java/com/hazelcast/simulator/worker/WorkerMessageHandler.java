@@ -26,6 +26,7 @@ import com.hazelcast.simulator.worker.messages.ExecuteScriptMessage;
 import com.hazelcast.simulator.worker.messages.StartPhaseMessage;
 import com.hazelcast.simulator.worker.messages.StopRunMessage;
 import com.hazelcast.simulator.worker.messages.TerminateWorkerMessage;
+import com.hazelcast.simulator.worker.messages.UpdateRateMessage;
 import com.hazelcast.simulator.worker.testcontainer.TestManager;
 
 public class WorkerMessageHandler implements MessageHandler {
@@ -58,6 +59,9 @@ public class WorkerMessageHandler implements MessageHandler {
             } else if (msg instanceof StopRunMessage) {
                 testManager.stopRun((StopRunMessage) msg);
                 promise.answer("ok");
+            } else if (msg instanceof UpdateRateMessage) {
+                // the applied rate is used by the coordinator to determine the offered load
+                promise.answer(testManager.updateRate((UpdateRateMessage) msg));
             } else {
                 throw new HandleException("Unknown message:" + msg);
             }
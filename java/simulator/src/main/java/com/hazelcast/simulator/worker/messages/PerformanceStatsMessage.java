@@ -16,12 +16,18 @@
 package com.hazelcast.simulator.worker.messages;
 
 import com.google.gson.annotations.SerializedName;
-import com.hazelcast.simulator.protocol.message.SimulatorMessage;
+import com.hazelcast.simulator.protocol.message.BinaryMessage;
 import com.hazelcast.simulator.worker.performance.PerformanceStats;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
+import static com.hazelcast.simulator.protocol.message.BinaryMessageCodec.readString;
+import static com.hazelcast.simulator.protocol.message.BinaryMessageCodec.writeString;
+
 /**
  * Sends a {@link PerformanceStats} per running Simulator Test to the Coordinator,
  * which contains the last snapshot of performance numbers from that test.
@@ -30,7 +36,7 @@ import java.util.Map;
  * it is no performance information is available on the coordinator for logging
  * purposes.
  */
-public class PerformanceStatsMessage implements SimulatorMessage {
+public class PerformanceStatsMessage implements BinaryMessage {
 
     /**
      * Map of {@link PerformanceStats} per Simulator Test.
@@ -48,4 +54,24 @@ public class PerformanceStatsMessage implements SimulatorMessage {
     public Map<String, PerformanceStats> getPerformanceStats() {
         return performanceStatsMap;
     }
+
+    @Override
+    public void writeData(DataOutput out) throws IOException {
+        out.writeInt(performanceStatsMap.size());
+        for (Map.Entry<String, PerformanceStats> entry : performanceStatsMap.entrySet()) {
+            writeString(out, entry.getKey());
+            entry.getValue().writeData(out);
+        }
+    }
+
+    @Override
+    public void readData(DataInput in) throws IOException {
+        int size = in.readInt();
+        for (int k = 0; k < size; k++) {
+            String testId = readString(in);
+            PerformanceStats performanceStats = new PerformanceStats();
+            performanceStats.readData(in);
+            performanceStatsMap.put(testId, performanceStats);
+        }
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.messages;
+
+import com.google.gson.annotations.SerializedName;
+import com.hazelcast.simulator.common.TestPhase;
+import com.hazelcast.simulator.protocol.message.SimulatorMessage;
+
+/**
+ * Changes the rate of a Simulator Test while it is in the {@link TestPhase#RUN} phase.
+ * <p/>
+ * The rate is the rate per execution group on a single worker, just like the 'ratePerSecond' property of the test.
+ * The running metronomes pick up the new rate, so the test doesn't need to be recreated. The rate can be changed for a
+ * single execution group, or for all execution groups of the test.
+ */
+public class UpdateRateMessage implements SimulatorMessage {
+
+    /**
+     * The name of the test.
+     */
+    @SerializedName("testId")
+    private final String testId;
+
+    /**
+     * The new rate.
+     */
+    @SerializedName("ratePerSecond")
+    private final double ratePerSecond;
+
+    /**
+     * The execution group to change the rate of; null for all execution groups.
+     */
+    @SerializedName("executionGroup")
+    private final String executionGroup;
+
+    public UpdateRateMessage(String testId, double ratePerSecond) {
+        this(testId, ratePerSecond, null);
+    }
+
+    public UpdateRateMessage(String testId, double ratePerSecond, String executionGroup) {
+        this.testId = testId;
+        this.ratePerSecond = ratePerSecond;
+        this.executionGroup = executionGroup;
+    }
+
+    public String getTestId() {
+        return testId;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public String getExecutionGroup() {
+        return executionGroup;
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateRateMessage{testId='" + testId + "', ratePerSecond=" + ratePerSecond
+                + ", executionGroup=" + executionGroup + "}";
+    }
+}
@@ -17,6 +17,8 @@ package com.hazelcast.simulator.worker.metronome;
 
 import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
 import static java.lang.System.nanoTime;
 import static org.apache.commons.lang3.RandomUtils.nextLong;
@@ -35,22 +37,33 @@ import static org.apache.commons.lang3.RandomUtils.nextLong;
  */
 public final class BusySpinningMetronome implements Metronome {
 
-    private final long intervalNanos;
+    // the interval of a single thread; shared with the master so it can be changed while running.
+    private final AtomicLong intervalNanos;
+    private final int threadCount;
     private final boolean accountForCoordinatedOmission;
+    // the interval nextNanos was scheduled with
+    private long scheduledIntervalNanos;
     private long nextNanos;
 
     BusySpinningMetronome(long intervalNanos, boolean accountForCoordinatedOmission) {
-        this.intervalNanos = intervalNanos;
+        this(intervalNanos, 1, accountForCoordinatedOmission);
+    }
+
+    private BusySpinningMetronome(long intervalNanos, int threadCount, boolean accountForCoordinatedOmission) {
+        this.intervalNanos = new AtomicLong(intervalNanos * threadCount);
+        this.threadCount = threadCount;
         this.accountForCoordinatedOmission = accountForCoordinatedOmission;
     }
 
     public BusySpinningMetronome(long intervalNanos, int threadCount, PropertyBinding binding, String prefix) {
-        this(intervalNanos * threadCount, binding.loadAsBoolean(toPropertyName(prefix, "accountForCoordinatedOmission"), true));
+        this(intervalNanos, threadCount,
+                binding.loadAsBoolean(toPropertyName(prefix, "accountForCoordinatedOmission"), true));
     }
 
     public BusySpinningMetronome(Metronome m) {
         BusySpinningMetronome master = (BusySpinningMetronome) m;
         this.intervalNanos = master.intervalNanos;
+        this.threadCount = master.threadCount;
         this.accountForCoordinatedOmission = master.accountForCoordinatedOmission;
     }
 
@@ -58,20 +71,32 @@ public final class BusySpinningMetronome implements Metronome {
     public long waitForNext() {
         // set random interval on the first run
         if (nextNanos == 0) {
-            nextNanos = nanoTime() + nextLong(0, intervalNanos);
+            scheduledIntervalNanos = intervalNanos.get();
+            nextNanos = nanoTime() + nextLong(0, scheduledIntervalNanos);
         }
 
         long now;
-        do {
-            now = nanoTime();
-        } while (now < nextNanos);
+        while ((now = nanoTime()) < nextNanos) {
+            long interval = intervalNanos.get();
+            if (interval != scheduledIntervalNanos) {
+                // the interval changed while waiting; the next operation is an interval after the previous one.
+                nextNanos = Math.max(now, nextNanos - scheduledIntervalNanos + interval);
+                scheduledIntervalNanos = interval;
+            }
+        }
 
         long expectedStartNanos = nextNanos;
-        nextNanos = expectedStartNanos + intervalNanos;
+        scheduledIntervalNanos = intervalNanos.get();
+        nextNanos = expectedStartNanos + scheduledIntervalNanos;
         return accountForCoordinatedOmission ? expectedStartNanos : nanoTime();
     }
 
+    @Override
+    public void setIntervalNanos(long intervalNanos) {
+        this.intervalNanos.set(intervalNanos * threadCount);
+    }
+
     public long getIntervalNanos() {
-        return intervalNanos;
+        return intervalNanos.get();
     }
 }
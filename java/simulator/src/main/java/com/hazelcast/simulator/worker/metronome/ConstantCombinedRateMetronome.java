@@ -18,6 +18,7 @@ package com.hazelcast.simulator.worker.metronome;
 import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
 
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
 import static java.lang.System.nanoTime;
@@ -33,51 +34,147 @@ import static java.util.concurrent.locks.LockSupport.parkNanos;
  * <p>
  * With the ConstantCombinedRateMetronome this bubble is less likely to happen because as long as there is a thread available,
  * it will take over the work of the blocked threads. This way you get less bubbles and a more stable rate of requests.
+ * <p>
+ * The slots are handed out using a single getAndIncrement on a shared ticket counter; the expected start time of a slot is
+ * derived from its ticket. So there are no retry loops: every call gets exactly one slot, even with many threads and high
+ * combined rates where a compareAndSet based schedule would suffer from CAS failures. A thread only claims its next slot
+ * when it calls waitForNext, so the slots of a thread that is blocked are picked up by the other threads.
+ * <p>
+ * The interval can be changed while running; the schedule then continues from the first ticket that isn't due yet, so
+ * the expected start times stay continuous. Threads waiting for a ticket that isn't due yet, pick up the new schedule
+ * right away.
+ * <p>
+ * By default the schedule starts when the metronome is created. With an open loop (the 'openLoop' property) the schedule
+ * starts at the first call of waitForNext instead; otherwise the slots that were due during the setup and prepare of the
+ * test are all issued at once, and in an open loop nothing throttles such a burst.
  */
 public class ConstantCombinedRateMetronome implements Metronome {
 
-    private final long intervalNanos;
     private final boolean accountForCoordinatedOmission;
-    private final AtomicLong nextExpectedStartNanos;
+    private final AtomicLong tickets;
+    private final AtomicReference<Schedule> schedule;
+    private final WaitingThreads waitingThreads;
+    private boolean registered;
 
     ConstantCombinedRateMetronome(long intervalNanos, boolean accountForCoordinatedOmission) {
-        this.intervalNanos = intervalNanos;
+        this(intervalNanos, accountForCoordinatedOmission, false);
+    }
+
+    ConstantCombinedRateMetronome(long intervalNanos, boolean accountForCoordinatedOmission, boolean startOnFirstCall) {
         this.accountForCoordinatedOmission = accountForCoordinatedOmission;
-        this.nextExpectedStartNanos = new AtomicLong(nanoTime());
+        this.tickets = new AtomicLong();
+        this.waitingThreads = new WaitingThreads();
+        // a startNanos of 0 means the schedule is started by the first waitForNext call.
+        this.schedule = new AtomicReference<>(new Schedule(startOnFirstCall ? 0 : nanoTime(), 0, intervalNanos));
     }
 
     public ConstantCombinedRateMetronome(long intervalNanos, int threadCount, PropertyBinding binding, String prefix) {
-        this(intervalNanos, binding.loadAsBoolean(toPropertyName(prefix, "accountForCoordinatedOmission"), true));
+        this(intervalNanos,
+                binding.loadAsBoolean(toPropertyName(prefix, "accountForCoordinatedOmission"), true),
+                binding.loadAsBoolean(toPropertyName(prefix, "openLoop"), false));
     }
 
     public ConstantCombinedRateMetronome(Metronome m) {
         ConstantCombinedRateMetronome master = (ConstantCombinedRateMetronome) m;
-        this.intervalNanos = master.intervalNanos;
         this.accountForCoordinatedOmission = master.accountForCoordinatedOmission;
-        this.nextExpectedStartNanos = master.nextExpectedStartNanos;
+        this.tickets = master.tickets;
+        this.schedule = master.schedule;
+        this.waitingThreads = master.waitingThreads;
     }
 
     @Override
     public long waitForNext() {
-        long expectedStartNanos;
+        if (!registered) {
+            waitingThreads.registerCurrentThread();
+            registered = true;
+        }
+
+        Schedule current = schedule.get();
+        if (current.startNanos == 0) {
+            schedule.compareAndSet(current, new Schedule(nanoTime(), current.firstTicket, current.intervalNanos));
+        }
+
+        long ticket = tickets.getAndIncrement();
+        current = schedule.get();
+        long expectedStartNanos = current.expectedStartNanos(ticket, Long.MAX_VALUE);
+
+        long now;
+        while ((now = nanoTime()) < expectedStartNanos) {
+            // we can't pick up the request yet since it is too early.
+            parkNanos(expectedStartNanos - now);
+
+            Schedule latest = schedule.get();
+            if (latest != current) {
+                // the interval has been changed while waiting.
+                expectedStartNanos = latest.expectedStartNanos(ticket, expectedStartNanos);
+                current = latest;
+            }
+        }
+
+        return accountForCoordinatedOmission ? expectedStartNanos : now;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The new schedule starts at the first ticket that isn't due yet, or at the first ticket that hasn't been handed out
+     * yet if the threads are behind schedule. It starts at the expected start time of that ticket, but no later than
+     * 1 new interval from now. So when going from a low to a high rate, the high rate starts right away.
+     */
+    @Override
+    public void setIntervalNanos(long intervalNanos) {
         for (; ; ) {
-            expectedStartNanos = nextExpectedStartNanos.get();
-            long now;
-            while ((now = nanoTime()) < expectedStartNanos) {
-                // we can't pick up the request yet since it is too early.
-                parkNanos(expectedStartNanos - now);
+            Schedule current = schedule.get();
+            Schedule update;
+            if (current.startNanos == 0) {
+                update = new Schedule(0, current.firstTicket, intervalNanos);
+            } else {
+                long now = nanoTime();
+                long dueTicket = current.firstTicket
+                        + Math.max(0, Math.floorDiv(now - current.startNanos, current.intervalNanos) + 1);
+                long firstTicket = Math.min(tickets.get(), dueTicket);
+                long startNanos = Math.min(current.expectedStartNanos(firstTicket), now + intervalNanos);
+                update = new Schedule(startNanos, firstTicket, intervalNanos);
             }
 
-            // if we manage to cas the item, we can execute the request, otherwise continue waiting.
-            if (nextExpectedStartNanos.compareAndSet(expectedStartNanos, expectedStartNanos + intervalNanos)) {
-                break;
+            if (schedule.compareAndSet(current, update)) {
+                waitingThreads.unparkAll();
+                return;
             }
         }
-
-        return accountForCoordinatedOmission ? expectedStartNanos : nanoTime();
     }
 
     public long getIntervalNanos() {
-        return intervalNanos;
+        return schedule.get().intervalNanos;
+    }
+
+    /**
+     * The slots from ticket firstTicket onwards; startNanos is 0 as long as the schedule hasn't been started.
+     */
+    private static final class Schedule {
+        private final long startNanos;
+        private final long firstTicket;
+        private final long intervalNanos;
+
+        private Schedule(long startNanos, long firstTicket, long intervalNanos) {
+            this.startNanos = startNanos;
+            this.firstTicket = firstTicket;
+            this.intervalNanos = intervalNanos;
+        }
+
+        private long expectedStartNanos(long ticket) {
+            return startNanos + (ticket - firstTicket) * intervalNanos;
+        }
+
+        /**
+         * Tickets before firstTicket were already due when this schedule was created; they keep their expected start time
+         * from the previous schedule, but no later than the start of this schedule.
+         */
+        private long expectedStartNanos(long ticket, long previousExpectedStartNanos) {
+            if (ticket >= firstTicket) {
+                return expectedStartNanos(ticket);
+            }
+            return Math.min(previousExpectedStartNanos, startNanos);
+        }
     }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
+import com.hazelcast.simulator.worker.testcontainer.TestContextImpl;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.apache.commons.lang3.RandomUtils.nextLong;
+
+/**
+ * A {@link Metronome} implementation which parks until just before the deadline and spins for the remainder.
+ *
+ * {@link LockSupport#parkNanos(long)} typically overshoots by tens of microseconds, which makes the
+ * {@link SleepingMetronome} inaccurate for short intervals, while the {@link BusySpinningMetronome} burns a core per
+ * thread. The HybridMetronome measures the park overshoot of the platform once and only spins for that last part of
+ * the interval, using {@link Thread#onSpinWait()}.
+ *
+ * The difference between the actual and the expected wakeup time is recorded in the 'metronomeError' probe, so the
+ * accuracy of the pacing is visible next to the latencies of the test. Calls that are already behind schedule are not
+ * recorded, since that is not an error of the metronome.
+ *
+ * The wait interval on the first {@link #waitForNext()} call is randomized.
+ */
+public final class HybridMetronome implements Metronome {
+
+    static final String ERROR_PROBE_NAME = "metronomeError";
+
+    private static final int CALIBRATION_ROUNDS = 50;
+    private static final long CALIBRATION_PARK_NANOS = MICROSECONDS.toNanos(50);
+    private static final double CALIBRATION_PERCENTILE = 0.9;
+
+    // the interval of a single thread; shared with the master so it can be changed while running.
+    private final AtomicLong intervalNanos;
+    private final int threadCount;
+    private final boolean accountForCoordinatedOmission;
+    private final long spinNanos;
+    private final PropertyBinding binding;
+    private final String prefix;
+    private final LatencyProbe errorProbe;
+    private final WaitingThreads waitingThreads;
+    // the interval nextNanos was scheduled with
+    private long scheduledIntervalNanos;
+    private long nextNanos;
+
+    HybridMetronome(long intervalNanos, boolean accountForCoordinatedOmission, long spinNanos, LatencyProbe errorProbe) {
+        this.intervalNanos = new AtomicLong(intervalNanos);
+        this.threadCount = 1;
+        this.accountForCoordinatedOmission = accountForCoordinatedOmission;
+        this.spinNanos = spinNanos;
+        this.binding = null;
+        this.prefix = null;
+        this.errorProbe = errorProbe;
+        this.waitingThreads = new WaitingThreads();
+    }
+
+    public HybridMetronome(long intervalNanos, int threadCount, PropertyBinding binding, String prefix) {
+        this.intervalNanos = new AtomicLong(intervalNanos * threadCount);
+        this.threadCount = threadCount;
+        this.accountForCoordinatedOmission = binding.loadAsBoolean(
+                toPropertyName(prefix, "accountForCoordinatedOmission"), true);
+        this.spinNanos = Calibration.PARK_OVERSHOOT_NANOS;
+        this.binding = binding;
+        this.prefix = prefix;
+        this.errorProbe = null;
+        this.waitingThreads = new WaitingThreads();
+    }
+
+    public HybridMetronome(Metronome m) {
+        HybridMetronome master = (HybridMetronome) m;
+        this.intervalNanos = master.intervalNanos;
+        this.threadCount = master.threadCount;
+        this.accountForCoordinatedOmission = master.accountForCoordinatedOmission;
+        this.spinNanos = master.spinNanos;
+        this.binding = master.binding;
+        this.prefix = master.prefix;
+        this.waitingThreads = master.waitingThreads;
+        // the test context isn't available yet when the master metronome is created
+        TestContextImpl testContext = binding == null ? null : binding.getTestContext();
+        this.errorProbe = testContext == null
+                ? null
+                : testContext.getDiagnosticProbe(toPropertyName(prefix, ERROR_PROBE_NAME));
+    }
+
+    @Override
+    public long waitForNext() {
+        // set random interval on the first run; the clock is read last so the (one-time) cost of initializing
+        // the random doesn't put the metronome behind schedule
+        if (nextNanos == 0) {
+            waitingThreads.registerCurrentThread();
+            scheduledIntervalNanos = intervalNanos.get();
+            long delayNanos = nextLong(0, scheduledIntervalNanos);
+            nextNanos = nanoTime() + delayNanos;
+        }
+
+        long now = nanoTime();
+        if (now < nextNanos) {
+            while (now < nextNanos - spinNanos) {
+                LockSupport.parkNanos(nextNanos - spinNanos - now);
+                now = nanoTime();
+
+                long interval = intervalNanos.get();
+                if (interval != scheduledIntervalNanos) {
+                    // the interval changed while waiting; the next operation is an interval after the previous one.
+                    nextNanos = Math.max(now, nextNanos - scheduledIntervalNanos + interval);
+                    scheduledIntervalNanos = interval;
+                }
+            }
+
+            while (now < nextNanos) {
+                Thread.onSpinWait();
+                now = nanoTime();
+            }
+
+            if (errorProbe != null) {
+                errorProbe.recordValue(now - nextNanos);
+            }
+        }
+
+        long expectedStartNanos = nextNanos;
+        scheduledIntervalNanos = intervalNanos.get();
+        nextNanos += scheduledIntervalNanos;
+        return accountForCoordinatedOmission ? expectedStartNanos : nanoTime();
+    }
+
+    @Override
+    public void setIntervalNanos(long intervalNanos) {
+        this.intervalNanos.set(intervalNanos * threadCount);
+        waitingThreads.unparkAll();
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos.get();
+    }
+
+    long getSpinNanos() {
+        return spinNanos;
+    }
+
+    /**
+     * Measures how much {@link LockSupport#parkNanos(long)} overshoots on this platform.
+     *
+     * A high percentile is used instead of the mean, so only a small fraction of the parks wake up after the deadline.
+     */
+    static long calibrateParkOvershootNanos() {
+        long[] overshoots = new long[CALIBRATION_ROUNDS];
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            long startNanos = nanoTime();
+            LockSupport.parkNanos(CALIBRATION_PARK_NANOS);
+            overshoots[i] = Math.max(0, nanoTime() - startNanos - CALIBRATION_PARK_NANOS);
+        }
+        Arrays.sort(overshoots);
+        return overshoots[(int) (CALIBRATION_ROUNDS * CALIBRATION_PERCENTILE)];
+    }
+
+    // the calibration is done once per JVM, when the first HybridMetronome is created
+    private static final class Calibration {
+        static final long PARK_OVERSHOOT_NANOS = calibrateParkOvershootNanos();
+    }
+}
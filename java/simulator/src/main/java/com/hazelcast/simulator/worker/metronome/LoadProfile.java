@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+import com.hazelcast.simulator.worker.testcontainer.IllegalTestException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.worker.testcontainer.MetronomeSupplier.parseInterval;
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * A schedule for the rate (operations per second) of an execution group that changes over time.
+ *
+ * A profile is a sequence of named segments, in each segment the rate changes linearly from a start rate to an end rate.
+ * After the last segment, the rate of the tail is held; unless the profile is periodic, in which case it starts over.
+ * The following profiles are supported:
+ * <ol>
+ * <li>ramp:&lt;fromRate&gt;,&lt;toRate&gt;,&lt;duration&gt; e.g. 'ramp:1000,50000,5m'</li>
+ * <li>steps:&lt;rate&gt;/&lt;duration&gt;,... e.g. 'steps:1000/30s,2000/30s,4000/30s'</li>
+ * <li>sine:&lt;meanRate&gt;,&lt;amplitude&gt;,&lt;period&gt; e.g. 'sine:10000,5000,1m'</li>
+ * <li>csv:&lt;file&gt; where every line is '&lt;seconds&gt;,&lt;rate&gt;'; the rate is held until the next line. The
+ * seconds are relative to the first line, so an epoch based trace can be replayed.</li>
+ * </ol>
+ *
+ * The schedule is expressed as the expected number of operations since the start of the profile, so the time of the n-th
+ * operation can be calculated without accumulating rounding errors. The profile is started by the first
+ * {@link #startNanos()} call and is shared between all threads of the execution group.
+ */
+public final class LoadProfile {
+
+    private static final double NANOS_PER_SECOND = SECONDS.toNanos(1);
+    private static final int SINE_SEGMENTS = 64;
+
+    private final String[] names;
+    private final long[] offsetNanos;
+    private final long[] durationNanos;
+    private final double[] startRates;
+    private final double[] endRates;
+    // the expected number of operations at the start of each segment.
+    private final double[] operations;
+    private final long totalNanos;
+    private final double totalOperations;
+    private final String tailName;
+    private final double tailRate;
+    private final boolean periodic;
+    private final AtomicLong startNanos = new AtomicLong();
+
+    private LoadProfile(List<Segment> segments, String tailName, double tailRate, boolean periodic) {
+        int count = segments.size();
+        this.names = new String[count];
+        this.offsetNanos = new long[count];
+        this.durationNanos = new long[count];
+        this.startRates = new double[count];
+        this.endRates = new double[count];
+        this.operations = new double[count];
+
+        long offset = 0;
+        double ops = 0;
+        for (int i = 0; i < count; i++) {
+            Segment segment = segments.get(i);
+            names[i] = segment.name;
+            offsetNanos[i] = offset;
+            durationNanos[i] = segment.durationNanos;
+            startRates[i] = segment.startRate;
+            endRates[i] = segment.endRate;
+            operations[i] = ops;
+            offset += segment.durationNanos;
+            ops += (segment.startRate + segment.endRate) / 2 * segment.durationNanos / NANOS_PER_SECOND;
+        }
+        this.totalNanos = offset;
+        this.totalOperations = ops;
+        this.tailName = tailName;
+        this.tailRate = tailRate;
+        this.periodic = periodic;
+    }
+
+    /**
+     * Creates a profile with a constant rate.
+     *
+     * @param ratePerSecond the rate
+     * @return the created profile
+     */
+    public static LoadProfile constant(double ratePerSecond) {
+        return new LoadProfile(new ArrayList<>(), "constant", ratePerSecond, false);
+    }
+
+    /**
+     * Parses a profile.
+     *
+     * @param property the name of the property; used in error messages.
+     * @param value    the profile
+     * @return the parsed profile
+     * @throws IllegalTestException if the profile is not valid.
+     */
+    public static LoadProfile parse(String property, String value) {
+        int index = value.indexOf(':');
+        if (index == -1) {
+            throw new IllegalTestException(format("%s has an invalid value [%s], expected <type>:<arguments>,"
+                    + " valid types are [ramp, steps, sine, csv]", property, value));
+        }
+
+        String type = value.substring(0, index).trim();
+        String arguments = value.substring(index + 1).trim();
+        LoadProfile profile;
+        switch (type) {
+            case "ramp":
+                profile = parseRamp(property, arguments);
+                break;
+            case "steps":
+                profile = parseSteps(property, arguments);
+                break;
+            case "sine":
+                profile = parseSine(property, arguments);
+                break;
+            case "csv":
+                profile = parseCsv(property, arguments);
+                break;
+            default:
+                throw new IllegalTestException(format("%s has an invalid type [%s], valid types are [ramp, steps, sine, csv]",
+                        property, type));
+        }
+
+        if (!profile.periodic && profile.tailRate <= 0) {
+            throw new IllegalTestException(format("%s [%s] must end with a rate larger than 0", property, value));
+        }
+        return profile;
+    }
+
+    private static LoadProfile parseRamp(String property, String arguments) {
+        String[] args = split(property, arguments, 3, "ramp:<fromRate>,<toRate>,<duration>");
+        double fromRate = parseRate(property, args[0]);
+        double toRate = parseRate(property, args[1]);
+        long durationNanos = parseDuration(property, args[2]);
+
+        List<Segment> segments = new ArrayList<>();
+        segments.add(new Segment("ramp", durationNanos, fromRate, toRate));
+        return new LoadProfile(segments, "ramp", toRate, false);
+    }
+
+    private static LoadProfile parseSteps(String property, String arguments) {
+        List<Segment> segments = new ArrayList<>();
+        String[] steps = arguments.split(",");
+        for (int i = 0; i < steps.length; i++) {
+            String[] step = steps[i].split("/");
+            if (step.length != 2) {
+                throw new IllegalTestException(format("%s has an invalid step [%s], expected <rate>/<duration>",
+                        property, steps[i]));
+            }
+            double rate = parseRate(property, step[0]);
+            segments.add(new Segment("step" + (i + 1), parseDuration(property, step[1]), rate, rate));
+        }
+
+        Segment last = segments.get(segments.size() - 1);
+        return new LoadProfile(segments, last.name, last.endRate, false);
+    }
+
+    private static LoadProfile parseSine(String property, String arguments) {
+        String[] args = split(property, arguments, 3, "sine:<meanRate>,<amplitude>,<period>");
+        double meanRate = parseRate(property, args[0]);
+        double amplitude = parseRate(property, args[1]);
+        long periodNanos = parseDuration(property, args[2]);
+        if (amplitude > meanRate) {
+            throw new IllegalTestException(format("%s amplitude [%s] can't be larger than the mean rate [%s]",
+                    property, args[1], args[0]));
+        }
+
+        // the sinusoid is approximated using linear segments, so the schedule can be calculated exactly.
+        List<Segment> segments = new ArrayList<>();
+        long offset = 0;
+        for (int i = 0; i < SINE_SEGMENTS; i++) {
+            long nextOffset = periodNanos * (i + 1) / SINE_SEGMENTS;
+            double startRate = meanRate + amplitude * Math.sin(2 * Math.PI * i / SINE_SEGMENTS);
+            double endRate = meanRate + amplitude * Math.sin(2 * Math.PI * (i + 1) / SINE_SEGMENTS);
+            segments.add(new Segment("sine", nextOffset - offset, Math.max(0, startRate), Math.max(0, endRate)));
+            offset = nextOffset;
+        }
+        return new LoadProfile(segments, "sine", meanRate, true);
+    }
+
+    private static LoadProfile parseCsv(String property, String path) {
+        File file = new File(path);
+        if (!file.isFile()) {
+            throw new IllegalTestException(format("%s file [%s] does not exist", property, file.getAbsolutePath()));
+        }
+
+        List<double[]> rows = new ArrayList<>();
+        for (String line : fileAsText(file).split("\n")) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] columns = line.split(",");
+            if (columns.length < 2) {
+                throw new IllegalTestException(format("%s file [%s] has an invalid line [%s], expected <seconds>,<rate>",
+                        property, path, line));
+            }
+            try {
+                rows.add(new double[]{Double.parseDouble(columns[0].trim()), parseRate(property, columns[1])});
+            } catch (NumberFormatException e) {
+                if (rows.isEmpty()) {
+                    // a header
+                    continue;
+                }
+                throw new IllegalTestException(format("%s file [%s] has an invalid line [%s]", property, path, line), e);
+            }
+        }
+
+        if (rows.isEmpty()) {
+            throw new IllegalTestException(format("%s file [%s] doesn't contain any rates", property, path));
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        for (int i = 0; i < rows.size() - 1; i++) {
+            long durationNanos = Math.round((rows.get(i + 1)[0] - rows.get(i)[0]) * NANOS_PER_SECOND);
+            if (durationNanos < 0) {
+                throw new IllegalTestException(format("%s file [%s] isn't sorted by time", property, path));
+            } else if (durationNanos == 0) {
+                continue;
+            }
+            double rate = rows.get(i)[1];
+            segments.add(new Segment("csv" + (i + 1), durationNanos, rate, rate));
+        }
+        return new LoadProfile(segments, "csv" + rows.size(), rows.get(rows.size() - 1)[1], false);
+    }
+
+    private static String[] split(String property, String arguments, int expected, String syntax) {
+        String[] args = arguments.split(",");
+        if (args.length != expected) {
+            throw new IllegalTestException(format("%s has invalid arguments [%s], expected %s", property, arguments, syntax));
+        }
+        return args;
+    }
+
+    private static double parseRate(String property, String value) {
+        double rate;
+        try {
+            rate = Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalTestException(format("%s has an invalid rate [%s]", property, value), e);
+        }
+        if (rate < 0) {
+            throw new IllegalTestException(format("%s rate [%s] can't be smaller than 0", property, value));
+        }
+        return rate;
+    }
+
+    private static long parseDuration(String property, String value) {
+        long durationNanos = parseInterval(property, value.trim());
+        if (durationNanos == 0) {
+            throw new IllegalTestException(format("%s duration [%s] must be larger than 0", property, value));
+        }
+        return durationNanos;
+    }
+
+    /**
+     * Returns the start of the profile in nanos, starting the profile if that hasn't happened yet.
+     *
+     * @return the start of the profile
+     */
+    public long startNanos() {
+        long start = startNanos.get();
+        if (start == 0) {
+            startNanos.compareAndSet(0, nanoTime());
+            start = startNanos.get();
+        }
+        return start;
+    }
+
+    /**
+     * Returns the start of the profile in nanos, or 0 if the profile hasn't started.
+     *
+     * @return the start of the profile
+     */
+    public long getStartNanos() {
+        return startNanos.get();
+    }
+
+    /**
+     * Returns the highest rate of this profile.
+     *
+     * @return the highest rate
+     */
+    public double getMaxRatePerSecond() {
+        double max = tailRate;
+        for (int i = 0; i < names.length; i++) {
+            max = Math.max(max, Math.max(startRates[i], endRates[i]));
+        }
+        return max;
+    }
+
+    /**
+     * Returns the expected number of operations between the start of the profile and the given offset.
+     *
+     * @param offsetNanos the offset from the start of the profile
+     * @return the expected number of operations
+     */
+    public double operationsAt(long offsetNanos) {
+        if (offsetNanos <= 0) {
+            return 0;
+        }
+
+        if (periodic) {
+            long periods = offsetNanos / totalNanos;
+            return periods * totalOperations + operationsWithin(offsetNanos - periods * totalNanos);
+        } else if (offsetNanos >= totalNanos) {
+            return totalOperations + tailRate * (offsetNanos - totalNanos) / NANOS_PER_SECOND;
+        } else {
+            return operationsWithin(offsetNanos);
+        }
+    }
+
+    private double operationsWithin(long offset) {
+        int index = segmentIndex(offset);
+        double duration = durationNanos[index] / NANOS_PER_SECOND;
+        double t = (offset - offsetNanos[index]) / NANOS_PER_SECOND;
+        double startRate = startRates[index];
+        double acceleration = (endRates[index] - startRate) / duration;
+        return operations[index] + startRate * t + acceleration * t * t / 2;
+    }
+
+    /**
+     * Returns the offset from the start of the profile at which the given number of operations is expected to be done.
+     *
+     * This is the inverse of {@link #operationsAt(long)}.
+     *
+     * @param ops the number of operations
+     * @return the offset in nanos
+     */
+    public long offsetNanosAt(double ops) {
+        if (ops <= 0) {
+            return 0;
+        }
+
+        if (periodic) {
+            long periods = (long) (ops / totalOperations);
+            return periods * totalNanos + offsetNanosWithin(ops - periods * totalOperations);
+        } else if (ops >= totalOperations) {
+            return totalNanos + Math.round((ops - totalOperations) / tailRate * NANOS_PER_SECOND);
+        } else {
+            return offsetNanosWithin(ops);
+        }
+    }
+
+    private long offsetNanosWithin(double ops) {
+        // the last segment that starts at or before ops; segments without any operations are skipped.
+        int low = 0;
+        int high = operations.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (operations[mid] <= ops) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        double remaining = ops - operations[low];
+        double duration = durationNanos[low] / NANOS_PER_SECOND;
+        double startRate = startRates[low];
+        double acceleration = (endRates[low] - startRate) / duration;
+        // solves startRate * t + acceleration * t^2 / 2 = remaining, in a form that is stable when acceleration is 0.
+        double denominator = startRate + Math.sqrt(Math.max(0, startRate * startRate + 2 * acceleration * remaining));
+        double t = denominator == 0 ? 0 : Math.min(duration, 2 * remaining / denominator);
+        return offsetNanos[low] + Math.round(t * NANOS_PER_SECOND);
+    }
+
+    /**
+     * Returns the name of the segment at the given offset from the start of the profile.
+     *
+     * @param offsetNanos the offset
+     * @return the name of the segment
+     */
+    public String segmentAt(long offsetNanos) {
+        long offset = Math.max(0, offsetNanos);
+        if (periodic) {
+            return names[segmentIndex(offset % totalNanos)];
+        } else if (offset >= totalNanos) {
+            return tailName;
+        } else {
+            return names[segmentIndex(offset)];
+        }
+    }
+
+    private int segmentIndex(long offset) {
+        int low = 0;
+        int high = offsetNanos.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsetNanos[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static final class Segment {
+        private final String name;
+        private final long durationNanos;
+        private final double startRate;
+        private final double endRate;
+
+        private Segment(String name, long durationNanos, double startRate, double endRate) {
+            this.name = name;
+            this.durationNanos = durationNanos;
+            this.startRate = startRate;
+            this.endRate = endRate;
+        }
+    }
+}
@@ -31,5 +31,20 @@ public interface Metronome {
      * @return the time the call was supposed to execute in nanos.
      */
     long waitForNext();
+
+    /**
+     * Changes the interval of a running schedule.
+     *
+     * This method should only be called on the master metronome; the change is visible to all metronomes created from
+     * it. Unlike {@link #waitForNext()}, this method is thread-safe. The schedule continues from the operation that is
+     * due next, so the expected start times used for coordinated omission stay continuous. Threads that are waiting
+     * for an operation pick up the new interval right away; operations that are already due stay due.
+     *
+     * @param intervalNanos the interval between the operations of all threads combined.
+     * @throws UnsupportedOperationException if the metronome doesn't support changing the interval.
+     */
+    default void setIntervalNanos(long intervalNanos) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support changing the interval");
+    }
 }
 
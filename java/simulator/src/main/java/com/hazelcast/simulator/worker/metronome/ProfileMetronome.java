@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+import java.util.SplittableRandom;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+
+/**
+ * A {@link Metronome} where the rate follows a {@link LoadProfile}.
+ *
+ * Every thread of the execution group has its own metronome and takes every threadCount-th operation of the profile;
+ * the threads start at a random phase so they don't fire at the same time. With Poisson arrivals, the number of
+ * operations between 2 calls is exponentially distributed instead of constant. Since the profile maps the number of
+ * operations to time, this gives exponentially distributed inter-arrival times at the current rate of the profile.
+ */
+public final class ProfileMetronome implements Metronome {
+
+    private final LoadProfile profile;
+    private final int threadCount;
+    private final boolean poisson;
+    private final boolean accountForCoordinatedOmission;
+    private final SplittableRandom random;
+    private long startNanos;
+    private double nextOperation = -1;
+
+    public ProfileMetronome(LoadProfile profile, int threadCount, boolean poisson, boolean accountForCoordinatedOmission) {
+        this.profile = profile;
+        this.threadCount = threadCount;
+        this.poisson = poisson;
+        this.accountForCoordinatedOmission = accountForCoordinatedOmission;
+        this.random = new SplittableRandom();
+    }
+
+    public ProfileMetronome(Metronome m) {
+        ProfileMetronome master = (ProfileMetronome) m;
+        this.profile = master.profile;
+        this.threadCount = master.threadCount;
+        this.poisson = master.poisson;
+        this.accountForCoordinatedOmission = master.accountForCoordinatedOmission;
+        this.random = master.random.split();
+    }
+
+    @Override
+    public long waitForNext() {
+        if (nextOperation < 0) {
+            startNanos = profile.startNanos();
+            nextOperation = random.nextDouble() * threadCount;
+        }
+
+        long expectedStartNanos = startNanos + profile.offsetNanosAt(nextOperation);
+        nextOperation += poisson ? -Math.log(1 - random.nextDouble()) * threadCount : threadCount;
+
+        long now;
+        while ((now = nanoTime()) < expectedStartNanos) {
+            parkNanos(expectedStartNanos - now);
+        }
+
+        return accountForCoordinatedOmission ? expectedStartNanos : now;
+    }
+
+    public LoadProfile getProfile() {
+        return profile;
+    }
+
+    public boolean isPoisson() {
+        return poisson;
+    }
+}
@@ -17,6 +17,7 @@ package com.hazelcast.simulator.worker.metronome;
 
 import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
 
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.LockSupport;
 
 import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
@@ -31,43 +32,73 @@ import static org.apache.commons.lang3.RandomUtils.nextLong;
  */
 public final class SleepingMetronome implements Metronome {
 
-    private final long intervalNanos;
+    // the interval of a single thread; shared with the master so it can be changed while running.
+    private final AtomicLong intervalNanos;
+    private final int threadCount;
     private final boolean accountForCoordinatedOmission;
+    private final WaitingThreads waitingThreads;
+    // the interval nextNanos was scheduled with
+    private long scheduledIntervalNanos;
     private long nextNanos;
 
     SleepingMetronome(long intervalNanos, boolean accountForCoordinatedOmission) {
-        this.intervalNanos = intervalNanos;
+        this(intervalNanos, 1, accountForCoordinatedOmission);
+    }
+
+    private SleepingMetronome(long intervalNanos, int threadCount, boolean accountForCoordinatedOmission) {
+        this.intervalNanos = new AtomicLong(intervalNanos * threadCount);
+        this.threadCount = threadCount;
         this.accountForCoordinatedOmission = accountForCoordinatedOmission;
+        this.waitingThreads = new WaitingThreads();
     }
 
     public SleepingMetronome(long intervalNanos, int threadCount, PropertyBinding binding, String prefix) {
-        this(intervalNanos * threadCount, binding.loadAsBoolean(toPropertyName(prefix, "accountForCoordinatedOmission"), true));
+        this(intervalNanos, threadCount,
+                binding.loadAsBoolean(toPropertyName(prefix, "accountForCoordinatedOmission"), true));
     }
 
     public SleepingMetronome(Metronome m) {
         SleepingMetronome master = (SleepingMetronome) m;
         this.intervalNanos = master.intervalNanos;
+        this.threadCount = master.threadCount;
         this.accountForCoordinatedOmission = master.accountForCoordinatedOmission;
+        this.waitingThreads = master.waitingThreads;
     }
 
     @Override
     public long waitForNext() {
         // set random interval on the first run
         if (nextNanos == 0) {
-            nextNanos = nanoTime() + nextLong(0, intervalNanos);
+            waitingThreads.registerCurrentThread();
+            scheduledIntervalNanos = intervalNanos.get();
+            nextNanos = nanoTime() + nextLong(0, scheduledIntervalNanos);
         }
 
         long now;
         while ((now = System.nanoTime()) < nextNanos) {
             LockSupport.parkNanos(nextNanos - now);
+
+            long interval = intervalNanos.get();
+            if (interval != scheduledIntervalNanos) {
+                // the interval changed while waiting; the next operation is an interval after the previous one.
+                nextNanos = Math.max(nanoTime(), nextNanos - scheduledIntervalNanos + interval);
+                scheduledIntervalNanos = interval;
+            }
         }
 
         long expectedStartNanos = nextNanos;
-        nextNanos += intervalNanos;
+        scheduledIntervalNanos = intervalNanos.get();
+        nextNanos += scheduledIntervalNanos;
         return accountForCoordinatedOmission ? expectedStartNanos : nanoTime();
     }
 
+    @Override
+    public void setIntervalNanos(long intervalNanos) {
+        this.intervalNanos.set(intervalNanos * threadCount);
+        waitingThreads.unparkAll();
+    }
+
     public long getIntervalNanos() {
-        return intervalNanos;
+        return intervalNanos.get();
     }
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.metronome;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The threads using the metronomes created from the same master.
+ *
+ * When the interval of the master changes, the threads are unparked so they pick up the new interval right away,
+ * instead of after the old interval has passed. The threads check the interval after every park, so the unpark is
+ * harmless for threads that aren't waiting.
+ */
+final class WaitingThreads {
+
+    private final Queue<Thread> threads = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Registers the current thread; should be called on the first {@link Metronome#waitForNext()} call.
+     */
+    void registerCurrentThread() {
+        threads.add(Thread.currentThread());
+    }
+
+    void unparkAll() {
+        for (Thread thread : threads) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
@@ -20,12 +20,13 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Locale;
 
-import static com.hazelcast.simulator.utils.FileUtils.appendText;
 import static com.hazelcast.simulator.utils.Preconditions.checkNotNull;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * Responsible for writing to performance stats to disk in csv format.
+ *
+ * The lines are formatted on the calling thread and written by the {@link PersistenceWriter}.
  */
 final class OperationsLogWriter {
 
@@ -33,35 +34,65 @@ final class OperationsLogWriter {
     private final DecimalFormat format = new DecimalFormat("#.###", new DecimalFormatSymbols(Locale.ENGLISH));
     private final File file;
     private boolean headerWritten;
+    // the load profile columns are only written if there was a load profile when the header was written.
+    private boolean loadProfileColumns;
 
     OperationsLogWriter(File file) {
         this.file = checkNotNull(file, "file can't be null");
     }
 
-    private void writeHeader() {
-        String columns = "epoch,timestamp,operations,operations-delta,operations/second\n";
-        appendText(columns, file);
+    private void appendHeader(boolean loadProfile) {
+        sb.append("epoch,timestamp,operations,operations-delta,operations/second");
+        if (loadProfile) {
+            sb.append(",segment,target-operations/second");
+        }
+        sb.append(",allocated-bytes/op,cpu-ns/op\n");
     }
 
-    void write(long timeMillis,
+    /**
+     * Writes a line. If the test has a load profile, the segment and the load offered by the profile are added.
+     *
+     * @param persistenceWriter         the PersistenceWriter that writes the line.
+     * @param segment                   the segment of the load profile, or null if the test has no load profile.
+     * @param targetOperationsPerSecond the load offered by the load profile.
+     * @param allocatedBytesPerOp       the bytes allocated per operation, or -1 if not known.
+     * @param cpuNanosPerOp             the cpu time per operation, or -1 if not known.
+     */
+    void write(PersistenceWriter persistenceWriter,
+               long timeMillis,
                String timestamp,
                long operationsTotal,
                long operationsDelta,
-               double operationsPerSecond) {
+               double operationsPerSecond,
+               String segment,
+               double targetOperationsPerSecond,
+               double allocatedBytesPerOp,
+               double cpuNanosPerOp) {
 
-        if (!headerWritten) {
-            writeHeader();
-            headerWritten = true;
+        sb.setLength(0);
+        boolean header = !headerWritten;
+        if (header) {
+            loadProfileColumns = segment != null;
+            appendHeader(loadProfileColumns);
         }
 
-        sb.setLength(0);
         // ms are expressed in epoch time after the decimal point
         sb.append(format.format(timeMillis * 1d / SECONDS.toMillis(1)));
         sb.append(',').append(timestamp);
         sb.append(',').append(operationsTotal);
         sb.append(',').append(operationsDelta);
         sb.append(',').append(format.format(operationsPerSecond));
+        if (loadProfileColumns) {
+            sb.append(',').append(segment == null ? "" : segment);
+            sb.append(',').append(format.format(targetOperationsPerSecond));
+        }
+        // unknown values are left empty
+        sb.append(',').append(allocatedBytesPerOp < 0 ? "" : format.format(allocatedBytesPerOp));
+        sb.append(',').append(cpuNanosPerOp < 0 ? "" : format.format(cpuNanosPerOp));
         sb.append('\n');
-        appendText(sb.toString(), file);
+        // if the write is dropped, the header is written with the next line
+        if (persistenceWriter.append(file, sb.toString()) && header) {
+            headerWritten = true;
+        }
     }
 }
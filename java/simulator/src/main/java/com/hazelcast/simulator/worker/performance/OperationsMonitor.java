@@ -16,6 +16,7 @@
 package com.hazelcast.simulator.worker.performance;
 
 import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.utils.CpuAffinity;
 import com.hazelcast.simulator.worker.messages.PerformanceStatsMessage;
 import com.hazelcast.simulator.worker.testcontainer.TestContainer;
 import com.hazelcast.simulator.worker.testcontainer.TestManager;
@@ -27,12 +28,16 @@ import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.hazelcast.simulator.utils.CommonUtils.joinThread;
 import static com.hazelcast.simulator.utils.CommonUtils.sleepNanos;
 import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.worker.performance.TestOperationsTracker.perOperation;
 import static java.lang.String.format;
 import static java.lang.System.currentTimeMillis;
 import static java.lang.System.nanoTime;
@@ -43,14 +48,20 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * Monitors the performance of all running Simulator Tests.
+ *
+ * The performance files are written by the {@link PersistenceWriter}, so the monitor thread isn't delayed by the disk. The
+ * files of a test are synced when the test has completed.
  */
 public class OperationsMonitor implements Closeable {
 
     private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
     private static final long WAIT_FOR_TEST_CONTAINERS_DELAY_NANOS = MILLISECONDS.toNanos(100);
+    private static final int PERSISTENCE_QUEUE_CAPACITY = 4096;
+    private static final int PERSISTENCE_BUFFER_SIZE = 64 * 1024;
     private static final Logger LOGGER = LogManager.getLogger(OperationsMonitor.class);
 
     private final OperationsMonitorThread thread;
+    private final PersistenceWriter persistenceWriter;
     private final AtomicBoolean shutdown = new AtomicBoolean();
     private final TestManager testManager;
     private final Server server;
@@ -62,6 +73,10 @@ public class OperationsMonitor implements Closeable {
         this.testManager = testManager;
         this.server = server;
         this.updateIntervalSeconds = updateIntervalSeconds;
+        // a write that isn't done before the next interval is late.
+        long updateIntervalMillis = SECONDS.toMillis(updateIntervalSeconds);
+        this.persistenceWriter = new PersistenceWriter(PERSISTENCE_QUEUE_CAPACITY, updateIntervalMillis,
+                PERSISTENCE_BUFFER_SIZE, updateIntervalMillis);
         this.thread = new OperationsMonitorThread();
         thread.setUncaughtExceptionHandler((t, e) -> LOGGER.fatal(e.getMessage(), e));
     }
@@ -73,6 +88,7 @@ public class OperationsMonitor implements Closeable {
         }
         LOGGER.info(format("PerformanceMonitor enabled with interval: %d seconds", updateIntervalSeconds));
         thread.start();
+        persistenceWriter.start();
     }
 
     @Override
@@ -82,6 +98,7 @@ public class OperationsMonitor implements Closeable {
         }
         LOGGER.info("Shutting down WorkerPerformanceMonitor");
         joinThread(thread, MINUTES.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+        persistenceWriter.close();
     }
 
     /**
@@ -94,6 +111,8 @@ public class OperationsMonitor implements Closeable {
         private final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
         private final long updateIntervalMillis;
         private final List<TestContainer> dirtyContainers = new ArrayList<>();
+        // the containers with persisted performance files that haven't been synced yet.
+        private final Set<TestContainer> persistedContainers = new HashSet<>();
 
         private OperationsMonitorThread() {
             super("WorkerOperationsMonitor");
@@ -104,6 +123,7 @@ public class OperationsMonitor implements Closeable {
 
         @Override
         public void run() {
+            CpuAffinity.applyHousekeepingAffinity();
             try {
                 while (!shutdown.get()) {
                     long startNanos = nanoTime();
@@ -115,6 +135,7 @@ public class OperationsMonitor implements Closeable {
                         coordinatorUpdate();
                         persist(currentTimeMillis);
                     }
+                    syncCompletedTests();
 
                     long elapsedNanos = nanoTime() - startNanos;
 
@@ -162,23 +183,62 @@ public class OperationsMonitor implements Closeable {
             long globalIntervalOperationCount = 0;
             long globalOperationsCount = 0;
             double globalIntervalThroughput = 0;
+            String globalSegment = null;
+            double globalIntervalTargetThroughput = 0;
+            // the cost is only divided over the operations of the tests that know it
+            long globalAllocatedBytes = 0;
+            long globalAllocatedBytesOperationCount = 0;
+            long globalCpuNanos = 0;
+            long globalCpuNanosOperationCount = 0;
 
             for (TestContainer container : dirtyContainers) {
                 TestOperationsTracker tracker = container.getTestOperationsTracker();
-                tracker.persist(currentTimestamp, dateString);
+                tracker.persist(persistenceWriter, currentTimestamp, dateString);
+                persistedContainers.add(container);
 
                 globalIntervalOperationCount += tracker.intervalOperationCount();
                 globalOperationsCount += tracker.totalOperationCount();
                 globalIntervalThroughput += tracker.intervalThroughput();
+
+                String segment = tracker.intervalSegment();
+                if (segment != null) {
+                    globalSegment = globalSegment == null ? segment : globalSegment + '+' + segment;
+                    globalIntervalTargetThroughput += tracker.intervalTargetThroughput();
+                }
+
+                if (tracker.intervalAllocatedBytes() >= 0) {
+                    globalAllocatedBytes += tracker.intervalAllocatedBytes();
+                    globalAllocatedBytesOperationCount += tracker.intervalOperationCount();
+                }
+                if (tracker.intervalCpuNanos() >= 0) {
+                    globalCpuNanos += tracker.intervalCpuNanos();
+                    globalCpuNanosOperationCount += tracker.intervalOperationCount();
+                }
             }
 
             // global performance stats
             globalOperationsLogWriter.write(
+                    persistenceWriter,
                     currentTimestamp,
                     dateString,
                     globalOperationsCount,
                     globalIntervalOperationCount,
-                    globalIntervalThroughput);
+                    globalIntervalThroughput,
+                    globalSegment,
+                    globalIntervalTargetThroughput,
+                    perOperation(globalAllocatedBytes, globalAllocatedBytesOperationCount),
+                    perOperation(globalCpuNanos, globalCpuNanosOperationCount));
+        }
+
+        private void syncCompletedTests() {
+            Iterator<TestContainer> iterator = persistedContainers.iterator();
+            while (iterator.hasNext()) {
+                TestContainer container = iterator.next();
+                if (!container.isRunning()) {
+                    container.getTestOperationsTracker().sync(persistenceWriter);
+                    iterator.remove();
+                }
+            }
         }
     }
 }
@@ -16,6 +16,16 @@
 package com.hazelcast.simulator.worker.performance;
 
 import com.hazelcast.simulator.common.TestPhase;
+import org.HdrHistogram.Histogram;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
 
 import static java.lang.Math.max;
 
@@ -25,11 +35,31 @@ import static java.lang.Math.max;
  * Has methods to combine {@link PerformanceStats} instances by adding or setting maximum values.
  *
  * There is a lot of stuff in there, but the thing most important is the operationCount (in a given time window).
+ *
+ * It can also contain the latency histogram of the time window, in the compressed HdrHistogram encoding. The latency
+ * values of the instance are the maximum of the values of the individual workers when combined, which isn't a real
+ * percentile; the histograms are merged by the coordinator to get the real percentiles.
+ *
+ * The steady state flag tells if the worker has reached steady state, see {@link SteadyStateDetector}. When combined,
+ * it is only set if all instances have reached steady state.
+ *
+ * The pause values are the total and maximum pause of the worker JVM during the time window, see
+ * {@link com.hazelcast.simulator.worker.testcontainer.PauseMonitor}; they are 0 if the pauses are not recorded. When
+ * combined, the maximum values are set.
+ *
+ * The cost values are the bytes allocated and the cpu time used by the threads of the test per operation during the
+ * time window; they are -1 if they are not known. When combined, the maximum values are set.
  */
 public class PerformanceStats {
 
     public static final double INTERVAL_LATENCY_PERCENTILE = 99.9;
 
+    // the histogram send to the coordinator has a lower precision than the recorded histograms, to keep the messages
+    // small: 2 digits means that percentiles are within 1% of the recorded value.
+    public static final long HISTOGRAM_LOWEST_DISCERNIBLE_VALUE = MICROSECONDS.toNanos(1);
+    public static final long HISTOGRAM_HIGHEST_TRACKABLE_VALUE = DAYS.toNanos(1);
+    public static final int HISTOGRAM_SIGNIFICANT_VALUE_DIGITS = 2;
+
     private static final long EMPTY_OPERATION_COUNT = -1;
     private static final double EMPTY_THROUGHPUT = -1;
 
@@ -39,6 +69,12 @@ public class PerformanceStats {
     private double intervalLatencyAvgNanos;
     private long intervalLatencyMaxNanos;
     private long intervalLatency999PercentileNanos;
+    private byte[] intervalHistogram;
+    private boolean steadyState;
+    private long intervalPauseTotalNanos;
+    private long intervalPauseMaxNanos;
+    private double intervalAllocatedBytesPerOp = -1;
+    private double intervalCpuNanosPerOp = -1;
 
     /**
      * Creates an empty {@link PerformanceStats} instance.
@@ -81,6 +117,118 @@ public class PerformanceStats {
         this.intervalLatencyAvgNanos = original.intervalLatencyAvgNanos;
         this.intervalLatency999PercentileNanos = original.intervalLatency999PercentileNanos;
         this.intervalLatencyMaxNanos = original.intervalLatencyMaxNanos;
+        this.intervalHistogram = original.intervalHistogram;
+        this.steadyState = original.steadyState;
+        this.intervalPauseTotalNanos = original.intervalPauseTotalNanos;
+        this.intervalPauseMaxNanos = original.intervalPauseMaxNanos;
+        this.intervalAllocatedBytesPerOp = original.intervalAllocatedBytesPerOp;
+        this.intervalCpuNanosPerOp = original.intervalCpuNanosPerOp;
+    }
+
+    /**
+     * Creates an empty histogram with the precision of the histogram that is send to the coordinator.
+     *
+     * @return the created histogram.
+     */
+    public static Histogram newHistogram() {
+        return new Histogram(HISTOGRAM_LOWEST_DISCERNIBLE_VALUE, HISTOGRAM_HIGHEST_TRACKABLE_VALUE,
+                HISTOGRAM_SIGNIFICANT_VALUE_DIGITS);
+    }
+
+    /**
+     * Sets the latency histogram of the time window. The histogram is stored compressed, so it can be changed after
+     * the call.
+     *
+     * @param histogram the histogram or {@code null} if there is no histogram.
+     * @return this
+     */
+    public PerformanceStats setIntervalHistogram(Histogram histogram) {
+        if (histogram == null) {
+            this.intervalHistogram = null;
+            return this;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        byte[] bytes = new byte[length];
+        buffer.flip();
+        buffer.get(bytes);
+        this.intervalHistogram = bytes;
+        return this;
+    }
+
+    /**
+     * Returns the latency histogram of the time window.
+     *
+     * @return a new instance of the histogram or {@code null} if there is no histogram.
+     */
+    public Histogram getIntervalHistogram() {
+        if (intervalHistogram == null) {
+            return null;
+        }
+
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(intervalHistogram), 0);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Failed to decode the interval histogram", e);
+        }
+    }
+
+    /**
+     * Sets if the worker has reached steady state.
+     *
+     * @param steadyState true if steady state has been reached.
+     * @return this
+     */
+    public PerformanceStats setSteadyState(boolean steadyState) {
+        this.steadyState = steadyState;
+        return this;
+    }
+
+    public boolean isSteadyState() {
+        return steadyState;
+    }
+
+    /**
+     * Sets the pauses of the worker JVM during the time window.
+     *
+     * @param totalNanos the total pause time.
+     * @param maxNanos   the longest pause.
+     * @return this
+     */
+    public PerformanceStats setIntervalPauses(long totalNanos, long maxNanos) {
+        this.intervalPauseTotalNanos = totalNanos;
+        this.intervalPauseMaxNanos = maxNanos;
+        return this;
+    }
+
+    public long getIntervalPauseTotalNanos() {
+        return intervalPauseTotalNanos;
+    }
+
+    public long getIntervalPauseMaxNanos() {
+        return intervalPauseMaxNanos;
+    }
+
+    /**
+     * Sets the cost of an operation during the time window.
+     *
+     * @param allocatedBytesPerOp the bytes allocated per operation, or -1 if not known.
+     * @param cpuNanosPerOp       the cpu time per operation, or -1 if not known.
+     * @return this
+     */
+    public PerformanceStats setIntervalCost(double allocatedBytesPerOp, double cpuNanosPerOp) {
+        this.intervalAllocatedBytesPerOp = allocatedBytesPerOp;
+        this.intervalCpuNanosPerOp = cpuNanosPerOp;
+        return this;
+    }
+
+    public double getIntervalAllocatedBytesPerOp() {
+        return intervalAllocatedBytesPerOp;
+    }
+
+    public double getIntervalCpuNanosPerOp() {
+        return intervalCpuNanosPerOp;
     }
 
     /**
@@ -102,7 +250,7 @@ public class PerformanceStats {
      * For the total performance number and the performance per Simulator Agent, the added values should be set, so we get the
      * summed up operation count and throughput values.
      * <p>
-     * The method always sets the maximum values for latency.
+     * The method always sets the maximum values for latency. The interval histogram is not combined.
      *
      * @param other                          {@link PerformanceStats} which should be added to this instance
      * @param addOperationCountAndThroughput {@code true} if operation count and throughput should be added,
@@ -121,6 +269,11 @@ public class PerformanceStats {
             intervalLatencyAvgNanos = other.intervalLatencyAvgNanos;
             intervalLatency999PercentileNanos = other.intervalLatency999PercentileNanos;
             intervalLatencyMaxNanos = other.intervalLatencyMaxNanos;
+            steadyState = other.steadyState;
+            intervalPauseTotalNanos = other.intervalPauseTotalNanos;
+            intervalPauseMaxNanos = other.intervalPauseMaxNanos;
+            intervalAllocatedBytesPerOp = other.intervalAllocatedBytesPerOp;
+            intervalCpuNanosPerOp = other.intervalCpuNanosPerOp;
         } else {
             if (addOperationCountAndThroughput) {
                 operationCount += other.operationCount;
@@ -135,6 +288,11 @@ public class PerformanceStats {
             intervalLatencyAvgNanos = max(intervalLatencyAvgNanos, other.intervalLatencyAvgNanos);
             intervalLatency999PercentileNanos = max(intervalLatency999PercentileNanos, other.intervalLatency999PercentileNanos);
             intervalLatencyMaxNanos = max(intervalLatencyMaxNanos, other.intervalLatencyMaxNanos);
+            steadyState = steadyState && other.steadyState;
+            intervalPauseTotalNanos = max(intervalPauseTotalNanos, other.intervalPauseTotalNanos);
+            intervalPauseMaxNanos = max(intervalPauseMaxNanos, other.intervalPauseMaxNanos);
+            intervalAllocatedBytesPerOp = max(intervalAllocatedBytesPerOp, other.intervalAllocatedBytesPerOp);
+            intervalCpuNanosPerOp = max(intervalCpuNanosPerOp, other.intervalCpuNanosPerOp);
         }
     }
 
@@ -171,6 +329,59 @@ public class PerformanceStats {
         return intervalLatencyMaxNanos;
     }
 
+    /**
+     * Writes this {@link PerformanceStats} for the binary message codec.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    public void writeData(DataOutput out) throws IOException {
+        out.writeLong(operationCount);
+        out.writeDouble(intervalThroughput);
+        out.writeDouble(totalThroughput);
+        out.writeDouble(intervalLatencyAvgNanos);
+        out.writeLong(intervalLatency999PercentileNanos);
+        out.writeLong(intervalLatencyMaxNanos);
+        out.writeBoolean(steadyState);
+        out.writeLong(intervalPauseTotalNanos);
+        out.writeLong(intervalPauseMaxNanos);
+        out.writeDouble(intervalAllocatedBytesPerOp);
+        out.writeDouble(intervalCpuNanosPerOp);
+
+        if (intervalHistogram == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(intervalHistogram.length);
+            out.write(intervalHistogram);
+        }
+    }
+
+    /**
+     * Reads the values written by {@link #writeData(DataOutput)} into this {@link PerformanceStats}.
+     *
+     * @param in the input to read from
+     * @throws IOException if reading fails
+     */
+    public void readData(DataInput in) throws IOException {
+        operationCount = in.readLong();
+        intervalThroughput = in.readDouble();
+        totalThroughput = in.readDouble();
+        intervalLatencyAvgNanos = in.readDouble();
+        intervalLatency999PercentileNanos = in.readLong();
+        intervalLatencyMaxNanos = in.readLong();
+        steadyState = in.readBoolean();
+        intervalPauseTotalNanos = in.readLong();
+        intervalPauseMaxNanos = in.readLong();
+        intervalAllocatedBytesPerOp = in.readDouble();
+        intervalCpuNanosPerOp = in.readDouble();
+
+        int histogramLength = in.readInt();
+        if (histogramLength >= 0) {
+            intervalHistogram = new byte[histogramLength];
+            in.readFully(intervalHistogram);
+        }
+    }
+
     @Override
     public String toString() {
         return "PerformanceStats{"
@@ -180,6 +391,11 @@ public class PerformanceStats {
                 + ", intervalAvgLatencyNanos=" + intervalLatencyAvgNanos
                 + ", intervalLatency999PercentileNanos=" + intervalLatency999PercentileNanos
                 + ", intervalMaxLatencyNanos=" + intervalLatencyMaxNanos
+                + ", steadyState=" + steadyState
+                + ", intervalPauseTotalNanos=" + intervalPauseTotalNanos
+                + ", intervalPauseMaxNanos=" + intervalPauseMaxNanos
+                + ", intervalAllocatedBytesPerOp=" + intervalAllocatedBytesPerOp
+                + ", intervalCpuNanosPerOp=" + intervalCpuNanosPerOp
                 + '}';
     }
 
@@ -0,0 +1,309 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import com.hazelcast.simulator.utils.CpuAffinity;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hazelcast.simulator.utils.CommonUtils.joinThread;
+import static com.hazelcast.simulator.utils.Preconditions.checkNotNull;
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Writes the performance files of the worker on a background thread, so the thread of the {@link OperationsMonitor} only
+ * needs to take the snapshots.
+ *
+ * The writes are put on a bounded queue. If the queue is full, a write is dropped instead of blocking the caller. The
+ * files are kept open and buffered; a file is flushed when its buffer is full or at the latest after the flush interval.
+ * A write that is executed more than the late write threshold after it was submitted is late. The dropped and late
+ * writes are logged periodically.
+ *
+ * When a test completes, its files are synced: flushed, forced to the storage device and closed. A sync is never dropped;
+ * if the queue is full, the caller waits. A synced file is final; later writes to it are dropped, so a file never gets
+ * a second header. On close, all remaining writes are executed and all files are synced.
+ */
+final class PersistenceWriter implements Closeable {
+
+    /**
+     * A write to a file; executed by the thread of the {@link PersistenceWriter}.
+     */
+    interface FileWrite {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger(PersistenceWriter.class);
+    private static final long REPORT_INTERVAL_NANOS = SECONDS.toNanos(10);
+    private static final long CLOSE_TIMEOUT_MILLIS = SECONDS.toMillis(30);
+    private static final long SYNC_RETRY_MILLIS = 100;
+    // marks the end of the writes; used to wake up the thread.
+    private static final Write STOP = new Write(null, null, 0);
+
+    private final BlockingQueue<Write> queue;
+    private final long flushIntervalNanos;
+    private final int bufferSize;
+    private final long lateWriteThresholdNanos;
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private final AtomicLong lateWrites = new AtomicLong();
+    private final Set<File> syncedFiles = ConcurrentHashMap.newKeySet();
+    private final WriterThread thread = new WriterThread();
+    private volatile boolean stopped;
+
+    /**
+     * Creates a PersistenceWriter.
+     *
+     * @param queueCapacity            the maximum number of pending writes.
+     * @param flushIntervalMillis      the maximum time written data stays in the buffer of a file.
+     * @param bufferSize               the size of the buffer of a file in bytes.
+     * @param lateWriteThresholdMillis the time after which a pending write is late.
+     */
+    PersistenceWriter(int queueCapacity, long flushIntervalMillis, int bufferSize, long lateWriteThresholdMillis) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushIntervalNanos = MILLISECONDS.toNanos(flushIntervalMillis);
+        this.bufferSize = bufferSize;
+        this.lateWriteThresholdNanos = MILLISECONDS.toNanos(lateWriteThresholdMillis);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Appends text to a file.
+     *
+     * @return true if the write was submitted, false if it was dropped.
+     */
+    boolean append(File file, String text) {
+        return write(file, out -> out.write(text.getBytes(UTF_8)));
+    }
+
+    /**
+     * Submits a write to a file. The data passed to the write must not be modified afterwards.
+     *
+     * @return true if the write was submitted, false if it was dropped.
+     */
+    boolean write(File file, FileWrite write) {
+        checkNotNull(file, "file can't be null");
+        checkNotNull(write, "write can't be null");
+        if (stopped || syncedFiles.contains(file) || !queue.offer(new Write(file, write, nanoTime()))) {
+            droppedWrites.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Flushes the file, forces it to the storage device and closes it once the pending writes have been executed. Later
+     * writes to the file are dropped.
+     *
+     * Waits till the sync has been submitted if the queue is full. If this PersistenceWriter is closed, the file is synced
+     * by the close.
+     */
+    void sync(File file) {
+        checkNotNull(file, "file can't be null");
+        syncedFiles.add(file);
+        Write sync = new Write(file, null, nanoTime());
+        try {
+            while (!stopped) {
+                if (queue.offer(sync, SYNC_RETRY_MILLIS, MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long droppedWrites() {
+        return droppedWrites.get();
+    }
+
+    long lateWrites() {
+        return lateWrites.get();
+    }
+
+    @Override
+    public void close() {
+        stopped = true;
+        queue.offer(STOP);
+        joinThread(thread, CLOSE_TIMEOUT_MILLIS);
+    }
+
+    // a write without a FileWrite syncs the file.
+    private record Write(File file, FileWrite write, long submitNanos) {
+    }
+
+    private static final class Channel {
+        private final FileOutputStream fileOut;
+        private final OutputStream out;
+        private boolean dirty;
+
+        private Channel(FileOutputStream fileOut, OutputStream out) {
+            this.fileOut = fileOut;
+            this.out = out;
+        }
+    }
+
+    private final class WriterThread extends Thread {
+
+        // only accessed by this thread.
+        private final Map<File, Channel> channels = new HashMap<>();
+        // only accessed by this thread; a write submitted before the sync by another thread can be queued after it.
+        private final Set<File> closedFiles = new HashSet<>();
+        private long reportedDroppedWrites;
+        private long reportedLateWrites;
+
+        private WriterThread() {
+            super("WorkerPersistenceWriter");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            CpuAffinity.applyHousekeepingAffinity();
+            long nextFlushNanos = nanoTime() + flushIntervalNanos;
+            long nextReportNanos = nanoTime() + REPORT_INTERVAL_NANOS;
+            try {
+                while (!stopped || !queue.isEmpty()) {
+                    Write write = queue.poll(Math.max(0, nextFlushNanos - nanoTime()), NANOSECONDS);
+                    if (write != null && write != STOP) {
+                        execute(write);
+                    }
+
+                    long nowNanos = nanoTime();
+                    if (nowNanos >= nextFlushNanos) {
+                        flushAll();
+                        nextFlushNanos = nowNanos + flushIntervalNanos;
+                    }
+                    if (nowNanos >= nextReportNanos) {
+                        report();
+                        nextReportNanos = nowNanos + REPORT_INTERVAL_NANOS;
+                    }
+                }
+            } catch (InterruptedException e) {
+                LOGGER.warn(getName() + " was interrupted, " + queue.size() + " pending writes are discarded");
+            } finally {
+                syncAll();
+                report();
+            }
+        }
+
+        private void execute(Write write) {
+            if (nanoTime() - write.submitNanos() > lateWriteThresholdNanos) {
+                lateWrites.incrementAndGet();
+            }
+
+            File file = write.file();
+            try {
+                if (write.write() == null) {
+                    closedFiles.add(file);
+                    Channel channel = channels.remove(file);
+                    if (channel != null) {
+                        sync(channel);
+                    }
+                    return;
+                }
+                if (closedFiles.contains(file)) {
+                    droppedWrites.incrementAndGet();
+                    return;
+                }
+
+                Channel channel = channels.get(file);
+                if (channel == null) {
+                    FileOutputStream fileOut = new FileOutputStream(file, true);
+                    channel = new Channel(fileOut, new BufferedOutputStream(fileOut, bufferSize));
+                    channels.put(file, channel);
+                }
+                write.write().writeTo(channel.out);
+                channel.dirty = true;
+            } catch (IOException e) {
+                LOGGER.warn("Failed to write " + file, e);
+            }
+        }
+
+        private void flushAll() {
+            for (Map.Entry<File, Channel> entry : channels.entrySet()) {
+                Channel channel = entry.getValue();
+                if (!channel.dirty) {
+                    continue;
+                }
+                try {
+                    channel.out.flush();
+                    channel.dirty = false;
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to flush " + entry.getKey(), e);
+                }
+            }
+        }
+
+        private void syncAll() {
+            Iterator<Map.Entry<File, Channel>> iterator = channels.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<File, Channel> entry = iterator.next();
+                iterator.remove();
+                try {
+                    sync(entry.getValue());
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to sync " + entry.getKey(), e);
+                }
+            }
+        }
+
+        private void sync(Channel channel) throws IOException {
+            try {
+                channel.out.flush();
+                channel.fileOut.getChannel().force(true);
+            } finally {
+                channel.out.close();
+            }
+        }
+
+        private void report() {
+            long dropped = droppedWrites.get();
+            long late = lateWrites.get();
+            if (dropped == reportedDroppedWrites && late == reportedLateWrites) {
+                return;
+            }
+
+            LOGGER.warn(format("%s dropped %d writes and executed %d writes more than %d ms late", getName(),
+                    dropped - reportedDroppedWrites, late - reportedLateWrites,
+                    NANOSECONDS.toMillis(lateWriteThresholdNanos)));
+            reportedDroppedWrites = dropped;
+            reportedLateWrites = late;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import com.hazelcast.simulator.probes.SlowOperationRecorder.SlowOperation;
+
+import java.io.File;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
+
+import static com.hazelcast.simulator.utils.Preconditions.checkNotNull;
+import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Responsible for writing the slow operations of a test to disk in csv format, ordered by start time per interval.
+ *
+ * Fields containing a comma, a quote or a line break, e.g. a tag or a thread name, are quoted like RFC 4180 describes. The
+ * lines are formatted on the calling thread and written by the {@link PersistenceWriter}.
+ */
+final class SlowOperationsLogWriter {
+
+    private final StringBuilder sb = new StringBuilder();
+    private final DecimalFormat format = new DecimalFormat("#.###", new DecimalFormatSymbols(Locale.ENGLISH));
+    private final File file;
+    private boolean headerWritten;
+
+    SlowOperationsLogWriter(File file) {
+        this.file = checkNotNull(file, "file can't be null");
+    }
+
+    void write(PersistenceWriter persistenceWriter, List<SlowOperation> slowOperations) {
+        if (slowOperations.isEmpty()) {
+            return;
+        }
+
+        sb.setLength(0);
+        boolean header = !headerWritten;
+        if (header) {
+            sb.append("start-epoch,latency-us,execution-group,operation,thread,tag\n");
+        }
+
+        slowOperations.sort(comparingLong(SlowOperation::startMillis));
+        for (SlowOperation slowOperation : slowOperations) {
+            // ms are expressed in epoch time after the decimal point
+            sb.append(format.format(slowOperation.startMillis() * 1d / SECONDS.toMillis(1)));
+            sb.append(',').append(NANOSECONDS.toMicros(slowOperation.latencyNanos()));
+            appendField(slowOperation.executionGroup());
+            appendField(slowOperation.operation());
+            appendField(slowOperation.threadName());
+            appendField(slowOperation.tag());
+            sb.append('\n');
+        }
+        // if the write is dropped, the header is written with the next lines
+        if (persistenceWriter.append(file, sb.toString()) && header) {
+            headerWritten = true;
+        }
+    }
+
+    private void appendField(Object value) {
+        sb.append(',');
+        if (value == null) {
+            return;
+        }
+
+        String field = value.toString();
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            sb.append(field);
+            return;
+        }
+
+        sb.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import com.hazelcast.simulator.worker.testcontainer.IllegalTestException;
+import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+
+import static java.lang.String.format;
+
+/**
+ * Detects when a Simulator Test has reached steady state, so the warmup of the JIT, caches and the cluster can be
+ * excluded from the measurements without guessing a fixed warmup period.
+ * <p>
+ * The detector is updated every performance monitor interval and looks at a sliding window of the last intervals.
+ * Steady state is reached when all of the following signals have settled over the window:
+ * <ul>
+ * <li>the JIT compilation time; the compilation time during the window is at most a percentage of the window, see
+ * {@link CompilationMXBean#getTotalCompilationTime()}. This signal is skipped if the JVM doesn't support it.</li>
+ * <li>the coefficient of variation (standard deviation / mean) of the interval throughput.</li>
+ * <li>the drift of the interval p99 latency; the difference between the average of the 2nd and 1st half of the window,
+ * relative to the average of the window. This signal is skipped if the test has no latency probes.</li>
+ * </ul>
+ * Once reached, steady state doesn't change anymore.
+ */
+public final class SteadyStateDetector {
+
+    public static final double PERCENTILE = 99;
+
+    private static final int DEFAULT_WINDOW = 5;
+    private static final double DEFAULT_MAX_CV = 0.1;
+    private static final double DEFAULT_MAX_DRIFT = 0.2;
+    private static final double DEFAULT_MAX_COMPILATION_PERCENTAGE = 1;
+    private static final double ONE_HUNDRED = 100;
+
+    private final boolean measureAfterSteadyState;
+    private final int window;
+    private final double maxCv;
+    private final double maxDrift;
+    private final double maxCompilationPercentage;
+    private final CompilationMXBean compilationMXBean;
+
+    private final long[] intervalMillis;
+    private final double[] throughputs;
+    private final long[] percentileNanos;
+    private final long[] compilationMillis;
+    private int count;
+    private long lastCompilationMillis = -1;
+    private boolean steadyState;
+    private double cv;
+    private double drift;
+    private double compilationPercentage;
+
+    public SteadyStateDetector(PropertyBinding binding) {
+        this(binding.loadAsBoolean("measureAfterSteadyState", false),
+                binding.loadAsInt("steadyStateWindow", DEFAULT_WINDOW),
+                binding.loadAsDouble("steadyStateMaxCv", DEFAULT_MAX_CV),
+                binding.loadAsDouble("steadyStateMaxDrift", DEFAULT_MAX_DRIFT),
+                binding.loadAsDouble("steadyStateMaxCompilationPercentage", DEFAULT_MAX_COMPILATION_PERCENTAGE));
+    }
+
+    SteadyStateDetector(boolean measureAfterSteadyState, int window, double maxCv, double maxDrift,
+                        double maxCompilationPercentage) {
+        if (window < 2) {
+            throw new IllegalTestException(format("steadyStateWindow has an invalid value [%d], it should be at least 2",
+                    window));
+        }
+        if (maxCv <= 0) {
+            throw new IllegalTestException(format("steadyStateMaxCv has an invalid value [%s], it should be larger than 0",
+                    maxCv));
+        }
+        if (maxDrift <= 0) {
+            throw new IllegalTestException(format("steadyStateMaxDrift has an invalid value [%s], it should be larger than 0",
+                    maxDrift));
+        }
+        if (maxCompilationPercentage < 0 || maxCompilationPercentage > ONE_HUNDRED) {
+            throw new IllegalTestException(format("steadyStateMaxCompilationPercentage has an invalid value [%s], "
+                    + "valid values are [0..100]", maxCompilationPercentage));
+        }
+
+        this.measureAfterSteadyState = measureAfterSteadyState;
+        this.window = window;
+        this.maxCv = maxCv;
+        this.maxDrift = maxDrift;
+        this.maxCompilationPercentage = maxCompilationPercentage;
+        CompilationMXBean bean = ManagementFactory.getCompilationMXBean();
+        this.compilationMXBean = bean != null && bean.isCompilationTimeMonitoringSupported() ? bean : null;
+        this.intervalMillis = new long[window];
+        this.throughputs = new double[window];
+        this.percentileNanos = new long[window];
+        this.compilationMillis = new long[window];
+    }
+
+    /**
+     * Checks if the measurements should only be done after steady state has been reached.
+     *
+     * @return true if only measured after steady state, false otherwise.
+     */
+    public boolean isMeasureAfterSteadyState() {
+        return measureAfterSteadyState;
+    }
+
+    public boolean isSteadyState() {
+        return steadyState;
+    }
+
+    /**
+     * Updates the detector with the values of the last interval.
+     *
+     * @param intervalMillis  the duration of the interval.
+     * @param throughput      the throughput during the interval.
+     * @param percentileNanos the {@link #PERCENTILE} latency during the interval or -1 if there is no latency.
+     * @return true if steady state was reached in this interval, false otherwise.
+     */
+    boolean update(long intervalMillis, double throughput, long percentileNanos) {
+        return update(intervalMillis, throughput, percentileNanos,
+                compilationMXBean == null ? -1 : compilationMXBean.getTotalCompilationTime());
+    }
+
+    /**
+     * Updates the detector with the values of the last interval.
+     *
+     * @param totalCompilationMillis the total compilation time of the JVM or -1 if it isn't available.
+     * @see #update(long, double, long)
+     */
+    boolean update(long intervalMillis, double throughput, long percentileNanos, long totalCompilationMillis) {
+        if (steadyState) {
+            return false;
+        }
+
+        int index = count % window;
+        this.intervalMillis[index] = intervalMillis;
+        this.throughputs[index] = throughput;
+        this.percentileNanos[index] = percentileNanos;
+        this.compilationMillis[index] = lastCompilationMillis < 0 || totalCompilationMillis < 0
+                ? -1 : totalCompilationMillis - lastCompilationMillis;
+        this.lastCompilationMillis = totalCompilationMillis;
+        count++;
+
+        if (count < window) {
+            return false;
+        }
+
+        cv = coefficientOfVariation();
+        drift = percentileDrift();
+        compilationPercentage = compilationPercentage();
+        steadyState = cv <= maxCv && drift <= maxDrift && compilationPercentage <= maxCompilationPercentage;
+        return steadyState;
+    }
+
+    private double coefficientOfVariation() {
+        double sum = 0;
+        for (double throughput : throughputs) {
+            sum += throughput;
+        }
+        double mean = sum / window;
+        if (mean <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double squares = 0;
+        for (double throughput : throughputs) {
+            squares += (throughput - mean) * (throughput - mean);
+        }
+        return Math.sqrt(squares / window) / mean;
+    }
+
+    private double percentileDrift() {
+        double firstHalf = 0;
+        double secondHalf = 0;
+        int half = window / 2;
+        // the oldest interval in the window is the one that will be overwritten next
+        for (int i = 0; i < window; i++) {
+            long value = percentileNanos[(count + i) % window];
+            if (value < 0) {
+                return 0;
+            }
+            if (i < half) {
+                firstHalf += value;
+            } else if (i >= window - half) {
+                secondHalf += value;
+            }
+        }
+
+        double mean = (firstHalf + secondHalf) / (2 * half);
+        if (mean <= 0) {
+            return 0;
+        }
+        return Math.abs(secondHalf - firstHalf) / half / mean;
+    }
+
+    private double compilationPercentage() {
+        if (lastCompilationMillis < 0) {
+            // the compilation time isn't available
+            return 0;
+        }
+
+        long totalIntervalMillis = 0;
+        long totalCompilationMillis = 0;
+        for (int i = 0; i < window; i++) {
+            if (compilationMillis[i] < 0) {
+                // the first interval has no compilation time, since there is nothing to compare it with
+                return Double.POSITIVE_INFINITY;
+            }
+            totalIntervalMillis += intervalMillis[i];
+            totalCompilationMillis += compilationMillis[i];
+        }
+        return totalIntervalMillis == 0 ? 0 : totalCompilationMillis * ONE_HUNDRED / totalIntervalMillis;
+    }
+
+    @Override
+    public String toString() {
+        return format("throughput cv %.3f, p%.0f drift %.3f, jit compilation %.2f%%", cv, PERCENTILE, drift,
+                compilationPercentage);
+    }
+}
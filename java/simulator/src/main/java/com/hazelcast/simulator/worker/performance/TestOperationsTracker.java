@@ -16,20 +16,33 @@
 package com.hazelcast.simulator.worker.performance;
 
 import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.probes.SlowOperationRecorder;
+import com.hazelcast.simulator.probes.SlowOperationRecorder.SlowOperation;
 import com.hazelcast.simulator.probes.impl.HdrLatencyProbe;
-import com.hazelcast.simulator.test.TestException;
+import com.hazelcast.simulator.probes.impl.StripedHdrLatencyProbe;
+import com.hazelcast.simulator.worker.metronome.LoadProfile;
+import com.hazelcast.simulator.worker.testcontainer.PauseMonitor;
 import com.hazelcast.simulator.worker.testcontainer.TestContainer;
 import com.hazelcast.simulator.worker.testcontainer.TestContextImpl;
 import org.HdrHistogram.Histogram;
 import org.HdrHistogram.HistogramLogWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import java.io.File;
-import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
 import static com.hazelcast.simulator.worker.performance.PerformanceStats.INTERVAL_LATENCY_PERCENTILE;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
@@ -42,34 +55,80 @@ import static java.util.concurrent.TimeUnit.SECONDS;
  * This class has a shitty design due to conflated concerns due to file writing and remoting sending the histograms.
  * This is caused by the Recorder that gets reset when getIntervalHistogram is called. Meaning that writing to file
  * and sending to remote, needs to rely on the same set of Histograms to write/send.
+ *
+ * The {@link SteadyStateDetector} is updated every interval. The moment steady state is reached is marked in the
+ * histogram files with a '[SteadyState: ...]' comment. If the test should only be measured after steady state, the
+ * intervals before are not written to the histogram files, not sent to the coordinator and not counted in the total
+ * operation count.
+ *
+ * The diagnostic probes, see {@link TestContextImpl#getDiagnosticProbe(String)}, are written to their own histogram
+ * files, but they are not included in the latency of the operations. So the latency sent to the coordinator and used
+ * for the steady state detection only contains the timestep and operation probes. For the probes of the
+ * {@link PauseMonitor}, the total and maximum pause of the interval are sent to the coordinator instead.
+ *
+ * The bytes allocated and the cpu time used by the threads of the test are sampled every interval by the
+ * {@link ThreadCostSampler} and divided over the operations of the interval.
+ *
+ * If the test records slow operations, the slow operations of the interval are taken from the
+ * {@link SlowOperationRecorder} and written to the '.slow-ops' file of the test.
+ *
+ * The files are written by the {@link PersistenceWriter}; the histograms of the interval are handed over to it, so they
+ * are encoded on the thread of the PersistenceWriter.
  */
 public final class TestOperationsTracker {
 
     private static final long ONE_SECOND_IN_MILLIS = SECONDS.toMillis(1);
+    private static final Logger LOGGER = LogManager.getLogger(TestOperationsTracker.class);
 
     private final TestContainer testContainer;
+    // only accessed by the thread of the PersistenceWriter.
     private final Map<String, HistogramLogWriter> histogramLogWriterMap = new HashMap<>();
+    // the probes that have been written to a histogram file.
+    private final Set<String> histogramProbeNames = new HashSet<>();
+    private final File operationsFile;
+    private final File slowOperationsFile;
     private final OperationsLogWriter performanceLogWriter;
+    private final SlowOperationsLogWriter slowOperationsLogWriter;
+    private final List<SlowOperation> slowOperations = new ArrayList<>();
     private final TestContextImpl testContext;
+    private final SteadyStateDetector steadyStateDetector;
+    private final ThreadCostSampler threadCostSampler = new ThreadCostSampler();
     private long lastUpdateMillis;
     private Map<String, Histogram> intervalHistogramMap;
+    // the interval histograms of all probes merged; send to the coordinator.
+    private final Histogram intervalHistogram = PerformanceStats.newHistogram();
 
     private long iterationsDuringWarmup;
     private long lastIterations;
     private double intervalLatencyAvgNanos;
     private long intervalLatency999PercentileNanos;
     private long intervalLatencyMaxNanos;
+    private long intervalPauseTotalNanos;
+    private long intervalPauseMaxNanos;
+    private double intervalAllocatedBytesPerOp = -1;
+    private double intervalCpuNanosPerOp = -1;
     private long intervalOperationCount;
     private long totalOperationCount;
     private double intervalThroughput;
     private double totalThroughput;
     private long nextUpdateMillis;
-
-    public TestOperationsTracker(TestContainer container) {
+    private long lastUpdateNanos;
+    // the segment of the load profile(s) during the interval; null if the test has no load profile.
+    private String intervalSegment;
+    private double intervalTargetThroughput;
+    // if the last interval is measured; false before steady state if only measured after steady state.
+    private boolean intervalMeasured;
+    private long steadyStateMillis;
+    private boolean steadyStateMarkPending;
+
+    public TestOperationsTracker(TestContainer container, SteadyStateDetector steadyStateDetector) {
         this.testContainer = container;
         this.testContext = container.getTestContext();
-        this.performanceLogWriter = new OperationsLogWriter(
-                new File(getUserDir(), container.getTestCase().getId() + ".operations.csv"));
+        this.steadyStateDetector = steadyStateDetector;
+        this.operationsFile = new File(getUserDir(), container.getTestCase().getId() + ".operations.csv");
+        this.slowOperationsFile = new File(getUserDir(), container.getTestCase().getId() + ".slow-ops");
+        this.performanceLogWriter = new OperationsLogWriter(operationsFile);
+        this.slowOperationsLogWriter = new SlowOperationsLogWriter(slowOperationsFile);
     }
 
     /**
@@ -103,6 +162,9 @@ public final class TestOperationsTracker {
                 probe.reset();
             }
             lastUpdateMillis = currentTimeMillis;
+            lastUpdateNanos = System.nanoTime();
+            threadCostSampler.sample(testContainer.getThreads());
+            drainSlowOperations();
             nextUpdateMillis = lastUpdateMillis + updateIntervalMillis;
             return true;
         }
@@ -121,19 +183,37 @@ public final class TestOperationsTracker {
         long iterations = testContainer.iteration() - iterationsDuringWarmup;
         long intervalOperationCount = iterations - lastIterations;
 
+        intervalHistogram.reset();
+        long intervalPauseTotal = 0;
+        long intervalPauseMax = 0;
+
+        long nowNanos = System.nanoTime();
+        updateLoadProfile(nowNanos);
+
         for (Map.Entry<String, LatencyProbe> entry : latencyProbes.entrySet()) {
             String probeName = entry.getKey();
             LatencyProbe latencyProbe = entry.getValue();
-            if (!(latencyProbe instanceof HdrLatencyProbe)) {
+            Histogram intervalHistogram = getIntervalHistogram(latencyProbe);
+            if (intervalHistogram == null) {
                 continue;
             }
 
-            HdrLatencyProbe hdrLatencyProbe = (HdrLatencyProbe) latencyProbe;
-            Histogram intervalHistogram = hdrLatencyProbe.getRecorder().getIntervalHistogram();
             intervalHistogram.setStartTimeStamp(lastUpdateMillis);
             intervalHistogram.setEndTimeStamp(currentTimeMillis);
+            intervalHistogram.setTag(intervalSegment);
             intervalHistograms.put(probeName, intervalHistogram);
 
+            if (testContext.isDiagnosticProbe(probeName)) {
+                // e.g. the jitter, the error of the metronome or a pause; not the latency of an operation.
+                if (PauseMonitor.isPauseProbe(probeName)) {
+                    intervalPauseTotal += (long) (intervalHistogram.getMean() * intervalHistogram.getTotalCount());
+                    intervalPauseMax = Math.max(intervalPauseMax, intervalHistogram.getMaxValue());
+                }
+                continue;
+            }
+
+            this.intervalHistogram.add(intervalHistogram);
+
             long percentileValue = intervalHistogram.getValueAtPercentile(INTERVAL_LATENCY_PERCENTILE);
             if (percentileValue > intervalPercentileLatency) {
                 intervalPercentileLatency = percentileValue;
@@ -159,19 +239,108 @@ public final class TestOperationsTracker {
         this.intervalLatency999PercentileNanos = intervalPercentileLatency;
         this.intervalLatencyAvgNanos = intervalMean;
         this.intervalLatencyMaxNanos = intervalMaxLatency;
+        this.intervalPauseTotalNanos = intervalPauseTotal;
+        this.intervalPauseMaxNanos = intervalPauseMax;
 
+        drainSlowOperations();
+        threadCostSampler.sample(testContainer.getThreads());
+        this.intervalAllocatedBytesPerOp = perOperation(threadCostSampler.intervalAllocatedBytes(), intervalOperationCount);
+        this.intervalCpuNanosPerOp = perOperation(threadCostSampler.intervalCpuNanos(), intervalOperationCount);
+
+        this.intervalMeasured = !steadyStateDetector.isMeasureAfterSteadyState() || steadyStateDetector.isSteadyState();
         this.intervalOperationCount = intervalOperationCount;
-        this.totalOperationCount += intervalOperationCount;
+        if (intervalMeasured) {
+            this.totalOperationCount += intervalOperationCount;
+        }
 
         long intervalTimeDelta = currentTimeMillis - lastUpdateMillis;
-        long totalTimeDelta = currentTimeMillis - testContainer.getRunStartedMillis();
+        long measureStartMillis = steadyStateDetector.isMeasureAfterSteadyState()
+                ? steadyStateMillis : testContainer.getRunStartedMillis();
+        long totalTimeDelta = currentTimeMillis - measureStartMillis;
 
         this.intervalThroughput = (intervalOperationCount * ONE_SECOND_IN_MILLIS) / (double) intervalTimeDelta;
-        this.totalThroughput = (totalOperationCount * ONE_SECOND_IN_MILLIS / (double) totalTimeDelta);
+        this.totalThroughput = intervalMeasured ? (totalOperationCount * ONE_SECOND_IN_MILLIS / (double) totalTimeDelta) : 0;
+
+        updateSteadyState(intervalTimeDelta, currentTimeMillis);
 
         this.lastIterations = iterations;
         this.nextUpdateMillis += updateIntervalMillis;
         this.lastUpdateMillis = currentTimeMillis;
+        this.lastUpdateNanos = nowNanos;
+    }
+
+    private void drainSlowOperations() {
+        slowOperations.clear();
+        SlowOperationRecorder slowOperationRecorder = testContext.getSlowOperationRecorder();
+        if (slowOperationRecorder != null) {
+            slowOperationRecorder.drain(slowOperations);
+        }
+    }
+
+    static double perOperation(long value, long operationCount) {
+        return value < 0 || operationCount == 0 ? -1 : value / (double) operationCount;
+    }
+
+    private void updateSteadyState(long intervalTimeDelta, long currentTimeMillis) {
+        long percentileNanos = intervalHistogram.getTotalCount() == 0
+                ? -1 : intervalHistogram.getValueAtPercentile(SteadyStateDetector.PERCENTILE);
+        if (!steadyStateDetector.update(intervalTimeDelta, intervalThroughput, percentileNanos)) {
+            return;
+        }
+
+        this.steadyStateMillis = currentTimeMillis;
+        this.steadyStateMarkPending = true;
+        LOGGER.info(format("%s reached steady state after %d seconds: %s%s", testContext.getTestId(),
+                (currentTimeMillis - testContainer.getRunStartedMillis()) / ONE_SECOND_IN_MILLIS, steadyStateDetector,
+                steadyStateDetector.isMeasureAfterSteadyState() ? ", measuring from now on" : ""));
+    }
+
+    /**
+     * Determines the load offered by the load profiles during the interval and the segment they were in. The segment is
+     * determined halfway the interval. If there are multiple profiled execution groups, the segments are combined.
+     */
+    private void updateLoadProfile(long nowNanos) {
+        Map<String, LoadProfile> loadProfiles = testContainer.getLoadProfiles();
+        if (loadProfiles.isEmpty()) {
+            intervalSegment = null;
+            return;
+        }
+
+        StringBuilder segment = new StringBuilder();
+        double targetOperations = 0;
+        for (Map.Entry<String, LoadProfile> entry : loadProfiles.entrySet()) {
+            LoadProfile loadProfile = entry.getValue();
+            long startNanos = loadProfile.getStartNanos();
+            String executionGroup = entry.getKey();
+            if (segment.length() > 0) {
+                segment.append('+');
+            }
+            if (loadProfiles.size() > 1 && !executionGroup.isEmpty()) {
+                segment.append(executionGroup).append('.');
+            }
+
+            if (startNanos == 0) {
+                segment.append(loadProfile.segmentAt(0));
+            } else {
+                segment.append(loadProfile.segmentAt((lastUpdateNanos + nowNanos) / 2 - startNanos));
+                targetOperations += loadProfile.operationsAt(nowNanos - startNanos)
+                        - loadProfile.operationsAt(lastUpdateNanos - startNanos);
+            }
+        }
+
+        this.intervalSegment = segment.toString();
+        this.intervalTargetThroughput = targetOperations * SECONDS.toNanos(1) / (nowNanos - lastUpdateNanos);
+    }
+
+    private static Histogram getIntervalHistogram(LatencyProbe latencyProbe) {
+        if (latencyProbe instanceof HdrLatencyProbe hdrLatencyProbe) {
+            return hdrLatencyProbe.getRecorder().getIntervalHistogram();
+        } else if (latencyProbe instanceof StripedHdrLatencyProbe stripedLatencyProbe) {
+            // the stripes of the individual threads are merged here; so not on the recording threads.
+            return stripedLatencyProbe.getIntervalHistogram();
+        } else {
+            return null;
+        }
     }
 
     long intervalOperationCount() {
@@ -186,24 +355,76 @@ public final class TestOperationsTracker {
         return intervalThroughput;
     }
 
-    void persist(long currentTimeMillis, String currentTimeString) {
+    String intervalSegment() {
+        return intervalSegment;
+    }
+
+    double intervalTargetThroughput() {
+        return intervalTargetThroughput;
+    }
+
+    long intervalAllocatedBytes() {
+        return threadCostSampler.intervalAllocatedBytes();
+    }
+
+    long intervalCpuNanos() {
+        return threadCostSampler.intervalCpuNanos();
+    }
+
+    void persist(PersistenceWriter persistenceWriter, long currentTimeMillis, String currentTimeString) {
         performanceLogWriter.write(
+                persistenceWriter,
                 currentTimeMillis,
                 currentTimeString,
                 totalOperationCount,
                 intervalOperationCount,
-                intervalThroughput);
+                intervalThroughput,
+                intervalSegment,
+                intervalTargetThroughput,
+                intervalAllocatedBytesPerOp,
+                intervalCpuNanosPerOp);
+
+        long steadyStateMillis = this.steadyStateMillis;
+        if (steadyStateMarkPending) {
+            for (String probeName : histogramProbeNames) {
+                persistenceWriter.write(getLatencyFile(probeName), out -> {
+                    HistogramLogWriter histogramLogWriter = histogramLogWriterMap.get(probeName);
+                    if (histogramLogWriter != null) {
+                        outputSteadyState(histogramLogWriter, steadyStateMillis);
+                    }
+                });
+            }
+            steadyStateMarkPending = false;
+        }
 
-        // dumps all the Histograms that have been collected to file.
+        if (!intervalMeasured) {
+            return;
+        }
+
+        slowOperationsLogWriter.write(persistenceWriter, slowOperations);
+
+        // hands all the Histograms that have been collected over to the PersistenceWriter; they are not reused.
         for (Map.Entry<String, Histogram> histogramEntry : intervalHistogramMap.entrySet()) {
             String probeName = histogramEntry.getKey();
-            HistogramLogWriter histogramLogWriter = histogramLogWriterMap.get(probeName);
-            if (histogramLogWriter == null) {
-                histogramLogWriter = createHistogramLogWriter(probeName);
-                histogramLogWriterMap.put(probeName, histogramLogWriter);
-            }
             Histogram intervalHistogram = histogramEntry.getValue();
-            histogramLogWriter.outputIntervalHistogram(intervalHistogram);
+            histogramProbeNames.add(probeName);
+            persistenceWriter.write(getLatencyFile(probeName), out -> {
+                // a synced file isn't written again, so the stream of a file doesn't change.
+                HistogramLogWriter histogramLogWriter = histogramLogWriterMap.computeIfAbsent(probeName,
+                        name -> createHistogramLogWriter(name, out, steadyStateMillis));
+                histogramLogWriter.outputIntervalHistogram(intervalHistogram);
+            });
+        }
+    }
+
+    /**
+     * Syncs the files of the test; called when the test has completed.
+     */
+    void sync(PersistenceWriter persistenceWriter) {
+        persistenceWriter.sync(operationsFile);
+        persistenceWriter.sync(slowOperationsFile);
+        for (String probeName : histogramProbeNames) {
+            persistenceWriter.sync(getLatencyFile(probeName));
         }
     }
 
@@ -214,26 +435,34 @@ public final class TestOperationsTracker {
                 totalThroughput,
                 intervalLatencyAvgNanos,
                 intervalLatency999PercentileNanos,
-                intervalLatencyMaxNanos);
+                intervalLatencyMaxNanos)
+                .setIntervalHistogram(!intervalMeasured || intervalHistogram.getTotalCount() == 0 ? null : intervalHistogram)
+                .setSteadyState(steadyStateDetector.isSteadyState())
+                .setIntervalPauses(intervalPauseTotalNanos, intervalPauseMaxNanos)
+                .setIntervalCost(intervalAllocatedBytesPerOp, intervalCpuNanosPerOp);
     }
 
-    HistogramLogWriter createHistogramLogWriter(String probeName) {
+    private HistogramLogWriter createHistogramLogWriter(String probeName, OutputStream out, long steadyStateMillis) {
         String testId = testContainer.getTestCase().getId();
-        try {
-            File latencyFile = getLatencyFile(testId, probeName);
-            HistogramLogWriter histogramLogWriter = new HistogramLogWriter(latencyFile);
-            histogramLogWriter.setBaseTime(testContainer.getRunStartedMillis());
-            histogramLogWriter.outputStartTime(testContainer.getRunStartedMillis());
-            histogramLogWriter.outputComment("[Latency histograms for " + testId + '.' + probeName + ']');
-            histogramLogWriter.outputLogFormatVersion();
-            histogramLogWriter.outputLegend();
-            return histogramLogWriter;
-        } catch (IOException e) {
-            throw new TestException("Could not initialize HistogramLogWriter for test " + testId, e);
+        // the PrintStream isn't closed by the HistogramLogWriter; the stream is owned by the PersistenceWriter.
+        HistogramLogWriter histogramLogWriter = new HistogramLogWriter(new PrintStream(out, false, UTF_8));
+        histogramLogWriter.setBaseTime(testContainer.getRunStartedMillis());
+        histogramLogWriter.outputStartTime(testContainer.getRunStartedMillis());
+        histogramLogWriter.outputComment("[Latency histograms for " + testId + '.' + probeName + ']');
+        histogramLogWriter.outputLogFormatVersion();
+        histogramLogWriter.outputLegend();
+        if (steadyStateMillis != 0) {
+            outputSteadyState(histogramLogWriter, steadyStateMillis);
         }
+        return histogramLogWriter;
+    }
+
+    private static void outputSteadyState(HistogramLogWriter histogramLogWriter, long steadyStateMillis) {
+        histogramLogWriter.outputComment(format("[SteadyState: %.3f (seconds since epoch)]",
+                steadyStateMillis / (double) ONE_SECOND_IN_MILLIS));
     }
 
-    private static File getLatencyFile(String testId, String probeName) {
-        return new File(getUserDir(), testId + '.' + probeName + ".hdr");
+    private File getLatencyFile(String probeName) {
+        return new File(getUserDir(), testContainer.getTestCase().getId() + '.' + probeName + ".hdr");
     }
 }
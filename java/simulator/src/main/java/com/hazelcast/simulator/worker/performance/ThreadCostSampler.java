@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.performance;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Samples the bytes allocated and the cpu time used by the threads of a test, so the cost of an operation can be
+ * determined.
+ *
+ * The threads are sampled by the thread calling {@link #sample(List)} using the {@link ThreadMXBean}, so the threads
+ * running the operations don't need to do anything. A thread that wasn't sampled before is counted from the start of
+ * the thread. A thread that terminated since the previous sample isn't counted in the interval.
+ *
+ * The values are -1 if they are not known, e.g. because the JVM doesn't support measuring them, or because all threads
+ * are virtual threads.
+ */
+final class ThreadCostSampler {
+
+    private final ThreadMXBean threadMXBean;
+    private Map<Long, long[]> lastSamples = new HashMap<>();
+    private long intervalAllocatedBytes = -1;
+    private long intervalCpuNanos = -1;
+
+    ThreadCostSampler() {
+        this(ManagementFactory.getThreadMXBean());
+    }
+
+    ThreadCostSampler(java.lang.management.ThreadMXBean threadMXBean) {
+        // the allocated bytes are only available on the HotSpot specific interface
+        this.threadMXBean = threadMXBean instanceof ThreadMXBean hotspotThreadMXBean ? hotspotThreadMXBean : null;
+    }
+
+    /**
+     * Samples the threads and determines the bytes allocated and the cpu time used since the previous sample.
+     *
+     * @param threads the threads to sample.
+     */
+    void sample(List<Thread> threads) {
+        long[] threadIds = new long[threads.size()];
+        for (int i = 0; i < threadIds.length; i++) {
+            threadIds[i] = threads.get(i).getId();
+        }
+
+        long[] allocatedBytes = isAllocatedBytesEnabled() ? threadMXBean.getThreadAllocatedBytes(threadIds) : null;
+        long[] cpuNanos = isCpuTimeEnabled() ? threadMXBean.getThreadCpuTime(threadIds) : null;
+
+        Map<Long, long[]> samples = new HashMap<>();
+        long allocatedBytesDelta = -1;
+        long cpuNanosDelta = -1;
+        for (int i = 0; i < threadIds.length; i++) {
+            long[] sample = {allocatedBytes == null ? -1 : allocatedBytes[i], cpuNanos == null ? -1 : cpuNanos[i]};
+            long[] lastSample = lastSamples.get(threadIds[i]);
+            allocatedBytesDelta = addDelta(allocatedBytesDelta, sample[0], lastSample == null ? 0 : lastSample[0]);
+            cpuNanosDelta = addDelta(cpuNanosDelta, sample[1], lastSample == null ? 0 : lastSample[1]);
+            samples.put(threadIds[i], sample);
+        }
+
+        this.lastSamples = samples;
+        this.intervalAllocatedBytes = allocatedBytesDelta;
+        this.intervalCpuNanos = cpuNanosDelta;
+    }
+
+    private static long addDelta(long total, long value, long lastValue) {
+        if (value < 0) {
+            // the thread has terminated or the value isn't supported for the thread
+            return total;
+        }
+        return Math.max(total, 0) + value - Math.max(lastValue, 0);
+    }
+
+    private boolean isAllocatedBytesEnabled() {
+        return threadMXBean != null
+                && threadMXBean.isThreadAllocatedMemorySupported()
+                && threadMXBean.isThreadAllocatedMemoryEnabled();
+    }
+
+    private boolean isCpuTimeEnabled() {
+        return threadMXBean != null
+                && threadMXBean.isThreadCpuTimeSupported()
+                && threadMXBean.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * Returns the bytes allocated by the threads between the last two samples.
+     *
+     * @return the allocated bytes, or -1 if not known.
+     */
+    long intervalAllocatedBytes() {
+        return intervalAllocatedBytes;
+    }
+
+    /**
+     * Returns the cpu time used by the threads between the last two samples.
+     *
+     * @return the cpu time in nanoseconds, or -1 if not known.
+     */
+    long intervalCpuNanos() {
+        return intervalCpuNanos;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Selects an index based on a discrete probability distribution using Vose's alias method.
+ *
+ * The table has a single column per index; so its size depends on the number of {@link
+ * com.hazelcast.simulator.test.annotations.TimeStep} methods and not on the precision of the probabilities. A selection
+ * takes a single random long: the upper 32 bits select the column and the lower 31 bits decide between the column and
+ * its alias.
+ *
+ * For more information see:
+ * https://www.keithschwarz.com/darts-dice-coins/
+ *
+ * The selector is immutable and can be shared between threads; every thread should use its own random.
+ */
+public final class AliasMethodSelector {
+
+    private static final long THRESHOLD_SCALE = 1L << 31;
+    private static final long THRESHOLD_MASK = THRESHOLD_SCALE - 1;
+
+    private final long[] thresholds;
+    private final int[] aliases;
+
+    /**
+     * Creates an {@link AliasMethodSelector}.
+     *
+     * @param probabilities the probability of each index; they are normalized, so they don't need to add up to 1.
+     * @throws IllegalArgumentException if there are no probabilities, a probability is negative or not a number,
+     *                                  or if all probabilities are 0.
+     */
+    public AliasMethodSelector(double... probabilities) {
+        int length = probabilities.length;
+        if (length == 0) {
+            throw new IllegalArgumentException("probabilities can't be empty");
+        }
+
+        double sum = 0;
+        for (double probability : probabilities) {
+            if (!(probability >= 0) || Double.isInfinite(probability)) {
+                throw new IllegalArgumentException("Invalid probability " + probability + " in "
+                        + Arrays.toString(probabilities));
+            }
+            sum += probability;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("All probabilities are 0 in " + Arrays.toString(probabilities));
+        }
+
+        this.thresholds = new long[length];
+        this.aliases = new int[length];
+
+        // the probabilities scaled so that the average column is 1.
+        double[] scaled = new double[length];
+        int[] small = new int[length];
+        int[] large = new int[length];
+        int smallSize = 0;
+        int largeSize = 0;
+        for (int k = 0; k < length; k++) {
+            scaled[k] = probabilities[k] * length / sum;
+            if (scaled[k] < 1) {
+                small[smallSize++] = k;
+            } else {
+                large[largeSize++] = k;
+            }
+        }
+
+        while (smallSize > 0 && largeSize > 0) {
+            int less = small[--smallSize];
+            int more = large[--largeSize];
+
+            thresholds[less] = toThreshold(scaled[less]);
+            aliases[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1;
+            if (scaled[more] < 1) {
+                small[smallSize++] = more;
+            } else {
+                large[largeSize++] = more;
+            }
+        }
+
+        // whatever remains is (apart from rounding errors) a full column.
+        while (largeSize > 0) {
+            int index = large[--largeSize];
+            thresholds[index] = THRESHOLD_SCALE;
+            aliases[index] = index;
+        }
+        while (smallSize > 0) {
+            int index = small[--smallSize];
+            thresholds[index] = THRESHOLD_SCALE;
+            aliases[index] = index;
+        }
+    }
+
+    private static long toThreshold(double probability) {
+        return Math.min(THRESHOLD_SCALE, Math.round(probability * THRESHOLD_SCALE));
+    }
+
+    /**
+     * Returns the number of indices this selector selects from.
+     *
+     * @return the number of indices.
+     */
+    public int size() {
+        return thresholds.length;
+    }
+
+    /**
+     * Selects an index.
+     *
+     * @param random the random to use.
+     * @return the selected index.
+     */
+    public int select(SplittableRandom random) {
+        long value = random.nextLong();
+        int column = (int) (((value >>> 32) * thresholds.length) >>> 32);
+        return (value & THRESHOLD_MASK) < thresholds[column] ? column : aliases[column];
+    }
+
+    // just for testing; the probability the index is selected as encoded in the table.
+    double probability(int index) {
+        double result = 0;
+        for (int column = 0; column < thresholds.length; column++) {
+            double columnProbability = (double) thresholds[column] / THRESHOLD_SCALE;
+            if (column == index) {
+                result += columnProbability;
+            }
+            if (aliases[column] == index) {
+                result += 1 - columnProbability;
+            }
+        }
+        return result / thresholds.length;
+    }
+}
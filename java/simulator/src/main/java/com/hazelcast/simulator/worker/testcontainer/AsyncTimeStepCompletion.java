@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.probes.LatencyProbe;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+
+/**
+ * Completes an asynchronous call of a timestep method in a {@link TimeStepLoop} generated as bytecode: it records the
+ * latency and releases the in-flight permit. It does the same as the lambda in the TimeStepLoop.ftl template.
+ */
+public final class AsyncTimeStepCompletion implements BiConsumer<Object, Throwable> {
+
+    /**
+     * Runs the completion on the thread completing the future.
+     */
+    public static final Executor CALLER_RUNS = Runnable::run;
+
+    private final LatencyProbe probe;
+    private final long startNanos;
+    private final Semaphore inFlight;
+
+    /**
+     * Creates an {@link AsyncTimeStepCompletion}.
+     *
+     * @param probe      the probe to record the latency on or <code>null</code> if no latency should be recorded
+     * @param startNanos the start time of the call
+     * @param inFlight   the permits of the outstanding calls or <code>null</code> if they are not bounded
+     */
+    public AsyncTimeStepCompletion(LatencyProbe probe, long startNanos, Semaphore inFlight) {
+        this.probe = probe;
+        this.startNanos = startNanos;
+        this.inFlight = inFlight;
+    }
+
+    @Override
+    public void accept(Object result, Throwable throwable) {
+        if (probe != null) {
+            probe.recordValue(System.nanoTime() - startNanos);
+        }
+        if (inFlight != null) {
+            inFlight.release();
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.hazelcast.simulator.worker.testcontainer;
 
 import com.hazelcast.simulator.probes.LatencyProbe;
 import com.hazelcast.simulator.test.TestContext;
+import com.hazelcast.simulator.utils.CpuAffinity;
 
 /**
  * For more information see:
@@ -37,6 +38,7 @@ public class JitterThread extends Thread {
 
     @Override
     public void run() {
+        CpuAffinity.applyHousekeepingAffinity();
         long startNanos = System.nanoTime();
         while (!textContext.isStopped()) {
             long endNanos = System.nanoTime();
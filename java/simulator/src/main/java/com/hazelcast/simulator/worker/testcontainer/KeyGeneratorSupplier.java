@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.test.keys.HotspotKeyGenerator;
+import com.hazelcast.simulator.test.keys.KeyDistribution;
+import com.hazelcast.simulator.test.keys.KeyGenerator;
+import com.hazelcast.simulator.test.keys.LatestKeyGenerator;
+import com.hazelcast.simulator.test.keys.ScrambledZipfianKeyGenerator;
+import com.hazelcast.simulator.test.keys.SequentialKeyGenerator;
+import com.hazelcast.simulator.test.keys.UniformKeyGenerator;
+import com.hazelcast.simulator.test.keys.ZipfianDistribution;
+import com.hazelcast.simulator.test.keys.ZipfianKeyGenerator;
+
+import java.util.Random;
+
+import static com.hazelcast.simulator.test.keys.ZipfianDistribution.DEFAULT_ZIPFIAN_CONSTANT;
+import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
+import static java.lang.String.format;
+
+/**
+ * Creates the {@link KeyGenerator} for each timestep thread of an execution group based on the test properties.
+ *
+ * The expensive parts, like the parameters of the Zipfian distribution, are created once and shared between the
+ * key generators of all threads.
+ */
+class KeyGeneratorSupplier {
+
+    static final double DEFAULT_HOTSPOT_DATA_FRACTION = 0.2;
+    static final double DEFAULT_HOTSPOT_OP_FRACTION = 0.8;
+
+    private final KeyDistribution keyDistribution;
+    private final long keyCount;
+    private final int threadCount;
+    private final ZipfianDistribution zipfianDistribution;
+    private final double hotspotDataFraction;
+    private final double hotspotOpFraction;
+    // the index of the next timestep thread; the sequential key generator gives every thread a range of its own
+    private int threadIndex;
+
+    KeyGeneratorSupplier(String executionGroup, PropertyBinding binding, int threadCount, String keyDistribution) {
+        this.threadCount = threadCount;
+
+        String keyDistributionProperty = toPropertyName(executionGroup, "keyDistribution");
+        try {
+            this.keyDistribution = KeyDistribution.fromName(keyDistribution);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalTestException(keyDistributionProperty + " is invalid: " + e.getMessage(), e);
+        }
+
+        String keyCountProperty = toPropertyName(executionGroup, "keyCount");
+        this.keyCount = binding.loadAsLong(keyCountProperty, 0);
+        if (keyCount <= 0) {
+            throw new IllegalTestException(format("%s=%s requires %s to be configured with a positive value",
+                    keyDistributionProperty, keyDistribution, keyCountProperty));
+        }
+
+        try {
+            switch (this.keyDistribution) {
+                case ZIPFIAN:
+                case SCRAMBLED_ZIPFIAN:
+                case LATEST:
+                    double zipfianConstant = binding.loadAsDouble(
+                            toPropertyName(executionGroup, "zipfianConstant"), DEFAULT_ZIPFIAN_CONSTANT);
+                    this.zipfianDistribution = new ZipfianDistribution(keyCount, zipfianConstant);
+                    break;
+                default:
+                    this.zipfianDistribution = null;
+            }
+
+            if (this.keyDistribution == KeyDistribution.HOTSPOT) {
+                this.hotspotDataFraction = binding.loadAsDouble(
+                        toPropertyName(executionGroup, "hotspotDataFraction"), DEFAULT_HOTSPOT_DATA_FRACTION);
+                this.hotspotOpFraction = binding.loadAsDouble(
+                        toPropertyName(executionGroup, "hotspotOpFraction"), DEFAULT_HOTSPOT_OP_FRACTION);
+                // fail fast on invalid fractions.
+                new HotspotKeyGenerator(new Random(), keyCount, hotspotDataFraction, hotspotOpFraction);
+            } else {
+                this.hotspotDataFraction = 0;
+                this.hotspotOpFraction = 0;
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalTestException(keyDistributionProperty + "=" + keyDistribution + " is misconfigured: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    KeyDistribution getKeyDistribution() {
+        return keyDistribution;
+    }
+
+    /**
+     * Creates the key generator for the next timestep thread.
+     *
+     * @param random the random of the thread state of the timestep thread.
+     * @return the created key generator.
+     */
+    KeyGenerator get(Random random) {
+        switch (keyDistribution) {
+            case UNIFORM:
+                return new UniformKeyGenerator(random, keyCount);
+            case ZIPFIAN:
+                return new ZipfianKeyGenerator(random, zipfianDistribution);
+            case SCRAMBLED_ZIPFIAN:
+                return new ScrambledZipfianKeyGenerator(random, zipfianDistribution);
+            case LATEST:
+                return new LatestKeyGenerator(random, zipfianDistribution);
+            case HOTSPOT:
+                return new HotspotKeyGenerator(random, keyCount, hotspotDataFraction, hotspotOpFraction);
+            case SEQUENTIAL:
+                return new SequentialKeyGenerator(keyCount, threadIndex++ % threadCount, threadCount);
+            default:
+                throw new IllegalStateException("Unhandled key distribution " + keyDistribution);
+        }
+    }
+}
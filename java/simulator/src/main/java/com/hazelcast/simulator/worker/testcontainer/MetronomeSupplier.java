@@ -16,7 +16,9 @@
 package com.hazelcast.simulator.worker.testcontainer;
 
 import com.hazelcast.simulator.worker.metronome.EmptyMetronome;
+import com.hazelcast.simulator.worker.metronome.LoadProfile;
 import com.hazelcast.simulator.worker.metronome.Metronome;
+import com.hazelcast.simulator.worker.metronome.ProfileMetronome;
 import com.hazelcast.simulator.worker.metronome.SleepingMetronome;
 
 import java.lang.reflect.Constructor;
@@ -24,6 +26,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
+import static java.lang.Math.max;
 import static java.lang.Math.round;
 import static java.lang.String.format;
 import static java.util.concurrent.TimeUnit.DAYS;
@@ -36,11 +39,22 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 
 public class MetronomeSupplier implements Supplier<Metronome> {
 
+    static final String ARRIVALS_UNIFORM = "uniform";
+    static final String ARRIVALS_POISSON = "poisson";
+
     private final Class<? extends Metronome> metronomeClass;
     private final Metronome masterMetronome;
-    private final long intervalNanos;
+    private final LoadProfile loadProfile;
+    private volatile long intervalNanos;
 
     public MetronomeSupplier(String executionGroup, PropertyBinding binding, int threadCount) {
+        this(executionGroup, binding, threadCount, SleepingMetronome.class);
+    }
+
+    public MetronomeSupplier(String executionGroup,
+                             PropertyBinding binding,
+                             int threadCount,
+                             Class<? extends Metronome> defaultMetronomeClass) {
         String property = toPropertyName(executionGroup, "interval");
         String intervalString = binding.load(property);
 
@@ -55,28 +69,89 @@ public class MetronomeSupplier implements Supplier<Metronome> {
 
         // we read the metronome up front so we doing get an unused properties error if interval is 0,
         // but the user did configure a metronome.
-        Class<SleepingMetronome> configuredMetronomeClass = binding.loadAsClass(
-                toPropertyName(executionGroup, "metronomeClass"), SleepingMetronome.class);
+        Class<? extends Metronome> configuredMetronomeClass = binding.loadAsClass(
+                toPropertyName(executionGroup, "metronomeClass"), defaultMetronomeClass);
+
+        this.loadProfile = loadProfile(executionGroup, binding, intervalNanos, ratePerSecond);
+        if (loadProfile != null) {
+            if (configuredMetronomeClass != defaultMetronomeClass && configuredMetronomeClass != ProfileMetronome.class) {
+                throw new IllegalTestException(format("%s can't be combined with %s [%s]",
+                        toPropertyName(executionGroup, "loadProfile"), toPropertyName(executionGroup, "metronomeClass"),
+                        configuredMetronomeClass.getName()));
+            }
 
-        this.intervalNanos = intervalNanos;
-        if (intervalNanos == 0) {
-            this.metronomeClass = EmptyMetronome.class;
-            this.masterMetronome = EmptyMetronome.INSTANCE;
+            // the shortest interval of the profile
+            this.intervalNanos = round(SECONDS.toNanos(1) / loadProfile.getMaxRatePerSecond());
+            this.metronomeClass = ProfileMetronome.class;
+            this.masterMetronome = new ProfileMetronome(loadProfile, threadCount, loadPoissonArrivals(executionGroup, binding),
+                    binding.loadAsBoolean(toPropertyName(executionGroup, "accountForCoordinatedOmission"), true));
         } else {
-            this.metronomeClass = configuredMetronomeClass;
-
-            Constructor<? extends Metronome> constructor;
-            try {
-                constructor = this.metronomeClass.getConstructor(Long.TYPE, Integer.TYPE, PropertyBinding.class, String.class);
-            } catch (NoSuchMethodException e) {
-                throw new IllegalTestException("Metronome [%s], does not have the right constructor", e);
+            this.intervalNanos = intervalNanos;
+            if (intervalNanos == 0) {
+                this.metronomeClass = EmptyMetronome.class;
+                this.masterMetronome = EmptyMetronome.INSTANCE;
+            } else {
+                this.metronomeClass = configuredMetronomeClass;
+
+                Constructor<? extends Metronome> constructor;
+                try {
+                    constructor = this.metronomeClass.getConstructor(
+                            Long.TYPE, Integer.TYPE, PropertyBinding.class, String.class);
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalTestException("Metronome [%s], does not have the right constructor", e);
+                }
+
+                try {
+                    masterMetronome = constructor.newInstance(intervalNanos, threadCount, binding, executionGroup);
+                } catch (Exception e) {
+                    throw new IllegalTestException("Failed to create a master metronome instance", e);
+                }
             }
+        }
+    }
 
-            try {
-                masterMetronome = constructor.newInstance(intervalNanos, threadCount, binding, executionGroup);
-            } catch (Exception e) {
-                throw new IllegalTestException("Failed to create a master metronome instance", e);
+    private static LoadProfile loadProfile(String executionGroup,
+                                           PropertyBinding binding,
+                                           long intervalNanos,
+                                           double ratePerSecond) {
+        String property = toPropertyName(executionGroup, "loadProfile");
+        String value = binding.load(property);
+        boolean poisson = loadPoissonArrivals(executionGroup, binding);
+
+        LoadProfile loadProfile;
+        if (value != null) {
+            if (intervalNanos != 0) {
+                throw new IllegalTestException(format("%s can't be combined with %s or %s", property,
+                        toPropertyName(executionGroup, "interval"), toPropertyName(executionGroup, "ratePerSecond")));
             }
+            loadProfile = LoadProfile.parse(property, value);
+        } else if (poisson) {
+            if (intervalNanos == 0) {
+                throw new IllegalTestException(format("%s=%s requires %s, %s or %s to be configured",
+                        toPropertyName(executionGroup, "arrivals"), ARRIVALS_POISSON, toPropertyName(executionGroup, "interval"),
+                        toPropertyName(executionGroup, "ratePerSecond"), property));
+            }
+            loadProfile = LoadProfile.constant(ratePerSecond > 0 ? ratePerSecond : SECONDS.toNanos(1) / (double) intervalNanos);
+        } else {
+            return null;
+        }
+
+        if (loadProfile.getMaxRatePerSecond() <= 0) {
+            throw new IllegalTestException(format("%s [%s] requires a rate larger than 0", property, value));
+        }
+        return loadProfile;
+    }
+
+    private static boolean loadPoissonArrivals(String executionGroup, PropertyBinding binding) {
+        String property = toPropertyName(executionGroup, "arrivals");
+        String value = binding.load(property);
+        if (value == null || ARRIVALS_UNIFORM.equals(value)) {
+            return false;
+        } else if (ARRIVALS_POISSON.equals(value)) {
+            return true;
+        } else {
+            throw new IllegalTestException(format("%s has an invalid value [%s], valid values are [%s, %s]",
+                    property, value, ARRIVALS_UNIFORM, ARRIVALS_POISSON));
         }
     }
 
@@ -84,7 +159,34 @@ public class MetronomeSupplier implements Supplier<Metronome> {
         return intervalNanos;
     }
 
-    private static long parseInterval(String property, String value) {
+    /**
+     * Changes the rate of the master metronome and of all the metronomes created by this supplier.
+     *
+     * This method is thread-safe.
+     *
+     * @param ratePerSecond the new rate of all threads combined.
+     * @throws IllegalArgumentException      if ratePerSecond isn't larger than 0.
+     * @throws UnsupportedOperationException if the metronome doesn't support changing the rate.
+     */
+    public void setRatePerSecond(double ratePerSecond) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond must be larger than 0, but was " + ratePerSecond);
+        }
+
+        long intervalNanos = max(1, round(SECONDS.toNanos(1) / ratePerSecond));
+        masterMetronome.setIntervalNanos(intervalNanos);
+        this.intervalNanos = intervalNanos;
+    }
+
+    /**
+     * Parses a duration like '10us' or '5m' to nanos.
+     *
+     * @param property the name of the property; used in error messages.
+     * @param value    the duration
+     * @return the duration in nanos
+     * @throws IllegalTestException if the duration is not valid.
+     */
+    public static long parseInterval(String property, String value) {
         long duration;
         try {
             if (value.endsWith("ns")) {
@@ -121,6 +223,15 @@ public class MetronomeSupplier implements Supplier<Metronome> {
         return unit.toNanos(interval);
     }
 
+    /**
+     * Returns the load profile the rate follows, or null if the rate is fixed.
+     *
+     * @return the load profile
+     */
+    LoadProfile getLoadProfile() {
+        return loadProfile;
+    }
+
     Class<? extends Metronome> getMetronomeClass() {
         return metronomeClass;
     }
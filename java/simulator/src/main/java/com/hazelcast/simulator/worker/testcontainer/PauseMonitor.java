@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.probes.LatencyProbe;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.Closeable;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Records the pauses of the worker JVM into {@link LatencyProbe}s, so a latency spike of the test can be correlated with
+ * a stall of the load generator itself, instead of a stall in the cluster.
+ * <p>
+ * By default the GC pauses are taken from the notifications of the {@link GarbageCollectorMXBean}s; the collectors that
+ * run concurrently with the application (e.g. 'G1 Concurrent GC' or 'ZGC Cycles') are skipped since they don't stall
+ * the application. The notifications have a millisecond resolution.
+ * <p>
+ * With JFR, the GC pauses are taken from the 'jdk.GCPhasePause' events, using JFR event streaming. The safepoints are
+ * measured from the start of the 'jdk.SafepointBegin' event to the end of the 'jdk.SafepointEnd' event with the same
+ * safepointId; so the time to reach the safepoint plus the time the VM operation runs, which is the whole time the
+ * application threads are stopped. The duration of the 'jdk.SafepointBegin' event alone only covers the time to reach
+ * the safepoint. This is more precise and also catches the safepoints that are not caused by GC, e.g. deoptimization or
+ * biased locking revocation, but JFR has a small overhead.
+ * <p>
+ * Unlike the {@link JitterThread}, this doesn't need a busy spinning thread.
+ */
+public final class PauseMonitor implements Closeable {
+
+    public static final String GC_PAUSE_PROBE = "gcPause";
+    public static final String SAFEPOINT_PROBE = "safepoint";
+
+    private static final String JFR_GC_PAUSE_EVENT = "jdk.GCPhasePause";
+    private static final String JFR_SAFEPOINT_BEGIN_EVENT = "jdk.SafepointBegin";
+    private static final String JFR_SAFEPOINT_END_EVENT = "jdk.SafepointEnd";
+    private static final String JFR_SAFEPOINT_ID = "safepointId";
+    private static final Logger LOGGER = LogManager.getLogger(PauseMonitor.class);
+
+    private final LatencyProbe gcPauseProbe;
+    private final LatencyProbe safepointProbe;
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::handleNotification;
+    private RecordingStream recordingStream;
+
+    private PauseMonitor(TestContextImpl testContext, boolean jfr) {
+        this.gcPauseProbe = testContext.getDiagnosticProbe(GC_PAUSE_PROBE);
+        this.safepointProbe = jfr ? testContext.getDiagnosticProbe(SAFEPOINT_PROBE) : null;
+    }
+
+    /**
+     * Checks if the probe records the pauses of the JVM, instead of the latency of an operation.
+     *
+     * @param probeName the name of the probe.
+     * @return true if it is a pause probe, false otherwise.
+     */
+    public static boolean isPauseProbe(String probeName) {
+        return GC_PAUSE_PROBE.equals(probeName) || SAFEPOINT_PROBE.equals(probeName);
+    }
+
+    /**
+     * Starts recording the pauses.
+     *
+     * @param testContext the test context to register the probes in.
+     * @param jfr         true to use JFR event streaming, false to use the GC notifications.
+     * @return the started PauseMonitor; should be closed when the test is done running.
+     */
+    public static PauseMonitor start(TestContextImpl testContext, boolean jfr) {
+        PauseMonitor monitor = new PauseMonitor(testContext, jfr);
+        if (jfr) {
+            monitor.startRecordingStream();
+        } else {
+            monitor.addGcListeners();
+        }
+        return monitor;
+    }
+
+    private void addGcListeners() {
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (isConcurrent(bean.getName()) || !(bean instanceof NotificationEmitter)) {
+                continue;
+            }
+
+            NotificationEmitter emitter = (NotificationEmitter) bean;
+            emitter.addNotificationListener(listener, null, null);
+            emitters.add(emitter);
+        }
+    }
+
+    static boolean isConcurrent(String collectorName) {
+        return collectorName.contains("Concurrent") || collectorName.contains("Cycles");
+    }
+
+    private void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+                (CompositeData) notification.getUserData());
+        gcPauseProbe.recordValue(MILLISECONDS.toNanos(info.getGcInfo().getDuration()));
+    }
+
+    private void startRecordingStream() {
+        RecordingStream stream = new RecordingStream();
+        stream.enable(JFR_GC_PAUSE_EVENT);
+        stream.enable(JFR_SAFEPOINT_BEGIN_EVENT).withThreshold(Duration.ZERO);
+        stream.enable(JFR_SAFEPOINT_END_EVENT).withThreshold(Duration.ZERO);
+        SafepointSpans safepointSpans = new SafepointSpans(safepointProbe);
+        stream.onEvent(JFR_GC_PAUSE_EVENT, event -> record(gcPauseProbe, event));
+        stream.onEvent(JFR_SAFEPOINT_BEGIN_EVENT,
+                event -> safepointSpans.begin(event.getLong(JFR_SAFEPOINT_ID), event.getStartTime()));
+        stream.onEvent(JFR_SAFEPOINT_END_EVENT,
+                event -> safepointSpans.end(event.getLong(JFR_SAFEPOINT_ID), event.getEndTime()));
+        stream.startAsync();
+        this.recordingStream = stream;
+    }
+
+    private static void record(LatencyProbe probe, RecordedEvent event) {
+        probe.recordValue(event.getDuration().toNanos());
+    }
+
+    /**
+     * Matches the begin and end of a safepoint by the safepointId and records the span between them.
+     * <p>
+     * The events are delivered in order by the single thread of the {@link RecordingStream}, so no synchronization is
+     * needed. A begin without an end, e.g. when the stream is closed halfway, is dropped once too many are pending.
+     */
+    static final class SafepointSpans {
+
+        static final int MAX_PENDING = 1024;
+
+        private final Map<Long, Instant> pending = new HashMap<>();
+        private final LatencyProbe probe;
+
+        SafepointSpans(LatencyProbe probe) {
+            this.probe = probe;
+        }
+
+        void begin(long safepointId, Instant startTime) {
+            if (pending.size() >= MAX_PENDING) {
+                pending.clear();
+            }
+            pending.put(safepointId, startTime);
+        }
+
+        void end(long safepointId, Instant endTime) {
+            Instant startTime = pending.remove(safepointId);
+            if (startTime != null) {
+                probe.recordValue(Duration.between(startTime, endTime).toNanos());
+            }
+        }
+
+        int pendingCount() {
+            return pending.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException e) {
+                LOGGER.warn("Failed to remove GC notification listener", e);
+            }
+        }
+        emitters.clear();
+
+        if (recordingStream != null) {
+            recordingStream.close();
+            recordingStream = null;
+        }
+    }
+}
@@ -72,7 +72,7 @@ public class Probability {
         return Double.toString(value);
     }
 
-    public static byte[] loadTimeStepProbabilityArray(Map<Method, Probability> methods, List<Method> activeMethods) {
+    public static AliasMethodSelector loadTimeStepSelector(Map<Method, Probability> methods, List<Method> activeMethods) {
         if (activeMethods.size() < 2) {
             return null;
         }
@@ -84,8 +84,7 @@ public class Probability {
             methodProbabilities[methodIndex] = probability.getValue();
         }
 
-        int[] methodRatios = methodProbabilitiesToMethodRatios(methodProbabilities);
-        return ratiosToMethodProbabilityArray(methodRatios);
+        return new AliasMethodSelector(methodProbabilities);
     }
 
 
@@ -52,6 +52,7 @@ public class PropertyBinding {
 
     static final int DEFAULT_THREAD_COUNT = 10;
     static final int DEFAULT_RECORD_JITTER_THRESHOLD_NS = 1000;
+    static final int DEFAULT_RECORD_SLOW_OPERATIONS_COUNT = 10;
 
     // if we want to measure latency. Normally this is always true; but in its current setting, hdr can cause contention
     // and I want a switch that turns of hdr recording. Perhaps that with some tuning this isn't needed.
@@ -60,10 +61,18 @@ public class PropertyBinding {
     public boolean recordJitter;
     // configures the minimum value for the jitter sample to be recorded.
     public int recordJitterThresholdNs = DEFAULT_RECORD_JITTER_THRESHOLD_NS;
+    // flag to enable recording the GC pauses of the worker, see PauseMonitor.
+    public boolean recordPauses;
+    // flag to record the GC pauses and safepoints of the worker using JFR instead of the GC notifications.
+    public boolean recordPausesWithJfr;
+    // the minimum latency of a timestep operation to be recorded as slow operation; 0 disables it.
+    public long recordSlowOperationsThresholdNs;
+    // the maximum number of slow operations recorded per timestep thread per interval.
+    public int recordSlowOperationsCount = DEFAULT_RECORD_SLOW_OPERATIONS_COUNT;
 
     // this can be removed as soon as the @InjectMetronome/worker functionality is dropped
     private MetronomeSupplier workerMetronomeConstructor;
-    private final Class<? extends LatencyProbe> probeClass;
+    private final Class<? extends LatencyProbe> latencyProbeClass;
     private TestContextImpl testContext;
     private final TestCase testCase;
     private final Set<String> unusedProperties = new HashSet<>();
@@ -75,6 +84,12 @@ public class PropertyBinding {
         unusedProperties.remove("class");
         unusedProperties.remove("rampupSeconds");
         unusedProperties.remove("id");
+        // the SLO search is done by the coordinator
+        unusedProperties.remove("slo");
+        unusedProperties.remove("sloStepSeconds");
+        unusedProperties.remove("sloMinRatePerSecond");
+        unusedProperties.remove("sloMaxRatePerSecond");
+        unusedProperties.remove("sloPrecision");
 
         bind(this);
 
@@ -82,9 +97,21 @@ public class PropertyBinding {
             throw new IllegalTestException("recordJitterThresholdNs can't be smaller than 0");
         }
 
+        if (recordSlowOperationsThresholdNs < 0) {
+            throw new IllegalTestException("recordSlowOperationsThresholdNs can't be smaller than 0");
+        }
+
+        if (recordSlowOperationsCount < 1) {
+            throw new IllegalTestException("recordSlowOperationsCount can't be smaller than 1");
+        }
+
         this.workerMetronomeConstructor = new MetronomeSupplier(
                 "", this, loadAsInt("threadCount", DEFAULT_THREAD_COUNT));
-        this.probeClass = loadProbeClass();
+        this.latencyProbeClass = loadProbeClass();
+        if (latencyProbeClass != null && !LatencyProbe.class.isAssignableFrom(latencyProbeClass)) {
+            throw new IllegalTestException(format("probeClass [%s] is not a %s",
+                    latencyProbeClass.getName(), LatencyProbe.class.getName()));
+        }
     }
 
     public PropertyBinding setDriverInstance(Object driverInstance) {
@@ -234,11 +261,13 @@ public class PropertyBinding {
     }
 
     public Class<? extends LatencyProbe> getProbeClass() {
-        return probeClass;
+        return latencyProbeClass;
     }
 
     private Class<? extends LatencyProbe> loadProbeClass() {
-        return measureLatency ? HdrLatencyProbe.class : null;
+        // we read the probe class up front so we don't get an unused properties error if latency isn't measured.
+        Class<? extends LatencyProbe> configuredProbeClass = loadAsClass("probeClass", HdrLatencyProbe.class);
+        return measureLatency ? configuredProbeClass : null;
     }
 
     public TestCase getTestCase() {
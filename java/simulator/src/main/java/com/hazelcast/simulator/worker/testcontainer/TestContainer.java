@@ -18,6 +18,7 @@ package com.hazelcast.simulator.worker.testcontainer;
 import com.hazelcast.simulator.common.TestCase;
 import com.hazelcast.simulator.common.TestPhase;
 import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.probes.SlowOperationRecorder;
 import com.hazelcast.simulator.test.TestContext;
 import com.hazelcast.simulator.test.annotations.Prepare;
 import com.hazelcast.simulator.test.annotations.Run;
@@ -29,6 +30,8 @@ import com.hazelcast.simulator.utils.AnnotatedMethodRetriever;
 import com.hazelcast.simulator.utils.AnnotationFilter;
 import com.hazelcast.simulator.utils.AnnotationFilter.TeardownFilter;
 import com.hazelcast.simulator.utils.AnnotationFilter.VerifyFilter;
+import com.hazelcast.simulator.worker.metronome.LoadProfile;
+import com.hazelcast.simulator.worker.performance.SteadyStateDetector;
 import com.hazelcast.simulator.worker.performance.TestOperationsTracker;
 
 import java.lang.annotation.Annotation;
@@ -56,6 +59,8 @@ import static com.hazelcast.simulator.utils.CommonUtils.rethrow;
 import static com.hazelcast.simulator.utils.Preconditions.checkNotNull;
 import static java.lang.String.format;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 
 /**
  * Container for test instances.
@@ -98,6 +103,10 @@ public class TestContainer {
 
         propertyBinding.bind(this);
         testContext.setLatencyProbeClass(propertyBinding.getProbeClass());
+        if (propertyBinding.recordSlowOperationsThresholdNs > 0) {
+            testContext.setSlowOperationRecorder(new SlowOperationRecorder(
+                    propertyBinding.recordSlowOperationsThresholdNs, propertyBinding.recordSlowOperationsCount));
+        }
         if (givenTestInstance == null) {
             this.testInstance = newTestInstance();
         } else {
@@ -110,9 +119,11 @@ public class TestContainer {
 
         registerTestPhaseTasks();
 
+        SteadyStateDetector steadyStateDetector = new SteadyStateDetector(propertyBinding);
+
         propertyBinding.ensureNoUnusedProperties();
 
-        this.testOperationsTracker = new TestOperationsTracker(this);
+        this.testOperationsTracker = new TestOperationsTracker(this, steadyStateDetector);
     }
 
     public void stop() {
@@ -172,12 +183,26 @@ public class TestContainer {
         return runner == null ? 0 : runner.iterations();
     }
 
+    public Map<String, LoadProfile> getLoadProfiles() {
+        return runner == null ? emptyMap() : runner.loadProfiles();
+    }
+
+    public List<Thread> getThreads() {
+        return runner == null ? emptyList() : runner.threads();
+    }
+
+    public double setRatePerSecond(String executionGroup, double ratePerSecond) {
+        return runner.setRatePerSecond(executionGroup, ratePerSecond);
+    }
+
     public void invoke(TestPhase testPhase) throws Exception {
         if (!currentPhase.compareAndSet(null, testPhase)) {
             throw new IllegalStateException(format("Tried to start %s for test %s, but %s is still running!", testPhase,
                     testCase.getId(), currentPhase.get()));
         }
 
+        TestPhaseEvent event = new TestPhaseEvent();
+        event.begin();
         try {
             Callable task = taskPerPhaseMap.get(testPhase);
             if (task == null) {
@@ -207,10 +232,20 @@ public class TestContainer {
                     }
                 }
             }
+            commit(event, testPhase);
             currentPhase.set(null);
         }
     }
 
+    private void commit(TestPhaseEvent event, TestPhase testPhase) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.testId = testCase.getId();
+            event.phase = testPhase.desc();
+            event.commit();
+        }
+    }
+
     private void registerTestPhaseTasks() {
         try {
             registerSetupTask();
@@ -220,10 +255,19 @@ public class TestContainer {
 
             taskPerPhaseMap.put(RUN, () -> {
                 if (propertyBinding.recordJitter) {
-                    LatencyProbe probe = testContext.getLatencyProbe("jitter", false);
+                    LatencyProbe probe = testContext.getDiagnosticProbe("jitter");
                     new JitterThread(testContext, probe, propertyBinding.recordJitterThresholdNs).start();
                 }
-                runner.run();
+                PauseMonitor pauseMonitor = propertyBinding.recordPauses || propertyBinding.recordPausesWithJfr
+                        ? PauseMonitor.start(testContext, propertyBinding.recordPausesWithJfr)
+                        : null;
+                try {
+                    runner.run();
+                } finally {
+                    if (pauseMonitor != null) {
+                        pauseMonitor.close();
+                    }
+                }
                 return null;
             });
 
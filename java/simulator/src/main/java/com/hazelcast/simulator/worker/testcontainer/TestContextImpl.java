@@ -16,13 +16,15 @@
 package com.hazelcast.simulator.worker.testcontainer;
 
 import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.probes.SlowOperationRecorder;
 import com.hazelcast.simulator.probes.impl.NoopLatencyProbe;
-import com.hazelcast.simulator.probes.impl.HdrLatencyProbe;
 import com.hazelcast.simulator.protocol.Server;
 import com.hazelcast.simulator.protocol.message.LogMessage;
 import com.hazelcast.simulator.test.TestContext;
 
+import java.lang.reflect.Constructor;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -34,8 +36,10 @@ public class TestContextImpl implements TestContext {
     private final String publicIpAddress;
     private final Server server;
     private final ConcurrentMap<String, LatencyProbe> latencyProbes = new ConcurrentHashMap<>();
+    private final Set<String> diagnosticProbeNames = ConcurrentHashMap.newKeySet();
     private volatile boolean stopped;
-    private Class latencyProbeClass;
+    private Constructor<? extends LatencyProbe> latencyProbeConstructor;
+    private SlowOperationRecorder slowOperationRecorder;
 
     public TestContextImpl(String testId,
                            String publicIpAddress,
@@ -45,8 +49,31 @@ public class TestContextImpl implements TestContext {
         this.server = server;
     }
 
-    public void setLatencyProbeClass(Class latencyProbeClass) {
-        this.latencyProbeClass = latencyProbeClass;
+    public void setLatencyProbeClass(Class<? extends LatencyProbe> latencyProbeClass) {
+        if (latencyProbeClass == null) {
+            this.latencyProbeConstructor = null;
+            return;
+        }
+
+        try {
+            this.latencyProbeConstructor = latencyProbeClass.getConstructor(String.class, Boolean.TYPE);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalTestException(format("LatencyProbe [%s] does not have a (String, boolean) constructor",
+                    latencyProbeClass.getName()), e);
+        }
+    }
+
+    public void setSlowOperationRecorder(SlowOperationRecorder slowOperationRecorder) {
+        this.slowOperationRecorder = slowOperationRecorder;
+    }
+
+    /**
+     * Returns the recorder of the slow operations.
+     *
+     * @return the recorder, or null if slow operations are not recorded.
+     */
+    public SlowOperationRecorder getSlowOperationRecorder() {
+        return slowOperationRecorder;
     }
 
     public Map<String, LatencyProbe> getLatencyProbes() {
@@ -58,13 +85,13 @@ public class TestContextImpl implements TestContext {
             throw new RuntimeException("probeName can't be null");
         }
 
-        if (latencyProbeClass == null) {
+        if (latencyProbeConstructor == null) {
             return NoopLatencyProbe.INSTANCE;
         }
 
         LatencyProbe probe = latencyProbes.get(probeName);
         if (probe == null) {
-            probe = new HdrLatencyProbe(probeName, includeInThroughput);
+            probe = newLatencyProbe(probeName, includeInThroughput);
             LatencyProbe found = latencyProbes.putIfAbsent(probeName, probe);
             if (found != null) {
                 probe = found;
@@ -73,6 +100,42 @@ public class TestContextImpl implements TestContext {
         return probe;
     }
 
+    /**
+     * Gets a probe that records a property of the load generator or the JVM instead of the latency of an operation, e.g.
+     * the jitter, the pauses or the error of the metronome. The values of a diagnostic probe are written to its own
+     * histogram file, but they are not merged into the latency of the test.
+     *
+     * @param probeName the name of the probe.
+     * @return the probe.
+     */
+    public LatencyProbe getDiagnosticProbe(String probeName) {
+        if (probeName == null) {
+            throw new RuntimeException("probeName can't be null");
+        }
+
+        diagnosticProbeNames.add(probeName);
+        return getLatencyProbe(probeName, false);
+    }
+
+    /**
+     * Checks if the probe is a diagnostic probe.
+     *
+     * @param probeName the name of the probe.
+     * @return true if the probe was registered with {@link #getDiagnosticProbe(String)}, false otherwise.
+     */
+    public boolean isDiagnosticProbe(String probeName) {
+        return diagnosticProbeNames.contains(probeName);
+    }
+
+    private LatencyProbe newLatencyProbe(String probeName, boolean includeInThroughput) {
+        try {
+            return latencyProbeConstructor.newInstance(probeName, includeInThroughput);
+        } catch (Exception e) {
+            throw new IllegalTestException(format("Failed to create LatencyProbe [%s] of class [%s]",
+                    probeName, latencyProbeConstructor.getDeclaringClass().getName()), e);
+        }
+    }
+
     @Override
     public String getTestId() {
         return testId;
@@ -93,6 +156,14 @@ public class TestContextImpl implements TestContext {
         stopped = true;
     }
 
+    @Override
+    public void tagOperation(Object tag) {
+        SlowOperationRecorder slowOperationRecorder = this.slowOperationRecorder;
+        if (slowOperationRecorder != null) {
+            slowOperationRecorder.tag(tag);
+        }
+    }
+
     @Override
     public void echoCoordinator(String msg, Object... args) {
         String message = format(msg, args);
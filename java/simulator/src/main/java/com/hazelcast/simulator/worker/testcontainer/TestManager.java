@@ -19,11 +19,13 @@ import com.hazelcast.simulator.common.TestCase;
 import com.hazelcast.simulator.common.TestPhase;
 import com.hazelcast.simulator.protocol.Promise;
 import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.utils.CpuAffinity;
 import com.hazelcast.simulator.utils.ExceptionReporter;
 import com.hazelcast.simulator.drivers.Driver;
 import com.hazelcast.simulator.worker.messages.CreateTestMessage;
 import com.hazelcast.simulator.worker.messages.StartPhaseMessage;
 import com.hazelcast.simulator.worker.messages.StopRunMessage;
+import com.hazelcast.simulator.worker.messages.UpdateRateMessage;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -93,6 +95,28 @@ public class TestManager {
         testContainer.stop();
     }
 
+    /**
+     * Changes the rate of a running test.
+     *
+     * @param msg the message with the new rate.
+     * @return the rate applied by this worker; the sum of the rates of the changed execution groups.
+     */
+    public double updateRate(UpdateRateMessage msg) {
+        String testId = msg.getTestId();
+
+        String executionGroup = msg.getExecutionGroup();
+
+        LOGGER.info(format("%s Changing rate of %s%s to %s ops/s %s", DASHES, testId,
+                executionGroup == null ? "" : " executionGroup [" + executionGroup + "]", msg.getRatePerSecond(), DASHES));
+
+        TestContainer testContainer = tests.get(testId);
+        if (testContainer == null) {
+            throw new IllegalArgumentException(format("Could not change rate, test [%s] is not found.", testId));
+        }
+
+        return testContainer.setRatePerSecond(executionGroup, msg.getRatePerSecond());
+    }
+
     public void startTestPhase(StartPhaseMessage msg, Promise promise) throws Exception {
         TestPhase testPhase = msg.getTestPhase();
 
@@ -123,6 +147,8 @@ public class TestManager {
         @Override
         @SuppressWarnings("PMD.AvoidCatchingThrowable")
         public final void run() {
+            // this thread is created by a housekeeping thread, but the test phases are part of the workload.
+            CpuAffinity.applyWorkloadAffinity();
             LOGGER.info(format("%s Starting %s of %s %s", DASHES, testPhase.desc(), testId, DASHES));
             try {
                 testContainer.invoke(testPhase);
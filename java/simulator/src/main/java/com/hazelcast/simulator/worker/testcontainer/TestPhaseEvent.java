@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for a phase of a test, e.g. the setup or the run phase, emitted by {@link TestContainer#invoke}. The
+ * duration of the event is the duration of the phase.
+ */
+@Name("com.hazelcast.simulator.TestPhase")
+@Label("Test Phase")
+@Category("Hazelcast Simulator")
+@Description("A phase of a Simulator test")
+@StackTrace(false)
+final class TestPhaseEvent extends Event {
+
+    @Label("Test Id")
+    String testId;
+
+    @Label("Phase")
+    String phase;
+}
@@ -15,6 +15,14 @@
  */
 package com.hazelcast.simulator.worker.testcontainer;
 
+import com.hazelcast.simulator.worker.metronome.LoadProfile;
+
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+
 /**
  * A TestRunner is responsible for running a test.
  * <ol>
@@ -47,6 +55,42 @@ abstract class TestRunner {
         return 0;
     }
 
+    /**
+     * Returns the load profiles of the execution groups that have one, by execution group.
+     *
+     * @return the load profiles.
+     */
+    public Map<String, LoadProfile> loadProfiles() {
+        return emptyMap();
+    }
+
+    /**
+     * Returns the threads running the operations of the test. Their allocations and cpu time are divided over the
+     * operations; an empty list if the threads are not known.
+     *
+     * This method is thread-safe.
+     *
+     * @return the threads running the operations.
+     */
+    public List<Thread> threads() {
+        return emptyList();
+    }
+
+    /**
+     * Changes the rate while the test is running.
+     *
+     * This method is thread-safe.
+     *
+     * @param executionGroup the execution group to change the rate of, or null for all execution groups.
+     * @param ratePerSecond  the new rate per execution group.
+     * @return the rate applied by this worker; the sum of the rates of the changed execution groups.
+     * @throws UnsupportedOperationException if the test doesn't support changing the rate.
+     * @throws IllegalArgumentException      if the execution group doesn't exist.
+     */
+    public double setRatePerSecond(String executionGroup, double ratePerSecond) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " doesn't support changing the rate");
+    }
+
     /**
      * Checks if the run strategy is running. This is true in case of warmup and actual running.
      *
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR event for a timestep call that took at least the 'jfrTimeStepThresholdNs' of its execution group, so a JFR
+ * recording of the worker can be lined up with the slow operations.
+ *
+ * The {@link TimeStepLoop} of the execution group begins an event before every call and commits it with
+ * {@link #commitIfSlow(String, String, long, long)} when the call has completed, so the duration of the event spans the
+ * call. The loop only contains the event if the threshold is configured. Calls of asynchronous timestep methods are not
+ * covered.
+ */
+@Name("com.hazelcast.simulator.TimeStep")
+@Label("Slow TimeStep")
+@Category("Hazelcast Simulator")
+@Description("A timestep call that took at least the configured threshold")
+@StackTrace(false)
+public final class TimeStepEvent extends Event {
+
+    @Label("Test Id")
+    private String testId;
+
+    @Label("Method")
+    private String method;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    private long latency;
+
+    /**
+     * Commits this event if the call took at least the threshold and the event is enabled. Nothing is allocated if the
+     * call took less than the threshold, so the loop can begin this event again for the next call.
+     *
+     * @param testId         the id of the test.
+     * @param method         the name of the timestep method.
+     * @param startNanos     the (intended) start time of the call.
+     * @param thresholdNanos the minimum latency of the call to commit this event.
+     * @return {@code true} if this event has been committed, so a new event needs to be used for the next call.
+     */
+    public boolean commitIfSlow(String testId, String method, long startNanos, long thresholdNanos) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        if (latencyNanos < thresholdNanos) {
+            return false;
+        }
+
+        end();
+        if (!shouldCommit()) {
+            return false;
+        }
+        this.testId = testId;
+        this.method = method;
+        this.latency = latencyNanos;
+        commit();
+        return true;
+    }
+}
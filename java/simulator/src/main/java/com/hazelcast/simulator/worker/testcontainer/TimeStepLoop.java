@@ -17,7 +17,9 @@ package com.hazelcast.simulator.worker.testcontainer;
 
 
 import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.probes.SlowOperationRecorder;
 import com.hazelcast.simulator.test.StopException;
+import com.hazelcast.simulator.utils.CpuAffinity;
 import com.hazelcast.simulator.worker.metronome.Metronome;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -25,6 +27,7 @@ import org.apache.logging.log4j.Logger;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -51,10 +54,17 @@ public abstract class TimeStepLoop implements Runnable {
     protected final Object testInstance;
     protected final AtomicLong iterations = new AtomicLong();
     protected final TimeStepModel timeStepModel;
-    protected final byte[] timeStepProbabilities;
+    protected final AliasMethodSelector timeStepSelector;
     protected final Map<String, LatencyProbe> probeMap = new HashMap<>();
     protected long maxIterations;
     protected long delayMillis;
+    // only used with an open loop; records how late a call was issued compared to its intended start time
+    protected LatencyProbe missedScheduleProbe;
+    protected long missedScheduleThresholdNanos;
+    // only used if the loop emits a TimeStepEvent for slow calls
+    protected long jfrTimeStepThresholdNanos;
+    // the cpus this thread is pinned to; null if the thread isn't pinned
+    protected BitSet affinity;
 
     // There are used to prevent dead code optimization
     protected final AtomicReference atomicReference = new AtomicReference();
@@ -67,7 +77,7 @@ public abstract class TimeStepLoop implements Runnable {
         this.timeStepModel = timeStepModel;
         this.executionGroup = executionGroup;
         this.threadState = initThreadState();
-        this.timeStepProbabilities = timeStepModel.getTimeStepProbabilityArray(executionGroup);
+        this.timeStepSelector = timeStepModel.getTimeStepSelector(executionGroup);
     }
 
     public String getExecutionGroup() {
@@ -78,6 +88,7 @@ public abstract class TimeStepLoop implements Runnable {
         for (Method method : timeStepModel.getActiveTimeStepMethods(executionGroup)) {
             LatencyProbe probe = testContext.getLatencyProbe(method.getName(), false);
             if (probe != null) {
+                probe.setSlowOperationRecorder(testContext.getSlowOperationRecorder());
                 probeMap.put(method.getName(), probe);
             }
         }
@@ -90,6 +101,10 @@ public abstract class TimeStepLoop implements Runnable {
     @Override
     public final void run() {
         String threadName = Thread.currentThread().getName();
+        if (CpuAffinity.setAffinity(affinity)) {
+            logger.info(threadName + " pinned to cpus " + affinity);
+        }
+
         if (delayMillis > 0) {
             try {
                 Thread.sleep(delayMillis);
@@ -100,6 +115,11 @@ public abstract class TimeStepLoop implements Runnable {
             }
         }
 
+        SlowOperationRecorder slowOperationRecorder = testContext.getSlowOperationRecorder();
+        if (slowOperationRecorder != null) {
+            slowOperationRecorder.registerThread(executionGroup);
+        }
+
         logger.info(threadName + " started");
         try {
             beforeRun();
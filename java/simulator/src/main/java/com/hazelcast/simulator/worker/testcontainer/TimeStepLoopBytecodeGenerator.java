@@ -0,0 +1,689 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.probes.impl.NoopLatencyProbe;
+import com.hazelcast.simulator.utils.ThrottlingLogger;
+import com.hazelcast.simulator.worker.metronome.EmptyMetronome;
+import com.hazelcast.simulator.worker.metronome.Metronome;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACONST_NULL;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.F2D;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GETSTATIC;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.IFEQ;
+import static org.objectweb.asm.Opcodes.IFLE;
+import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.LADD;
+import static org.objectweb.asm.Opcodes.LCMP;
+import static org.objectweb.asm.Opcodes.LCONST_0;
+import static org.objectweb.asm.Opcodes.LCONST_1;
+import static org.objectweb.asm.Opcodes.LLOAD;
+import static org.objectweb.asm.Opcodes.LSTORE;
+import static org.objectweb.asm.Opcodes.LSUB;
+import static org.objectweb.asm.Opcodes.NEW;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V11;
+
+/**
+ * Generates the {@link TimeStepLoop} for an execution group of a test directly as bytecode, so no JDK compiler is
+ * needed.
+ *
+ * The generated loop is the same as the one generated from the TimeStepLoop.ftl template: the timestep methods are
+ * called directly on the test class, so the call sites remain monomorphic. Every change to the template should be
+ * reflected here. The class is defined as a hidden class in the package of the test class, so it can be unloaded
+ * with the test and it can call timestep methods of test classes that are not public.
+ */
+class TimeStepLoopBytecodeGenerator {
+
+    private static final String TIME_STEP_LOOP = Type.getInternalName(TimeStepLoop.class);
+
+    private final TimeStepModel timeStepModel;
+    private final String executionGroup;
+    private final Class testClass;
+    private final Class threadStateClass;
+    private final Class<? extends Metronome> metronomeClass;
+    private final Class<? extends LatencyProbe> probeClass;
+    private final List<Method> timeStepMethods;
+    private final long logFrequency;
+    private final long logRateMs;
+    private final boolean hasIterationCap;
+    private final int maxInFlight;
+    private final boolean openLoop;
+    private final boolean jfrEvents;
+
+    private MethodVisitor mv;
+    private int nextLocal;
+
+    // the local variable slots of the timeStepLoop method
+    private int randomLocal;
+    private int selectorLocal;
+    private int iterationsLocal;
+    private int testContextLocal;
+    private int testInstanceLocal;
+    private int metronomeLocal;
+    private int[] probeLocals;
+    private int threadStateLocal;
+    private int logCounterLocal;
+    private int throttlingLoggerLocal;
+    private int maxIterationsLocal;
+    private int missedScheduleProbeLocal;
+    private int missedScheduleThresholdLocal;
+    private int inFlightLocal;
+    private int testIdLocal;
+    private int jfrTimeStepThresholdLocal;
+    private int timeStepEventLocal;
+    private int iterationLocal;
+    private int startNanosLocal;
+
+    @SuppressWarnings("checkstyle:parameternumber")
+    TimeStepLoopBytecodeGenerator(
+            String executionGroup,
+            TimeStepModel timeStepModel,
+            Class<? extends Metronome> metronomeClass,
+            Class<? extends LatencyProbe> probeClass,
+            long logFrequency,
+            long logRateMs,
+            boolean hasIterationCap,
+            int maxInFlight,
+            boolean openLoop,
+            boolean jfrEvents) {
+        this.timeStepModel = timeStepModel;
+        this.executionGroup = executionGroup;
+        this.testClass = timeStepModel.getTestClass();
+        this.threadStateClass = timeStepModel.getThreadStateClass(executionGroup);
+        this.metronomeClass = metronomeClass == EmptyMetronome.class ? null : metronomeClass;
+        this.probeClass = probeClass;
+        this.timeStepMethods = timeStepModel.getActiveTimeStepMethods(executionGroup);
+        this.logFrequency = logFrequency;
+        this.logRateMs = logRateMs;
+        this.hasIterationCap = hasIterationCap;
+        this.maxInFlight = maxInFlight;
+        this.openLoop = openLoop;
+        this.jfrEvents = jfrEvents;
+    }
+
+    /**
+     * Generates the loop class and defines it as a hidden class.
+     *
+     * @param className the simple name of the class
+     * @return the defined class
+     */
+    Class generate(String className) {
+        MethodHandles.Lookup lookup;
+        try {
+            lookup = MethodHandles.privateLookupIn(testClass, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalTestException("Can't generate the TimeStepLoop for " + testClass.getName()
+                    + ": " + e.getMessage(), e);
+        }
+        if (!lookup.hasFullPrivilegeAccess()) {
+            throw new IllegalTestException("Can't generate the TimeStepLoop for " + testClass.getName()
+                    + " as bytecode, since it is loaded by " + testClass.getClassLoader()
+                    + "; use loopBackend=javac");
+        }
+
+        String packageName = testClass.getPackageName();
+        String internalName = packageName.isEmpty() ? className : packageName.replace('.', '/') + '/' + className;
+        byte[] bytes = generateBytes(internalName);
+        try {
+            return lookup.defineHiddenClass(bytes, true).lookupClass();
+        } catch (IllegalAccessException | LinkageError e) {
+            throw new IllegalTestException(className + " ran into a code generation problem: " + e.getMessage(), e);
+        }
+    }
+
+    byte[] generateBytes(String internalName) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected ClassLoader getClassLoader() {
+                return testClass.getClassLoader();
+            }
+        };
+        cw.visit(V11, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null, TIME_STEP_LOOP, null);
+        generateConstructor(cw);
+        generateTimeStepLoop(cw);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void generateConstructor(ClassWriter cw) {
+        String descriptor = Type.getMethodDescriptor(Type.VOID_TYPE,
+                Type.getType(testClass), Type.getType(TimeStepModel.class), Type.getType(String.class));
+        mv = cw.visitMethod(ACC_PUBLIC, "<init>", descriptor, null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitVarInsn(ALOAD, 3);
+        mv.visitMethodInsn(INVOKESPECIAL, TIME_STEP_LOOP, "<init>",
+                Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Object.class), Type.getType(TimeStepModel.class),
+                        Type.getType(String.class)), false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void generateTimeStepLoop(ClassWriter cw) {
+        mv = cw.visitMethod(ACC_PUBLIC, "timeStepLoop", "()V", null,
+                new String[]{Type.getInternalName(Exception.class)});
+        mv.visitCode();
+        nextLocal = 1;
+
+        generateLocals();
+
+        Label loopStart = new Label();
+        Label loopEnd = new Label();
+        mv.visitLabel(loopStart);
+        mv.visitVarInsn(ALOAD, testContextLocal);
+        invoke(TestContextImpl.class, "isStopped", boolean.class);
+        mv.visitJumpInsn(IFNE, loopEnd);
+
+        if (maxInFlight > 0) {
+            generateAcquireInFlight(loopEnd);
+        }
+
+        generateStart();
+
+        if (timeStepMethods.size() == 1) {
+            generateTimeStep(0, false);
+        } else {
+            generateSwitch();
+        }
+
+        // iteration++; iterations.lazySet(iteration);
+        mv.visitVarInsn(LLOAD, iterationLocal);
+        mv.visitInsn(LCONST_1);
+        mv.visitInsn(LADD);
+        mv.visitVarInsn(LSTORE, iterationLocal);
+        mv.visitVarInsn(ALOAD, iterationsLocal);
+        mv.visitVarInsn(LLOAD, iterationLocal);
+        invoke(AtomicLong.class, "lazySet", void.class, long.class);
+
+        if (logFrequency > 0) {
+            generateLogFrequency();
+        }
+
+        if (logRateMs > 0) {
+            generateLogRate();
+        }
+
+        if (hasIterationCap) {
+            mv.visitVarInsn(LLOAD, iterationLocal);
+            mv.visitVarInsn(LLOAD, maxIterationsLocal);
+            mv.visitInsn(LCMP);
+            mv.visitJumpInsn(IFEQ, loopEnd);
+        }
+
+        mv.visitJumpInsn(GOTO, loopStart);
+        mv.visitLabel(loopEnd);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private void generateLocals() {
+        if (timeStepMethods.size() > 1) {
+            // every timestep thread has its own random, so selecting a timestep method is uncontended.
+            randomLocal = newLocal(1);
+            mv.visitTypeInsn(NEW, Type.getInternalName(SplittableRandom.class));
+            mv.visitInsn(DUP);
+            mv.visitMethodInsn(INVOKESPECIAL, Type.getInternalName(SplittableRandom.class), "<init>", "()V", false);
+            mv.visitVarInsn(ASTORE, randomLocal);
+
+            selectorLocal = newLocal(1);
+            loadField("timeStepSelector", AliasMethodSelector.class);
+            mv.visitVarInsn(ASTORE, selectorLocal);
+        }
+
+        iterationsLocal = newLocal(1);
+        loadField("iterations", AtomicLong.class);
+        mv.visitVarInsn(ASTORE, iterationsLocal);
+
+        testContextLocal = newLocal(1);
+        loadField("testContext", TestContextImpl.class);
+        mv.visitVarInsn(ASTORE, testContextLocal);
+
+        testInstanceLocal = newLocal(1);
+        loadField("testInstance", Object.class);
+        mv.visitTypeInsn(CHECKCAST, Type.getInternalName(testClass));
+        mv.visitVarInsn(ASTORE, testInstanceLocal);
+
+        if (metronomeClass != null) {
+            metronomeLocal = newLocal(1);
+            loadField("metronome", Metronome.class);
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(metronomeClass));
+            mv.visitVarInsn(ASTORE, metronomeLocal);
+        }
+
+        if (probeClass != null) {
+            probeLocals = new int[timeStepMethods.size()];
+            for (int k = 0; k < timeStepMethods.size(); k++) {
+                probeLocals[k] = newLocal(1);
+                loadField("probeMap", Map.class);
+                mv.visitLdcInsn(timeStepMethods.get(k).getName());
+                invoke(Map.class, "get", Object.class, Object.class);
+                mv.visitTypeInsn(CHECKCAST, Type.getInternalName(probeClass));
+                mv.visitVarInsn(ASTORE, probeLocals[k]);
+            }
+        }
+
+        if (threadStateClass != null) {
+            threadStateLocal = newLocal(1);
+            loadField("threadState", Object.class);
+            mv.visitTypeInsn(CHECKCAST, Type.getInternalName(threadStateClass));
+            mv.visitVarInsn(ASTORE, threadStateLocal);
+        }
+
+        if (logFrequency > 0) {
+            logCounterLocal = newLocal(2);
+            mv.visitInsn(LCONST_0);
+            mv.visitVarInsn(LSTORE, logCounterLocal);
+        }
+
+        if (logRateMs > 0) {
+            throttlingLoggerLocal = newLocal(1);
+            mv.visitTypeInsn(NEW, Type.getInternalName(ThrottlingLogger.class));
+            mv.visitInsn(DUP);
+            loadField("logger", Logger.class);
+            mv.visitLdcInsn(logRateMs);
+            mv.visitMethodInsn(INVOKESPECIAL, Type.getInternalName(ThrottlingLogger.class), "<init>",
+                    Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Logger.class), Type.LONG_TYPE), false);
+            mv.visitVarInsn(ASTORE, throttlingLoggerLocal);
+        }
+
+        if (hasIterationCap) {
+            maxIterationsLocal = newLocal(2);
+            loadField("maxIterations", long.class);
+            mv.visitVarInsn(LSTORE, maxIterationsLocal);
+        }
+
+        if (openLoop && probeClass != null) {
+            missedScheduleProbeLocal = newLocal(1);
+            loadField("missedScheduleProbe", LatencyProbe.class);
+            mv.visitVarInsn(ASTORE, missedScheduleProbeLocal);
+            missedScheduleThresholdLocal = newLocal(2);
+            loadField("missedScheduleThresholdNanos", long.class);
+            mv.visitVarInsn(LSTORE, missedScheduleThresholdLocal);
+        }
+
+        if (jfrEvents) {
+            // a TimeStepEvent is emitted for calls that take at least the threshold.
+            testIdLocal = newLocal(1);
+            mv.visitVarInsn(ALOAD, testContextLocal);
+            invoke(TestContextImpl.class, "getTestId", String.class);
+            mv.visitVarInsn(ASTORE, testIdLocal);
+            jfrTimeStepThresholdLocal = newLocal(2);
+            loadField("jfrTimeStepThresholdNanos", long.class);
+            mv.visitVarInsn(LSTORE, jfrTimeStepThresholdLocal);
+            timeStepEventLocal = newLocal(1);
+            newTimeStepEvent();
+        }
+
+        if (maxInFlight > 0) {
+            // bounds the number of outstanding futures of this timestep thread.
+            inFlightLocal = newLocal(1);
+            mv.visitTypeInsn(NEW, Type.getInternalName(Semaphore.class));
+            mv.visitInsn(DUP);
+            mv.visitLdcInsn(maxInFlight);
+            mv.visitMethodInsn(INVOKESPECIAL, Type.getInternalName(Semaphore.class), "<init>", "(I)V", false);
+            mv.visitVarInsn(ASTORE, inFlightLocal);
+        }
+
+        iterationLocal = newLocal(2);
+        mv.visitInsn(LCONST_0);
+        mv.visitVarInsn(LSTORE, iterationLocal);
+
+        startNanosLocal = newLocal(2);
+    }
+
+    private void generateAcquireInFlight(Label loopEnd) {
+        // the window is full; wait till a future completes or the test is stopped.
+        Label acquired = new Label();
+        Label waitLoop = new Label();
+        mv.visitVarInsn(ALOAD, inFlightLocal);
+        invoke(Semaphore.class, "tryAcquire", boolean.class);
+        mv.visitJumpInsn(IFNE, acquired);
+        mv.visitLabel(waitLoop);
+        mv.visitVarInsn(ALOAD, inFlightLocal);
+        mv.visitLdcInsn(100L);
+        mv.visitFieldInsn(GETSTATIC, Type.getInternalName(TimeUnit.class), "MILLISECONDS",
+                Type.getDescriptor(TimeUnit.class));
+        invoke(Semaphore.class, "tryAcquire", boolean.class, long.class, TimeUnit.class);
+        mv.visitJumpInsn(IFNE, acquired);
+        mv.visitVarInsn(ALOAD, testContextLocal);
+        invoke(TestContextImpl.class, "isStopped", boolean.class);
+        mv.visitJumpInsn(IFEQ, waitLoop);
+        mv.visitJumpInsn(GOTO, loopEnd);
+        mv.visitLabel(acquired);
+    }
+
+    private void generateStart() {
+        if (metronomeClass != null) {
+            mv.visitVarInsn(ALOAD, metronomeLocal);
+            invoke(metronomeClass, "waitForNext", long.class);
+            mv.visitVarInsn(LSTORE, startNanosLocal);
+
+            if (openLoop && probeClass != null) {
+                // the call is issued regardless of the outstanding calls; we only track if we fell behind the schedule.
+                int scheduleLagLocal = newLocal(2);
+                Label onSchedule = new Label();
+                nanoTime();
+                mv.visitVarInsn(LLOAD, startNanosLocal);
+                mv.visitInsn(LSUB);
+                mv.visitVarInsn(LSTORE, scheduleLagLocal);
+                mv.visitVarInsn(LLOAD, scheduleLagLocal);
+                mv.visitVarInsn(LLOAD, missedScheduleThresholdLocal);
+                mv.visitInsn(LCMP);
+                mv.visitJumpInsn(IFLE, onSchedule);
+                mv.visitVarInsn(ALOAD, missedScheduleProbeLocal);
+                mv.visitVarInsn(LLOAD, scheduleLagLocal);
+                invoke(LatencyProbe.class, "recordValue", void.class, long.class);
+                mv.visitLabel(onSchedule);
+            }
+        } else if (probeClass != null || jfrEvents) {
+            nanoTime();
+            mv.visitVarInsn(LSTORE, startNanosLocal);
+        }
+
+        if (jfrEvents) {
+            // the event is begun before the call, so its duration spans the call.
+            mv.visitVarInsn(ALOAD, timeStepEventLocal);
+            invoke(TimeStepEvent.class, "begin", void.class);
+        }
+    }
+
+    private void newTimeStepEvent() {
+        mv.visitTypeInsn(NEW, Type.getInternalName(TimeStepEvent.class));
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, Type.getInternalName(TimeStepEvent.class), "<init>", "()V", false);
+        mv.visitVarInsn(ASTORE, timeStepEventLocal);
+    }
+
+    private void generateSwitch() {
+        int count = timeStepMethods.size();
+        Label[] cases = new Label[count];
+        for (int k = 0; k < count; k++) {
+            cases[k] = new Label();
+        }
+        Label end = new Label();
+
+        mv.visitVarInsn(ALOAD, selectorLocal);
+        mv.visitVarInsn(ALOAD, randomLocal);
+        invoke(AliasMethodSelector.class, "select", int.class, SplittableRandom.class);
+        mv.visitTableSwitchInsn(0, count - 1, end, cases);
+        for (int k = 0; k < count; k++) {
+            mv.visitLabel(cases[k]);
+            generateTimeStep(k, maxInFlight > 0);
+            mv.visitJumpInsn(GOTO, end);
+        }
+        mv.visitLabel(end);
+    }
+
+    private void generateTimeStep(int index, boolean releaseInFlight) {
+        Method method = timeStepMethods.get(index);
+        Class resultType = method.getReturnType();
+        boolean async = CompletableFuture.class.equals(resultType);
+
+        if (hasProbe(method) || probeClass == null || async) {
+            generateTimeStepCall(index);
+            if (async) {
+                generateAsyncCompletion(index);
+            }
+        } else {
+            generateTimeStepCall(index);
+            mv.visitVarInsn(ALOAD, probeLocals[index]);
+            nanoTime();
+            mv.visitVarInsn(LLOAD, startNanosLocal);
+            mv.visitInsn(LSUB);
+            invoke(probeClass, "recordValue", void.class, long.class);
+        }
+
+        if (jfrEvents && !async) {
+            // if (timeStepEvent.commitIfSlow(testId, methodName, startNanos, jfrTimeStepThresholdNanos)) {
+            //     timeStepEvent = new TimeStepEvent();
+            // }
+            Label notCommitted = new Label();
+            mv.visitVarInsn(ALOAD, timeStepEventLocal);
+            mv.visitVarInsn(ALOAD, testIdLocal);
+            mv.visitLdcInsn(method.getName());
+            mv.visitVarInsn(LLOAD, startNanosLocal);
+            mv.visitVarInsn(LLOAD, jfrTimeStepThresholdLocal);
+            invoke(TimeStepEvent.class, "commitIfSlow", boolean.class, String.class, String.class, long.class, long.class);
+            mv.visitJumpInsn(IFEQ, notCommitted);
+            newTimeStepEvent();
+            mv.visitLabel(notCommitted);
+        }
+
+        if (releaseInFlight && !async) {
+            mv.visitVarInsn(ALOAD, inFlightLocal);
+            invoke(Semaphore.class, "release", void.class);
+        }
+    }
+
+    private void generateTimeStepCall(int index) {
+        Method method = timeStepMethods.get(index);
+        Class resultType = method.getReturnType();
+        boolean async = CompletableFuture.class.equals(resultType);
+
+        // the result is stored to prevent dead code elimination
+        Class resultHolder = null;
+        if (resultType != void.class && !async) {
+            resultHolder = getResultHolder(resultType);
+            loadField(getResultHolderField(resultHolder), resultHolder);
+        }
+
+        mv.visitVarInsn(ALOAD, testInstanceLocal);
+        Class[] parameterTypes = method.getParameterTypes();
+        for (int k = 0; k < parameterTypes.length; k++) {
+            if (timeStepModel.hasStartNanosAnnotation(method, k)) {
+                if (metronomeClass != null) {
+                    mv.visitVarInsn(LLOAD, startNanosLocal);
+                } else {
+                    nanoTime();
+                }
+            } else if (LatencyProbe.class.isAssignableFrom(parameterTypes[k])) {
+                if (probeClass != null) {
+                    mv.visitVarInsn(ALOAD, probeLocals[index]);
+                } else {
+                    mv.visitFieldInsn(GETSTATIC, Type.getInternalName(NoopLatencyProbe.class), "INSTANCE",
+                            Type.getDescriptor(NoopLatencyProbe.class));
+                }
+            } else {
+                mv.visitVarInsn(ALOAD, threadStateLocal);
+            }
+        }
+        mv.visitMethodInsn(testClass.isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL,
+                Type.getInternalName(testClass), method.getName(), Type.getMethodDescriptor(method),
+                testClass.isInterface());
+
+        if (resultHolder == null) {
+            return;
+        }
+
+        if (resultType == float.class) {
+            mv.visitInsn(F2D);
+        }
+        if (resultType == float.class || resultType == double.class) {
+            mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(Double.class), "doubleToLongBits", "(D)J", false);
+        }
+        invoke(resultHolder, "lazySet", void.class, getResultHolderType(resultType));
+    }
+
+    private void generateAsyncCompletion(int index) {
+        // result.whenCompleteAsync(new AsyncTimeStepCompletion(probe, startNanos, inFlight), CALLER_RUNS)
+        String completion = Type.getInternalName(AsyncTimeStepCompletion.class);
+        mv.visitTypeInsn(NEW, completion);
+        mv.visitInsn(DUP);
+        if (probeClass != null) {
+            mv.visitVarInsn(ALOAD, probeLocals[index]);
+            mv.visitVarInsn(LLOAD, startNanosLocal);
+        } else {
+            mv.visitInsn(ACONST_NULL);
+            mv.visitInsn(LCONST_0);
+        }
+        if (maxInFlight > 0) {
+            mv.visitVarInsn(ALOAD, inFlightLocal);
+        } else {
+            mv.visitInsn(ACONST_NULL);
+        }
+        mv.visitMethodInsn(INVOKESPECIAL, completion, "<init>", Type.getMethodDescriptor(Type.VOID_TYPE,
+                Type.getType(LatencyProbe.class), Type.LONG_TYPE, Type.getType(Semaphore.class)), false);
+        mv.visitFieldInsn(GETSTATIC, completion, "CALLER_RUNS", Type.getDescriptor(Executor.class));
+        invoke(CompletableFuture.class, "whenCompleteAsync", CompletableFuture.class, BiConsumer.class, Executor.class);
+        mv.visitInsn(POP);
+    }
+
+    private void generateLogFrequency() {
+        Label skip = new Label();
+        mv.visitVarInsn(LLOAD, logCounterLocal);
+        mv.visitInsn(LCONST_1);
+        mv.visitInsn(LADD);
+        mv.visitVarInsn(LSTORE, logCounterLocal);
+        mv.visitVarInsn(LLOAD, logCounterLocal);
+        mv.visitLdcInsn(logFrequency);
+        mv.visitInsn(LCMP);
+        mv.visitJumpInsn(IFNE, skip);
+        loadField("logger", Logger.class);
+        concat("At ", logCounterLocal);
+        invoke(Logger.class, "info", void.class, String.class);
+        mv.visitInsn(LCONST_0);
+        mv.visitVarInsn(LSTORE, logCounterLocal);
+        mv.visitLabel(skip);
+    }
+
+    private void generateLogRate() {
+        Label skip = new Label();
+        mv.visitVarInsn(ALOAD, throttlingLoggerLocal);
+        invoke(ThrottlingLogger.class, "requestLogSlot", boolean.class);
+        mv.visitJumpInsn(IFEQ, skip);
+        mv.visitVarInsn(ALOAD, throttlingLoggerLocal);
+        mv.visitFieldInsn(GETSTATIC, Type.getInternalName(Level.class), "INFO", Type.getDescriptor(Level.class));
+        concat("At ", iterationLocal);
+        invoke(ThrottlingLogger.class, "logInSlot", void.class, Level.class, String.class);
+        mv.visitLabel(skip);
+    }
+
+    // pushes text + the long in the local
+    private void concat(String text, int longLocal) {
+        String builder = Type.getInternalName(StringBuilder.class);
+        mv.visitTypeInsn(NEW, builder);
+        mv.visitInsn(DUP);
+        mv.visitLdcInsn(text);
+        mv.visitMethodInsn(INVOKESPECIAL, builder, "<init>", "(Ljava/lang/String;)V", false);
+        mv.visitVarInsn(LLOAD, longLocal);
+        invoke(StringBuilder.class, "append", StringBuilder.class, long.class);
+        invoke(StringBuilder.class, "toString", String.class);
+    }
+
+    private static boolean hasProbe(Method method) {
+        for (Class parameterType : method.getParameterTypes()) {
+            if (LatencyProbe.class.isAssignableFrom(parameterType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Class getResultHolder(Class resultType) {
+        if (resultType == boolean.class) {
+            return AtomicBoolean.class;
+        } else if (resultType == byte.class || resultType == char.class || resultType == int.class
+                || resultType == short.class) {
+            return AtomicInteger.class;
+        } else if (resultType == long.class || resultType == double.class || resultType == float.class) {
+            return AtomicLong.class;
+        }
+        return AtomicReference.class;
+    }
+
+    private static String getResultHolderField(Class resultHolder) {
+        String name = resultHolder.getSimpleName();
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static Class getResultHolderType(Class resultType) {
+        if (resultType == boolean.class) {
+            return boolean.class;
+        } else if (resultType == byte.class || resultType == char.class || resultType == int.class
+                || resultType == short.class) {
+            return int.class;
+        } else if (resultType == long.class || resultType == double.class || resultType == float.class) {
+            return long.class;
+        }
+        return Object.class;
+    }
+
+    private int newLocal(int size) {
+        int local = nextLocal;
+        nextLocal += size;
+        return local;
+    }
+
+    private void loadField(String name, Class type) {
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, TIME_STEP_LOOP, name, Type.getDescriptor(type));
+    }
+
+    private void nanoTime() {
+        mv.visitMethodInsn(INVOKESTATIC, Type.getInternalName(System.class), "nanoTime", "()J", false);
+    }
+
+    private void invoke(Class owner, String name, Class returnType, Class... parameterTypes) {
+        Type[] types = new Type[parameterTypes.length];
+        for (int k = 0; k < parameterTypes.length; k++) {
+            types[k] = Type.getType(parameterTypes[k]);
+        }
+        boolean isInterface = owner.isInterface();
+        mv.visitMethodInsn(isInterface ? INVOKEINTERFACE : INVOKEVIRTUAL, Type.getInternalName(owner), name,
+                Type.getMethodDescriptor(Type.getType(returnType), types), isInterface);
+    }
+}
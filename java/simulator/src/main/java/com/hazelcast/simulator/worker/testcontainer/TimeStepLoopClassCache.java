@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2008-2016, Hazelcast, Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.common.GitInfo;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.hazelcast.simulator.utils.CommonUtils.getSimulatorVersion;
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.security.AccessController.doPrivileged;
+import static java.util.concurrent.TimeUnit.DAYS;
+
+/**
+ * A content-addressed cache of the generated {@link TimeStepLoop} classes.
+ *
+ * The name of a generated class ends with a hash of its source code, the bytecode of the classes it depends on and the
+ * build of the Simulator; so if a class with that name has been compiled before, it can be reused. The classes are
+ * cached in memory, so tests in the same worker share them, and on disk, so the compiler can also be skipped by the next
+ * worker using the same directory. By default the directory is the 'timestep-loop-classes' directory of the worker; a
+ * directory shared by all workers on a machine can be configured using {@link #setDirectory(File)}.
+ *
+ * Class files are compiled into a temporary directory and then moved into the cache directory, so concurrent workers
+ * never see a partially written class file.
+ *
+ * The classes are stored in a subdirectory per Simulator build. The build is identified by the version, the git commit
+ * and the checksum of the Simulator jar; so a loop compiled against another build, which could refer to classes that
+ * have changed, is never loaded. When a shared directory is configured, the subdirectories of other builds that haven't
+ * been used for {@link #MAX_UNUSED_DAYS} days are removed.
+ */
+public final class TimeStepLoopClassCache {
+
+    static final String DEFAULT_DIRECTORY_NAME = "timestep-loop-classes";
+    static final String BUILD_DIRECTORY_PREFIX = "build-";
+    static final int MAX_UNUSED_DAYS = 7;
+
+    private static final Logger LOGGER = LogManager.getLogger(TimeStepLoopClassCache.class);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int HASH_LENGTH = 16;
+
+    private static final ConcurrentMap<String, Class> CLASSES = new ConcurrentHashMap<>();
+    private static final String BUILD_ID = buildId();
+
+    private static volatile File directory;
+
+    private TimeStepLoopClassCache() {
+    }
+
+    /**
+     * Sets the directory the generated classes are stored in. The subdirectories of other Simulator builds that haven't
+     * been used for a while are removed.
+     *
+     * @param dir the directory or <code>null</code> to use the 'timestep-loop-classes' directory of the worker
+     */
+    public static void setDirectory(File dir) {
+        directory = dir;
+        if (dir != null) {
+            prune(dir, BUILD_DIRECTORY_PREFIX + BUILD_ID, System.currentTimeMillis() - DAYS.toMillis(MAX_UNUSED_DAYS));
+        }
+    }
+
+    /**
+     * Returns the directory of the classes of this Simulator build.
+     *
+     * @return the directory
+     */
+    static File getDirectory() {
+        File dir = directory;
+        return new File(dir == null ? new File(getUserDir(), DEFAULT_DIRECTORY_NAME) : dir, BUILD_DIRECTORY_PREFIX + BUILD_ID);
+    }
+
+    static void prune(File dir, String currentBuildDirectoryName, long unusedSinceMillis) {
+        File[] buildDirectories = dir.listFiles(file -> file.isDirectory()
+                && file.getName().startsWith(BUILD_DIRECTORY_PREFIX)
+                && !file.getName().equals(currentBuildDirectoryName)
+                && file.lastModified() < unusedSinceMillis);
+        if (buildDirectories == null) {
+            return;
+        }
+        for (File buildDirectory : buildDirectories) {
+            LOGGER.info("Removing the timestep loop classes of another Simulator build: " + buildDirectory);
+            deleteQuiet(buildDirectory);
+        }
+    }
+
+    /**
+     * Returns a cached class.
+     *
+     * @param className the name of the class
+     * @return the class or <code>null</code> if the class isn't cached in memory or on disk
+     */
+    static Class get(String className) {
+        Class clazz = CLASSES.get(className);
+        if (clazz != null) {
+            LOGGER.info("Reusing " + className);
+            return clazz;
+        }
+
+        File dir = getDirectory();
+        if (!new File(dir, className + ".class").isFile()) {
+            return null;
+        }
+
+        LOGGER.info("Loading " + className + " from " + dir);
+        clazz = load(dir, className);
+        Class found = CLASSES.putIfAbsent(className, clazz);
+        return found == null ? clazz : found;
+    }
+
+    /**
+     * Moves the class files of a compiled class from the directory it was compiled into to the cache directory and loads
+     * the class.
+     *
+     * @param compileDirectory the directory the class was compiled into
+     * @param className        the name of the class
+     * @return the loaded class
+     */
+    static Class put(File compileDirectory, String className) {
+        File dir = getDirectory();
+        File[] files = compileDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                // nested and anonymous classes are compiled into files with the name of the class as prefix
+                if (name.equals(className + ".class") || name.startsWith(className + "$")) {
+                    move(file, new File(dir, name));
+                }
+            }
+        }
+
+        Class clazz = load(dir, className);
+        Class found = CLASSES.putIfAbsent(className, clazz);
+        return found == null ? clazz : found;
+    }
+
+    private static void move(File source, File target) {
+        try {
+            try {
+                Files.move(source.toPath(), target.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source.toPath(), target.toPath(), REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new IllegalTestException("Failed to move " + source + " to " + target, e);
+        }
+    }
+
+    private static Class load(File dir, String className) {
+        return (Class) doPrivileged((PrivilegedAction) () -> {
+            try {
+                URLClassLoader classLoader = new URLClassLoader(new URL[]{dir.toURI().toURL()});
+                return (Class) classLoader.loadClass(className);
+            } catch (ClassNotFoundException | MalformedURLException e) {
+                throw new IllegalTestException(e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Calculates the hash of the source of a generated class, the bytecode of the classes it depends on and the build of
+     * the Simulator.
+     *
+     * @param source       the source of the generated class
+     * @param dependencies the classes the generated class depends on; <code>null</code> elements are ignored
+     * @return the hash or <code>null</code> if the bytecode of a dependency can't be found
+     */
+    static String hash(String source, Class... dependencies) {
+        return hash(BUILD_ID, source, dependencies);
+    }
+
+    static String hash(String buildId, String source, Class... dependencies) {
+        MessageDigest digest = newDigest();
+
+        // the generated code also refers to Simulator classes that aren't passed as dependency
+        digest.update(buildId.getBytes(StandardCharsets.UTF_8));
+        // the class file version depends on the JVM
+        digest.update(System.getProperty("java.specification.version").getBytes(StandardCharsets.UTF_8));
+        digest.update(source.getBytes(StandardCharsets.UTF_8));
+        for (Class dependency : dependencies) {
+            for (Class clazz = dependency; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+                if (!update(digest, clazz)) {
+                    return null;
+                }
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Identifies the build of the Simulator by its version, its git commit and the checksum of its jar. When the Simulator
+     * isn't loaded from a jar, e.g. in the IDE, only the version and the git commit are used.
+     */
+    private static String buildId() {
+        MessageDigest digest = newDigest();
+        digest.update(getSimulatorVersion().getBytes(StandardCharsets.UTF_8));
+        digest.update(GitInfo.getCommitId().getBytes(StandardCharsets.UTF_8));
+        try {
+            CodeSource codeSource = TimeStepLoopClassCache.class.getProtectionDomain().getCodeSource();
+            File jar = codeSource == null ? null : new File(codeSource.getLocation().toURI());
+            if (jar != null && jar.isFile()) {
+                try (InputStream in = new FileInputStream(jar)) {
+                    update(digest, in);
+                }
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException | SecurityException e) {
+            LOGGER.warn("Failed to determine the checksum of the Simulator jar: " + e.getMessage());
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[HASH_LENGTH];
+        for (int k = 0; k < HASH_LENGTH / 2; k++) {
+            chars[2 * k] = HEX[(bytes[k] >> 4) & 0xF];
+            chars[2 * k + 1] = HEX[bytes[k] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static boolean update(MessageDigest digest, Class clazz) {
+        digest.update(clazz.getName().getBytes(StandardCharsets.UTF_8));
+        String resource = '/' + clazz.getName().replace('.', '/') + ".class";
+        try (InputStream in = clazz.getResourceAsStream(resource)) {
+            if (in == null) {
+                // e.g. a class generated at runtime
+                return false;
+            }
+            update(digest, in);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read the bytecode of " + clazz.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void update(MessageDigest digest, InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+    }
+
+    // just for testing
+    static void clear() {
+        CLASSES.clear();
+    }
+}
@@ -17,6 +17,7 @@
 package com.hazelcast.simulator.worker.testcontainer;
 
 import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.utils.UuidUtil;
 import com.hazelcast.simulator.worker.metronome.EmptyMetronome;
 import com.hazelcast.simulator.worker.metronome.Metronome;
 import freemarker.ext.util.WrapperTemplateModel;
@@ -27,6 +28,8 @@ import freemarker.template.Template;
 import freemarker.template.TemplateExceptionHandler;
 import freemarker.template.TemplateMethodModelEx;
 import freemarker.template.TemplateModelException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
@@ -46,17 +49,35 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
 import static com.hazelcast.simulator.utils.FileUtils.ensureExistingDirectory;
-import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
 import static com.hazelcast.simulator.utils.FileUtils.writeText;
 import static java.security.AccessController.doPrivileged;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 
+/**
+ * Generates and compiles the {@link TimeStepLoop} for an execution group of a test.
+ *
+ * The compiled classes are cached by the {@link TimeStepLoopClassCache}: the name of the class ends with a hash of its
+ * source and of the bytecode of the test, thread state, metronome and probe classes. So if the same loop has been
+ * compiled before, in this worker or by a previous worker using the same cache directory, the compiler is skipped.
+ *
+ * With the 'bytecode' backend, or when there is no JDK compiler, the loop is generated by the
+ * {@link TimeStepLoopBytecodeGenerator} instead; that doesn't need a compiler and is a lot faster than compiling.
+ */
 class TimeStepLoopCodeGenerator {
 
+    static final String BACKEND_JAVAC = "javac";
+    static final String BACKEND_BYTECODE = "bytecode";
+
+    private static final Logger LOGGER = LogManager.getLogger(TimeStepLoopCodeGenerator.class);
+
+    // replaced by the actual class name once the hash of the source is known
+    private static final String CLASS_NAME_PLACEHOLDER = "$TimeStepLoopClassName$";
+
     private final JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
-    private final File targetDirectory = new File(getUserDir(), "timestep-loop-classes");
+    private final File targetDirectory = TimeStepLoopClassCache.getDirectory();
 
     Class compile(
             String testCaseId,
@@ -66,9 +87,11 @@ class TimeStepLoopCodeGenerator {
             Class<? extends LatencyProbe> probeClass,
             long logFrequency,
             long logRateMs,
-            boolean hasIterationCap) {
-
-        ensureExistingDirectory(targetDirectory);
+            boolean hasIterationCap,
+            int maxInFlight,
+            boolean openLoop,
+            boolean jfrEvents,
+            String backend) {
 
         String className = timeStepModel.getTestClass().getSimpleName();
         if (!"".equals(executionGroup)) {
@@ -77,15 +100,63 @@ class TimeStepLoopCodeGenerator {
         }
         className += "Loop";
 
-        if (!"".equals(testCaseId)) {
-            className += testCaseId;
+        if (!BACKEND_BYTECODE.equals(backend) && javaCompiler == null) {
+            LOGGER.info("No Java compiler found, the TimeStepLoop is generated as bytecode. Java version found: "
+                    + System.getProperty("java.version"));
+            backend = BACKEND_BYTECODE;
+        }
+
+        if (BACKEND_BYTECODE.equals(backend)) {
+            return new TimeStepLoopBytecodeGenerator(executionGroup, timeStepModel, metronomeClass, probeClass,
+                    logFrequency, logRateMs, hasIterationCap, maxInFlight, openLoop, jfrEvents).generate(className);
+        }
+
+        ensureExistingDirectory(targetDirectory);
+
+        String javaCode = generateJavaCode(
+                CLASS_NAME_PLACEHOLDER, executionGroup, metronomeClass, timeStepModel, probeClass, logFrequency, logRateMs,
+                hasIterationCap, maxInFlight, openLoop, jfrEvents);
+
+        String hash = TimeStepLoopClassCache.hash(javaCode, TimeStepLoop.class, timeStepModel.getTestClass(),
+                timeStepModel.getThreadStateClass(executionGroup), metronomeClass, probeClass);
+        if (hash == null) {
+            // the bytecode of a dependency isn't available, so the class can't be cached
+            if (!"".equals(testCaseId)) {
+                className += testCaseId;
+            }
+            return compile(javaCompiler, createJavaFileObject(className, javaCode), className);
+        }
+
+        className += "_" + hash;
+        Class loopClass = TimeStepLoopClassCache.get(className);
+        if (loopClass != null) {
+            return loopClass;
+        }
+
+        File compileDirectory = new File(targetDirectory, ".compile-" + UuidUtil.newUnsecureUuidString());
+        ensureExistingDirectory(compileDirectory);
+        try {
+            compile(javaCompiler, createJavaFileObject(className, javaCode), compileDirectory);
+            return TimeStepLoopClassCache.put(compileDirectory, className);
+        } finally {
+            deleteQuiet(compileDirectory);
         }
-        JavaFileObject file = createJavaFileObject(
-                className, executionGroup, metronomeClass, timeStepModel, probeClass, logFrequency, logRateMs, hasIterationCap);
-        return compile(javaCompiler, file, className);
     }
 
     Class compile(JavaCompiler compiler, JavaFileObject file, final String className) {
+        compile(compiler, file, targetDirectory);
+
+        return (Class) doPrivileged((PrivilegedAction) () -> {
+            try {
+                URLClassLoader classLoader = new URLClassLoader(new URL[]{targetDirectory.toURI().toURL()});
+                return (Class) classLoader.loadClass(className);
+            } catch (ClassNotFoundException | MalformedURLException e) {
+                throw new IllegalTestException(e.getMessage(), e);
+            }
+        });
+    }
+
+    private void compile(JavaCompiler compiler, JavaFileObject file, File outputDirectory) {
         if (compiler == null) {
             throw new IllegalStateException("Could not get Java compiler in TimeStepLoopCodeGenerator."
                     + " You need to use a JDK to run Simulator! Version found: " + System.getProperty("java.version"));
@@ -96,7 +167,7 @@ class TimeStepLoopCodeGenerator {
                 null,
                 null,
                 diagnostics,
-                asList("-d", targetDirectory.getAbsolutePath()),
+                asList("-d", outputDirectory.getAbsolutePath()),
                 null,
                 singletonList(file));
 
@@ -112,18 +183,15 @@ class TimeStepLoopCodeGenerator {
             }
             throw new IllegalTestException(sb.toString());
         }
+    }
 
-        return (Class) doPrivileged((PrivilegedAction) () -> {
-            try {
-                URLClassLoader classLoader = new URLClassLoader(new URL[]{targetDirectory.toURI().toURL()});
-                return (Class) classLoader.loadClass(className);
-            } catch (ClassNotFoundException | MalformedURLException e) {
-                throw new IllegalTestException(e.getMessage(), e);
-            }
-        });
+    private JavaFileObject createJavaFileObject(String className, String javaCode) {
+        javaCode = javaCode.replace(CLASS_NAME_PLACEHOLDER, className);
+        writeText(javaCode, new File(targetDirectory, className + ".java"));
+        return new JavaSourceFromString(className, javaCode);
     }
 
-    private JavaFileObject createJavaFileObject(
+    private String generateJavaCode(
             String className,
             String executionGroup,
             Class<? extends Metronome> metronomeClass,
@@ -131,7 +199,10 @@ class TimeStepLoopCodeGenerator {
             Class<? extends LatencyProbe> probeClass,
             long logFrequency,
             long logRateMs,
-            boolean hasIterationCap) {
+            boolean hasIterationCap,
+            int maxInFlight,
+            boolean openLoop,
+            boolean jfrEvents) {
         try {
             Configuration cfg = new Configuration(Configuration.VERSION_2_3_24);
             cfg.setClassForTemplateLoading(this.getClass(), "/");
@@ -163,18 +234,26 @@ class TimeStepLoopCodeGenerator {
                 root.put("hasIterationCap", "true");
             }
 
+            if (maxInFlight > 0) {
+                root.put("maxInFlight", "" + maxInFlight);
+            }
+
+            if (openLoop) {
+                root.put("openLoop", "true");
+            }
+
+            if (jfrEvents) {
+                root.put("jfrEvents", "true");
+            }
+
             Template temp = cfg.getTemplate("TimeStepLoop.ftl");
             StringWriter out = new StringWriter();
             temp.process(root, out);
 
-            String javaCode = out.toString();
-            File javaFile = new File(targetDirectory, className + ".java");
-
-            writeText(javaCode, javaFile);
-
-            return new JavaSourceFromString(className, javaCode);
+            return out.toString();
         } catch (Exception e) {
-            throw new IllegalTestException(className + " ran into a code generation problem: " + e.getMessage(), e);
+            throw new IllegalTestException("TimeStepLoop for " + timeStepModel.getTestClass().getName()
+                    + " ran into a code generation problem: " + e.getMessage(), e);
         }
     }
 
@@ -32,9 +32,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static com.hazelcast.simulator.utils.EmptyStatement.ignore;
-import static com.hazelcast.simulator.worker.testcontainer.Probability.loadTimeStepProbabilityArray;
+import static com.hazelcast.simulator.worker.testcontainer.Probability.loadTimeStepSelector;
 import static java.lang.String.format;
 import static java.lang.reflect.Modifier.isAbstract;
 import static java.lang.reflect.Modifier.isPublic;
@@ -124,6 +125,21 @@ public class TimeStepModel {
         return result;
     }
 
+    /**
+     * Checks if any of the active timestep methods of the execution group returns a {@link CompletableFuture}.
+     *
+     * @param group the execution group
+     * @return true if there is at least one async timestep method.
+     */
+    public final boolean hasAsyncTimeStepMethod(String group) {
+        for (Method method : getActiveTimeStepMethods(group)) {
+            if (CompletableFuture.class.equals(method.getReturnType())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public final Constructor getThreadStateConstructor(String executionGroup) {
         return executionGroups.get(executionGroup).threadStateConstructor;
     }
@@ -320,17 +336,17 @@ public class TimeStepModel {
     }
 
     /**
-     * Returns the probabilities of the {@link TimeStep} methods.
+     * Returns the selector for the {@link TimeStep} methods.
      *
-     * The value in the byte refers to the index of the method in the {@link #getActiveTimeStepMethods(String)}.
-     * If a method has 0.5 probability and index 15, then 50% of the values in the array will point to 15.
+     * The selected index refers to the index of the method in the {@link #getActiveTimeStepMethods(String)}.
+     * If a method has 0.5 probability and index 15, then 50% of the selections will be 15.
      *
-     * @param group the name of the execution group to get the probability array for
-     * @return the array of probabilities for each {@link TimeStep} method or {@code null} if there is only a
+     * @param group the name of the execution group to get the selector for
+     * @return the selector for the {@link TimeStep} methods or {@code null} if there is only a
      * single {@link TimeStep} method.
      */
-    public byte[] getTimeStepProbabilityArray(String group) {
-        return executionGroups.get(group).timeStepProbabilityArray;
+    public AliasMethodSelector getTimeStepSelector(String group) {
+        return executionGroups.get(group).timeStepSelector;
     }
 
     private final class ExecutionGroup {
@@ -341,7 +357,7 @@ public class TimeStepModel {
         private Class threadStateClass;
         private Constructor threadStateConstructor;
         private Map<Method, Probability> probabilities;
-        private byte[] timeStepProbabilityArray;
+        private AliasMethodSelector timeStepSelector;
 
         private ExecutionGroup(String name) {
             this.name = name;
@@ -351,7 +367,7 @@ public class TimeStepModel {
             threadStateClass = loadThreadStateClass();
             threadStateConstructor = loadThreadStateConstructor();
             probabilities = loadProbabilities();
-            timeStepProbabilityArray = loadTimeStepProbabilityArray(probabilities, getActiveTimeStepMethods(name));
+            timeStepSelector = loadTimeStepSelector(probabilities, getActiveTimeStepMethods(name));
         }
 
         private Class loadThreadStateClass() {
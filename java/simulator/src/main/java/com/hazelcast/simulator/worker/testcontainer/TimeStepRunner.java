@@ -16,17 +16,28 @@
 
 package com.hazelcast.simulator.worker.testcontainer;
 
+import com.hazelcast.simulator.probes.impl.StripedHdrLatencyProbe;
+import com.hazelcast.simulator.test.BaseThreadState;
 import com.hazelcast.simulator.test.TestContext;
+import com.hazelcast.simulator.utils.CpuAffinity;
 import com.hazelcast.simulator.utils.ThreadSpawner;
+import com.hazelcast.simulator.worker.metronome.BusySpinningMetronome;
+import com.hazelcast.simulator.worker.metronome.ConstantCombinedRateMetronome;
+import com.hazelcast.simulator.worker.metronome.LoadProfile;
+import com.hazelcast.simulator.worker.metronome.SleepingMetronome;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.lang.reflect.Constructor;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import static com.hazelcast.simulator.worker.testcontainer.PropertyBinding.toPropertyName;
 import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -40,6 +51,10 @@ class TimeStepRunner extends TestRunner {
     private static final int DEFAULT_THREAD_COUNT = 10;
     private static final int DEFAULT_LOG_FREQUENCY = 0;
     private static final int DEFAULT_LOG_RATE_MS = 0;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 0;
+    private static final long DEFAULT_MISSED_SCHEDULE_THRESHOLD_NS = MILLISECONDS.toNanos(1);
+    private static final String THREAD_TYPE_PLATFORM = "platform";
+    private static final String THREAD_TYPE_VIRTUAL = "virtual";
 
     private static final Logger LOGGER = LogManager.getLogger(TimeStepRunner.class);
 
@@ -53,6 +68,11 @@ class TimeStepRunner extends TestRunner {
     private final Map<String, Class> loopClassMap = new HashMap<>();
     private final Map<String, Integer> threadCountMap = new HashMap<>();
     private final Map<String, Long> runIterationMap = new HashMap<>();
+    private final Map<String, Long> missedScheduleThresholdMap = new HashMap<>();
+    private final Map<String, Long> jfrTimeStepThresholdMap = new HashMap<>();
+    private final Map<String, String> threadTypeMap = new HashMap<>();
+    private final Map<String, BitSet> affinityMap = new HashMap<>();
+    private final Map<String, KeyGeneratorSupplier> keyGeneratorSupplierMap = new HashMap<>();
     private int totalThreadCount;
 
     TimeStepRunner(TestContainer testContainer) {
@@ -67,18 +87,46 @@ class TimeStepRunner extends TestRunner {
             totalThreadCount += threadCount;
             threadCountMap.put(executionGroup, threadCount);
 
-            MetronomeSupplier metronomeConstructor = new MetronomeSupplier(executionGroup, binding, threadCount);
+            // with an open loop, all threads of the execution group share the same schedule.
+            boolean openLoop = binding.loadAsBoolean(toPropertyName(executionGroup, "openLoop"), false);
+            MetronomeSupplier metronomeConstructor = new MetronomeSupplier(executionGroup, binding, threadCount,
+                    openLoop ? ConstantCombinedRateMetronome.class : SleepingMetronome.class);
             metronomeSettingsMap.put(executionGroup, metronomeConstructor);
 
             LOGGER.info(format("executionGroup [%s] using interval: %s class=%s",
                     executionGroup, metronomeConstructor.getIntervalNanos(), metronomeConstructor.getMetronomeClass().getName()));
 
+            threadTypeMap.put(executionGroup, loadThreadType(executionGroup, metronomeConstructor));
+
+            BitSet affinity = loadAffinity(executionGroup);
+            if (affinity != null) {
+                affinityMap.put(executionGroup, affinity);
+            }
+
+            KeyGeneratorSupplier keyGeneratorSupplier = loadKeyGeneratorSupplier(executionGroup, threadCount);
+            if (keyGeneratorSupplier != null) {
+                keyGeneratorSupplierMap.put(executionGroup, keyGeneratorSupplier);
+            }
+
             long logFrequency = binding.loadAsLong(toPropertyName(executionGroup, "logFrequency"), DEFAULT_LOG_FREQUENCY);
             long logRateMs = binding.loadAsLong(toPropertyName(executionGroup, "logRateMs"), DEFAULT_LOG_RATE_MS);
 
             long iterations = binding.loadAsLong(toPropertyName(executionGroup, "iterations"), 0);
             runIterationMap.put(executionGroup, iterations);
 
+            int maxInFlight = loadMaxInFlight(executionGroup);
+            String loopBackend = loadLoopBackend(executionGroup);
+
+            if (openLoop) {
+                validateOpenLoop(executionGroup, metronomeConstructor, maxInFlight);
+                missedScheduleThresholdMap.put(executionGroup, loadMissedScheduleThreshold(executionGroup));
+            }
+
+            long jfrTimeStepThresholdNanos = loadJfrTimeStepThreshold(executionGroup);
+            if (jfrTimeStepThresholdNanos > 0) {
+                jfrTimeStepThresholdMap.put(executionGroup, jfrTimeStepThresholdNanos);
+            }
+
             Class loopClass = new TimeStepLoopCodeGenerator().compile(
                     testContainer.getTestCase().getId(),
                     executionGroup,
@@ -87,12 +135,163 @@ class TimeStepRunner extends TestRunner {
                     binding.getProbeClass(),
                     logFrequency,
                     logRateMs,
-                    iterations > 0);
+                    iterations > 0,
+                    maxInFlight,
+                    openLoop,
+                    jfrTimeStepThresholdNanos > 0,
+                    loopBackend);
 
             loopClassMap.put(executionGroup, loopClass);
         }
     }
 
+    private String loadLoopBackend(String executionGroup) {
+        String loopBackendProperty = toPropertyName(executionGroup, "loopBackend");
+        String loopBackend = binding.load(loopBackendProperty);
+        if (loopBackend == null) {
+            return TimeStepLoopCodeGenerator.BACKEND_JAVAC;
+        }
+
+        if (!TimeStepLoopCodeGenerator.BACKEND_JAVAC.equals(loopBackend)
+                && !TimeStepLoopCodeGenerator.BACKEND_BYTECODE.equals(loopBackend)) {
+            throw new IllegalTestException(format("%s has an invalid value [%s], valid values are [%s, %s]",
+                    loopBackendProperty, loopBackend, TimeStepLoopCodeGenerator.BACKEND_JAVAC,
+                    TimeStepLoopCodeGenerator.BACKEND_BYTECODE));
+        }
+        return loopBackend;
+    }
+
+    private int loadMaxInFlight(String executionGroup) {
+        String maxInFlightProperty = toPropertyName(executionGroup, "maxInFlight");
+        int maxInFlight = binding.loadAsInt(maxInFlightProperty, DEFAULT_MAX_IN_FLIGHT);
+        if (maxInFlight < 0) {
+            throw new IllegalTestException(maxInFlightProperty + " can't be smaller than 0");
+        }
+
+        if (maxInFlight > 0 && !timeStepModel.hasAsyncTimeStepMethod(executionGroup)) {
+            throw new IllegalTestException(maxInFlightProperty + " is configured, but executionGroup ["
+                    + executionGroup + "] has no timestep methods returning a CompletableFuture");
+        }
+        return maxInFlight;
+    }
+
+    private String loadThreadType(String executionGroup, MetronomeSupplier metronomeSupplier) {
+        String threadTypeProperty = toPropertyName(executionGroup, "threadType");
+        String threadType = binding.load(threadTypeProperty);
+        if (threadType == null || THREAD_TYPE_PLATFORM.equals(threadType)) {
+            return THREAD_TYPE_PLATFORM;
+        }
+
+        if (!THREAD_TYPE_VIRTUAL.equals(threadType)) {
+            throw new IllegalTestException(format("%s has an invalid value [%s], valid values are [%s, %s]",
+                    threadTypeProperty, threadType, THREAD_TYPE_PLATFORM, THREAD_TYPE_VIRTUAL));
+        }
+
+        if (!ThreadSpawner.isVirtualThreadSupported()) {
+            throw new IllegalTestException(format("%s=%s requires Java 21 or newer, but found Java %s",
+                    threadTypeProperty, threadType, System.getProperty("java.version")));
+        }
+
+        if (BusySpinningMetronome.class.equals(metronomeSupplier.getMetronomeClass())) {
+            LOGGER.warn(format("executionGroup [%s] combines virtual threads with the %s; every thread will occupy"
+                    + " a carrier thread", executionGroup, BusySpinningMetronome.class.getSimpleName()));
+        }
+
+        if (StripedHdrLatencyProbe.class.equals(binding.getProbeClass())) {
+            LOGGER.warn(format("executionGroup [%s] combines virtual threads with the %s; every virtual thread will get"
+                    + " its own histograms", executionGroup, StripedHdrLatencyProbe.class.getSimpleName()));
+        }
+        return THREAD_TYPE_VIRTUAL;
+    }
+
+    private BitSet loadAffinity(String executionGroup) {
+        String affinityProperty = toPropertyName(executionGroup, "affinity");
+        String affinity = binding.load(affinityProperty);
+        if (affinity == null) {
+            return null;
+        }
+
+        if (THREAD_TYPE_VIRTUAL.equals(threadTypeMap.get(executionGroup))) {
+            throw new IllegalTestException(affinityProperty + " can't be combined with "
+                    + toPropertyName(executionGroup, "threadType") + "=" + THREAD_TYPE_VIRTUAL);
+        }
+
+        BitSet cpus;
+        try {
+            cpus = CpuAffinity.parseCpuList(affinity);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalTestException(affinityProperty + " is invalid: " + e.getMessage(), e);
+        }
+
+        LOGGER.info(format("executionGroup [%s] using cpus: %s %s", executionGroup, cpus,
+                cpus.cardinality() >= threadCountMap.get(executionGroup) ? "(a cpu per thread)" : "(shared)"));
+        return cpus;
+    }
+
+    private KeyGeneratorSupplier loadKeyGeneratorSupplier(String executionGroup, int threadCount) {
+        String keyDistributionProperty = toPropertyName(executionGroup, "keyDistribution");
+        String keyDistribution = binding.load(keyDistributionProperty);
+        if (keyDistribution == null) {
+            return null;
+        }
+
+        Class threadStateClass = timeStepModel.getThreadStateClass(executionGroup);
+        if (threadStateClass == null || !BaseThreadState.class.isAssignableFrom(threadStateClass)) {
+            throw new IllegalTestException(format("%s is configured, but the thread state of executionGroup [%s] doesn't"
+                    + " extend %s", keyDistributionProperty, executionGroup, BaseThreadState.class.getName()));
+        }
+
+        KeyGeneratorSupplier supplier = new KeyGeneratorSupplier(executionGroup, binding, threadCount, keyDistribution);
+        LOGGER.info(format("executionGroup [%s] using key distribution: %s", executionGroup,
+                supplier.getKeyDistribution()));
+        return supplier;
+    }
+
+    private void validateOpenLoop(String executionGroup, MetronomeSupplier metronomeSupplier, int maxInFlight) {
+        String openLoopProperty = toPropertyName(executionGroup, "openLoop");
+        if (metronomeSupplier.getIntervalNanos() == 0) {
+            throw new IllegalTestException(openLoopProperty + " requires an interval or ratePerSecond to be configured");
+        }
+
+        if (!timeStepModel.hasAsyncTimeStepMethod(executionGroup)) {
+            throw new IllegalTestException(openLoopProperty + " requires executionGroup [" + executionGroup
+                    + "] to have timestep methods returning a CompletableFuture");
+        }
+
+        if (maxInFlight > 0) {
+            throw new IllegalTestException(openLoopProperty + " can't be combined with "
+                    + toPropertyName(executionGroup, "maxInFlight"));
+        }
+
+        if (binding.getProbeClass() == null) {
+            // without a probe class every probe, including the missedSchedule probe, is a no-op.
+            throw new IllegalTestException(openLoopProperty + " can't be combined with measureLatency=false");
+        }
+
+        if (!binding.loadAsBoolean(toPropertyName(executionGroup, "accountForCoordinatedOmission"), true)) {
+            throw new IllegalTestException(openLoopProperty + " requires "
+                    + toPropertyName(executionGroup, "accountForCoordinatedOmission") + " to be enabled");
+        }
+    }
+
+    private long loadMissedScheduleThreshold(String executionGroup) {
+        String property = toPropertyName(executionGroup, "missedScheduleThresholdNs");
+        long thresholdNanos = binding.loadAsLong(property, DEFAULT_MISSED_SCHEDULE_THRESHOLD_NS);
+        if (thresholdNanos < 0) {
+            throw new IllegalTestException(property + " can't be smaller than 0");
+        }
+        return thresholdNanos;
+    }
+
+    private long loadJfrTimeStepThreshold(String executionGroup) {
+        String property = toPropertyName(executionGroup, "jfrTimeStepThresholdNs");
+        long thresholdNanos = binding.loadAsLong(property, 0);
+        if (thresholdNanos < 0) {
+            throw new IllegalTestException(property + " can't be smaller than 0");
+        }
+        return thresholdNanos;
+    }
+
     @Override
     public long iterations() {
         TimeStepLoop[] localRunners = loops;
@@ -105,6 +304,43 @@ class TimeStepRunner extends TestRunner {
         return iterations;
     }
 
+    @Override
+    public List<Thread> threads() {
+        return spawner.getThreads();
+    }
+
+    @Override
+    public Map<String, LoadProfile> loadProfiles() {
+        Map<String, LoadProfile> loadProfiles = new TreeMap<>();
+        for (Map.Entry<String, MetronomeSupplier> entry : metronomeSettingsMap.entrySet()) {
+            LoadProfile loadProfile = entry.getValue().getLoadProfile();
+            if (loadProfile != null) {
+                loadProfiles.put(entry.getKey(), loadProfile);
+            }
+        }
+        return loadProfiles;
+    }
+
+    @Override
+    public double setRatePerSecond(String executionGroup, double ratePerSecond) {
+        if (executionGroup != null && !metronomeSettingsMap.containsKey(executionGroup)) {
+            throw new IllegalArgumentException(format("Could not change rate, executionGroup [%s] is not found,"
+                    + " valid values are %s", executionGroup, metronomeSettingsMap.keySet()));
+        }
+
+        double appliedRatePerSecond = 0;
+        for (Map.Entry<String, MetronomeSupplier> entry : metronomeSettingsMap.entrySet()) {
+            if (executionGroup != null && !executionGroup.equals(entry.getKey())) {
+                continue;
+            }
+            MetronomeSupplier metronomeSupplier = entry.getValue();
+            metronomeSupplier.setRatePerSecond(ratePerSecond);
+            appliedRatePerSecond += ratePerSecond;
+            LOGGER.info(format("executionGroup [%s] using interval: %s", entry.getKey(), metronomeSupplier.getIntervalNanos()));
+        }
+        return appliedRatePerSecond;
+    }
+
     @Override
     public void run() throws Exception {
         try {
@@ -123,7 +359,11 @@ class TimeStepRunner extends TestRunner {
                     name += "-" + executionGroup;
                 }
                 name += "-timestepThread";
-                spawner.spawn(name, loop);
+                if (THREAD_TYPE_VIRTUAL.equals(threadTypeMap.get(executionGroup))) {
+                    spawner.spawnVirtual(name, loop);
+                } else {
+                    spawner.spawn(name, loop);
+                }
             }
 
             spawner.awaitCompletion();
@@ -174,7 +414,23 @@ class TimeStepRunner extends TestRunner {
                 runner.testContext = binding.getTestContext();
                 runner.maxIterations = runIterationMap.get(executionGroup);
                 runner.metronome = metronomeSupplier.get();
+                Long missedScheduleThresholdNanos = missedScheduleThresholdMap.get(executionGroup);
+                if (missedScheduleThresholdNanos != null) {
+                    runner.missedScheduleThresholdNanos = missedScheduleThresholdNanos;
+                    runner.missedScheduleProbe = binding.getTestContext()
+                            .getDiagnosticProbe(toPropertyName(executionGroup, "missedSchedule"));
+                }
+                Long jfrTimeStepThresholdNanos = jfrTimeStepThresholdMap.get(executionGroup);
+                if (jfrTimeStepThresholdNanos != null) {
+                    runner.jfrTimeStepThresholdNanos = jfrTimeStepThresholdNanos;
+                }
                 runner.delayMillis = delayMs * threadIndex;
+                runner.affinity = threadAffinity(executionGroup, threadIndex);
+                KeyGeneratorSupplier keyGeneratorSupplier = keyGeneratorSupplierMap.get(executionGroup);
+                if (keyGeneratorSupplier != null) {
+                    BaseThreadState threadState = (BaseThreadState) runner.threadState;
+                    threadState.setKeyGenerator(keyGeneratorSupplier.get(threadState.random));
+                }
                 runner.bind(binding);
                 runnables[k] = runner;
                 k++;
@@ -183,4 +439,20 @@ class TimeStepRunner extends TestRunner {
 
         return runnables;
     }
+
+    // if there are enough cpus, every thread gets a cpu of its own, otherwise all threads share the cpus.
+    private BitSet threadAffinity(String executionGroup, int threadIndex) {
+        BitSet cpus = affinityMap.get(executionGroup);
+        if (cpus == null || cpus.cardinality() < threadCountMap.get(executionGroup)) {
+            return cpus;
+        }
+
+        int cpu = cpus.nextSetBit(0);
+        for (int k = 0; k < threadIndex; k++) {
+            cpu = cpus.nextSetBit(cpu + 1);
+        }
+        BitSet result = new BitSet();
+        result.set(cpu);
+        return result;
+    }
 }
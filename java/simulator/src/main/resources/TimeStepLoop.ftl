@@ -23,7 +23,9 @@ public class ${className} extends TimeStepLoop {
     @Override
     public void timeStepLoop() throws Exception {
 <#if timeStepMethods?size gt 1>
-        final Random random = new Random();
+        // every timestep thread has its own random, so selecting a timestep method is uncontended.
+        final SplittableRandom random = new SplittableRandom();
+        final AliasMethodSelector selector = this.timeStepSelector;
 </#if>
         final AtomicLong iterations = this.iterations;
         final TestContextImpl testContext = (TestContextImpl)this.testContext;
@@ -46,19 +48,46 @@ public class ${className} extends TimeStepLoop {
         final ThrottlingLogger throttlingLogger = new ThrottlingLogger(logger, ${logRateMs});
 </#if>
 
-<#if timeStepMethods?size gt 1>
-        final byte[] probs  = this.timeStepProbabilities;
-</#if>
-
 <#if hasIterationCap??>
         final long maxIterations = this.maxIterations;
 </#if>
+<#if openLoop?? && probeClass??>
+        final LatencyProbe missedScheduleProbe = this.missedScheduleProbe;
+        final long missedScheduleThresholdNanos = this.missedScheduleThresholdNanos;
+</#if>
+<#if jfrEvents??>
+        // a TimeStepEvent is emitted for calls that take at least the threshold.
+        final String testId = testContext.getTestId();
+        final long jfrTimeStepThresholdNanos = this.jfrTimeStepThresholdNanos;
+        TimeStepEvent timeStepEvent = new TimeStepEvent();
+</#if>
+<#if maxInFlight??>
+        // bounds the number of outstanding futures of this timestep thread.
+        final Semaphore inFlight = new Semaphore(${maxInFlight});
+</#if>
 
         long iteration = 0;
         while (!testContext.isStopped()) {
-<#if probeClass??>
+<#if maxInFlight??>
+            if (!inFlight.tryAcquire()) {
+                // the window is full; wait till a future completes or the test is stopped.
+                while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    if (testContext.isStopped()) {
+                        return;
+                    }
+                }
+            }
+</#if>
+<#if probeClass?? || jfrEvents??>
     <#if metronomeClass??>
             final long startNanos = metronome.waitForNext();
+        <#if openLoop?? && probeClass??>
+            // the call is issued regardless of the outstanding calls; we only track if we fell behind the schedule.
+            final long scheduleLagNanos = System.nanoTime() - startNanos;
+            if (scheduleLagNanos > missedScheduleThresholdNanos) {
+                missedScheduleProbe.recordValue(scheduleLagNanos);
+            }
+        </#if>
     <#else>
             final long startNanos = System.nanoTime();
     </#if>
@@ -67,6 +96,9 @@ public class ${className} extends TimeStepLoop {
             metronome.waitForNext();
     </#if>
 </#if>
+<#if jfrEvents??>
+            timeStepEvent.begin();
+</#if>
 
 <#if timeStepMethods?size==1>
     <#assign method=timeStepMethods?first>
@@ -81,9 +113,10 @@ public class ${className} extends TimeStepLoop {
             <@timestepMethodCall m=method/>
             ${method.name}Probe.recordValue(System.nanoTime() - startNanos);
     </#if>
+    <@commitTimeStepEvent m=method/>
 <#else>
 
-            switch(probs[random.nextInt(probs.length)]){
+            switch(selector.select(random)){
     <#list timeStepMethods as method>
         <#assign index = method?counter-1>
                 case ${index}:
@@ -98,6 +131,10 @@ public class ${className} extends TimeStepLoop {
         <#else>
                     <@timestepMethodCall m=method/>
                     ${method.name}Probe.recordValue(System.nanoTime() - startNanos);
+        </#if>
+        <@commitTimeStepEvent m=method/>
+        <#if maxInFlight?? && !isAsyncResult(resultType)>
+                    inFlight.release();
         </#if>
                     break;
     </#list>
@@ -126,7 +163,22 @@ public class ${className} extends TimeStepLoop {
     }
 
 <#macro handleAsyncResult m>
-                    ${resultName}.whenCompleteAsync((o, throwable) ->  ${m.getName()}Probe.recordValue(System.nanoTime() - startNanos), Runnable::run);
+                    ${resultName}.whenCompleteAsync((o, throwable) -> {
+    <#if probeClass??>
+                        ${m.getName()}Probe.recordValue(System.nanoTime() - startNanos);
+    </#if>
+    <#if maxInFlight??>
+                        inFlight.release();
+    </#if>
+                    }, Runnable::run);
+</#macro>
+
+<#macro commitTimeStepEvent m>
+    <#if jfrEvents?? && !isAsyncResult(m.getReturnType().getName())>
+            if (timeStepEvent.commitIfSlow(testId, "${m.getName()}", startNanos, jfrTimeStepThresholdNanos)) {
+                timeStepEvent = new TimeStepEvent();
+            }
+    </#if>
 </#macro>
 
 <#macro timestepMethodCall m>
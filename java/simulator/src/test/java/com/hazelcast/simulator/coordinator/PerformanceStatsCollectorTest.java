@@ -2,6 +2,7 @@ package com.hazelcast.simulator.coordinator;
 
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
 import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.HdrHistogram.Histogram;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -56,6 +57,23 @@ public class PerformanceStatsCollectorTest {
         assertTrue(performance.contains("ops"));
     }
 
+    @Test
+    public void testFormatPerformanceNumbers_withCost() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500).setIntervalCost(120, 3000));
+
+        String performance = performanceStatsCollector.formatIntervalPerformanceNumbers(TEST_CASE_ID_1);
+        assertTrue(performance, performance.contains("120 B/op"));
+        assertTrue(performance, performance.contains("3,000 ns cpu/op"));
+    }
+
+    @Test
+    public void testFormatPerformanceNumbers_whenCostUnknown() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500));
+
+        String performance = performanceStatsCollector.formatIntervalPerformanceNumbers(TEST_CASE_ID_1);
+        assertFalse(performance, performance.contains("/op"));
+    }
+
     @Test
     public void testFormatPerformanceNumbers_testCaseNotFound() {
         String performance = performanceStatsCollector.formatIntervalPerformanceNumbers("notFound");
@@ -191,4 +209,96 @@ public class PerformanceStatsCollectorTest {
         assertEquals(0, agentPerformanceStatsMap.size());
         assertTrue(totalPerformanceStats.isEmpty());
     }
+
+    @Test
+    public void testHistogram_mergedOverWorkers() {
+        // the percentile of the merged histogram lies between the percentiles of the individual workers.
+        update(a1w1, TEST_CASE_ID_1, statsWithHistogram(1, 1000));
+        update(a2w1, TEST_CASE_ID_1, statsWithHistogram(1001, 2000));
+
+        Histogram histogram = performanceStatsCollector.getHistogram(TEST_CASE_ID_1, false);
+
+        assertEquals(2000, histogram.getTotalCount());
+        assertEquals(MICROSECONDS.toNanos(1000), histogram.getValueAtPercentile(50), MICROSECONDS.toNanos(10));
+        assertEquals(MICROSECONDS.toNanos(1980), histogram.getValueAtPercentile(99), MICROSECONDS.toNanos(20));
+    }
+
+    @Test
+    public void testHistogram_runningTotal() {
+        update(a1w1, TEST_CASE_ID_1, statsWithHistogram(1, 1000));
+        update(a1w1, TEST_CASE_ID_1, statsWithHistogram(1001, 2000));
+
+        assertEquals(1000, performanceStatsCollector.getHistogram(TEST_CASE_ID_1, false).getTotalCount());
+        assertEquals(2000, performanceStatsCollector.getHistogram(TEST_CASE_ID_1, true).getTotalCount());
+    }
+
+    @Test
+    public void testOperationCount() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500));
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1500, 150, 550, 1600.0d, 1700, 2400));
+        update(a2w1, TEST_CASE_ID_1, new PerformanceStats(800, 100, 300, 2200.0d, 2400, 2800));
+
+        // the latest total of every worker
+        assertEquals(2300, performanceStatsCollector.getOperationCount(TEST_CASE_ID_1));
+        assertEquals(0, performanceStatsCollector.getOperationCount(TEST_CASE_ID_2));
+    }
+
+    @Test
+    public void testHistogram_whenWorkersDontSendHistograms() {
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(1000, 200, 500, 1900.0d, 1800, 2500));
+
+        assertEquals(0, performanceStatsCollector.getHistogram(TEST_CASE_ID_1, false).getTotalCount());
+        assertEquals(0, performanceStatsCollector.getHistogram(TEST_CASE_ID_1, true).getTotalCount());
+    }
+
+    @Test
+    public void testFormatPerformanceNumbers_withHistograms() {
+        update(a1w1, TEST_CASE_ID_1, statsWithHistogram(1, 1000));
+        update(a2w1, TEST_CASE_ID_1, statsWithHistogram(1001, 2000));
+
+        String s = performanceStatsCollector.formatIntervalPerformanceNumbers(TEST_CASE_ID_1);
+
+        assertTrue(s, s.contains("(p50)"));
+        assertTrue(s, s.contains("(p99)"));
+        assertTrue(s, s.contains("(p99.9)"));
+        assertTrue(s, s.contains("(p99.99)"));
+    }
+
+    @Test
+    public void testDetailedPerformanceInfo_withHistograms() {
+        update(a1w1, TEST_CASE_ID_1, statsWithHistogram(1, 1000));
+        update(a2w1, TEST_CASE_ID_1, statsWithHistogram(1001, 2000));
+
+        String s = performanceStatsCollector.detailedPerformanceInfo(TEST_CASE_ID_1, SECONDS.toMillis(10));
+
+        assertTrue(s, s.contains("Total latency"));
+        assertTrue(s, s.contains("(p99.99)"));
+    }
+
+    @Test
+    public void testDetailedPerformanceInfo_throughputFromWorkers() {
+        // both workers measured 1000 ops/s over their own window since steady state
+        update(a1w1, TEST_CASE_ID_1, new PerformanceStats(20000, 1000, 1000, 1900.0d, 1800, 2500));
+        update(a2w1, TEST_CASE_ID_1, new PerformanceStats(15000, 1000, 1000, 1900.0d, 1800, 2500));
+
+        // the coordinator saw all workers steady later, so its window is shorter than the windows of the workers
+        String s = performanceStatsCollector.detailedPerformanceInfo(TEST_CASE_ID_1, SECONDS.toMillis(10), true);
+
+        assertTrue(s, s.matches("(?s).*Total throughput .* 2,000\\.00 ops/s.*"));
+        assertTrue(s, s.matches("(?s).*Agent A1 .* 1,000\\.00 ops/s.*"));
+
+        s = performanceStatsCollector.detailedPerformanceInfo(TEST_CASE_ID_1, SECONDS.toMillis(10), false);
+        assertTrue(s, s.matches("(?s).*Total throughput .* 3,500\\.00 ops/s.*"));
+    }
+
+    private static PerformanceStats statsWithHistogram(int fromMicros, int toMicros) {
+        Histogram histogram = PerformanceStats.newHistogram();
+        for (int micros = fromMicros; micros <= toMicros; micros++) {
+            histogram.recordValue(MICROSECONDS.toNanos(micros));
+        }
+        long operationCount = toMicros - fromMicros + 1;
+        return new PerformanceStats(operationCount, operationCount, operationCount, histogram.getMean(),
+                histogram.getValueAtPercentile(99.9), histogram.getMaxValue())
+                .setIntervalHistogram(histogram);
+    }
 }
@@ -0,0 +1,181 @@
+package com.hazelcast.simulator.coordinator;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import com.hazelcast.simulator.worker.testcontainer.IllegalTestException;
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SloSearchTest {
+
+    private static final long STEP_MS = SECONDS.toMillis(10);
+
+    @Test
+    public void testLoad_whenNoSlo() {
+        assertNull(SloSearch.load(new TestCase("foo").setProperty("ratePerSecond", 1000), 1));
+    }
+
+    @Test
+    public void testLoad() {
+        SloSearch search = SloSearch.load(new TestCase("foo")
+                .setProperty("ratePerSecond", 1000)
+                .setProperty("slo", "p99.9<2ms")
+                .setProperty("sloStepSeconds", 20), 2);
+
+        assertEquals("p99.9<2ms", search.getSlo());
+        assertEquals(20, search.getStepSeconds());
+        assertEquals(1000, search.getRatePerSecond(), 0);
+        assertFalse(search.isDone());
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testLoad_whenNoRate() {
+        SloSearch.load(new TestCase("foo").setProperty("slo", "p99<2ms"), 1);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testLoad_whenInvalidSlo() {
+        SloSearch.load(new TestCase("foo").setProperty("ratePerSecond", 1000).setProperty("slo", "99<2ms"), 1);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testLoad_whenInvalidLatency() {
+        SloSearch.load(new TestCase("foo").setProperty("ratePerSecond", 1000).setProperty("slo", "p99<2"), 1);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testLoad_whenInvalidPrecision() {
+        SloSearch.load(new TestCase("foo")
+                .setProperty("ratePerSecond", 1000)
+                .setProperty("slo", "p99<2ms")
+                .setProperty("sloPrecision", 1), 1);
+    }
+
+    @Test
+    public void testSearch() {
+        // the system meets the SLO up to 3000 ops/s per worker
+        SloSearch search = new SloSearch("p99<2ms", 1000, 10, 1, 0, 0.05, 2);
+
+        int steps = 0;
+        while (!search.isDone()) {
+            double rate = search.getRatePerSecond();
+            complete(search, rate * 2, rate <= 3000 ? 1000 : 5000);
+            steps++;
+            assertTrue("search doesn't converge", steps < 20);
+        }
+
+        double result = search.getMaxSustainableRatePerSecond();
+        assertTrue("result " + result, result <= 3000 && result >= 3000 * 0.95);
+        assertEquals(1000, search.getSteps().get(0).getRatePerSecond(), 0);
+        assertEquals(2000, search.getSteps().get(1).getRatePerSecond(), 0);
+        assertEquals(4000, search.getSteps().get(2).getRatePerSecond(), 0);
+        assertFalse(search.getSteps().get(2).isPassed());
+        assertEquals(3000, search.getSteps().get(3).getRatePerSecond(), 0);
+    }
+
+    @Test
+    public void testSearch_whenWorkersDontKeepUp_thenFail() {
+        SloSearch search = new SloSearch("p99<2ms", 1000, 10, 1, 0, 0.05, 1);
+
+        // low latency, but only half of the offered rate
+        SloSearch.Step step = complete(search, 500, 100);
+
+        assertFalse(step.isPassed());
+        assertEquals(500, step.getAchievedPerSecond(), 0);
+        assertEquals(500, search.getRatePerSecond(), 0);
+    }
+
+    @Test
+    public void testSearch_whenMaxRateMeetsSlo() {
+        SloSearch search = new SloSearch("p99<2ms", 1000, 10, 1, 1500, 0.05, 1);
+
+        complete(search, 1000, 100);
+        assertEquals(1500, search.getRatePerSecond(), 0);
+        complete(search, 1500, 100);
+
+        assertTrue(search.isDone());
+        assertEquals(1500, search.getMaxSustainableRatePerSecond(), 0);
+    }
+
+    @Test
+    public void testSearch_whenNoRateMeetsSlo() {
+        SloSearch search = new SloSearch("p99<2ms", 4, 10, 1, 0, 0.05, 1);
+
+        while (!search.isDone()) {
+            complete(search, search.getRatePerSecond(), 5000);
+        }
+
+        assertEquals(0, search.getMaxSustainableRatePerSecond(), 0);
+        assertEquals(3, search.getSteps().size());
+        assertEquals(1, search.getSteps().get(2).getRatePerSecond(), 0);
+    }
+
+    @Test
+    public void testFormat() {
+        SloSearch search = new SloSearch("p99<2ms", 1000, 10, 1, 0, 0.05, 1);
+        complete(search, 1000, 100);
+        complete(search, 2000, 5000);
+
+        String table = search.formatSteps();
+        assertTrue(table, table.contains("pass"));
+        assertTrue(table, table.contains("fail"));
+
+        String[] lines = search.toCsv().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("step,rate-per-worker,"));
+        assertTrue(lines[1], lines[1].startsWith("1,1000.0,1000.0,1000.0,100,"));
+        assertTrue(lines[2], lines[2].endsWith(",p99<2ms,fail"));
+    }
+
+    @Test
+    public void testSearch_achievedFromOperationCount() {
+        SloSearch search = new SloSearch("p99<2ms", 1000, 10, 1, 0, 0.05, 1);
+
+        // the histogram also contains samples that are no operations; they don't count as throughput
+        SloSearch.Step step = search.complete(histogram(1000, 100), operationCount(500), STEP_MS, 0);
+
+        assertFalse(step.isPassed());
+        assertEquals(500, step.getAchievedPerSecond(), 0);
+    }
+
+    @Test
+    public void testSearch_offeredFromAppliedRate() {
+        SloSearch search = new SloSearch("p99<2ms", 1000, 10, 1, 0, 0.05, 2);
+
+        // both workers apply the rate to 2 execution groups
+        SloSearch.Step step = search.complete(histogram(4000, 100), operationCount(4000), STEP_MS, 4000);
+
+        assertTrue(step.isPassed());
+        assertEquals(4000, step.getOfferedPerSecond(), 0);
+        assertEquals(1000, search.getMaxSustainableRatePerSecond(), 0);
+        assertEquals(4000, search.getMaxSustainableOfferedPerSecond(), 0);
+
+        // only a single group per worker keeps up
+        step = search.complete(histogram(4000, 100), operationCount(4000), STEP_MS, 8000);
+
+        assertFalse(step.isPassed());
+        assertEquals(4000, search.getMaxSustainableOfferedPerSecond(), 0);
+    }
+
+    // completes a step of STEP_MS with the given throughput and a fixed latency
+    private static SloSearch.Step complete(SloSearch search, double operationsPerSecond, long latencyMicros) {
+        return search.complete(histogram(operationsPerSecond, latencyMicros), operationCount(operationsPerSecond), STEP_MS, 0);
+    }
+
+    private static Histogram histogram(double operationsPerSecond, long latencyMicros) {
+        Histogram histogram = PerformanceStats.newHistogram();
+        histogram.recordValueWithCount(MICROSECONDS.toNanos(latencyMicros), operationCount(operationsPerSecond));
+        return histogram;
+    }
+
+    private static long operationCount(double operationsPerSecond) {
+        return (long) (operationsPerSecond * STEP_MS / SECONDS.toMillis(1));
+    }
+}
@@ -0,0 +1,132 @@
+package com.hazelcast.simulator.probes;
+
+import com.hazelcast.simulator.probes.SlowOperationRecorder.SlowOperation;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SlowOperationRecorderTest {
+
+    private static final long THRESHOLD_NANOS = MILLISECONDS.toNanos(10);
+
+    private final SlowOperationRecorder recorder = new SlowOperationRecorder(THRESHOLD_NANOS, 3);
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_whenCapacityZero() {
+        new SlowOperationRecorder(THRESHOLD_NANOS, 0);
+    }
+
+    @Test
+    public void testRecord_whenUnderThreshold_thenIgnored() {
+        recorder.record("get", THRESHOLD_NANOS - 1);
+
+        assertEquals(0, drain().size());
+    }
+
+    @Test
+    public void testRecord() {
+        recorder.registerThread("readers");
+        recorder.tag("key-1");
+
+        long beforeMillis = System.currentTimeMillis();
+        recorder.record("get", MILLISECONDS.toNanos(20));
+        long afterMillis = System.currentTimeMillis();
+
+        List<SlowOperation> slowOperations = drain();
+        assertEquals(1, slowOperations.size());
+        SlowOperation slowOperation = slowOperations.get(0);
+        assertEquals(MILLISECONDS.toNanos(20), slowOperation.latencyNanos());
+        assertEquals("readers", slowOperation.executionGroup());
+        assertEquals("get", slowOperation.operation());
+        assertEquals(Thread.currentThread().getName(), slowOperation.threadName());
+        assertEquals("key-1", slowOperation.tag());
+        assertTrue(slowOperation.startMillis() >= beforeMillis - 20);
+        assertTrue(slowOperation.startMillis() <= afterMillis - 20);
+
+        // the interval has been consumed
+        assertEquals(0, drain().size());
+    }
+
+    @Test
+    public void testRecord_whenNotRegistered_thenNoExecutionGroup() {
+        recorder.record("get", THRESHOLD_NANOS);
+
+        List<SlowOperation> slowOperations = drain();
+        assertEquals(1, slowOperations.size());
+        assertNull(slowOperations.get(0).executionGroup());
+        assertNull(slowOperations.get(0).tag());
+    }
+
+    @Test
+    public void testRecord_whenFull_thenSlowestKept() {
+        for (int i = 1; i <= 10; i++) {
+            recorder.record("get", i * THRESHOLD_NANOS);
+        }
+        recorder.record("get", 2 * THRESHOLD_NANOS);
+
+        List<SlowOperation> slowOperations = drain();
+        slowOperations.sort(comparingLong(SlowOperation::latencyNanos));
+        assertEquals(3, slowOperations.size());
+        assertEquals(8 * THRESHOLD_NANOS, slowOperations.get(0).latencyNanos());
+        assertEquals(9 * THRESHOLD_NANOS, slowOperations.get(1).latencyNanos());
+        assertEquals(10 * THRESHOLD_NANOS, slowOperations.get(2).latencyNanos());
+    }
+
+    @Test
+    public void testRecord_multipleThreads() throws Exception {
+        Thread[] threads = new Thread[4];
+        for (int k = 0; k < threads.length; k++) {
+            threads[k] = new Thread(() -> {
+                recorder.registerThread("group");
+                for (int i = 0; i < 1000; i++) {
+                    recorder.record("put", THRESHOLD_NANOS + i);
+                }
+            });
+            threads[k].start();
+        }
+
+        List<SlowOperation> slowOperations = new ArrayList<>();
+        for (Thread thread : threads) {
+            recorder.drain(slowOperations);
+            thread.join();
+        }
+        recorder.drain(slowOperations);
+
+        // every thread keeps its 3 slowest operations per interval, so at least the last interval has them
+        long slowest = slowOperations.stream().filter(o -> o.latencyNanos() == THRESHOLD_NANOS + 999).count();
+        assertEquals(threads.length, slowest);
+    }
+
+    @Test
+    public void testThreadTerminated_thenStripeRemovedAfterDrain() throws Exception {
+        Thread thread = new Thread(() -> {
+            recorder.registerThread("group");
+            recorder.record("put", THRESHOLD_NANOS);
+        });
+        thread.start();
+        thread.join();
+        recorder.record("get", THRESHOLD_NANOS);
+        assertEquals(2, recorder.stripeCount());
+
+        // the operations of the terminated thread aren't lost
+        assertEquals(2, drain().size());
+        assertEquals(1, recorder.stripeCount());
+
+        recorder.record("get", THRESHOLD_NANOS);
+        assertEquals(1, drain().size());
+        assertEquals(1, recorder.stripeCount());
+    }
+
+    private List<SlowOperation> drain() {
+        List<SlowOperation> result = new ArrayList<>();
+        recorder.drain(result);
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package com.hazelcast.simulator.probes.impl;
+
+import com.hazelcast.simulator.probes.LatencyProbe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Compares the {@link HdrLatencyProbe} with the {@link StripedHdrLatencyProbe} when all threads record into
+ * the same probe; just like the timestep threads of a test do.
+ *
+ * Run using the main method; the benchmark is executed for 1, 8, 32 and 64 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyProbeBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 8, 32, 64};
+
+    @Param({"hdr", "striped"})
+    public String probeType;
+
+    private LatencyProbe probe;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        probe = "hdr".equals(probeType)
+                ? new HdrLatencyProbe("benchmark", true)
+                : new StripedHdrLatencyProbe("benchmark", true);
+    }
+
+    // we periodically drain the probe just like the TestOperationsTracker does.
+    @TearDown(Level.Iteration)
+    public void drain() {
+        if (probe instanceof HdrLatencyProbe hdrLatencyProbe) {
+            hdrLatencyProbe.getRecorder().getIntervalHistogram();
+        } else {
+            ((StripedHdrLatencyProbe) probe).getIntervalHistogram();
+        }
+    }
+
+    @Benchmark
+    public void recordValue() {
+        // latencies between 1us and 10ms so that different parts of the counts array are hit.
+        probe.recordValue(ThreadLocalRandom.current().nextLong(1_000, 10_000_000));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threadCount : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(LatencyProbeBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
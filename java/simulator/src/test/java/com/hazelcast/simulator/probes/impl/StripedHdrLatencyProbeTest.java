@@ -0,0 +1,130 @@
+package com.hazelcast.simulator.probes.impl;
+
+import com.hazelcast.simulator.probes.SlowOperationRecorder;
+import com.hazelcast.simulator.probes.SlowOperationRecorder.SlowOperation;
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hazelcast.simulator.probes.impl.HdrLatencyProbe.HIGHEST_TRACKABLE_VALUE_NANOS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StripedHdrLatencyProbeTest {
+
+    private StripedHdrLatencyProbe probe = new StripedHdrLatencyProbe("foo", false);
+
+    @Test
+    public void testConstructor() {
+        assertTrue(new StripedHdrLatencyProbe("foo", true).includeInThroughput());
+        assertFalse(new StripedHdrLatencyProbe("foo", false).includeInThroughput());
+        assertEquals("foo", probe.name());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDone_withExternalStarted_withZero() {
+        probe.done(0);
+    }
+
+    @Test
+    public void testRecordValues() {
+        probe.recordValue(MILLISECONDS.toNanos(200));
+        probe.recordValue(MILLISECONDS.toNanos(500));
+
+        Histogram histogram = probe.getIntervalHistogram();
+        assertEquals(2, histogram.getTotalCount());
+        assertEquals(1, probe.stripeCount());
+
+        // the interval has been consumed.
+        assertEquals(0, probe.getIntervalHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testNegativeValue() {
+        probe.recordValue(MILLISECONDS.toNanos(-200));
+        probe.recordValue(Long.MIN_VALUE);
+
+        assertEquals(2, probe.negativeCount());
+        Histogram histogram = probe.getIntervalHistogram();
+        assertEquals(2, histogram.getTotalCount());
+        assertTrue(histogram.valuesAreEquivalent(HIGHEST_TRACKABLE_VALUE_NANOS, histogram.getMaxValue()));
+    }
+
+    @Test
+    public void testRecord_whenTooLarge() {
+        probe.recordValue(HIGHEST_TRACKABLE_VALUE_NANOS * 2);
+
+        Histogram histogram = probe.getIntervalHistogram();
+        assertTrue(histogram.valuesAreEquivalent(HIGHEST_TRACKABLE_VALUE_NANOS, histogram.getMaxValue()));
+    }
+
+    @Test
+    public void testReset() {
+        probe.recordValue(100);
+        probe.reset();
+
+        assertEquals(0, probe.getIntervalHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testMultipleThreads() throws Exception {
+        int threadCount = 4;
+        int valuesPerThread = 1000;
+
+        List<Thread> threads = new ArrayList<>();
+        for (int k = 0; k < threadCount; k++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= valuesPerThread; i++) {
+                    probe.recordValue(MILLISECONDS.toNanos(i));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(threadCount, probe.stripeCount());
+        Histogram histogram = probe.getIntervalHistogram();
+        assertEquals(threadCount * valuesPerThread, histogram.getTotalCount());
+        assertTrue(histogram.valuesAreEquivalent(MILLISECONDS.toNanos(valuesPerThread), histogram.getMaxValue()));
+    }
+
+    @Test
+    public void testThreadTerminated_thenStripeRemovedAfterDrain() throws Exception {
+        Thread thread = new Thread(() -> probe.recordValue(MILLISECONDS.toNanos(1)));
+        thread.start();
+        thread.join();
+        probe.recordValue(MILLISECONDS.toNanos(2));
+        assertEquals(2, probe.stripeCount());
+
+        // the last interval of the terminated thread isn't lost
+        assertEquals(2, probe.getIntervalHistogram().getTotalCount());
+        assertEquals(1, probe.stripeCount());
+
+        probe.recordValue(MILLISECONDS.toNanos(3));
+        assertEquals(1, probe.getIntervalHistogram().getTotalCount());
+        assertEquals(1, probe.stripeCount());
+    }
+
+    @Test
+    public void testRecordValue_withSlowOperationRecorder() {
+        SlowOperationRecorder slowOperationRecorder = new SlowOperationRecorder(MILLISECONDS.toNanos(100), 10);
+        probe.setSlowOperationRecorder(slowOperationRecorder);
+
+        probe.recordValue(MILLISECONDS.toNanos(50));
+        probe.recordValue(MILLISECONDS.toNanos(200));
+
+        List<SlowOperation> slowOperations = new ArrayList<>();
+        slowOperationRecorder.drain(slowOperations);
+        assertEquals(1, slowOperations.size());
+        assertEquals("foo", slowOperations.get(0).operation());
+        assertEquals(MILLISECONDS.toNanos(200), slowOperations.get(0).latencyNanos());
+        assertEquals(2, probe.getIntervalHistogram().getTotalCount());
+    }
+}
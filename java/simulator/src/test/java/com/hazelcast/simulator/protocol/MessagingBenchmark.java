@@ -0,0 +1,157 @@
+package com.hazelcast.simulator.protocol;
+
+import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.protocol.message.MessageCodecs;
+import com.hazelcast.simulator.protocol.message.SimulatorMessage;
+import com.hazelcast.simulator.worker.messages.PerformanceStatsMessage;
+import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.hazelcast.simulator.protocol.message.MessageType.getMessageType;
+import static com.hazelcast.simulator.protocol.message.SimulatorMessageCodec.toJson;
+import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static javax.jms.DeliveryMode.NON_PERSISTENT;
+
+/**
+ * Measures the number of messages per second a {@link Server} can send to the coordinator through the embedded
+ * {@link Broker}. The messages are {@link PerformanceStatsMessage} instances for 10 tests; the most frequent message.
+ *
+ * The 'producerPerMessage' mode creates a topic and producer for every message; like the {@link Server} used to do.
+ * The 'cached' mode uses {@link Server#sendCoordinator(SimulatorMessage)} without coalescing and the 'coalesced' mode
+ * with a coalescing window. An invocation completes when all messages have been received by a consumer on the
+ * coordinator topic.
+ *
+ * Run using the main method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class MessagingBenchmark {
+
+    private static final int MESSAGES_PER_INVOCATION = 1000;
+    private static final int TEST_COUNT = 10;
+
+    @Param({"producerPerMessage", "cached", "coalesced"})
+    public String mode;
+
+    // the codec isn't used by the 'producerPerMessage' mode.
+    @Param({"json", "binary"})
+    public String codec;
+
+    private final PerformanceStatsMessage msg = new PerformanceStatsMessage();
+    private final AtomicLong received = new AtomicLong();
+    private Broker broker;
+    private Server server;
+    private Connection consumerConnection;
+    private Connection legacyConnection;
+    private Session legacySession;
+
+    @Setup
+    public void setup() throws Exception {
+        for (int k = 0; k < TEST_COUNT; k++) {
+            msg.addPerformanceStats("test" + k, new PerformanceStats(k * 1000, 1000, 1000, 500, 2000, 3000));
+        }
+
+        broker = new Broker().start();
+
+        server = new Server("workers")
+                .setBrokerURL(broker.getBrokerURL())
+                .setSelfAddress(SimulatorAddress.fromString("A1_W1"))
+                .setCoalescingWindowMillis("coalesced".equals(mode) ? 5 : 0)
+                .setMessageCodec(MessageCodecs.fromName(codec))
+                .setProcessor((msg, source, promise) -> {
+                })
+                .start();
+
+        consumerConnection = new ConnectionFactory().newConnection(broker.getBrokerURL(), e -> {
+        });
+        Session consumerSession = consumerConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        MessageConsumer consumer = consumerSession.createConsumer(consumerSession.createTopic("coordinator"));
+        consumer.setMessageListener(message -> {
+            try {
+                received.addAndGet(MessageCodecs.decode(message).size());
+            } catch (JMSException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        legacyConnection = new ConnectionFactory().newConnection(broker.getBrokerURL(), e -> {
+        });
+        legacySession = legacyConnection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        closeQuietly(legacyConnection);
+        closeQuietly(consumerConnection);
+        closeQuietly(server);
+        closeQuietly(broker);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+    public long send() throws JMSException {
+        long expected = received.get() + MESSAGES_PER_INVOCATION;
+        for (int k = 0; k < MESSAGES_PER_INVOCATION; k++) {
+            if ("producerPerMessage".equals(mode)) {
+                sendWithNewProducer();
+            } else {
+                server.sendCoordinator(msg);
+            }
+        }
+
+        while (received.get() < expected) {
+            LockSupport.parkNanos(1000);
+        }
+        return expected;
+    }
+
+    private void sendWithNewProducer() throws JMSException {
+        MessageProducer producer = legacySession.createProducer(legacySession.createTopic("coordinator"));
+        producer.setTimeToLive(MINUTES.toMillis(1));
+        producer.setDeliveryMode(NON_PERSISTENT);
+
+        Message message = legacySession.createMessage();
+        message.setStringProperty("source", "A1_W1");
+        message.setStringProperty("payload", toJson(msg));
+        message.setIntProperty("msgType", getMessageType(msg).toInt());
+        producer.send(message);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MessagingBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -1,7 +1,10 @@
 package com.hazelcast.simulator.protocol;
 
 import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.protocol.message.BinaryMessageCodec;
+import com.hazelcast.simulator.protocol.message.JsonMessageCodec;
 import com.hazelcast.simulator.protocol.message.LogMessage;
+import com.hazelcast.simulator.protocol.message.MessageCodec;
 import com.hazelcast.simulator.protocol.message.SimulatorMessage;
 import com.hazelcast.simulator.utils.AssertTask;
 import org.apache.logging.log4j.Level;
@@ -10,14 +13,18 @@ import org.junit.Before;
 import org.junit.Test;
 
 import javax.jms.JMSException;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.hazelcast.simulator.TestSupport.spawn;
 import static com.hazelcast.simulator.utils.CommonUtils.closeQuietly;
 import static com.hazelcast.simulator.utils.SimulatorUtils.localIp;
 import static com.hazelcast.simulator.utils.TestUtils.assertCompletesEventually;
 import static com.hazelcast.simulator.utils.TestUtils.assertTrueEventually;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -138,4 +145,103 @@ public class MessagingTest {
             }
         });
     }
+
+    @Test
+    public void sendCoordinator_manyMessages() throws Exception {
+        assertSendCoordinator(0, JsonMessageCodec.INSTANCE, 1000);
+    }
+
+    @Test
+    public void sendCoordinator_coalesced() throws Exception {
+        assertSendCoordinator(50, JsonMessageCodec.INSTANCE, 1000);
+    }
+
+    @Test
+    public void sendCoordinator_binary() throws Exception {
+        assertSendCoordinator(0, BinaryMessageCodec.INSTANCE, 1000);
+    }
+
+    @Test
+    public void sendCoordinator_binary_coalesced() throws Exception {
+        assertSendCoordinator(50, BinaryMessageCodec.INSTANCE, 1000);
+    }
+
+    @Test
+    public void sendCoordinator_coalesced_messagesSendOnClose() throws Exception {
+        agentServer = newCoordinatorSendingServer(MINUTES.toMillis(1), JsonMessageCodec.INSTANCE);
+
+        final MessageHandler clientOperationProcessor = mock(MessageHandler.class);
+        client = new CoordinatorClient()
+                .setProcessor(clientOperationProcessor);
+        client.start().connectToAgentBroker(agentAddress, localIp());
+
+        agentServer.sendCoordinator(new LogMessage("Foo"));
+        agentServer.close();
+
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                verify(clientOperationProcessor).process(any(LogMessage.class), eq(agentAddress), any(Promise.class));
+            }
+        });
+    }
+
+    @Test
+    public void sendCoordinator_coalesced_afterClose_thenNotQueued() {
+        agentServer = newCoordinatorSendingServer(MINUTES.toMillis(1), JsonMessageCodec.INSTANCE);
+        agentServer.close();
+
+        // the coalescing thread is gone; the message is sent directly, which fails and is logged
+        agentServer.sendCoordinator(new LogMessage("Foo"));
+
+        assertEquals(0, agentServer.coalescingQueueSize());
+    }
+
+    private void assertSendCoordinator(long coalescingWindowMillis, MessageCodec messageCodec, int messageCount)
+            throws Exception {
+        agentServer = newCoordinatorSendingServer(coalescingWindowMillis, messageCodec);
+
+        final AtomicInteger received = new AtomicInteger();
+        client = new CoordinatorClient()
+                .setProcessor(new MessageHandler() {
+                    @Override
+                    public void process(SimulatorMessage msg, SimulatorAddress source, Promise promise) {
+                        received.incrementAndGet();
+                    }
+                });
+        client.start().connectToAgentBroker(agentAddress, localIp());
+
+        Future[] futures = new Future[4];
+        for (int k = 0; k < futures.length; k++) {
+            futures[k] = spawn(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    for (int i = 0; i < messageCount / futures.length; i++) {
+                        agentServer.sendCoordinator(new LogMessage("Foo"));
+                    }
+                    return null;
+                }
+            });
+        }
+        for (Future future : futures) {
+            future.get();
+        }
+
+        assertTrueEventually(new AssertTask() {
+            @Override
+            public void run() throws Exception {
+                assertEquals(messageCount, received.get());
+            }
+        });
+    }
+
+    private Server newCoordinatorSendingServer(long coalescingWindowMillis, MessageCodec messageCodec) {
+        return new Server("agents")
+                .setBrokerURL(broker.getBrokerURL())
+                .setSelfAddress(agentAddress)
+                .setCoalescingWindowMillis(coalescingWindowMillis)
+                .setMessageCodec(messageCodec)
+                .setProcessor(mock(MessageHandler.class))
+                .start();
+    }
 }
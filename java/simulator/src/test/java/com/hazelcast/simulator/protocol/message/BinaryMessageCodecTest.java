@@ -0,0 +1,179 @@
+package com.hazelcast.simulator.protocol.message;
+
+import com.hazelcast.simulator.common.FailureType;
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.coordinator.messages.FailureMessage;
+import com.hazelcast.simulator.protocol.core.SimulatorAddress;
+import com.hazelcast.simulator.worker.messages.PerformanceStatsMessage;
+import com.hazelcast.simulator.worker.performance.PerformanceStats;
+import org.HdrHistogram.Histogram;
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hazelcast.simulator.utils.FormatUtils.NEW_LINE;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BinaryMessageCodecTest {
+
+    private final BinaryMessageCodec codec = BinaryMessageCodec.INSTANCE;
+    private Session session;
+
+    @Before
+    public void before() throws Exception {
+        session = mock(Session.class);
+        when(session.createBytesMessage()).thenReturn(new ActiveMQBytesMessage());
+    }
+
+    @Test
+    public void testPerformanceStatsMessage() throws Exception {
+        PerformanceStatsMessage msg = new PerformanceStatsMessage();
+        msg.addPerformanceStats("test1", new PerformanceStats(1000, 200.5, 300.25, 1500.5, 2000, 3000));
+        msg.addPerformanceStats("test2", new PerformanceStats());
+
+        PerformanceStatsMessage result = (PerformanceStatsMessage) roundTrip(msg).get(0);
+
+        assertEquals(2, result.getPerformanceStats().size());
+        PerformanceStats stats = result.getPerformanceStats().get("test1");
+        assertEquals(1000, stats.getOperationCount());
+        assertEquals(200.5, stats.getIntervalThroughput(), 0);
+        assertEquals(300.25, stats.getTotalThroughput(), 0);
+        assertEquals(1500.5, stats.getIntervalLatencyAvgNanos(), 0);
+        assertEquals(2000, stats.getIntervalLatency999PercentileNanos());
+        assertEquals(3000, stats.getIntervalLatencyMaxNanos());
+        assertTrue(result.getPerformanceStats().get("test2").isEmpty());
+    }
+
+    @Test
+    public void testPerformanceStatsMessage_withHistogram() throws Exception {
+        Histogram histogram = PerformanceStats.newHistogram();
+        histogram.recordValueWithCount(1000, 10);
+        PerformanceStatsMessage msg = new PerformanceStatsMessage();
+        msg.addPerformanceStats("test1", new PerformanceStats(10, 1, 1, 1000, 1000, 1000).setIntervalHistogram(histogram));
+
+        PerformanceStatsMessage result = (PerformanceStatsMessage) roundTrip(msg).get(0);
+
+        assertEquals(10, result.getPerformanceStats().get("test1").getIntervalHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testFailureMessage() throws Exception {
+        TestCase testCase = new TestCase("test1")
+                .setProperty("class", "com.example.FooTest")
+                .setProperty("threadCount", 10);
+        FailureMessage msg = new FailureMessage("failure", FailureType.WORKER_EXCEPTION,
+                SimulatorAddress.fromString("A1_W1"), "A1", "worker1", "test1", "cause" + NEW_LINE + "stacktrace")
+                .setTestCase(testCase)
+                .setDurationMs(1234);
+
+        FailureMessage result = (FailureMessage) roundTrip(msg).get(0);
+
+        assertEquals(FailureType.WORKER_EXCEPTION, result.getType());
+        assertEquals(SimulatorAddress.fromString("A1_W1"), result.getWorkerAddress());
+        assertEquals("test1", result.getTestId());
+        assertEquals(testCase.getProperties(), result.getTestCase().getProperties());
+        assertEquals(msg.getFileMessage(), result.getFileMessage());
+    }
+
+    @Test
+    public void testFailureMessage_withNullFields() throws Exception {
+        FailureMessage msg = new FailureMessage("failure");
+
+        FailureMessage result = (FailureMessage) roundTrip(msg).get(0);
+
+        assertNull(result.getWorkerAddress());
+        assertNull(result.getTestCase());
+        assertEquals(msg.getFileMessage(), result.getFileMessage());
+    }
+
+    @Test
+    public void testJsonFallback() throws Exception {
+        LogMessage result = (LogMessage) roundTrip(new LogMessage("foo")).get(0);
+
+        assertEquals("foo", result.getMessage());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        List<SimulatorMessage> batch = new ArrayList<>();
+        for (int k = 0; k < 10; k++) {
+            batch.add(k % 2 == 0 ? new LogMessage("foo" + k) : new FailureMessage("failure" + k));
+        }
+
+        List<SimulatorMessage> result = roundTrip(batch);
+
+        assertEquals(10, result.size());
+        for (int k = 0; k < 10; k++) {
+            assertEquals(batch.get(k).getClass(), result.get(k).getClass());
+        }
+    }
+
+    @Test(expected = JMSException.class)
+    public void testUnsupportedVersion() throws Exception {
+        Message message = codec.encode(session, singletonList((SimulatorMessage) new LogMessage("foo")));
+        message.setIntProperty(BinaryMessageCodec.CODEC_VERSION, BinaryMessageCodec.VERSION + 1);
+
+        codec.decode(message);
+    }
+
+    @Test(expected = JMSException.class)
+    public void testPreviousVersion() throws Exception {
+        Message message = codec.encode(session, singletonList((SimulatorMessage) new PerformanceStatsMessage()));
+        message.setIntProperty(BinaryMessageCodec.CODEC_VERSION, BinaryMessageCodec.VERSION - 1);
+
+        codec.decode(message);
+    }
+
+    @Test
+    public void testPerformanceStatsLayout() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new PerformanceStats(1000, 200.5, 300.25, 1500.5, 2000, 3000).writeData(new DataOutputStream(bytes));
+
+        // if the layout changes, BinaryMessageCodec.VERSION needs to be increased and this test updated
+        assertEquals(2, BinaryMessageCodec.VERSION);
+        assertEquals(85, bytes.size());
+    }
+
+    @Test
+    public void testString() throws Exception {
+        StringBuilder large = new StringBuilder();
+        for (int k = 0; k < 100000; k++) {
+            large.append('é');
+        }
+
+        for (String value : asList(null, "", "foo", large.toString())) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BinaryMessageCodec.writeString(new DataOutputStream(bytes), value);
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            assertEquals(value, BinaryMessageCodec.readString(in));
+        }
+    }
+
+    private List<SimulatorMessage> roundTrip(SimulatorMessage msg) throws Exception {
+        return roundTrip(singletonList(msg));
+    }
+
+    private List<SimulatorMessage> roundTrip(List<SimulatorMessage> msgs) throws Exception {
+        ActiveMQBytesMessage message = (ActiveMQBytesMessage) codec.encode(session, msgs);
+        // makes the body readable; like sending the message does.
+        message.reset();
+        return MessageCodecs.decode(message);
+    }
+}
@@ -0,0 +1,51 @@
+package com.hazelcast.simulator.protocol.message;
+
+import org.apache.activemq.command.ActiveMQMessage;
+import org.junit.Test;
+
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonMessageCodecTest {
+
+    private final JsonMessageCodec codec = JsonMessageCodec.INSTANCE;
+
+    @Test
+    public void testSingleMessage() throws Exception {
+        Message message = new ActiveMQMessage();
+
+        codec.encode(message, singletonList((SimulatorMessage) new LogMessage("foo")));
+
+        assertFalse(message.propertyExists(JsonMessageCodec.BATCH_SIZE));
+        // the original wire format
+        assertTrue(message.propertyExists("payload"));
+        assertTrue(message.propertyExists("msgType"));
+        List<SimulatorMessage> msgs = codec.decode(message);
+        assertEquals(1, msgs.size());
+        assertEquals("foo", ((LogMessage) msgs.get(0)).getMessage());
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        List<SimulatorMessage> batch = new ArrayList<>();
+        for (int k = 0; k < 10; k++) {
+            batch.add(new LogMessage("foo" + k));
+        }
+        Message message = new ActiveMQMessage();
+
+        codec.encode(message, batch);
+
+        assertTrue(message.propertyExists(JsonMessageCodec.BATCH_SIZE));
+        List<SimulatorMessage> msgs = codec.decode(message);
+        assertEquals(10, msgs.size());
+        for (int k = 0; k < 10; k++) {
+            assertEquals("foo" + k, ((LogMessage) msgs.get(k)).getMessage());
+        }
+    }
+}
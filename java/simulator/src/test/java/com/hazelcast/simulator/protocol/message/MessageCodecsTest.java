@@ -0,0 +1,50 @@
+package com.hazelcast.simulator.protocol.message;
+
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.command.ActiveMQMessage;
+import org.junit.Test;
+
+import javax.jms.Session;
+
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MessageCodecsTest {
+
+    @Test
+    public void testFromName() {
+        assertSame(JsonMessageCodec.INSTANCE, MessageCodecs.fromName("json"));
+        assertSame(BinaryMessageCodec.INSTANCE, MessageCodecs.fromName("binary"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromName_whenUnknown() {
+        MessageCodecs.fromName("xml");
+    }
+
+    @Test
+    public void testDecode_json() throws Exception {
+        Session session = mock(Session.class);
+        when(session.createMessage()).thenReturn(new ActiveMQMessage());
+
+        ActiveMQMessage message = (ActiveMQMessage) JsonMessageCodec.INSTANCE
+                .encode(session, singletonList((SimulatorMessage) new LogMessage("foo")));
+
+        assertEquals("foo", ((LogMessage) MessageCodecs.decode(message).get(0)).getMessage());
+    }
+
+    @Test
+    public void testDecode_binary() throws Exception {
+        Session session = mock(Session.class);
+        when(session.createBytesMessage()).thenReturn(new ActiveMQBytesMessage());
+
+        ActiveMQBytesMessage message = (ActiveMQBytesMessage) BinaryMessageCodec.INSTANCE
+                .encode(session, singletonList((SimulatorMessage) new LogMessage("foo")));
+        message.reset();
+
+        assertEquals("foo", ((LogMessage) MessageCodecs.decode(message).get(0)).getMessage());
+    }
+}
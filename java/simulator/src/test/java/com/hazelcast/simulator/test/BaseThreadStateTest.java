@@ -1,8 +1,10 @@
 package com.hazelcast.simulator.test;
 
+import com.hazelcast.simulator.test.keys.SequentialKeyGenerator;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class BaseThreadStateTest {
@@ -52,4 +54,18 @@ public class BaseThreadStateTest {
     public void randomLong() {
         double whatever = state.randomLong();
     }
+
+    @Test(expected = IllegalStateException.class)
+    public void nextKey_whenNoKeyGenerator() {
+        state.nextKey();
+    }
+
+    @Test
+    public void nextKey() {
+        state.setKeyGenerator(new SequentialKeyGenerator(2));
+
+        assertEquals(0, state.nextKey());
+        assertEquals(1, state.nextKey());
+        assertEquals(0, state.nextKey());
+    }
 }
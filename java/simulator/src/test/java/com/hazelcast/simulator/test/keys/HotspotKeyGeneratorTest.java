@@ -0,0 +1,49 @@
+package com.hazelcast.simulator.test.keys;
+
+import com.hazelcast.simulator.utils.FastRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HotspotKeyGeneratorTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct_whenInvalidDataFraction() {
+        new HotspotKeyGenerator(new FastRandom(), 100, 1.1, 0.8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct_whenInvalidOpFraction() {
+        new HotspotKeyGenerator(new FastRandom(), 100, 0.2, -0.1);
+    }
+
+    @Test
+    public void testNextKey() {
+        KeyGenerator generator = new HotspotKeyGenerator(new FastRandom(42), 1000, 0.2, 0.8);
+
+        int iterations = 100000;
+        int hotCount = 0;
+        for (int k = 0; k < iterations; k++) {
+            long key = generator.nextKey();
+            assertTrue(key >= 0);
+            assertTrue(key < 1000);
+            if (key < 200) {
+                hotCount++;
+            }
+        }
+
+        assertEquals(0.8, (double) hotCount / iterations, 0.01);
+    }
+
+    @Test
+    public void testNextKey_whenEverythingIsHot() {
+        KeyGenerator generator = new HotspotKeyGenerator(new FastRandom(42), 10, 1, 0.5);
+
+        for (int k = 0; k < 1000; k++) {
+            long key = generator.nextKey();
+            assertTrue(key >= 0);
+            assertTrue(key < 10);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.hazelcast.simulator.test.keys;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class KeyDistributionTest {
+
+    @Test
+    public void testFromName() {
+        for (KeyDistribution distribution : KeyDistribution.values()) {
+            assertEquals(distribution, KeyDistribution.fromName(distribution.toString()));
+        }
+        assertEquals(KeyDistribution.SCRAMBLED_ZIPFIAN, KeyDistribution.fromName("scrambledZipfian"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromName_whenUnknown() {
+        KeyDistribution.fromName("gaussian");
+    }
+}
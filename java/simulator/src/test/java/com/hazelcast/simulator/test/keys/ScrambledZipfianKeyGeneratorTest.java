@@ -0,0 +1,36 @@
+package com.hazelcast.simulator.test.keys;
+
+import com.hazelcast.simulator.utils.FastRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScrambledZipfianKeyGeneratorTest {
+
+    @Test
+    public void testNextKey() {
+        int keyCount = 1000;
+        KeyGenerator generator = new ScrambledZipfianKeyGenerator(new FastRandom(42), new ZipfianDistribution(keyCount));
+
+        int[] counts = new int[keyCount];
+        for (int k = 0; k < 100000; k++) {
+            long key = generator.nextKey();
+            assertTrue(key >= 0);
+            assertTrue(key < keyCount);
+            counts[(int) key]++;
+        }
+
+        // the most popular key is the hash of zipfian key 0, which is not key 0.
+        int mostPopular = 0;
+        for (int key = 1; key < keyCount; key++) {
+            if (counts[key] > counts[mostPopular]) {
+                mostPopular = key;
+            }
+        }
+        long expected = (ScrambledZipfianKeyGenerator.hashFNV64(0) & Long.MAX_VALUE) % keyCount;
+        assertEquals(expected, mostPopular);
+        assertNotEquals(0, mostPopular);
+    }
+}
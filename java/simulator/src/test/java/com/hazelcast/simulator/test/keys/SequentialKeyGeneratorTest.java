@@ -0,0 +1,64 @@
+package com.hazelcast.simulator.test.keys;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SequentialKeyGeneratorTest {
+
+    @Test
+    public void testNextKey() {
+        KeyGenerator generator = new SequentialKeyGenerator(3);
+
+        assertEquals(0, generator.nextKey());
+        assertEquals(1, generator.nextKey());
+        assertEquals(2, generator.nextKey());
+        assertEquals(0, generator.nextKey());
+    }
+
+    @Test
+    public void testNextKey_threadRanges() {
+        assertKeys(new SequentialKeyGenerator(6, 0, 2), 0, 1, 2, 0);
+        assertKeys(new SequentialKeyGenerator(6, 1, 2), 3, 4, 5, 3);
+    }
+
+    @Test
+    public void testNextKey_whenKeyCountNotMultipleOfThreadCount() {
+        // the ranges are [0,3), [3,6) and [6,10); together they cover every key once
+        assertKeys(new SequentialKeyGenerator(10, 0, 3), 0, 1, 2, 0);
+        assertKeys(new SequentialKeyGenerator(10, 1, 3), 3, 4, 5, 3);
+        assertKeys(new SequentialKeyGenerator(10, 2, 3), 6, 7, 8, 9, 6);
+    }
+
+    @Test
+    public void testNextKey_whenThreadCountLargerThanKeyCount() {
+        int threadCount = 5;
+        int keyCount = 2;
+        Set<Long> keys = new HashSet<>();
+        for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+            KeyGenerator generator = new SequentialKeyGenerator(keyCount, threadIndex, threadCount);
+            long key = generator.nextKey();
+            // a single key per thread
+            assertEquals(key, generator.nextKey());
+            assertTrue(key >= 0 && key < keyCount);
+            keys.add(key);
+        }
+
+        assertEquals(keyCount, keys.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_whenThreadIndexTooLarge() {
+        new SequentialKeyGenerator(10, 3, 3);
+    }
+
+    private static void assertKeys(KeyGenerator generator, long... expected) {
+        for (long key : expected) {
+            assertEquals(key, generator.nextKey());
+        }
+    }
+}
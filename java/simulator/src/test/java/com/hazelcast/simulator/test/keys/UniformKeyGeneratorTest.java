@@ -0,0 +1,29 @@
+package com.hazelcast.simulator.test.keys;
+
+import com.hazelcast.simulator.utils.FastRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class UniformKeyGeneratorTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct_whenZeroKeyCount() {
+        new UniformKeyGenerator(new FastRandom(), 0);
+    }
+
+    @Test
+    public void testNextKey() {
+        KeyGenerator generator = new UniformKeyGenerator(new FastRandom(42), 10);
+
+        int iterations = 100000;
+        int[] counts = new int[10];
+        for (int k = 0; k < iterations; k++) {
+            counts[(int) generator.nextKey()]++;
+        }
+
+        for (int count : counts) {
+            assertEquals(0.1, (double) count / iterations, 0.01);
+        }
+    }
+}
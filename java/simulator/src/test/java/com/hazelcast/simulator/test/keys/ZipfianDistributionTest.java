@@ -0,0 +1,88 @@
+package com.hazelcast.simulator.test.keys;
+
+import org.junit.Test;
+
+import static com.hazelcast.simulator.test.keys.ZipfianDistribution.EXACT_ZETA_THRESHOLD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ZipfianDistributionTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct_whenZeroKeyCount() {
+        new ZipfianDistribution(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct_whenZipfianConstantTooLarge() {
+        new ZipfianDistribution(100, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct_whenZipfianConstantZero() {
+        new ZipfianDistribution(100, 0);
+    }
+
+    @Test
+    public void testZeta_exact() {
+        assertEquals(1.0, ZipfianDistribution.zeta(1, 0.99), 0);
+        assertEquals(1 + 1 / Math.pow(2, 0.5) + 1 / Math.pow(3, 0.5), ZipfianDistribution.zeta(3, 0.5), 1e-12);
+    }
+
+    @Test
+    public void testZeta_approximation() {
+        long n = 3 * EXACT_ZETA_THRESHOLD;
+        double exact = 0;
+        for (long i = 1; i <= n; i++) {
+            exact += 1 / Math.pow(i, 0.99);
+        }
+
+        assertEquals(exact, ZipfianDistribution.zeta(n, 0.99), exact * 1e-9);
+    }
+
+    @Test
+    public void testZeta_largeKeyCount() {
+        long startMillis = System.currentTimeMillis();
+        ZipfianDistribution distribution = new ZipfianDistribution(10_000_000_000L);
+
+        // the tail is approximated, so a huge key count doesn't take a huge amount of time.
+        assertTrue(System.currentTimeMillis() - startMillis < 10000);
+        assertEquals(10_000_000_000L, distribution.getKeyCount());
+    }
+
+    @Test
+    public void testSample_boundaries() {
+        ZipfianDistribution distribution = new ZipfianDistribution(1000);
+
+        assertEquals(0, distribution.sample(0));
+        long max = distribution.sample(Math.nextDown(1.0));
+        assertTrue(max >= 0);
+        assertTrue(max < 1000);
+    }
+
+    @Test
+    public void testSample_singleKey() {
+        ZipfianDistribution distribution = new ZipfianDistribution(1);
+
+        for (double u = 0; u < 1; u += 0.01) {
+            assertEquals(0, distribution.sample(u));
+        }
+    }
+
+    @Test
+    public void testSample_skewed() {
+        ZipfianDistribution distribution = new ZipfianDistribution(1000);
+
+        int iterations = 100000;
+        int[] counts = new int[1000];
+        for (int k = 0; k < iterations; k++) {
+            counts[(int) distribution.sample((double) k / iterations)]++;
+        }
+
+        assertTrue(counts[0] > counts[1]);
+        assertTrue(counts[1] > counts[10]);
+        assertTrue(counts[10] > counts[999]);
+        // with a zipfian constant of 0.99 key 0 gets roughly 1/zeta(1000) of the samples
+        assertEquals(1 / ZipfianDistribution.zeta(1000, 0.99), (double) counts[0] / iterations, 0.01);
+    }
+}
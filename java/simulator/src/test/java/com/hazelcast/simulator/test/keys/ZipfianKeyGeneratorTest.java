@@ -0,0 +1,25 @@
+package com.hazelcast.simulator.test.keys;
+
+import com.hazelcast.simulator.utils.FastRandom;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class ZipfianKeyGeneratorTest {
+
+    @Test
+    public void testNextKey() {
+        KeyGenerator generator = new ZipfianKeyGenerator(new FastRandom(42), new ZipfianDistribution(100));
+
+        int[] counts = new int[100];
+        for (int k = 0; k < 100000; k++) {
+            long key = generator.nextKey();
+            assertTrue(key >= 0);
+            assertTrue(key < 100);
+            counts[(int) key]++;
+        }
+
+        assertTrue(counts[0] > counts[1]);
+        assertTrue(counts[1] > counts[50]);
+    }
+}
@@ -0,0 +1,127 @@
+package com.hazelcast.simulator.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.BitSet;
+
+import static com.hazelcast.simulator.utils.CpuAffinity.parseCpuList;
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.writeText;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class CpuAffinityTest {
+
+    private final File isolatedCpusFile = new File("isolated-cpus-" + System.nanoTime());
+
+    @After
+    public void after() {
+        deleteQuiet(isolatedCpusFile);
+        CpuAffinity.resetHousekeepingCpus();
+    }
+
+    @Test
+    public void testParseCpuList_singleCpu() {
+        assertEquals(cpus(3), parseCpuList("3"));
+    }
+
+    @Test
+    public void testParseCpuList_range() {
+        assertEquals(cpus(0, 1, 2, 3), parseCpuList("0-3"));
+    }
+
+    @Test
+    public void testParseCpuList_mixed() {
+        assertEquals(cpus(0, 1, 2, 3, 8, 10, 11), parseCpuList(" 0-3, 8,10-11 "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseCpuList_descendingRange() {
+        parseCpuList("3-1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseCpuList_notANumber() {
+        parseCpuList("0,foo");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseCpuList_negative() {
+        parseCpuList("-1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseCpuList_empty() {
+        parseCpuList("");
+    }
+
+    @Test
+    public void testParseCpuList_isolated() {
+        writeText("2-3,6\n", isolatedCpusFile);
+
+        assertEquals(cpus(2, 3, 6), parseCpuList("isolated", isolatedCpusFile));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseCpuList_isolated_whenNoIsolatedCpus() {
+        writeText("\n", isolatedCpusFile);
+
+        parseCpuList("isolated", isolatedCpusFile);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseCpuList_isolated_whenFileMissing() {
+        parseCpuList("isolated", isolatedCpusFile);
+    }
+
+    @Test
+    public void testSetAffinity_whenNull() {
+        assertFalse(CpuAffinity.setAffinity(null));
+    }
+
+    @Test
+    public void testSetAffinity_whenEmpty() {
+        assertFalse(CpuAffinity.setAffinity(new BitSet()));
+    }
+
+    @Test
+    public void testApplyAffinity_whenNoHousekeepingCpus() {
+        BitSet before = CpuAffinity.getAffinity();
+
+        CpuAffinity.applyHousekeepingAffinity();
+        CpuAffinity.applyWorkloadAffinity();
+
+        assertEquals(before, CpuAffinity.getAffinity());
+    }
+
+    @Test
+    public void testSetAffinity() throws Exception {
+        BitSet original = CpuAffinity.getAffinity();
+        assumeTrue(original != null && !original.isEmpty());
+
+        // a fresh thread so the affinity of the test thread isn't changed
+        BitSet[] result = new BitSet[1];
+        boolean[] pinned = new boolean[1];
+        Thread thread = new Thread(() -> {
+            pinned[0] = CpuAffinity.setAffinity(cpus(original.nextSetBit(0)));
+            result[0] = CpuAffinity.getAffinity();
+        });
+        thread.start();
+        thread.join();
+
+        assertTrue(pinned[0]);
+        assertEquals(cpus(original.nextSetBit(0)), result[0]);
+    }
+
+    private static BitSet cpus(int... cpus) {
+        BitSet result = new BitSet();
+        for (int cpu : cpus) {
+            result.set(cpu);
+        }
+        return result;
+    }
+}
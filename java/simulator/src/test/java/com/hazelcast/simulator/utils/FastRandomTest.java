@@ -0,0 +1,121 @@
+package com.hazelcast.simulator.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FastRandomTest {
+
+    private final FastRandom random = new FastRandom();
+
+    @Test
+    public void testSameSeed_sameSequence() {
+        FastRandom random1 = new FastRandom(42);
+        FastRandom random2 = new FastRandom(42);
+
+        for (int k = 0; k < 100; k++) {
+            assertEquals(random1.nextLong(), random2.nextLong());
+        }
+    }
+
+    @Test
+    public void testSetSeed() {
+        FastRandom random1 = new FastRandom(42);
+        long first = random1.nextLong();
+        random1.nextLong();
+
+        random1.setSeed(42);
+
+        assertEquals(first, random1.nextLong());
+    }
+
+    @Test
+    public void testDefaultConstructor_differentSequences() {
+        FastRandom random1 = new FastRandom();
+        FastRandom random2 = new FastRandom();
+
+        assertNotEquals(random1.nextLong(), random2.nextLong());
+    }
+
+    @Test
+    public void testNextDouble() {
+        for (int k = 0; k < 10000; k++) {
+            double value = random.nextDouble();
+            assertTrue(value >= 0);
+            assertTrue(value < 1);
+        }
+    }
+
+    @Test
+    public void testNextFloat() {
+        for (int k = 0; k < 10000; k++) {
+            float value = random.nextFloat();
+            assertTrue(value >= 0);
+            assertTrue(value < 1);
+        }
+    }
+
+    @Test
+    public void testNextInt_withBound() {
+        for (int k = 0; k < 10000; k++) {
+            int value = random.nextInt(7);
+            assertTrue(value >= 0);
+            assertTrue(value < 7);
+        }
+    }
+
+    @Test
+    public void testNextLong_withBound() {
+        assertNextLongWithinBound(1);
+        assertNextLongWithinBound(7);
+        assertNextLongWithinBound(64);
+        assertNextLongWithinBound(Long.MAX_VALUE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextLong_withZeroBound() {
+        random.nextLong(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNextLong_withNegativeBound() {
+        random.nextLong(-1);
+    }
+
+    @Test
+    public void testNextLong_withBound_uniform() {
+        int bound = 10;
+        int iterations = 1000000;
+        int[] counts = new int[bound];
+        for (int k = 0; k < iterations; k++) {
+            counts[(int) random.nextLong(bound)]++;
+        }
+
+        for (int count : counts) {
+            assertEquals(0.1, (double) count / iterations, 0.005);
+        }
+    }
+
+    @Test
+    public void testNextBoolean() {
+        int trueCount = 0;
+        int iterations = 100000;
+        for (int k = 0; k < iterations; k++) {
+            if (random.nextBoolean()) {
+                trueCount++;
+            }
+        }
+
+        assertEquals(0.5, (double) trueCount / iterations, 0.01);
+    }
+
+    private void assertNextLongWithinBound(long bound) {
+        for (int k = 0; k < 10000; k++) {
+            long value = random.nextLong(bound);
+            assertTrue(value >= 0);
+            assertTrue(value < bound);
+        }
+    }
+}
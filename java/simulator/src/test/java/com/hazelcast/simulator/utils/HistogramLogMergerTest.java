@@ -1,13 +1,238 @@
 package com.hazelcast.simulator.utils;
 
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.HdrHistogram.HistogramLogWriter;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingDirectory;
+import static com.hazelcast.simulator.utils.FileUtils.writeText;
 import static com.hazelcast.simulator.utils.ReflectionUtils.invokePrivateConstructor;
+import static com.hazelcast.simulator.utils.TestUtils.createTmpDirectory;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class HistogramLogMergerTest {
 
+    private File runDir;
+
+    @Before
+    public void before() {
+        runDir = createTmpDirectory();
+    }
+
+    @After
+    public void after() {
+        deleteQuiet(runDir);
+    }
+
     @Test
     public void testConstructor() throws Exception {
         invokePrivateConstructor(HistogramLogMerger.class);
     }
+
+    @Test
+    public void testMerge_alignsOnStartTimeStamp() throws Exception {
+        // worker 1 starts at 10.0s, worker 2 at 11.2s; so the 1st interval of worker 2 should be added to the 2nd of worker 1
+        File hdr1 = writeHdr(new File(runDir, "1.hdr"), 10000, 1000, 3, 1);
+        File hdr2 = writeHdr(new File(runDir, "2.hdr"), 11200, 1000, 2, 10);
+        File output = new File(runDir, "merged.hdr");
+
+        int count = HistogramLogMerger.merge(asList(hdr1, hdr2), output, 1000);
+
+        assertEquals(3, count);
+        List<Histogram> histograms = read(output);
+        assertEquals(3, histograms.size());
+        assertInterval(histograms.get(0), 10000, 1);
+        assertInterval(histograms.get(1), 11000, 11);
+        assertInterval(histograms.get(2), 12000, 11);
+    }
+
+    @Test
+    public void testMerge_multipleIntervalsInSameBucket() throws Exception {
+        File hdr = writeHdr(new File(runDir, "1.hdr"), 0, 500, 4, 1);
+        File output = new File(runDir, "merged.hdr");
+
+        HistogramLogMerger.merge(asList(hdr), output, 1000);
+
+        List<Histogram> histograms = read(output);
+        assertEquals(2, histograms.size());
+        assertInterval(histograms.get(0), 0, 2);
+        assertInterval(histograms.get(1), 1000, 2);
+    }
+
+    @Test
+    public void testMerge_intervalsLongerThanOneSecond() throws Exception {
+        // a monitor interval of 5s; worker 2 starts 2.3s after worker 1, so its intervals fall in the same 5s buckets
+        File hdr1 = writeHdr(new File(runDir, "1.hdr"), 10000, 5000, 2, 1);
+        File hdr2 = writeHdr(new File(runDir, "2.hdr"), 12300, 5000, 2, 10);
+        File output = new File(runDir, "merged.hdr");
+
+        int count = HistogramLogMerger.merge(asList(hdr1, hdr2), output, HistogramLogMerger.INFER_BUCKET);
+
+        assertEquals(2, count);
+        List<Histogram> histograms = read(output);
+        assertInterval(histograms.get(0), 10000, 11);
+        assertEquals(15000, histograms.get(0).getEndTimeStamp());
+        assertInterval(histograms.get(1), 15000, 11);
+    }
+
+    @Test
+    public void testMerge_inferredBucketIsRoundedToSeconds() throws Exception {
+        // the first interval of the monitor is a bit longer than the configured 3s
+        File hdr = writeHdr(new File(runDir, "1.hdr"), 500, 3010, 2, 1);
+        File output = new File(runDir, "merged.hdr");
+
+        HistogramLogMerger.merge(asList(hdr), output, HistogramLogMerger.INFER_BUCKET);
+
+        List<Histogram> histograms = read(output);
+        assertEquals(2, histograms.size());
+        assertInterval(histograms.get(0), 0, 1);
+        assertEquals(3000, histograms.get(0).getEndTimeStamp());
+        assertInterval(histograms.get(1), 3000, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMerge_negativeBucket() throws Exception {
+        File hdr = writeHdr(new File(runDir, "1.hdr"), 0, 1000, 1, 1);
+        HistogramLogMerger.merge(asList(hdr), new File(runDir, "merged.hdr"), -1);
+    }
+
+    @Test
+    public void testMerge_emptyInput() throws Exception {
+        File hdr = writeHdr(new File(runDir, "1.hdr"), 0, 1000, 0, 1);
+        File output = new File(runDir, "merged.hdr");
+
+        assertEquals(0, HistogramLogMerger.merge(asList(hdr), output, 1000));
+        assertTrue(output.exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMerge_fileDoesNotExist() throws Exception {
+        HistogramLogMerger.merge(asList(new File(runDir, "notexist.hdr")), new File(runDir, "merged.hdr"), 1000);
+    }
+
+    @Test
+    public void testMergeRunDir() throws Exception {
+        File worker1 = ensureExistingDirectory(runDir, "A1_W1-127.0.0.1-javaclient");
+        File worker2 = ensureExistingDirectory(runDir, "A1_W2-127.0.0.1-javaclient");
+        File notAWorker = ensureExistingDirectory(runDir, "other");
+        writeHdr(new File(worker1, "get.hdr"), 0, 1000, 2, 1);
+        writeHdr(new File(worker2, "get.hdr"), 0, 1000, 2, 2);
+        writeHdr(new File(worker1, "put.hdr"), 0, 1000, 3, 1);
+        writeHdr(new File(notAWorker, "get.hdr"), 0, 1000, 2, 100);
+
+        Map<String, List<File>> files = HistogramLogMerger.findWorkerHdrFiles(runDir);
+        assertEquals(asList("get.hdr", "put.hdr"), new ArrayList<>(files.keySet()));
+        assertEquals(2, files.get("get.hdr").size());
+
+        List<File> result = HistogramLogMerger.mergeRunDir(runDir, 1000, 2);
+
+        assertEquals(asList(new File(runDir, "get.hdr"), new File(runDir, "put.hdr")), result);
+        List<Histogram> get = read(new File(runDir, "get.hdr"));
+        assertEquals(2, get.size());
+        assertInterval(get.get(0), 0, 3);
+        assertInterval(get.get(1), 1000, 3);
+        assertEquals(3, read(new File(runDir, "put.hdr")).size());
+    }
+
+    @Test
+    public void testMain_runDir() throws Exception {
+        File worker = ensureExistingDirectory(runDir, "A1_W1-127.0.0.1-member");
+        writeHdr(new File(worker, "get.hdr"), 0, 1000, 4, 1);
+
+        HistogramLogMerger.main(new String[]{runDir.getAbsolutePath(), "2"});
+
+        List<Histogram> histograms = read(new File(runDir, "get.hdr"));
+        assertEquals(2, histograms.size());
+        assertInterval(histograms.get(0), 0, 2);
+        assertInterval(histograms.get(1), 2000, 2);
+    }
+
+    @Test
+    public void testMain_runDir_bucketInferred() throws Exception {
+        File worker1 = ensureExistingDirectory(runDir, "A1_W1-127.0.0.1-member");
+        File worker2 = ensureExistingDirectory(runDir, "A1_W2-127.0.0.1-member");
+        writeHdr(new File(worker1, "get.hdr"), 0, 3000, 2, 1);
+        writeHdr(new File(worker2, "get.hdr"), 1500, 3000, 2, 1);
+
+        HistogramLogMerger.main(new String[]{runDir.getAbsolutePath()});
+
+        List<Histogram> histograms = read(new File(runDir, "get.hdr"));
+        assertEquals(2, histograms.size());
+        assertInterval(histograms.get(0), 0, 2);
+        assertInterval(histograms.get(1), 3000, 2);
+    }
+
+    @Test
+    public void testMain_filesList() throws Exception {
+        File hdr1 = writeHdr(new File(runDir, "1.hdr"), 0, 1000, 2, 1);
+        File hdr2 = writeHdr(new File(runDir, "2.hdr"), 0, 1000, 2, 1);
+        File listFile = new File(runDir, "list");
+        writeText(hdr1.getAbsolutePath() + "\n" + hdr2.getAbsolutePath() + "\n", listFile);
+        File output = new File(runDir, "merged.hdr");
+
+        HistogramLogMerger.main(new String[]{output.getAbsolutePath(), listFile.getAbsolutePath()});
+
+        List<Histogram> histograms = read(output);
+        assertEquals(2, histograms.size());
+        assertInterval(histograms.get(0), 0, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMain_filesListDoesNotExist() throws Exception {
+        HistogramLogMerger.main(new String[]{new File(runDir, "merged.hdr").getAbsolutePath(), "notexist"});
+    }
+
+    private static File writeHdr(File file, long startMillis, long intervalMillis, int intervals, int valuesPerInterval)
+            throws Exception {
+        HistogramLogWriter writer = new HistogramLogWriter(file);
+        try {
+            writer.setBaseTime(startMillis);
+            writer.outputStartTime(startMillis);
+            writer.outputBaseTime(startMillis);
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+            for (int k = 0; k < intervals; k++) {
+                Histogram histogram = new Histogram(1, 1000000, 2);
+                for (int i = 0; i < valuesPerInterval; i++) {
+                    histogram.recordValue(100);
+                }
+                histogram.setStartTimeStamp(startMillis + k * intervalMillis);
+                histogram.setEndTimeStamp(startMillis + (k + 1) * intervalMillis);
+                writer.outputIntervalHistogram(histogram);
+            }
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private static List<Histogram> read(File file) throws Exception {
+        List<Histogram> result = new ArrayList<>();
+        HistogramLogReader reader = new HistogramLogReader(file);
+        try {
+            Histogram histogram;
+            while ((histogram = (Histogram) reader.nextIntervalHistogram()) != null) {
+                result.add(histogram);
+            }
+        } finally {
+            reader.close();
+        }
+        return result;
+    }
+
+    private static void assertInterval(Histogram histogram, long expectedStartMillis, long expectedCount) {
+        assertEquals(expectedStartMillis, histogram.getStartTimeStamp());
+        assertEquals(expectedCount, histogram.getTotalCount());
+    }
 }
@@ -0,0 +1,108 @@
+package com.hazelcast.simulator.utils;
+
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PercentileExtractorTest {
+
+    private static final double[] PERCENTILES = {0, 1, 25, 50, 75, 90, 99, 99.9, 99.99, 99.999, 99.9999, 100};
+
+    @Test
+    public void testExtract() {
+        Random random = new Random(42);
+        Histogram histogram = new Histogram(1000, 3600000000000L, 2);
+        for (int k = 0; k < 100000; k++) {
+            histogram.recordValue(1000 + (long) (Math.abs(random.nextGaussian()) * 1000000));
+        }
+
+        PercentileExtractor.Statistics statistics = new PercentileExtractor(PERCENTILES).extract(histogram);
+
+        assertStatistics(histogram, statistics);
+    }
+
+    @Test
+    public void testExtract_empty() {
+        Histogram histogram = new Histogram(1000, 3600000000000L, 2);
+
+        PercentileExtractor.Statistics statistics = new PercentileExtractor(PERCENTILES).extract(histogram);
+
+        assertStatistics(histogram, statistics);
+    }
+
+    @Test
+    public void testUpdate() {
+        Random random = new Random(42);
+        PercentileExtractor extractor = new PercentileExtractor(PERCENTILES);
+        Histogram accumulated = new Histogram(1000, 3600000000000L, 2);
+        accumulated.setAutoResize(true);
+
+        for (int interval = 0; interval < 50; interval++) {
+            Histogram histogram = new Histogram(1000, 3600000000000L, 2);
+            // the intervals are shifting, have outliers and sometimes are empty, so the cursors move in both directions
+            int count = interval % 7 == 3 ? 0 : random.nextInt(5000);
+            long base = interval < 25 ? 1000 * (interval + 1) : 1000000 / (interval + 1);
+            for (int k = 0; k < count; k++) {
+                long value = base + (long) (random.nextDouble() * base);
+                if (random.nextInt(1000) == 0) {
+                    value *= 1000;
+                }
+                histogram.recordValue(value);
+            }
+            accumulated.add(histogram);
+
+            extractor.update(histogram, accumulated);
+
+            assertStatistics(histogram, extractor.getIntervalStatistics());
+            assertStatistics(accumulated, extractor.getTotalStatistics());
+        }
+    }
+
+    @Test
+    public void testParsePercentiles() {
+        assertArrayEquals(new double[]{50, 99.9, 99.9999}, PercentileExtractor.parsePercentiles("99.9, 50,99.9999"), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParsePercentiles_invalid() {
+        PercentileExtractor.parsePercentiles("50,foo");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParsePercentiles_duplicate() {
+        PercentileExtractor.parsePercentiles("50,50");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_outOfRange() {
+        new PercentileExtractor(50, 101);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_notAscending() {
+        new PercentileExtractor(99, 50);
+    }
+
+    @Test
+    public void testFormatPercentile() {
+        assertEquals("50", PercentileExtractor.formatPercentile(50.0));
+        assertEquals("99.9", PercentileExtractor.formatPercentile(99.9));
+        assertEquals("99.9999", PercentileExtractor.formatPercentile(99.9999));
+    }
+
+    private static void assertStatistics(Histogram histogram, PercentileExtractor.Statistics statistics) {
+        assertEquals(histogram.getTotalCount(), statistics.getTotalCount());
+        for (int k = 0; k < PERCENTILES.length; k++) {
+            assertEquals("p" + PERCENTILES[k], histogram.getValueAtPercentile(PERCENTILES[k]),
+                    statistics.getValueAtPercentile(k));
+        }
+        assertEquals(histogram.getMinValue(), statistics.getMinValue());
+        assertEquals(histogram.getMaxValue(), statistics.getMaxValue());
+        assertEquals(histogram.getMean(), statistics.getMean(), histogram.getMean() * 1e-9);
+        assertEquals(histogram.getStdDeviation(), statistics.getStdDeviation(), histogram.getStdDeviation() * 1e-9);
+    }
+}
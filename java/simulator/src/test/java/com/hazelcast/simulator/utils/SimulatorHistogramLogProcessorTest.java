@@ -0,0 +1,103 @@
+package com.hazelcast.simulator.utils;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.TestUtils.createTmpDirectory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimulatorHistogramLogProcessorTest {
+
+    private File dir;
+    private File hdrFile;
+
+    @Before
+    public void before() throws Exception {
+        dir = createTmpDirectory();
+        hdrFile = new File(dir, "test.hdr");
+
+        long startMillis = System.currentTimeMillis();
+        HistogramLogWriter writer = new HistogramLogWriter(hdrFile);
+        try {
+            writer.outputStartTime(startMillis);
+            writer.setBaseTime(startMillis);
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+            for (int k = 0; k < 3; k++) {
+                Histogram histogram = new Histogram(1000, 3600000000000L, 2);
+                for (int i = 1; i <= 1000; i++) {
+                    histogram.recordValue(i * 1000L);
+                }
+                histogram.setStartTimeStamp(startMillis + k * 1000);
+                histogram.setEndTimeStamp(startMillis + (k + 1) * 1000);
+                writer.outputIntervalHistogram(histogram);
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    @After
+    public void after() {
+        deleteQuiet(dir);
+    }
+
+    @Test
+    public void testDefaultPercentiles() throws Exception {
+        List<String> lines = process();
+
+        assertTrue(lines.get(2).startsWith("\"Timestamp\",\"StartTime\",\"Int_Count\",\"Int_25%\",\"Int_50%\""));
+        assertTrue(lines.get(2).contains("\"Int_99.999%\",\"Int_Min\""));
+        assertTrue(lines.get(2).contains("\"Total_99.999%\",\"Total_Min%\""));
+        assertEquals(30, lines.get(3).split(",").length);
+    }
+
+    @Test
+    public void testConfiguredPercentiles() throws Exception {
+        List<String> lines = process("-percentiles", "50,99.9999");
+
+        assertEquals("\"Timestamp\",\"StartTime\","
+                        + "\"Int_Count\",\"Int_50%\",\"Int_99.9999%\",\"Int_Min\",\"Int_Max\",\"Int_Mean\","
+                        + "\"Int_Std_Deviation\",\"Int_Throughput\","
+                        + "\"Total_Count\",\"Total_50%\",\"Total_99.9999%\",\"Total_Min%\",\"Total_Max\",\"Total_Mean\","
+                        + "\"Total_Std_Deviation\",\"Total_Throughput\",",
+                lines.get(2));
+        // time range, start time, legend and 3 intervals
+        assertEquals(6, lines.size());
+
+        // the last interval in microseconds
+        String[] values = lines.get(5).split(",");
+        assertEquals(18, values.length);
+        assertEquals("1000", values[2]);
+        assertEquals(500, Double.parseDouble(values[3]), 5);
+        assertEquals("3000", values[10]);
+        assertEquals(1000, Double.parseDouble(values[12]), 10);
+    }
+
+    private List<String> process(String... extraArgs) throws Exception {
+        File output = new File(dir, "test");
+        String[] args = new String[7 + extraArgs.length];
+        args[0] = "-i";
+        args[1] = hdrFile.getAbsolutePath();
+        args[2] = "-o";
+        args[3] = output.getAbsolutePath();
+        args[4] = "-csv";
+        args[5] = "-outputValueUnitRatio";
+        args[6] = "1000";
+        System.arraycopy(extraArgs, 0, args, 7, extraArgs.length);
+
+        try (SimulatorHistogramLogProcessor processor = new SimulatorHistogramLogProcessor(args, true)) {
+            processor.run();
+        }
+        return Files.readAllLines(output.toPath());
+    }
+}
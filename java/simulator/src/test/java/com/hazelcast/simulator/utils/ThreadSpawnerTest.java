@@ -7,6 +7,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeUserDir;
@@ -14,7 +15,10 @@ import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
 import static com.hazelcast.simulator.utils.CommonUtils.sleepSeconds;
 import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
 import static com.hazelcast.simulator.utils.TestUtils.assertEqualsStringFormat;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
 
 public class ThreadSpawnerTest {
 
@@ -52,6 +56,50 @@ public class ThreadSpawnerTest {
         });
     }
 
+    @Test
+    public void testSpawnVirtual() {
+        assumeTrue(ThreadSpawner.isVirtualThreadSupported());
+        final AtomicInteger counter = new AtomicInteger(0);
+
+        ThreadSpawner spawner = new ThreadSpawner("AnyTestCaseId");
+        for (int i = 0; i < 1000; i++) {
+            spawner.spawnVirtual("NamePrefix", new Runnable() {
+                @Override
+                public void run() {
+                    counter.incrementAndGet();
+                }
+            });
+        }
+        spawner.awaitCompletion();
+
+        assertEqualsStringFormat("Expected counter to be %d, but as %d", 1000, counter.get());
+    }
+
+    @Test
+    public void testIsVirtual() throws Exception {
+        assertFalse(ThreadSpawner.isVirtual(Thread.currentThread()));
+        assumeTrue(ThreadSpawner.isVirtualThreadSupported());
+
+        AtomicBoolean virtual = new AtomicBoolean();
+        ThreadSpawner spawner = new ThreadSpawner("AnyTestCaseId");
+        spawner.spawnVirtual("NamePrefix", () -> virtual.set(ThreadSpawner.isVirtual(Thread.currentThread())));
+        spawner.awaitCompletion();
+
+        assertTrue(virtual.get());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSpawnVirtual_whenNotSupported() {
+        assumeFalse(ThreadSpawner.isVirtualThreadSupported());
+
+        ThreadSpawner spawner = new ThreadSpawner("AnyTestCaseId");
+        spawner.spawnVirtual("NamePrefix", new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
     @Test
     public void testThreadSpawner() {
         final AtomicInteger counter = new AtomicInteger(0);
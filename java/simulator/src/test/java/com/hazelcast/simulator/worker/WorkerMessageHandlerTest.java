@@ -13,6 +13,7 @@ import com.hazelcast.simulator.worker.messages.ExecuteScriptMessage;
 import com.hazelcast.simulator.worker.messages.StartPhaseMessage;
 import com.hazelcast.simulator.worker.messages.StopRunMessage;
 import com.hazelcast.simulator.worker.messages.TerminateWorkerMessage;
+import com.hazelcast.simulator.worker.messages.UpdateRateMessage;
 import com.hazelcast.simulator.worker.testcontainer.TestManager;
 import org.junit.After;
 import org.junit.Before;
@@ -24,6 +25,7 @@ import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeUserDir;
 import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
 import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
 import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -105,6 +107,27 @@ public class WorkerMessageHandlerTest {
         assertTrue(promise.hasAnswer());
     }
 
+    @Test
+    public void test_UpdateRateOperation() throws Exception {
+        UpdateRateMessage op = new UpdateRateMessage("foo", 1000);
+
+        processor.process(op, sourceAddress, promise);
+
+        verify(testManager).updateRate(op);
+        assertTrue(promise.hasAnswer());
+    }
+
+    @Test
+    public void test_UpdateRateOperation_whenExecutionGroup() throws Exception {
+        UpdateRateMessage op = new UpdateRateMessage("foo", 1000, "group1");
+
+        processor.process(op, sourceAddress, promise);
+
+        verify(testManager).updateRate(op);
+        assertEquals("group1", op.getExecutionGroup());
+        assertTrue(promise.hasAnswer());
+    }
+
     // make sure that unhandled exceptions are trapped.
     @Test
     public void test_unhandledException() throws Exception {
@@ -0,0 +1,125 @@
+package com.hazelcast.simulator.worker.metronome;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+
+/**
+ * Measures the achieved combined rate of the {@link ConstantCombinedRateMetronome} for a requested rate, using 1 to 128
+ * threads. The reported throughput is the achieved rate; it should match the 'ratePerSecond' parameter.
+ *
+ * The 'cas' variant is how the metronome used to hand out slots: every thread spins on a compareAndSet of the shared
+ * expected start time. The 'ticket' variant is the current {@link ConstantCombinedRateMetronome}.
+ *
+ * Run using the main method.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstantCombinedRateMetronomeBenchmark {
+
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32, 64, 128};
+
+    @State(Scope.Benchmark)
+    public static class Schedule {
+
+        @Param({"ticket", "cas"})
+        public String metronome;
+
+        @Param({"1000000", "10000000"})
+        public long ratePerSecond;
+
+        Metronome master;
+
+        @Setup
+        public void setup() {
+            long intervalNanos = SECONDS.toNanos(1) / ratePerSecond;
+            master = "ticket".equals(metronome)
+                    ? new ConstantCombinedRateMetronome(intervalNanos, true)
+                    : new CasMetronome(intervalNanos, null);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadMetronome {
+
+        Metronome metronome;
+
+        @Setup
+        public void setup(Schedule schedule) {
+            metronome = schedule.master instanceof CasMetronome
+                    ? new CasMetronome(((CasMetronome) schedule.master).intervalNanos, (CasMetronome) schedule.master)
+                    : new ConstantCombinedRateMetronome(schedule.master);
+        }
+    }
+
+    @Benchmark
+    public long waitForNext(ThreadMetronome threadMetronome) {
+        return threadMetronome.metronome.waitForNext();
+    }
+
+    /**
+     * The compareAndSet based schedule, kept here for comparison.
+     */
+    static final class CasMetronome implements Metronome {
+
+        private final long intervalNanos;
+        private final AtomicLong nextExpectedStartNanos;
+
+        CasMetronome(long intervalNanos, CasMetronome master) {
+            this.intervalNanos = intervalNanos;
+            this.nextExpectedStartNanos = master == null ? new AtomicLong() : master.nextExpectedStartNanos;
+        }
+
+        @Override
+        public long waitForNext() {
+            long expectedStartNanos;
+            for (; ; ) {
+                expectedStartNanos = nextExpectedStartNanos.get();
+                if (expectedStartNanos == 0) {
+                    nextExpectedStartNanos.compareAndSet(0, nanoTime());
+                    continue;
+                }
+
+                long now;
+                while ((now = nanoTime()) < expectedStartNanos) {
+                    parkNanos(expectedStartNanos - now);
+                }
+
+                if (nextExpectedStartNanos.compareAndSet(expectedStartNanos, expectedStartNanos + intervalNanos)) {
+                    return expectedStartNanos;
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threadCount : THREAD_COUNTS) {
+            Options options = new OptionsBuilder()
+                    .include(ConstantCombinedRateMetronomeBenchmark.class.getSimpleName())
+                    .threads(threadCount)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
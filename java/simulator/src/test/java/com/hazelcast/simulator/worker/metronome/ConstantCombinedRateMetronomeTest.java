@@ -2,8 +2,19 @@ package com.hazelcast.simulator.worker.metronome;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static com.hazelcast.simulator.TestSupport.spawn;
+import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class ConstantCombinedRateMetronomeTest {
 
@@ -35,4 +46,113 @@ public class ConstantCombinedRateMetronomeTest {
         assertEquals(next, metronome1.waitForNext());
 
     }
+
+    @Test
+    public void test_startsWhenCreated() {
+        long intervalNanos = MILLISECONDS.toNanos(10);
+        ConstantCombinedRateMetronome master = new ConstantCombinedRateMetronome(intervalNanos, true);
+        ConstantCombinedRateMetronome metronome = new ConstantCombinedRateMetronome(master);
+        sleepMillis(100);
+
+        // the slots that were due since the creation are issued right away
+        long first = metronome.waitForNext();
+        assertTrue(System.nanoTime() - first >= MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void test_startOnFirstCall() {
+        long intervalNanos = MILLISECONDS.toNanos(10);
+        ConstantCombinedRateMetronome master = new ConstantCombinedRateMetronome(intervalNanos, true, true);
+        ConstantCombinedRateMetronome metronome = new ConstantCombinedRateMetronome(master);
+        sleepMillis(100);
+
+        // no burst to catch up with the time before the first call
+        long first = metronome.waitForNext();
+        assertTrue(System.nanoTime() - first < MILLISECONDS.toNanos(100));
+        assertEquals(first + intervalNanos, metronome.waitForNext());
+    }
+
+    @Test
+    public void test_setIntervalNanos() {
+        long intervalNanos = MILLISECONDS.toNanos(10);
+        ConstantCombinedRateMetronome master = new ConstantCombinedRateMetronome(intervalNanos, true);
+        ConstantCombinedRateMetronome metronome = new ConstantCombinedRateMetronome(master);
+
+        long next = metronome.waitForNext() + intervalNanos;
+        assertEquals(next, metronome.waitForNext());
+
+        // the schedule continues from the next slot at the new interval
+        master.setIntervalNanos(2 * intervalNanos);
+        next += intervalNanos;
+        assertEquals(next, metronome.waitForNext());
+        next += 2 * intervalNanos;
+        assertEquals(next, metronome.waitForNext());
+        assertEquals(2 * intervalNanos, master.getIntervalNanos());
+    }
+
+    @Test
+    public void test_setIntervalNanos_whenWaiting() throws Exception {
+        ConstantCombinedRateMetronome master = new ConstantCombinedRateMetronome(HOURS.toNanos(1), true);
+        ConstantCombinedRateMetronome metronome1 = new ConstantCombinedRateMetronome(master);
+        ConstantCombinedRateMetronome metronome2 = new ConstantCombinedRateMetronome(master);
+
+        long first = metronome1.waitForNext();
+        Future<Long> future = spawn(metronome2::waitForNext);
+        sleepMillis(100);
+
+        // the slot that is waited for isn't due yet, so it moves to the new schedule
+        master.setIntervalNanos(MILLISECONDS.toNanos(1));
+        long second = future.get(30, SECONDS);
+        assertTrue(second - first < SECONDS.toNanos(30));
+        assertEquals(second + MILLISECONDS.toNanos(1), metronome1.waitForNext());
+    }
+
+    @Test
+    public void test_setIntervalNanos_whenBehindSchedule() {
+        long intervalNanos = MILLISECONDS.toNanos(1);
+        ConstantCombinedRateMetronome master = new ConstantCombinedRateMetronome(intervalNanos, true);
+        ConstantCombinedRateMetronome metronome = new ConstantCombinedRateMetronome(master);
+
+        long next = metronome.waitForNext() + intervalNanos;
+        sleepMillis(50);
+
+        // the slots that are already due keep their expected start time, so the latency is still corrected
+        master.setIntervalNanos(2 * intervalNanos);
+        assertEquals(next, metronome.waitForNext());
+        next += 2 * intervalNanos;
+        assertEquals(next, metronome.waitForNext());
+    }
+
+    @Test
+    public void test_whenConcurrent_thenEverySlotHandedOutOnce() throws Exception {
+        int threadCount = 8;
+        int callsPerThread = 1000;
+        long intervalNanos = MICROSECONDS.toNanos(1);
+        ConstantCombinedRateMetronome master = new ConstantCombinedRateMetronome(intervalNanos, true);
+
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int k = 0; k < threadCount; k++) {
+            ConstantCombinedRateMetronome metronome = new ConstantCombinedRateMetronome(master);
+            futures.add(spawn(() -> {
+                long[] expectedStartNanos = new long[callsPerThread];
+                for (int i = 0; i < callsPerThread; i++) {
+                    expectedStartNanos[i] = metronome.waitForNext();
+                }
+                return expectedStartNanos;
+            }));
+        }
+
+        long[] all = new long[threadCount * callsPerThread];
+        int index = 0;
+        for (Future<long[]> future : futures) {
+            for (long expectedStartNanos : future.get()) {
+                all[index++] = expectedStartNanos;
+            }
+        }
+        Arrays.sort(all);
+
+        for (int i = 1; i < all.length; i++) {
+            assertEquals(intervalNanos, all[i] - all[i - 1]);
+        }
+    }
 }
@@ -0,0 +1,53 @@
+package com.hazelcast.simulator.worker.metronome;
+
+import com.hazelcast.simulator.probes.impl.HdrLatencyProbe;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HybridMetronomeTest extends AbstractMetronomeTest {
+
+    @Override
+    public Metronome createMetronome(long interval, TimeUnit unit) {
+        return new HybridMetronome(unit.toNanos(interval), true, MICROSECONDS.toNanos(100), null);
+    }
+
+    @Test
+    public void testCalibrateParkOvershoot() {
+        long overshootNanos = HybridMetronome.calibrateParkOvershootNanos();
+
+        assertTrue(overshootNanos >= 0);
+        assertTrue(overshootNanos < MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testErrorProbe() {
+        HdrLatencyProbe probe = new HdrLatencyProbe(HybridMetronome.ERROR_PROBE_NAME, false);
+        HybridMetronome metronome = new HybridMetronome(MICROSECONDS.toNanos(200), true, MICROSECONDS.toNanos(100), probe);
+
+        // the first call has a random delay
+        metronome.waitForNext();
+        for (int i = 0; i < 100; i++) {
+            long expectedNanos = metronome.waitForNext();
+            assertTrue(System.nanoTime() >= expectedNanos);
+        }
+
+        long recorded = probe.getRecorder().getIntervalHistogram().getTotalCount();
+        assertTrue(recorded > 0);
+        assertTrue(recorded <= 101);
+    }
+
+    @Test
+    public void testCopy() {
+        HybridMetronome master = new HybridMetronome(1000, false, 50, null);
+        HybridMetronome copy = new HybridMetronome(master);
+
+        assertEquals(1000, copy.getIntervalNanos());
+        assertEquals(50, copy.getSpinNanos());
+    }
+}
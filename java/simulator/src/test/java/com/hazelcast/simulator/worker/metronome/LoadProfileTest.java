@@ -0,0 +1,156 @@
+package com.hazelcast.simulator.worker.metronome;
+
+import com.hazelcast.simulator.worker.testcontainer.IllegalTestException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeUserDir;
+import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.writeText;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadProfileTest {
+
+    private static final double DELTA = 0.001;
+
+    @Before
+    public void before() {
+        setupFakeUserDir();
+    }
+
+    @After
+    public void after() {
+        teardownFakeUserDir();
+    }
+
+    @Test
+    public void testConstant() {
+        LoadProfile profile = LoadProfile.constant(1000);
+
+        assertEquals(1000, profile.operationsAt(SECONDS.toNanos(1)), DELTA);
+        assertEquals(MILLISECONDS.toNanos(1), profile.offsetNanosAt(1));
+        assertEquals("constant", profile.segmentAt(SECONDS.toNanos(10)));
+        assertEquals(1000, profile.getMaxRatePerSecond(), DELTA);
+    }
+
+    @Test
+    public void testRamp() {
+        LoadProfile profile = LoadProfile.parse("loadProfile", "ramp:0,1000,10s");
+
+        // the area under the ramp
+        assertEquals(5000, profile.operationsAt(SECONDS.toNanos(10)), DELTA);
+        assertEquals(1250, profile.operationsAt(SECONDS.toNanos(5)), DELTA);
+        // after the ramp, the end rate is held
+        assertEquals(6000, profile.operationsAt(SECONDS.toNanos(11)), DELTA);
+        assertEquals(SECONDS.toNanos(5), profile.offsetNanosAt(1250));
+        assertEquals(SECONDS.toNanos(11), profile.offsetNanosAt(6000));
+        assertEquals(1000, profile.getMaxRatePerSecond(), DELTA);
+        assertEquals("ramp", profile.segmentAt(SECONDS.toNanos(5)));
+    }
+
+    @Test
+    public void testSteps() {
+        LoadProfile profile = LoadProfile.parse("loadProfile", "steps:100/10s, 0/5s, 200/10s");
+
+        assertEquals(1000, profile.operationsAt(SECONDS.toNanos(10)), DELTA);
+        assertEquals(1000, profile.operationsAt(SECONDS.toNanos(15)), DELTA);
+        assertEquals(1200, profile.operationsAt(SECONDS.toNanos(16)), DELTA);
+        // nothing is scheduled during the step without load
+        assertEquals(SECONDS.toNanos(15), profile.offsetNanosAt(1000));
+        assertEquals(SECONDS.toNanos(16), profile.offsetNanosAt(1200));
+
+        assertEquals("step1", profile.segmentAt(0));
+        assertEquals("step2", profile.segmentAt(SECONDS.toNanos(12)));
+        assertEquals("step3", profile.segmentAt(SECONDS.toNanos(20)));
+        assertEquals("step3", profile.segmentAt(SECONDS.toNanos(100)));
+    }
+
+    @Test
+    public void testSine() {
+        LoadProfile profile = LoadProfile.parse("loadProfile", "sine:1000,500,1m");
+
+        // every period the mean rate is offered
+        assertEquals(60000, profile.operationsAt(SECONDS.toNanos(60)), 1);
+        assertEquals(120000, profile.operationsAt(SECONDS.toNanos(120)), 1);
+        // the first half of the period is above the mean
+        assertTrue(profile.operationsAt(SECONDS.toNanos(30)) > 30000);
+        assertEquals(1500, profile.getMaxRatePerSecond(), DELTA);
+        assertEquals("sine", profile.segmentAt(SECONDS.toNanos(90)));
+    }
+
+    @Test
+    public void testCsv() {
+        File file = new File(getUserDir(), "profile.csv");
+        writeText("epoch,rate\n"
+                + "1600000000,100\n"
+                + "1600000010,300\n"
+                + "1600000020,200\n", file);
+
+        LoadProfile profile = LoadProfile.parse("loadProfile", "csv:" + file.getAbsolutePath());
+
+        assertEquals(4000, profile.operationsAt(SECONDS.toNanos(20)), DELTA);
+        assertEquals(4200, profile.operationsAt(SECONDS.toNanos(21)), DELTA);
+        assertEquals("csv1", profile.segmentAt(SECONDS.toNanos(5)));
+        assertEquals("csv2", profile.segmentAt(SECONDS.toNanos(15)));
+        assertEquals("csv3", profile.segmentAt(SECONDS.toNanos(25)));
+    }
+
+    @Test
+    public void testOffsetNanosAt_isInverseOfOperationsAt() {
+        LoadProfile profile = LoadProfile.parse("loadProfile", "sine:1000,1000,10s");
+
+        for (long offsetNanos = 0; offsetNanos < SECONDS.toNanos(30); offsetNanos += MILLISECONDS.toNanos(123)) {
+            double ops = profile.operationsAt(offsetNanos);
+            assertEquals(offsetNanos, profile.offsetNanosAt(ops), MILLISECONDS.toNanos(1));
+        }
+    }
+
+    @Test
+    public void testStartNanos() {
+        LoadProfile profile = LoadProfile.constant(10);
+        assertEquals(0, profile.getStartNanos());
+
+        long startNanos = profile.startNanos();
+
+        assertTrue(startNanos != 0);
+        assertEquals(startNanos, profile.startNanos());
+        assertEquals(startNanos, profile.getStartNanos());
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testParse_whenUnknownType() {
+        LoadProfile.parse("loadProfile", "square:10,10s");
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testParse_whenMissingType() {
+        LoadProfile.parse("loadProfile", "1000");
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testParse_whenRampToZero() {
+        LoadProfile.parse("loadProfile", "ramp:1000,0,10s");
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testParse_whenAmplitudeLargerThanMean() {
+        LoadProfile.parse("loadProfile", "sine:1000,2000,10s");
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testParse_whenInvalidStep() {
+        LoadProfile.parse("loadProfile", "steps:1000,2000/10s");
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testParse_whenCsvDoesNotExist() {
+        LoadProfile.parse("loadProfile", "csv:" + new File(getUserDir(), "missing.csv").getAbsolutePath());
+    }
+}
@@ -0,0 +1,65 @@
+package com.hazelcast.simulator.worker.metronome;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProfileMetronomeTest {
+
+    @Test
+    public void testUniformArrivals() {
+        // 1000 ops/second over 2 threads; so every thread gets an operation every 2ms.
+        LoadProfile profile = LoadProfile.constant(1000);
+        ProfileMetronome master = new ProfileMetronome(profile, 2, false, true);
+        ProfileMetronome metronome = new ProfileMetronome(master);
+
+        long first = metronome.waitForNext();
+        assertTrue(first >= profile.getStartNanos());
+        assertTrue(first < profile.getStartNanos() + MILLISECONDS.toNanos(2));
+        for (int i = 1; i <= 10; i++) {
+            assertEquals(first + i * MILLISECONDS.toNanos(2), metronome.waitForNext(), 1);
+        }
+    }
+
+    @Test
+    public void testPoissonArrivals() {
+        // a mean inter-arrival time of 1us
+        LoadProfile profile = LoadProfile.constant(SECONDS.toMicros(1));
+        ProfileMetronome metronome = new ProfileMetronome(new ProfileMetronome(profile, 1, true, true));
+
+        int count = 10000;
+        long first = metronome.waitForNext();
+        long previous = first;
+        boolean varies = false;
+        for (int i = 0; i < count; i++) {
+            long next = metronome.waitForNext();
+            varies |= next - previous != MICROSECONDS.toNanos(1);
+            previous = next;
+        }
+
+        // the mean inter-arrival time matches the rate, but the intervals vary.
+        double meanIntervalNanos = (previous - first) / (double) count;
+        assertEquals(MICROSECONDS.toNanos(1), meanIntervalNanos, 100);
+        assertTrue(varies);
+    }
+
+    @Test
+    public void testFollowsProfile() {
+        LoadProfile profile = LoadProfile.parse("loadProfile", "steps:1000/10ms,100000/10ms");
+        ProfileMetronome metronome = new ProfileMetronome(new ProfileMetronome(profile, 1, false, true));
+
+        int operations = 0;
+        long endNanos;
+        do {
+            endNanos = metronome.waitForNext() - profile.getStartNanos();
+            operations++;
+        } while (endNanos < MILLISECONDS.toNanos(20));
+
+        // 10 operations in the first step, 1000 in the second.
+        assertEquals(1010, operations, 2);
+    }
+}
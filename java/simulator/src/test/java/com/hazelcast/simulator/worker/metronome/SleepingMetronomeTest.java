@@ -1,11 +1,38 @@
 package com.hazelcast.simulator.worker.metronome;
 
+import org.junit.Test;
+
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
+import static com.hazelcast.simulator.TestSupport.spawn;
+import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+
 public class SleepingMetronomeTest extends AbstractMetronomeTest {
 
     @Override
     public Metronome createMetronome(long interval, TimeUnit unit) {
         return new SleepingMetronome(unit.toNanos(interval), true);
     }
+
+    @Test
+    public void testSetIntervalNanos_whenWaiting() throws Exception {
+        SleepingMetronome master = new SleepingMetronome(HOURS.toNanos(1), true);
+        final SleepingMetronome metronome = new SleepingMetronome(master);
+
+        Future<Long> future = spawn(() -> {
+            metronome.waitForNext();
+            return metronome.waitForNext();
+        });
+        sleepMillis(100);
+
+        // the waiting thread doesn't need to wait for the old interval of an hour to pass
+        master.setIntervalNanos(MILLISECONDS.toNanos(1));
+        future.get(30, SECONDS);
+        assertEquals(MILLISECONDS.toNanos(1), metronome.getIntervalNanos());
+    }
 }
@@ -0,0 +1,63 @@
+package com.hazelcast.simulator.worker.performance;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeUserDir;
+import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.TestUtils.assertTrueEventually;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OperationsLogWriterTest {
+
+    private File file;
+    private PersistenceWriter persistenceWriter;
+    private OperationsLogWriter writer;
+
+    @Before
+    public void before() {
+        setupFakeUserDir();
+        file = new File(getUserDir(), "operations.csv");
+        writer = new OperationsLogWriter(file);
+    }
+
+    @After
+    public void after() {
+        if (persistenceWriter != null) {
+            persistenceWriter.close();
+        }
+        teardownFakeUserDir();
+    }
+
+    @Test
+    public void testWrite_whenHeaderDropped_thenHeaderWrittenWithNextLine() {
+        // not started, so nothing is taken from the queue; the second write is dropped
+        persistenceWriter = new PersistenceWriter(1, 60000, 1024, 60000);
+        File otherFile = new File(getUserDir(), "other.csv");
+        persistenceWriter.append(otherFile, "");
+        write(1000);
+
+        persistenceWriter.start();
+        // the queue is empty again once the other file has been opened
+        assertTrueEventually(() -> assertTrue(otherFile.exists()));
+        write(2000);
+        write(3000);
+        persistenceWriter.close();
+
+        String[] lines = fileAsText(file).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("epoch,timestamp,operations,"));
+        assertTrue(lines[1], lines[1].startsWith("2,"));
+        assertTrue(lines[2], lines[2].startsWith("3,"));
+    }
+
+    private void write(long timeMillis) {
+        writer.write(persistenceWriter, timeMillis, "timestamp", 10, 10, 10, null, 0, -1, -1);
+    }
+}
@@ -11,10 +11,12 @@ import com.hazelcast.simulator.worker.messages.PerformanceStatsMessage;
 import com.hazelcast.simulator.worker.testcontainer.TestContainer;
 import com.hazelcast.simulator.worker.testcontainer.TestContextImpl;
 import com.hazelcast.simulator.worker.testcontainer.TestManager;
+import org.HdrHistogram.HistogramLogReader;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -23,7 +25,11 @@ import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
 import static com.hazelcast.simulator.utils.CommonUtils.joinThread;
 import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
 import static com.hazelcast.simulator.utils.EmptyStatement.ignore;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
 import static com.hazelcast.simulator.utils.TestUtils.assertTrueEventually;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
@@ -119,6 +125,115 @@ public class PerformanceMonitorTest {
         performanceMonitor.close();
     }
 
+    @Test
+    public void test_whenTestWithLoadProfile_thenSegmentsTagged() {
+        performanceMonitor.start();
+
+        TestCase testCase = new TestCase(TEST_NAME)
+                .setProperty("threadCount", 1)
+                .setProperty("loadProfile", "steps:5/10m");
+        TestContext testContext = addTest(new DummyTest(), testCase);
+
+        Thread runTestThread = new RunTestThread();
+        runTestThread.start();
+
+        File operationsFile = new File(getUserDir(), TEST_NAME + ".operations.csv");
+        File hdrFile = new File(getUserDir(), TEST_NAME + ".timestep.hdr");
+        assertTrueEventually(() -> {
+            assertTrue(operationsFile.exists());
+            assertTrue(hdrFile.exists());
+            String[] lines = fileAsText(operationsFile).split("\n");
+            assertTrue(lines.length > 1);
+            assertTrue(lines[0].contains(",segment,target-operations/second,"));
+            assertTrue(lines[1].contains(",step1,"));
+            assertTrue(fileAsText(hdrFile).contains("Tag=step1,"));
+        });
+
+        testContext.stop();
+        joinThread(runTestThread);
+
+        performanceMonitor.close();
+    }
+
+    @Test
+    public void test_whenTestRunning_thenCostPerOperationWritten() {
+        performanceMonitor.start();
+
+        TestContext testContext = addTest(new DummyTest());
+
+        Thread runTestThread = new RunTestThread();
+        runTestThread.start();
+
+        File operationsFile = new File(getUserDir(), TEST_NAME + ".operations.csv");
+        assertTrueEventually(() -> {
+            assertTrue(operationsFile.exists());
+            String[] lines = fileAsText(operationsFile).split("\n");
+            assertTrue(lines.length > 1);
+            assertTrue(lines[0].endsWith(",allocated-bytes/op,cpu-ns/op"));
+            // the cpu time of the timestep thread is known, so the last column isn't empty
+            assertTrue(lines[lines.length - 1].matches(".*,[0-9.]+$"));
+        });
+
+        testContext.stop();
+        joinThread(runTestThread);
+
+        performanceMonitor.close();
+    }
+
+    @Test
+    public void test_whenRecordSlowOperations_thenSlowOperationsWritten() {
+        performanceMonitor.start();
+
+        TestCase testCase = new TestCase(TEST_NAME)
+                .setProperty("threadCount", 1)
+                .setProperty("recordSlowOperationsThresholdNs", MILLISECONDS.toNanos(50));
+        TestContext testContext = addTest(new DummyTest(), testCase);
+
+        Thread runTestThread = new RunTestThread();
+        runTestThread.start();
+
+        File slowOperationsFile = new File(getUserDir(), TEST_NAME + ".slow-ops");
+        assertTrueEventually(() -> {
+            assertTrue(slowOperationsFile.exists());
+            String[] lines = fileAsText(slowOperationsFile).split("\n");
+            assertTrue(lines.length > 1);
+            assertTrue(lines[0].equals("start-epoch,latency-us,execution-group,operation,thread,tag"));
+            // DummyTest sleeps 100ms in every timestep
+            assertTrue(lines[1], lines[1].contains(",timestep,"));
+        });
+
+        testContext.stop();
+        joinThread(runTestThread);
+
+        performanceMonitor.close();
+    }
+
+    @Test
+    public void test_whenTestCompleted_thenHistogramsReadable() throws Exception {
+        performanceMonitor.start();
+
+        TestContext testContext = addTest(new DummyTest());
+
+        Thread runTestThread = new RunTestThread();
+        runTestThread.start();
+
+        File hdrFile = new File(getUserDir(), TEST_NAME + ".timestep.hdr");
+        assertTrueEventually(() -> assertTrue(hdrFile.exists()));
+
+        testContext.stop();
+        joinThread(runTestThread);
+        performanceMonitor.close();
+
+        int histogramCount = 0;
+        try (HistogramLogReader reader = new HistogramLogReader(hdrFile)) {
+            while (reader.nextIntervalHistogram() != null) {
+                histogramCount++;
+            }
+        }
+        assertTrue(histogramCount > 0);
+        assertTrue(fileAsText(hdrFile).contains("[Latency histograms for " + TEST_NAME + ".timestep]"));
+    }
+
     private TestContext addTest(Object test) {
         return addTest(test, 0);
     }
@@ -126,6 +241,14 @@ public class PerformanceMonitorTest {
     private DelayTestContext addTest(Object test, int delayMillis) {
         TestCase testCase = new TestCase(TEST_NAME);
         testCase.setProperty("threadCount", 1);
+        return addTest(test, testCase, delayMillis);
+    }
+
+    private DelayTestContext addTest(Object test, TestCase testCase) {
+        return addTest(test, testCase, 0);
+    }
+
+    private DelayTestContext addTest(Object test, TestCase testCase, int delayMillis) {
         DelayTestContext testContext = new DelayTestContext(delayMillis);
         TestContainer testContainer = new TestContainer(testContext, test, testCase);
 
@@ -1,9 +1,12 @@
 package com.hazelcast.simulator.worker.performance;
 
+import org.HdrHistogram.Histogram;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class PerformanceStatsTest {
@@ -101,4 +104,75 @@ public class PerformanceStatsTest {
     public void testToString() {
         assertNotNull(new PerformanceStats().toString());
     }
+
+    @Test
+    public void testIntervalHistogram() {
+        Histogram histogram = PerformanceStats.newHistogram();
+        for (int k = 1; k <= 1000; k++) {
+            histogram.recordValue(k * 1000);
+        }
+        PerformanceStats stats = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setIntervalHistogram(histogram);
+        histogram.reset();
+
+        Histogram result = stats.getIntervalHistogram();
+
+        assertEquals(1000, result.getTotalCount());
+        assertEquals(500000, result.getValueAtPercentile(50), 5000);
+    }
+
+    @Test
+    public void testIntervalHistogram_whenNotSet() {
+        assertNull(new PerformanceStats().getIntervalHistogram());
+    }
+
+    @Test
+    public void testIntervalHistogram_copiedByCopyConstructor() {
+        Histogram histogram = PerformanceStats.newHistogram();
+        histogram.recordValue(1000);
+        PerformanceStats stats = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setIntervalHistogram(histogram);
+
+        assertEquals(1, new PerformanceStats(stats).getIntervalHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testSteadyState_whenAdded_thenOnlySetIfAllSteady() {
+        PerformanceStats steady = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setSteadyState(true);
+        PerformanceStats warmingUp = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200);
+
+        PerformanceStats allSteady = PerformanceStats.aggregateAll(steady, new PerformanceStats(steady));
+        assertTrue(allSteady.isSteadyState());
+
+        PerformanceStats notAllSteady = PerformanceStats.aggregateAll(steady, warmingUp);
+        assertFalse(notAllSteady.isSteadyState());
+    }
+
+    @Test
+    public void testIntervalPauses_whenAdded_thenMaximum() {
+        PerformanceStats stats1 = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setIntervalPauses(30, 20);
+        PerformanceStats stats2 = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setIntervalPauses(10, 10);
+
+        PerformanceStats result = PerformanceStats.aggregateAll(stats1, stats2);
+
+        assertEquals(30, result.getIntervalPauseTotalNanos());
+        assertEquals(20, result.getIntervalPauseMaxNanos());
+    }
+
+    @Test
+    public void testIntervalCost_whenAdded_thenMaximum() {
+        PerformanceStats stats1 = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setIntervalCost(64, 1000);
+        PerformanceStats stats2 = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200).setIntervalCost(128, 500);
+
+        PerformanceStats result = PerformanceStats.aggregateAll(stats1, stats2);
+
+        assertEquals(128, result.getIntervalAllocatedBytesPerOp(), 0);
+        assertEquals(1000, result.getIntervalCpuNanosPerOp(), 0);
+    }
+
+    @Test
+    public void testIntervalCost_whenNotSet() {
+        PerformanceStats stats = new PerformanceStats(100, 5.0, 10.0, 175.0d, 150, 200);
+
+        assertEquals(-1, stats.getIntervalAllocatedBytesPerOp(), 0);
+        assertEquals(-1, stats.getIntervalCpuNanosPerOp(), 0);
+    }
 }
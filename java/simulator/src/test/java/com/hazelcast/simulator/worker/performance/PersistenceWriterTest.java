@@ -0,0 +1,151 @@
+package com.hazelcast.simulator.worker.performance;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeUserDir;
+import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
+import static com.hazelcast.simulator.utils.CommonUtils.sleepMillis;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static com.hazelcast.simulator.utils.TestUtils.assertTrueEventually;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PersistenceWriterTest {
+
+    private File file;
+    private PersistenceWriter writer;
+
+    @Before
+    public void before() {
+        setupFakeUserDir();
+        file = new File(getUserDir(), "test.csv");
+    }
+
+    @After
+    public void after() {
+        if (writer != null) {
+            writer.close();
+        }
+        teardownFakeUserDir();
+    }
+
+    @Test
+    public void test_whenClosed_thenWritesDone() {
+        writer = new PersistenceWriter(16, 60000, 1024, 60000);
+        writer.start();
+
+        assertTrue(writer.append(file, "a\n"));
+        assertTrue(writer.write(file, out -> out.write('b')));
+        writer.close();
+
+        assertEquals("a\nb", fileAsText(file));
+        assertEquals(0, writer.droppedWrites());
+        assertEquals(0, writer.lateWrites());
+    }
+
+    @Test
+    public void test_whenFlushIntervalPassed_thenFlushed() {
+        writer = new PersistenceWriter(16, 100, 1024, 60000);
+        writer.start();
+
+        writer.append(file, "a\n");
+
+        assertTrueEventually(() -> {
+            assertTrue(file.exists());
+            assertEquals("a\n", fileAsText(file));
+        });
+    }
+
+    @Test
+    public void test_whenBufferFull_thenFlushed() {
+        writer = new PersistenceWriter(16, 60000, 4, 60000);
+        writer.start();
+
+        writer.append(file, "abcdefgh");
+
+        assertTrueEventually(() -> {
+            assertTrue(file.exists());
+            assertEquals("abcdefgh", fileAsText(file));
+        });
+    }
+
+    @Test
+    public void test_sync() {
+        writer = new PersistenceWriter(16, 60000, 1024, 60000);
+        writer.start();
+
+        writer.append(file, "a\n");
+        writer.sync(file);
+        assertTrueEventually(() -> {
+            assertTrue(file.exists());
+            assertEquals("a\n", fileAsText(file));
+        });
+
+        // a synced file is final
+        assertFalse(writer.append(file, "b\n"));
+        writer.close();
+        assertEquals("a\n", fileAsText(file));
+        assertEquals(1, writer.droppedWrites());
+    }
+
+    @Test
+    public void test_whenQueueFull_thenDropped() {
+        // not started, so nothing is taken from the queue
+        writer = new PersistenceWriter(1, 60000, 1024, 60000);
+
+        assertTrue(writer.append(file, "a\n"));
+        assertFalse(writer.append(file, "b\n"));
+
+        assertEquals(1, writer.droppedWrites());
+    }
+
+    @Test
+    public void test_whenQueueFull_thenSyncWaits() throws Exception {
+        // not started, so nothing is taken from the queue
+        writer = new PersistenceWriter(1, 60000, 1024, 60000);
+        writer.append(file, "a\n");
+
+        Thread syncThread = new Thread(() -> writer.sync(file));
+        syncThread.start();
+        sleepMillis(200);
+        assertTrue(syncThread.isAlive());
+
+        writer.start();
+        syncThread.join();
+        assertTrueEventually(() -> {
+            assertTrue(file.exists());
+            assertEquals("a\n", fileAsText(file));
+        });
+        assertEquals(0, writer.droppedWrites());
+    }
+
+    @Test
+    public void test_whenExecutedAfterThreshold_thenLate() {
+        writer = new PersistenceWriter(16, 60000, 1024, 10);
+
+        writer.append(file, "a\n");
+        sleepMillis(50);
+        writer.start();
+        writer.close();
+
+        assertEquals("a\n", fileAsText(file));
+        assertEquals(1, writer.lateWrites());
+    }
+
+    @Test
+    public void test_whenClosed_thenWriteDropped() {
+        writer = new PersistenceWriter(16, 60000, 1024, 60000);
+        writer.start();
+        writer.close();
+
+        assertFalse(writer.append(file, "a\n"));
+        assertEquals(1, writer.droppedWrites());
+        assertFalse(file.exists());
+    }
+}
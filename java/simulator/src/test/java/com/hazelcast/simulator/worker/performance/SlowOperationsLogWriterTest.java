@@ -0,0 +1,65 @@
+package com.hazelcast.simulator.worker.performance;
+
+import com.hazelcast.simulator.probes.SlowOperationRecorder.SlowOperation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hazelcast.simulator.TestEnvironmentUtils.setupFakeUserDir;
+import static com.hazelcast.simulator.TestEnvironmentUtils.teardownFakeUserDir;
+import static com.hazelcast.simulator.utils.FileUtils.fileAsText;
+import static com.hazelcast.simulator.utils.FileUtils.getUserDir;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.junit.Assert.assertEquals;
+
+public class SlowOperationsLogWriterTest {
+
+    private PersistenceWriter persistenceWriter;
+    private File file;
+    private SlowOperationsLogWriter writer;
+
+    @Before
+    public void before() {
+        setupFakeUserDir();
+        persistenceWriter = new PersistenceWriter(16, 60000, 1024, 60000);
+        persistenceWriter.start();
+        file = new File(getUserDir(), "test.slow-ops");
+        writer = new SlowOperationsLogWriter(file);
+    }
+
+    @After
+    public void after() {
+        persistenceWriter.close();
+        teardownFakeUserDir();
+    }
+
+    @Test
+    public void testWrite() {
+        write(new SlowOperation(1500, MICROSECONDS.toNanos(200), "readers", "get", "thread-1", 42));
+        write(new SlowOperation(2500, MICROSECONDS.toNanos(300), null, "put", "thread-2", null));
+        persistenceWriter.close();
+
+        assertEquals("start-epoch,latency-us,execution-group,operation,thread,tag\n"
+                + "1.5,200,readers,get,thread-1,42\n"
+                + "2.5,300,,put,thread-2,\n", fileAsText(file));
+    }
+
+    @Test
+    public void testWrite_whenSpecialCharacters_thenQuoted() {
+        write(new SlowOperation(1000, MICROSECONDS.toNanos(200), null, "get", "thread,1", "a\"b\nc"));
+        persistenceWriter.close();
+
+        String[] lines = fileAsText(file).split("\n", 2);
+        assertEquals("1,200,,get,\"thread,1\",\"a\"\"b\nc\"\n", lines[1]);
+    }
+
+    private void write(SlowOperation slowOperation) {
+        List<SlowOperation> slowOperations = new ArrayList<>();
+        slowOperations.add(slowOperation);
+        writer.write(persistenceWriter, slowOperations);
+    }
+}
@@ -0,0 +1,108 @@
+package com.hazelcast.simulator.worker.performance;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.worker.testcontainer.IllegalTestException;
+import com.hazelcast.simulator.worker.testcontainer.PropertyBinding;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SteadyStateDetectorTest {
+
+    private static final long INTERVAL_MILLIS = 1000;
+
+    @Test
+    public void test_whenStable_thenSteadyAfterWindow() {
+        SteadyStateDetector detector = new SteadyStateDetector(false, 4, 0.1, 0.2, 1);
+
+        // the first interval has no compilation time to compare with
+        for (int k = 0; k < 4; k++) {
+            assertFalse(detector.update(INTERVAL_MILLIS, 1000, 500, 100));
+        }
+        assertTrue(detector.update(INTERVAL_MILLIS, 1000, 500, 100));
+        assertTrue(detector.isSteadyState());
+
+        // steady state is only reached once
+        assertFalse(detector.update(INTERVAL_MILLIS, 10, 5000, 1000));
+        assertTrue(detector.isSteadyState());
+    }
+
+    @Test
+    public void test_whenThroughputVaries_thenNotSteady() {
+        SteadyStateDetector detector = new SteadyStateDetector(false, 4, 0.1, 0.2, 1);
+
+        for (int k = 0; k < 20; k++) {
+            assertFalse(detector.update(INTERVAL_MILLIS, k % 2 == 0 ? 1000 : 500, 500, -1));
+        }
+    }
+
+    @Test
+    public void test_whenLatencyDrifts_thenNotSteady() {
+        SteadyStateDetector detector = new SteadyStateDetector(false, 4, 0.1, 0.2, 1);
+
+        for (int k = 0; k < 20; k++) {
+            // the latency drops 20% every interval, e.g. because the JIT is still optimizing
+            assertFalse(detector.update(INTERVAL_MILLIS, 1000, (long) (5000 * Math.pow(0.8, k)), -1));
+        }
+    }
+
+    @Test
+    public void test_whenCompiling_thenNotSteady() {
+        SteadyStateDetector detector = new SteadyStateDetector(false, 4, 0.1, 0.2, 1);
+
+        long compilationMillis = 0;
+        for (int k = 0; k < 20; k++) {
+            compilationMillis += 50;
+            assertFalse(detector.update(INTERVAL_MILLIS, 1000, 500, compilationMillis));
+        }
+
+        // the compilation settles down
+        for (int k = 0; k < 3; k++) {
+            assertFalse(detector.update(INTERVAL_MILLIS, 1000, 500, compilationMillis));
+        }
+        assertTrue(detector.update(INTERVAL_MILLIS, 1000, 500, compilationMillis));
+    }
+
+    @Test
+    public void test_whenNoLatency_thenOnlyThroughput() {
+        SteadyStateDetector detector = new SteadyStateDetector(false, 2, 0.1, 0.2, 1);
+
+        assertFalse(detector.update(INTERVAL_MILLIS, 1000, -1, -1));
+        assertTrue(detector.update(INTERVAL_MILLIS, 1000, -1, -1));
+    }
+
+    @Test
+    public void test_whenNoOperations_thenNotSteady() {
+        SteadyStateDetector detector = new SteadyStateDetector(false, 2, 0.1, 0.2, 1);
+
+        for (int k = 0; k < 10; k++) {
+            assertFalse(detector.update(INTERVAL_MILLIS, 0, -1, -1));
+        }
+    }
+
+    @Test
+    public void test_properties() {
+        PropertyBinding binding = new PropertyBinding(new TestCase("foo")
+                .setProperty("measureAfterSteadyState", true)
+                .setProperty("steadyStateWindow", 10)
+                .setProperty("steadyStateMaxCv", 0.05)
+                .setProperty("steadyStateMaxDrift", 0.1)
+                .setProperty("steadyStateMaxCompilationPercentage", 2));
+
+        SteadyStateDetector detector = new SteadyStateDetector(binding);
+
+        assertTrue(detector.isMeasureAfterSteadyState());
+        binding.ensureNoUnusedProperties();
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void test_whenWindowTooSmall() {
+        new SteadyStateDetector(false, 1, 0.1, 0.2, 1);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void test_whenInvalidCompilationPercentage() {
+        new SteadyStateDetector(false, 4, 0.1, 0.2, 101);
+    }
+}
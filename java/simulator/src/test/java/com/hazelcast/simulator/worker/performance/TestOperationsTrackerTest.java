@@ -0,0 +1,93 @@
+package com.hazelcast.simulator.worker.performance;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.probes.impl.HdrLatencyProbe;
+import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.worker.testcontainer.TestContainer;
+import com.hazelcast.simulator.worker.testcontainer.TestContextImpl;
+import org.HdrHistogram.Histogram;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestOperationsTrackerTest {
+
+    private static final long INTERVAL_MILLIS = 1000;
+    private static final long OPERATIONS_PER_INTERVAL = 1000;
+
+    private final TestContextImpl testContext = new TestContextImpl("test", "localhost", mock(Server.class));
+    private final TestContainer container = mock(TestContainer.class);
+    private long iteration;
+    private long nowMillis = 1000;
+
+    @Before
+    public void before() {
+        testContext.setLatencyProbeClass(HdrLatencyProbe.class);
+        when(container.getTestContext()).thenReturn(testContext);
+        when(container.getTestCase()).thenReturn(new TestCase("test"));
+        when(container.isRunning()).thenReturn(true);
+        when(container.getRunStartedMillis()).thenReturn(nowMillis);
+    }
+
+    @Test
+    public void test_diagnosticProbesNotMerged() {
+        TestOperationsTracker tracker = newTracker(new SteadyStateDetector(false, 2, 0.1, 0.2, 100));
+        LatencyProbe timeStepProbe = testContext.getLatencyProbe("timeStep", false);
+        LatencyProbe jitterProbe = testContext.getDiagnosticProbe("jitter");
+        LatencyProbe metronomeErrorProbe = testContext.getDiagnosticProbe("metronomeError");
+        startTracking(tracker);
+
+        for (int k = 0; k < 100; k++) {
+            timeStepProbe.recordValue(MICROSECONDS.toNanos(100));
+            jitterProbe.recordValue(MILLISECONDS.toNanos(500));
+            metronomeErrorProbe.recordValue(MILLISECONDS.toNanos(500));
+        }
+        assertTrue(nextInterval(tracker));
+
+        Histogram histogram = tracker.createPerformanceStats().getIntervalHistogram();
+        assertEquals(100, histogram.getTotalCount());
+        assertTrue(histogram.getMaxValue() < MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    public void test_steadyStateFromOperationProbesOnly() {
+        TestOperationsTracker tracker = newTracker(new SteadyStateDetector(false, 4, 0.1, 0.2, 100));
+        LatencyProbe timeStepProbe = testContext.getLatencyProbe("timeStep", false);
+        LatencyProbe jitterProbe = testContext.getDiagnosticProbe("jitter");
+        startTracking(tracker);
+
+        for (int interval = 1; interval <= 6; interval++) {
+            for (int k = 0; k < 100; k++) {
+                timeStepProbe.recordValue(MICROSECONDS.toNanos(100));
+                // the jitter keeps growing; it would prevent steady state if it was merged
+                jitterProbe.recordValue(MILLISECONDS.toNanos(10L * interval * interval));
+            }
+            assertTrue(nextInterval(tracker));
+        }
+
+        assertTrue(tracker.createPerformanceStats().isSteadyState());
+    }
+
+    private TestOperationsTracker newTracker(SteadyStateDetector steadyStateDetector) {
+        return new TestOperationsTracker(container, steadyStateDetector);
+    }
+
+    private void startTracking(TestOperationsTracker tracker) {
+        // the first update only takes the baseline
+        assertEquals(false, tracker.update(INTERVAL_MILLIS, nowMillis));
+    }
+
+    private boolean nextInterval(TestOperationsTracker tracker) {
+        iteration += OPERATIONS_PER_INTERVAL;
+        when(container.iteration()).thenReturn(iteration);
+        nowMillis += INTERVAL_MILLIS;
+        return tracker.update(INTERVAL_MILLIS, nowMillis);
+    }
+}
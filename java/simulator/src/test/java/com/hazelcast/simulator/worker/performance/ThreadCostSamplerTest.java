@@ -0,0 +1,126 @@
+package com.hazelcast.simulator.worker.performance;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ThreadCostSamplerTest {
+
+    private final ThreadMXBean threadMXBean = mockThreadMXBean();
+    private final ThreadCostSampler sampler = new ThreadCostSampler(threadMXBean);
+
+    @Test
+    public void test_beforeSample() {
+        assertEquals(-1, sampler.intervalAllocatedBytes());
+        assertEquals(-1, sampler.intervalCpuNanos());
+    }
+
+    @Test
+    public void test_sample() {
+        List<Thread> threads = asList(new Thread(), new Thread());
+        when(threadMXBean.getThreadAllocatedBytes(any(long[].class))).thenReturn(new long[]{100, 200});
+        when(threadMXBean.getThreadCpuTime(any(long[].class))).thenReturn(new long[]{1000, 2000});
+        sampler.sample(threads);
+
+        when(threadMXBean.getThreadAllocatedBytes(any(long[].class))).thenReturn(new long[]{150, 400});
+        when(threadMXBean.getThreadCpuTime(any(long[].class))).thenReturn(new long[]{1500, 2500});
+        sampler.sample(threads);
+
+        assertEquals(250, sampler.intervalAllocatedBytes());
+        assertEquals(1000, sampler.intervalCpuNanos());
+    }
+
+    @Test
+    public void test_sample_whenNewThread_thenCountedFromStart() {
+        Thread thread1 = new Thread();
+        when(threadMXBean.getThreadAllocatedBytes(any(long[].class))).thenReturn(new long[]{100});
+        when(threadMXBean.getThreadCpuTime(any(long[].class))).thenReturn(new long[]{1000});
+        sampler.sample(singletonList(thread1));
+
+        when(threadMXBean.getThreadAllocatedBytes(any(long[].class))).thenReturn(new long[]{100, 50});
+        when(threadMXBean.getThreadCpuTime(any(long[].class))).thenReturn(new long[]{1000, 500});
+        sampler.sample(asList(thread1, new Thread()));
+
+        assertEquals(50, sampler.intervalAllocatedBytes());
+        assertEquals(500, sampler.intervalCpuNanos());
+    }
+
+    @Test
+    public void test_sample_whenTerminated_thenIgnored() {
+        List<Thread> threads = asList(new Thread(), new Thread());
+        when(threadMXBean.getThreadAllocatedBytes(any(long[].class))).thenReturn(new long[]{100, 200});
+        when(threadMXBean.getThreadCpuTime(any(long[].class))).thenReturn(new long[]{1000, 2000});
+        sampler.sample(threads);
+
+        when(threadMXBean.getThreadAllocatedBytes(any(long[].class))).thenReturn(new long[]{-1, 300});
+        when(threadMXBean.getThreadCpuTime(any(long[].class))).thenReturn(new long[]{-1, 2100});
+        sampler.sample(threads);
+
+        assertEquals(100, sampler.intervalAllocatedBytes());
+        assertEquals(100, sampler.intervalCpuNanos());
+
+        when(threadMXBean.getThreadAllocatedBytes(any(long[].class))).thenReturn(new long[]{-1, -1});
+        when(threadMXBean.getThreadCpuTime(any(long[].class))).thenReturn(new long[]{-1, -1});
+        sampler.sample(threads);
+
+        assertEquals(-1, sampler.intervalAllocatedBytes());
+        assertEquals(-1, sampler.intervalCpuNanos());
+    }
+
+    @Test
+    public void test_sample_whenNotSupported() {
+        ThreadCostSampler sampler = new ThreadCostSampler(mock(java.lang.management.ThreadMXBean.class));
+
+        sampler.sample(singletonList(Thread.currentThread()));
+        sampler.sample(singletonList(Thread.currentThread()));
+
+        assertEquals(-1, sampler.intervalAllocatedBytes());
+        assertEquals(-1, sampler.intervalCpuNanos());
+    }
+
+    @Test
+    public void test_sample_whenCpuTimeDisabled() {
+        when(threadMXBean.isThreadCpuTimeEnabled()).thenReturn(false);
+        when(threadMXBean.getThreadAllocatedBytes(any(long[].class))).thenReturn(new long[]{100});
+
+        sampler.sample(singletonList(Thread.currentThread()));
+
+        assertEquals(100, sampler.intervalAllocatedBytes());
+        assertEquals(-1, sampler.intervalCpuNanos());
+    }
+
+    @Test
+    public void test_sample_withPlatformThreadMXBean() {
+        ThreadCostSampler sampler = new ThreadCostSampler();
+        List<Thread> threads = singletonList(Thread.currentThread());
+        sampler.sample(threads);
+
+        byte[][] bytes = new byte[16][];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = new byte[64 * 1024];
+        }
+        sampler.sample(threads);
+
+        assertTrue(bytes[bytes.length - 1].length > 0);
+        assertTrue("allocatedBytes: " + sampler.intervalAllocatedBytes(), sampler.intervalAllocatedBytes() >= 16 * 64 * 1024);
+        assertTrue("cpuNanos: " + sampler.intervalCpuNanos(), sampler.intervalCpuNanos() >= 0);
+    }
+
+    private static ThreadMXBean mockThreadMXBean() {
+        ThreadMXBean threadMXBean = mock(ThreadMXBean.class);
+        when(threadMXBean.isThreadAllocatedMemorySupported()).thenReturn(true);
+        when(threadMXBean.isThreadAllocatedMemoryEnabled()).thenReturn(true);
+        when(threadMXBean.isThreadCpuTimeSupported()).thenReturn(true);
+        when(threadMXBean.isThreadCpuTimeEnabled()).thenReturn(true);
+        return threadMXBean;
+    }
+}
@@ -0,0 +1,99 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+
+public class AliasMethodSelectorTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct_whenEmpty() {
+        new AliasMethodSelector();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct_whenNegative() {
+        new AliasMethodSelector(0.5, -0.5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct_whenNaN() {
+        new AliasMethodSelector(0.5, Double.NaN);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstruct_whenAllZero() {
+        new AliasMethodSelector(0, 0);
+    }
+
+    @Test
+    public void testSingleIndex() {
+        AliasMethodSelector selector = new AliasMethodSelector(1);
+        SplittableRandom random = new SplittableRandom(0);
+
+        assertEquals(1, selector.size());
+        for (int k = 0; k < 1000; k++) {
+            assertEquals(0, selector.select(random));
+        }
+    }
+
+    @Test
+    public void testTableProbabilities() {
+        assertTableProbabilities(0.5, 0.5);
+        assertTableProbabilities(0.1, 0.9);
+        assertTableProbabilities(0.000001, 0.999999);
+        assertTableProbabilities(0.001, 0.5, 0.1, 0.009, 0.39);
+        assertTableProbabilities(0.2, 0, 0.3, 0.5);
+    }
+
+    @Test
+    public void testTableProbabilities_notNormalized() {
+        AliasMethodSelector selector = new AliasMethodSelector(1, 3);
+
+        assertEquals(0.25, selector.probability(0), DELTA);
+        assertEquals(0.75, selector.probability(1), DELTA);
+    }
+
+    @Test
+    public void testSelect_distribution() {
+        double[] probabilities = {0.1, 0.2, 0.3, 0.4};
+        AliasMethodSelector selector = new AliasMethodSelector(probabilities);
+        SplittableRandom random = new SplittableRandom(42);
+
+        int iterations = 1000000;
+        int[] counts = new int[probabilities.length];
+        for (int k = 0; k < iterations; k++) {
+            counts[selector.select(random)]++;
+        }
+
+        for (int index = 0; index < probabilities.length; index++) {
+            assertEquals(probabilities[index], (double) counts[index] / iterations, 0.005);
+        }
+    }
+
+    @Test
+    public void testSelect_zeroProbabilityNeverSelected() {
+        AliasMethodSelector selector = new AliasMethodSelector(0.5, 0, 0.5);
+        SplittableRandom random = new SplittableRandom(42);
+
+        for (int k = 0; k < 100000; k++) {
+            int index = selector.select(random);
+            if (index == 1) {
+                throw new AssertionError("index with probability 0 was selected");
+            }
+        }
+    }
+
+    private static void assertTableProbabilities(double... probabilities) {
+        AliasMethodSelector selector = new AliasMethodSelector(probabilities);
+
+        assertEquals(probabilities.length, selector.size());
+        for (int index = 0; index < probabilities.length; index++) {
+            assertEquals(probabilities[index], selector.probability(index), DELTA);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.hazelcast.simulator.worker.testcontainer;
 import com.hazelcast.simulator.common.TestCase;
 import com.hazelcast.simulator.worker.metronome.BusySpinningMetronome;
 import com.hazelcast.simulator.worker.metronome.EmptyMetronome;
+import com.hazelcast.simulator.worker.metronome.HybridMetronome;
+import com.hazelcast.simulator.worker.metronome.ProfileMetronome;
 import com.hazelcast.simulator.worker.metronome.Metronome;
 import com.hazelcast.simulator.worker.metronome.SleepingMetronome;
 import org.junit.Test;
@@ -15,6 +17,9 @@ import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class MetronomeSupplierTest {
 
@@ -70,6 +75,35 @@ public class MetronomeSupplierTest {
         assertEquals(200, metronome.getIntervalNanos());
     }
 
+    @Test
+    public void testSetRatePerSecond() {
+        PropertyBinding propertyBinding = new PropertyBinding(new TestCase("foo").setProperty("ratePerSecond", 1000));
+        MetronomeSupplier supplier = new MetronomeSupplier("", propertyBinding, 10);
+        SleepingMetronome metronome = (SleepingMetronome) supplier.get();
+
+        supplier.setRatePerSecond(2000);
+
+        assertEquals(500000, supplier.getIntervalNanos());
+        assertEquals(5000000, metronome.getIntervalNanos());
+        assertEquals(5000000, ((SleepingMetronome) supplier.get()).getIntervalNanos());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSetRatePerSecond_whenNoRate() {
+        PropertyBinding propertyBinding = new PropertyBinding(new TestCase("foo"));
+        MetronomeSupplier supplier = new MetronomeSupplier("", propertyBinding, 10);
+
+        supplier.setRatePerSecond(2000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetRatePerSecond_whenZero() {
+        PropertyBinding propertyBinding = new PropertyBinding(new TestCase("foo").setProperty("ratePerSecond", 1000));
+        MetronomeSupplier supplier = new MetronomeSupplier("", propertyBinding, 10);
+
+        supplier.setRatePerSecond(0);
+    }
+
     @Test
     public void withCustomMetronome() {
         PropertyBinding propertyBinding = new PropertyBinding(
@@ -85,6 +119,82 @@ public class MetronomeSupplierTest {
         assertEquals(10, metronome.getIntervalNanos());
     }
 
+    @Test
+    public void withHybridMetronome() {
+        PropertyBinding propertyBinding = new PropertyBinding(
+                new TestCase("foo")
+                        .setProperty("interval", "100us")
+                        .setProperty("metronomeClass", HybridMetronome.class));
+        MetronomeSupplier supplier = new MetronomeSupplier("", propertyBinding, 2);
+
+        Metronome m = supplier.get();
+        assertEquals(HybridMetronome.class, m.getClass());
+        HybridMetronome metronome = (HybridMetronome) m;
+
+        assertEquals(MICROSECONDS.toNanos(200), metronome.getIntervalNanos());
+    }
+
+    @Test
+    public void withLoadProfile() {
+        PropertyBinding propertyBinding = new PropertyBinding(
+                new TestCase("foo")
+                        .setProperty("loadProfile", "steps:1000/10s,2000/10s"));
+        MetronomeSupplier supplier = new MetronomeSupplier("", propertyBinding, 2);
+
+        Metronome m = supplier.get();
+        assertEquals(ProfileMetronome.class, m.getClass());
+        assertFalse(((ProfileMetronome) m).isPoisson());
+        assertNotNull(supplier.getLoadProfile());
+        assertEquals(MICROSECONDS.toNanos(500), supplier.getIntervalNanos());
+    }
+
+    @Test
+    public void withPoissonArrivals() {
+        PropertyBinding propertyBinding = new PropertyBinding(
+                new TestCase("foo")
+                        .setProperty("ratePerSecond", 1000)
+                        .setProperty("arrivals", "poisson"));
+        MetronomeSupplier supplier = new MetronomeSupplier("", propertyBinding, 1);
+
+        Metronome m = supplier.get();
+        assertEquals(ProfileMetronome.class, m.getClass());
+        assertTrue(((ProfileMetronome) m).isPoisson());
+        assertEquals(1000, supplier.getLoadProfile().getMaxRatePerSecond(), 0);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void withPoissonArrivals_andNoRate() {
+        PropertyBinding propertyBinding = new PropertyBinding(new TestCase("foo").setProperty("arrivals", "poisson"));
+        new MetronomeSupplier("", propertyBinding, 1);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void withInvalidArrivals() {
+        PropertyBinding propertyBinding = new PropertyBinding(
+                new TestCase("foo")
+                        .setProperty("ratePerSecond", 1000)
+                        .setProperty("arrivals", "bursty"));
+        new MetronomeSupplier("", propertyBinding, 1);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void withLoadProfile_andRatePerSecond() {
+        PropertyBinding propertyBinding = new PropertyBinding(
+                new TestCase("foo")
+                        .setProperty("ratePerSecond", 1000)
+                        .setProperty("loadProfile", "ramp:0,1000,10s"));
+        new MetronomeSupplier("", propertyBinding, 1);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void withLoadProfile_andOtherMetronome() {
+        PropertyBinding propertyBinding = new PropertyBinding(
+                new TestCase("foo")
+                        .setProperty("loadProfile", "ramp:0,1000,10s")
+                        .setProperty("metronomeClass", BusySpinningMetronome.class));
+        new MetronomeSupplier("", propertyBinding, 1);
+    }
+
     @Test
     public void whenZeroInterval() {
         PropertyBinding propertyBinding = new PropertyBinding(new TestCase("foo"));
@@ -0,0 +1,100 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.probes.impl.HdrLatencyProbe;
+import com.hazelcast.simulator.protocol.Server;
+import org.HdrHistogram.Histogram;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static com.hazelcast.simulator.utils.TestUtils.assertTrueEventually;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class PauseMonitorTest {
+
+    @Test
+    public void testIsPauseProbe() {
+        assertTrue(PauseMonitor.isPauseProbe(PauseMonitor.GC_PAUSE_PROBE));
+        assertTrue(PauseMonitor.isPauseProbe(PauseMonitor.SAFEPOINT_PROBE));
+        assertFalse(PauseMonitor.isPauseProbe("latency"));
+    }
+
+    @Test
+    public void testIsConcurrent() {
+        assertTrue(PauseMonitor.isConcurrent("G1 Concurrent GC"));
+        assertTrue(PauseMonitor.isConcurrent("ZGC Cycles"));
+        assertFalse(PauseMonitor.isConcurrent("G1 Young Generation"));
+        assertFalse(PauseMonitor.isConcurrent("ZGC Pauses"));
+    }
+
+    @Test
+    public void testGcNotifications() {
+        TestContextImpl testContext = newTestContext();
+
+        try (PauseMonitor ignored = PauseMonitor.start(testContext, false)) {
+            HdrLatencyProbe probe = (HdrLatencyProbe) testContext.getLatencyProbes().get(PauseMonitor.GC_PAUSE_PROBE);
+            assertFalse(probe.includeInThroughput());
+
+            assertTrueEventually(() -> {
+                System.gc();
+                assertTrue(probe.getRecorder().getIntervalHistogram().getTotalCount() > 0);
+            });
+        }
+    }
+
+    @Test
+    public void testJfr() {
+        TestContextImpl testContext = newTestContext();
+
+        try (PauseMonitor ignored = PauseMonitor.start(testContext, true)) {
+            HdrLatencyProbe probe = (HdrLatencyProbe) testContext.getLatencyProbes().get(PauseMonitor.SAFEPOINT_PROBE);
+
+            assertTrueEventually(() -> {
+                System.gc();
+                assertTrue(probe.getRecorder().getIntervalHistogram().getTotalCount() > 0);
+            });
+        }
+    }
+
+    @Test
+    public void testSafepointSpans() {
+        HdrLatencyProbe probe = new HdrLatencyProbe("safepoint", false);
+        PauseMonitor.SafepointSpans spans = new PauseMonitor.SafepointSpans(probe);
+        Instant start = Instant.ofEpochSecond(1000);
+
+        spans.begin(1, start);
+        spans.begin(2, start.plusMillis(10));
+        // the span runs from the begin of the safepoint to its end, matched by the safepointId
+        spans.end(2, start.plusMillis(15));
+        spans.end(1, start.plusMillis(3));
+        // an end without a begin is ignored
+        spans.end(3, start.plusMillis(20));
+
+        Histogram histogram = probe.getRecorder().getIntervalHistogram();
+        assertEquals(2, histogram.getTotalCount());
+        assertEquals(MILLISECONDS.toNanos(3), histogram.getMinValue(), MILLISECONDS.toNanos(3) / 100.0);
+        assertEquals(MILLISECONDS.toNanos(5), histogram.getMaxValue(), MILLISECONDS.toNanos(5) / 100.0);
+        assertEquals(0, spans.pendingCount());
+    }
+
+    @Test
+    public void testSafepointSpans_whenTooManyPending_thenCleared() {
+        PauseMonitor.SafepointSpans spans = new PauseMonitor.SafepointSpans(new HdrLatencyProbe("safepoint", false));
+
+        for (int k = 0; k <= PauseMonitor.SafepointSpans.MAX_PENDING; k++) {
+            spans.begin(k, Instant.EPOCH);
+        }
+
+        assertEquals(1, spans.pendingCount());
+    }
+
+    private static TestContextImpl newTestContext() {
+        TestContextImpl testContext = new TestContextImpl("test", "localhost", mock(Server.class));
+        testContext.setLatencyProbeClass(HdrLatencyProbe.class);
+        return testContext;
+    }
+}
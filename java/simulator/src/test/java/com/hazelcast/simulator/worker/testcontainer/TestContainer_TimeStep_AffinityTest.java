@@ -0,0 +1,116 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import com.hazelcast.simulator.utils.CpuAffinity;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hazelcast.simulator.TestSupport.spawn;
+import static com.hazelcast.simulator.common.TestPhase.RUN;
+import static com.hazelcast.simulator.common.TestPhase.SETUP;
+import static com.hazelcast.simulator.utils.TestUtils.assertCompletesEventually;
+import static com.hazelcast.simulator.utils.TestUtils.assertNoExceptions;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+public class TestContainer_TimeStep_AffinityTest extends TestContainer_AbstractTest {
+
+    @Test
+    public void testAffinity_cpuPerThread() throws Exception {
+        BitSet cpus = assumeAffinitySupported();
+        int cpu = cpus.nextSetBit(0);
+
+        AffinityTest testInstance = run(new TestCase("affinityTest")
+                .setProperty("threadCount", 1)
+                .setProperty("iterations", 100)
+                .setProperty("affinity", "" + cpu)
+                .setProperty("class", AffinityTest.class));
+
+        assertEquals(100, testInstance.counter.get());
+        assertEquals(Collections.singleton(singleCpu(cpu)), testInstance.affinities);
+    }
+
+    @Test
+    public void testAffinity_shared() throws Exception {
+        BitSet cpus = assumeAffinitySupported();
+        int cpu = cpus.nextSetBit(0);
+
+        AffinityTest testInstance = run(new TestCase("affinityTest")
+                .setProperty("threadCount", 4)
+                .setProperty("iterations", 100)
+                .setProperty("affinity", "" + cpu)
+                .setProperty("class", AffinityTest.class));
+
+        assertEquals(400, testInstance.counter.get());
+        assertEquals(Collections.singleton(singleCpu(cpu)), testInstance.affinities);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testInvalidAffinity() {
+        TestCase testCase = new TestCase("affinityTest")
+                .setProperty("affinity", "3-1")
+                .setProperty("class", AffinityTest.class);
+        new TestContainer(newTestContext(testCase), new AffinityTest(), testCase);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testAffinity_withVirtualThreads() {
+        TestCase testCase = new TestCase("affinityTest")
+                .setProperty("affinity", "0")
+                .setProperty("threadType", "virtual")
+                .setProperty("class", AffinityTest.class);
+        new TestContainer(newTestContext(testCase), new AffinityTest(), testCase);
+    }
+
+    private static BitSet assumeAffinitySupported() {
+        BitSet cpus = CpuAffinity.getAffinity();
+        assumeTrue(cpus != null && !cpus.isEmpty());
+        return cpus;
+    }
+
+    private static BitSet singleCpu(int cpu) {
+        BitSet result = new BitSet();
+        result.set(cpu);
+        return result;
+    }
+
+    private static AffinityTest run(TestCase testCase) throws Exception {
+        AffinityTest testInstance = new AffinityTest();
+        final TestContainer container = new TestContainer(newTestContext(testCase), testInstance, testCase);
+        container.invoke(SETUP);
+
+        Future f = spawn((Callable) () -> {
+            container.invoke(RUN);
+            return null;
+        });
+
+        assertCompletesEventually(f);
+        assertNoExceptions();
+        return testInstance;
+    }
+
+    private static TestContextImpl newTestContext(TestCase testCase) {
+        return new TestContextImpl(testCase.getId(), "localhost", mock(Server.class));
+    }
+
+    public static class AffinityTest {
+        private final AtomicLong counter = new AtomicLong();
+        private final Set<BitSet> affinities = Collections.synchronizedSet(new HashSet<>());
+
+        @TimeStep
+        public void timeStep() {
+            affinities.add(CpuAffinity.getAffinity());
+            counter.incrementAndGet();
+        }
+    }
+}
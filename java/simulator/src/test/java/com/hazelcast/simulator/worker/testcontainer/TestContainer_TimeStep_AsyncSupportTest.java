@@ -1,6 +1,7 @@
 package com.hazelcast.simulator.worker.testcontainer;
 
 import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.probes.impl.HdrLatencyProbe;
 import com.hazelcast.simulator.protocol.Server;
 import com.hazelcast.simulator.test.annotations.TimeStep;
 import com.hazelcast.simulator.utils.AssertTask;
@@ -12,6 +13,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.hazelcast.simulator.TestSupport.spawn;
 import static com.hazelcast.simulator.common.TestPhase.RUN;
@@ -48,6 +50,181 @@ public class TestContainer_TimeStep_AsyncSupportTest extends TestContainer_Abstr
         assertTrueEventually(() -> assertEquals(100, testInstance.asyncCount));
     }
 
+    @Test
+    public void test_withoutMeasureLatency() throws Exception {
+        AsyncTest testInstance = new AsyncTest();
+        TestCase testCase = new TestCase("stopRun")
+                .setProperty("iterations", 100)
+                .setProperty("threadCount", 1)
+                .setProperty("measureLatency", false)
+                .setProperty("class", testInstance.getClass());
+
+        TestContextImpl testContext = new TestContextImpl(
+                testCase.getId(), "localhost", mock(Server.class));
+        final TestContainer container = new TestContainer(testContext, testInstance, testCase);
+        container.invoke(SETUP);
+
+        Future f = spawn((Callable) () -> {
+            container.invoke(RUN);
+            return null;
+        });
+
+        assertCompletesEventually(f);
+        assertNoExceptions();
+        assertTrueEventually(() -> assertEquals(100, testInstance.asyncCount));
+    }
+
+    @Test
+    public void test_withMaxInFlight() throws Exception {
+        InFlightTest testInstance = new InFlightTest();
+        TestCase testCase = new TestCase("stopRun")
+                .setProperty("iterations", 200)
+                .setProperty("threadCount", 2)
+                .setProperty("maxInFlight", 5)
+                .setProperty("class", testInstance.getClass());
+
+        TestContextImpl testContext = new TestContextImpl(
+                testCase.getId(), "localhost", mock(Server.class));
+        final TestContainer container = new TestContainer(testContext, testInstance, testCase);
+        container.invoke(SETUP);
+
+        Future f = spawn((Callable) () -> {
+            container.invoke(RUN);
+            return null;
+        });
+
+        assertCompletesEventually(f);
+        assertNoExceptions();
+        assertTrueEventually(() -> assertEquals(400, testInstance.completed.get()));
+        // 2 threads each with a window of 5
+        assertTrue("highestInFlight was " + testInstance.highestInFlight.get(), testInstance.highestInFlight.get() <= 10);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void test_withMaxInFlight_andNoAsyncMethods() {
+        TestCase testCase = new TestCase("stopRun")
+                .setProperty("maxInFlight", 5)
+                .setProperty("class", SyncTest.class);
+
+        TestContextImpl testContext = new TestContextImpl(
+                testCase.getId(), "localhost", mock(Server.class));
+        new TestContainer(testContext, new SyncTest(), testCase);
+    }
+
+    @Test
+    public void test_withOpenLoop() throws Exception {
+        InFlightTest testInstance = new InFlightTest();
+        TestCase testCase = new TestCase("stopRun")
+                .setProperty("iterations", 100)
+                .setProperty("threadCount", 2)
+                .setProperty("ratePerSecond", 1000)
+                .setProperty("openLoop", true)
+                .setProperty("class", testInstance.getClass());
+
+        TestContextImpl testContext = new TestContextImpl(
+                testCase.getId(), "localhost", mock(Server.class));
+        final TestContainer container = new TestContainer(testContext, testInstance, testCase);
+        container.invoke(SETUP);
+
+        Future f = spawn((Callable) () -> {
+            container.invoke(RUN);
+            return null;
+        });
+
+        assertCompletesEventually(f);
+        assertNoExceptions();
+        assertTrueEventually(() -> assertEquals(200, testInstance.completed.get()));
+        assertTrue(testContext.getLatencyProbes().containsKey("missedSchedule"));
+    }
+
+    @Test
+    public void test_withOpenLoop_whenIssuingBlocks_thenMissedScheduleRecorded_javac() throws Exception {
+        assertMissedScheduleRecorded(TimeStepLoopCodeGenerator.BACKEND_JAVAC);
+    }
+
+    @Test
+    public void test_withOpenLoop_whenIssuingBlocks_thenMissedScheduleRecorded_bytecode() throws Exception {
+        assertMissedScheduleRecorded(TimeStepLoopCodeGenerator.BACKEND_BYTECODE);
+    }
+
+    private static void assertMissedScheduleRecorded(String backend) throws Exception {
+        SlowIssuingTest testInstance = new SlowIssuingTest();
+        TestCase testCase = new TestCase("stopRun")
+                .setProperty("iterations", 20)
+                .setProperty("threadCount", 1)
+                .setProperty("ratePerSecond", 1000)
+                .setProperty("openLoop", true)
+                .setProperty("loopBackend", backend)
+                .setProperty("class", testInstance.getClass());
+
+        TestContextImpl testContext = new TestContextImpl(
+                testCase.getId(), "localhost", mock(Server.class));
+        final TestContainer container = new TestContainer(testContext, testInstance, testCase);
+        container.invoke(SETUP);
+        container.invoke(RUN);
+
+        // issuing takes 5ms at a 1ms schedule, so the thread falls behind
+        HdrLatencyProbe probe = (HdrLatencyProbe) testContext.getLatencyProbes().get("missedSchedule");
+        assertTrue(probe.getRecorder().getIntervalHistogram().getTotalCount() > 0);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void test_withOpenLoop_withoutMeasureLatency() {
+        TestCase testCase = new TestCase("stopRun")
+                .setProperty("ratePerSecond", 1000)
+                .setProperty("openLoop", true)
+                .setProperty("measureLatency", false)
+                .setProperty("class", InFlightTest.class);
+
+        TestContextImpl testContext = new TestContextImpl(
+                testCase.getId(), "localhost", mock(Server.class));
+        new TestContainer(testContext, new InFlightTest(), testCase);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void test_withOpenLoop_andNoRate() {
+        TestCase testCase = new TestCase("stopRun")
+                .setProperty("openLoop", true)
+                .setProperty("class", InFlightTest.class);
+
+        TestContextImpl testContext = new TestContextImpl(
+                testCase.getId(), "localhost", mock(Server.class));
+        new TestContainer(testContext, new InFlightTest(), testCase);
+    }
+
+    public static class InFlightTest {
+        public ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+        public final AtomicInteger inFlight = new AtomicInteger();
+        public final AtomicInteger highestInFlight = new AtomicInteger();
+        public final AtomicInteger completed = new AtomicInteger();
+
+        @TimeStep
+        public CompletableFuture<Object> asyncTimeStep() {
+            int current = inFlight.incrementAndGet();
+            highestInFlight.accumulateAndGet(current, Math::max);
+            CompletableFuture completableFuture = new CompletableFuture();
+            scheduler.schedule(() -> {
+                inFlight.decrementAndGet();
+                completed.incrementAndGet();
+                completableFuture.complete("1");
+            }, 1, TimeUnit.MILLISECONDS);
+            return completableFuture;
+        }
+    }
+
+    public static class SlowIssuingTest {
+        @TimeStep
+        public CompletableFuture<Object> asyncTimeStep() throws Exception {
+            Thread.sleep(5);
+            return CompletableFuture.completedFuture("1");
+        }
+    }
+
+    public static class SyncTest {
+        @TimeStep
+        public void timeStep() {
+        }
+    }
 
     public static class AsyncTest {
         public ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
@@ -0,0 +1,226 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.probes.LatencyProbe;
+import com.hazelcast.simulator.probes.impl.HdrLatencyProbe;
+import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.test.BaseThreadState;
+import com.hazelcast.simulator.test.annotations.StartNanos;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import com.hazelcast.simulator.worker.metronome.EmptyMetronome;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hazelcast.simulator.TestSupport.spawn;
+import static com.hazelcast.simulator.common.TestPhase.RUN;
+import static com.hazelcast.simulator.common.TestPhase.SETUP;
+import static com.hazelcast.simulator.utils.TestUtils.assertCompletesEventually;
+import static com.hazelcast.simulator.utils.TestUtils.assertNoExceptions;
+import static com.hazelcast.simulator.utils.TestUtils.assertTrueEventually;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class TestContainer_TimeStep_BytecodeBackendTest extends TestContainer_AbstractTest {
+
+    @Test
+    public void testSingleTimeStep() throws Exception {
+        SingleTest testInstance = new SingleTest();
+        TestContextImpl testContext = run(testInstance, newTestCase(testInstance)
+                .setProperty("threadCount", 2)
+                .setProperty("iterations", 100));
+
+        assertEquals(200, testInstance.count.get());
+        HdrLatencyProbe probe = (HdrLatencyProbe) testContext.getLatencyProbes().get("timeStep");
+        assertEquals(200, probe.getRecorder().getIntervalHistogram().getTotalCount());
+    }
+
+    @Test
+    public void testMultipleTimeStepsWithThreadState() throws Exception {
+        MultipleTest testInstance = new MultipleTest();
+        run(testInstance, newTestCase(testInstance)
+                .setProperty("threadCount", 2)
+                .setProperty("iterations", 1000));
+
+        assertEquals(2000, testInstance.count.get());
+        assertEquals(2, testInstance.threadStates.size());
+    }
+
+    @Test
+    public void testProbeAndStartNanosInjection() throws Exception {
+        ProbeTest testInstance = new ProbeTest();
+        run(testInstance, newTestCase(testInstance)
+                .setProperty("threadCount", 1)
+                .setProperty("iterations", 10)
+                .setProperty("logFrequency", 5)
+                .setProperty("logRateMs", 1));
+
+        assertTrue(testInstance.probe instanceof HdrLatencyProbe);
+        assertTrue(testInstance.startNanos > 0);
+    }
+
+    @Test
+    public void testAsyncWithMaxInFlight() throws Exception {
+        AsyncTest testInstance = new AsyncTest();
+        run(testInstance, newTestCase(testInstance)
+                .setProperty("threadCount", 1)
+                .setProperty("iterations", 100)
+                .setProperty("maxInFlight", 2));
+
+        assertTrueEventually(() -> assertEquals(100, testInstance.completed.get()));
+        assertTrue(testInstance.highestInFlight.get() <= 2);
+    }
+
+    @Test
+    public void testOpenLoop() throws Exception {
+        AsyncTest testInstance = new AsyncTest();
+        TestContextImpl testContext = run(testInstance, newTestCase(testInstance)
+                .setProperty("threadCount", 2)
+                .setProperty("iterations", 100)
+                .setProperty("ratePerSecond", 1000)
+                .setProperty("openLoop", true));
+
+        assertTrueEventually(() -> assertEquals(200, testInstance.completed.get()));
+        assertTrue(testContext.getLatencyProbes().containsKey("missedSchedule"));
+    }
+
+    @Test
+    public void testCompile_thenHiddenClass() {
+        TimeStepModel timeStepModel = new TimeStepModel(SingleTest.class, new PropertyBinding(new TestCase("test")));
+        Class loopClass = new TimeStepLoopCodeGenerator().compile("test", "", timeStepModel, EmptyMetronome.class,
+                HdrLatencyProbe.class, 0, 0, false, 0, false, false, TimeStepLoopCodeGenerator.BACKEND_BYTECODE);
+
+        assertTrue(loopClass.isHidden());
+        assertEquals(SingleTest.class.getPackageName(), loopClass.getPackageName());
+        assertTrue(TimeStepLoop.class.isAssignableFrom(loopClass));
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testInvalidLoopBackend() {
+        SingleTest testInstance = new SingleTest();
+        TestCase testCase = newTestCase(testInstance)
+                .setProperty("loopBackend", "foo");
+
+        TestContextImpl testContext = new TestContextImpl(
+                testCase.getId(), "localhost", mock(Server.class));
+        new TestContainer(testContext, testInstance, testCase);
+    }
+
+    private static TestCase newTestCase(Object testInstance) {
+        return new TestCase("bytecode")
+                .setProperty("loopBackend", TimeStepLoopCodeGenerator.BACKEND_BYTECODE)
+                .setProperty("class", testInstance.getClass());
+    }
+
+    private static TestContextImpl run(Object testInstance, TestCase testCase) throws Exception {
+        TestContextImpl testContext = new TestContextImpl(
+                testCase.getId(), "localhost", mock(Server.class));
+        final TestContainer container = new TestContainer(testContext, testInstance, testCase);
+        container.invoke(SETUP);
+
+        Future f = spawn((Callable) () -> {
+            container.invoke(RUN);
+            return null;
+        });
+
+        assertCompletesEventually(f);
+        assertNoExceptions();
+        return testContext;
+    }
+
+    public static class SingleTest {
+        final AtomicInteger count = new AtomicInteger();
+
+        @TimeStep
+        public void timeStep() {
+            count.incrementAndGet();
+        }
+    }
+
+    public static class MultipleTest {
+        final AtomicInteger count = new AtomicInteger();
+        final Set<BaseThreadState> threadStates = ConcurrentHashMap.newKeySet();
+
+        @TimeStep(prob = -1)
+        public void returnVoid(BaseThreadState state) {
+            threadStates.add(state);
+            count.incrementAndGet();
+        }
+
+        @TimeStep(prob = 0.1)
+        public int returnInt() {
+            count.incrementAndGet();
+            return 1;
+        }
+
+        @TimeStep(prob = 0.1)
+        public long returnLong() {
+            count.incrementAndGet();
+            return 1L;
+        }
+
+        @TimeStep(prob = 0.1)
+        public double returnDouble(BaseThreadState state) {
+            count.incrementAndGet();
+            return 1.0;
+        }
+
+        @TimeStep(prob = 0.1)
+        public float returnFloat() {
+            count.incrementAndGet();
+            return 1.0f;
+        }
+
+        @TimeStep(prob = 0.1)
+        public boolean returnBoolean() {
+            count.incrementAndGet();
+            return true;
+        }
+
+        @TimeStep(prob = 0.1)
+        public Object returnObject() {
+            count.incrementAndGet();
+            return "foo";
+        }
+    }
+
+    public static class ProbeTest {
+        volatile LatencyProbe probe;
+        volatile long startNanos;
+
+        @TimeStep
+        public void timeStep(LatencyProbe probe, @StartNanos long startNanos) {
+            this.probe = probe;
+            this.startNanos = startNanos;
+        }
+    }
+
+    public static class AsyncTest {
+        final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger highestInFlight = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+
+        @TimeStep
+        public CompletableFuture<Object> asyncTimeStep() {
+            int current = inFlight.incrementAndGet();
+            highestInFlight.accumulateAndGet(current, Math::max);
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                inFlight.decrementAndGet();
+                completed.incrementAndGet();
+                future.complete("1");
+            }, 1, TimeUnit.MILLISECONDS);
+            return future;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.hazelcast.simulator.common.TestPhase.RUN;
+import static com.hazelcast.simulator.common.TestPhase.SETUP;
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class TestContainer_TimeStep_JfrEventsTest extends TestContainer_AbstractTest {
+
+    private static final String TIME_STEP_EVENT = "com.hazelcast.simulator.TimeStep";
+    private static final String TEST_PHASE_EVENT = "com.hazelcast.simulator.TestPhase";
+
+    private Recording recording;
+    private File file;
+
+    @Before
+    public void startRecording() throws Exception {
+        file = File.createTempFile("simulator", ".jfr");
+        recording = new Recording();
+        recording.enable(TIME_STEP_EVENT);
+        recording.enable(TEST_PHASE_EVENT);
+        recording.start();
+    }
+
+    @After
+    public void closeRecording() {
+        recording.close();
+        deleteQuiet(file);
+    }
+
+    @Test
+    public void testSlowTimeStep_javac() throws Exception {
+        assertSlowTimeSteps(TimeStepLoopCodeGenerator.BACKEND_JAVAC, true);
+    }
+
+    @Test
+    public void testSlowTimeStep_bytecode() throws Exception {
+        assertSlowTimeSteps(TimeStepLoopCodeGenerator.BACKEND_BYTECODE, true);
+    }
+
+    @Test
+    public void testSlowTimeStep_withoutLatencyMeasurement() throws Exception {
+        assertSlowTimeSteps(TimeStepLoopCodeGenerator.BACKEND_BYTECODE, false);
+    }
+
+    @Test
+    public void testFastTimeStep_notCommitted() throws Exception {
+        SlowTest testInstance = new SlowTest();
+        invoke(testInstance, newTestCase(testInstance, TimeStepLoopCodeGenerator.BACKEND_JAVAC)
+                .setProperty("jfrTimeStepThresholdNs", TimeUnit.SECONDS.toNanos(10)));
+
+        assertTrue(stopAndRead(TIME_STEP_EVENT).isEmpty());
+    }
+
+    @Test
+    public void testThresholdNotSet_noTimeStepEvents() throws Exception {
+        SlowTest testInstance = new SlowTest();
+        invoke(testInstance, newTestCase(testInstance, TimeStepLoopCodeGenerator.BACKEND_BYTECODE));
+
+        assertTrue(stopAndRead(TIME_STEP_EVENT).isEmpty());
+        assertFalse(stopAndRead(TEST_PHASE_EVENT).isEmpty());
+    }
+
+    @Test
+    public void testTestPhaseEvents() throws Exception {
+        SlowTest testInstance = new SlowTest();
+        TestCase testCase = newTestCase(testInstance, TimeStepLoopCodeGenerator.BACKEND_BYTECODE);
+        invoke(testInstance, testCase);
+
+        List<String> phases = stopAndRead(TEST_PHASE_EVENT).stream()
+                .peek(event -> assertEquals(testCase.getId(), event.getString("testId")))
+                .map(event -> event.getString("phase"))
+                .collect(toList());
+
+        assertEquals(List.of(SETUP.desc(), RUN.desc()), phases);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testNegativeThreshold() throws Exception {
+        SlowTest testInstance = new SlowTest();
+        TestCase testCase = newTestCase(testInstance, TimeStepLoopCodeGenerator.BACKEND_BYTECODE)
+                .setProperty("jfrTimeStepThresholdNs", -1);
+
+        TestContextImpl testContext = new TestContextImpl(testCase.getId(), "localhost", mock(Server.class));
+        new TestContainer(testContext, testInstance, testCase);
+    }
+
+    private void assertSlowTimeSteps(String backend, boolean measureLatency) throws Exception {
+        long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(1);
+        SlowTest testInstance = new SlowTest();
+        TestCase testCase = newTestCase(testInstance, backend)
+                .setProperty("measureLatency", measureLatency)
+                .setProperty("jfrTimeStepThresholdNs", thresholdNanos);
+        invoke(testInstance, testCase);
+
+        List<RecordedEvent> events = stopAndRead(TIME_STEP_EVENT);
+
+        assertEquals(SlowTest.ITERATIONS, events.size());
+        for (RecordedEvent event : events) {
+            assertEquals(testCase.getId(), event.getString("testId"));
+            assertEquals("timeStep", event.getString("method"));
+            assertTrue(event.getDuration("latency").toMillis() >= SlowTest.SLEEP_MILLIS);
+            // the event is begun before the call, so it spans the call
+            assertTrue(event.getDuration().toNanos() >= thresholdNanos);
+        }
+    }
+
+    private static TestCase newTestCase(Object testInstance, String backend) {
+        return new TestCase("jfr")
+                .setProperty("loopBackend", backend)
+                .setProperty("threadCount", 1)
+                .setProperty("iterations", SlowTest.ITERATIONS)
+                .setProperty("class", testInstance.getClass());
+    }
+
+    private static void invoke(Object testInstance, TestCase testCase) throws Exception {
+        TestContextImpl testContext = new TestContextImpl(testCase.getId(), "localhost", mock(Server.class));
+        TestContainer container = new TestContainer(testContext, testInstance, testCase);
+        container.invoke(SETUP);
+        container.invoke(RUN);
+    }
+
+    private List<RecordedEvent> stopAndRead(String eventName) throws Exception {
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            recording.dump(file.toPath());
+        }
+        return RecordingFile.readAllEvents(file.toPath()).stream()
+                .filter(event -> event.getEventType().getName().equals(eventName))
+                .collect(toList());
+    }
+
+    public static class SlowTest {
+        static final int ITERATIONS = 5;
+        static final long SLEEP_MILLIS = 2;
+
+        @TimeStep
+        public void timeStep() throws Exception {
+            Thread.sleep(SLEEP_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.test.BaseThreadState;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hazelcast.simulator.TestSupport.spawn;
+import static com.hazelcast.simulator.common.TestPhase.RUN;
+import static com.hazelcast.simulator.common.TestPhase.SETUP;
+import static com.hazelcast.simulator.utils.TestUtils.assertCompletesEventually;
+import static com.hazelcast.simulator.utils.TestUtils.assertNoExceptions;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class TestContainer_TimeStep_KeyDistributionTest extends TestContainer_AbstractTest {
+
+    @Test
+    public void testZipfian() throws Exception {
+        KeyTest testInstance = run(new TestCase("keyTest")
+                .setProperty("threadCount", 2)
+                .setProperty("iterations", 1000)
+                .setProperty("keyDistribution", "zipfian")
+                .setProperty("keyCount", 100)
+                .setProperty("class", KeyTest.class));
+
+        assertEquals(2000, testInstance.counter.get());
+        for (long key : testInstance.keys) {
+            assertTrue(key >= 0);
+            assertTrue(key < 100);
+        }
+    }
+
+    @Test
+    public void testSequential_partitionedOverThreads() throws Exception {
+        KeyTest testInstance = run(new TestCase("keyTest")
+                .setProperty("threadCount", 4)
+                .setProperty("iterations", 25)
+                .setProperty("keyDistribution", "sequential")
+                .setProperty("keyCount", 100)
+                .setProperty("class", KeyTest.class));
+
+        assertEquals(100, testInstance.keys.size());
+    }
+
+    @Test
+    public void testSequential_whenMoreThreadsThanKeys() throws Exception {
+        KeyTest testInstance = run(new TestCase("keyTest")
+                .setProperty("threadCount", 4)
+                .setProperty("iterations", 10)
+                .setProperty("keyDistribution", "sequential")
+                .setProperty("keyCount", 3)
+                .setProperty("class", KeyTest.class));
+
+        assertEquals(3, testInstance.keys.size());
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testUnknownKeyDistribution() {
+        newContainer(new TestCase("keyTest")
+                .setProperty("keyDistribution", "gaussian")
+                .setProperty("keyCount", 100)
+                .setProperty("class", KeyTest.class), new KeyTest());
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testMissingKeyCount() {
+        newContainer(new TestCase("keyTest")
+                .setProperty("keyDistribution", "uniform")
+                .setProperty("class", KeyTest.class), new KeyTest());
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testThreadStateNotBaseThreadState() {
+        newContainer(new TestCase("keyTest")
+                .setProperty("keyDistribution", "uniform")
+                .setProperty("keyCount", 100)
+                .setProperty("class", PlainThreadStateTest.class), new PlainThreadStateTest());
+    }
+
+    private static KeyTest run(TestCase testCase) throws Exception {
+        KeyTest testInstance = new KeyTest();
+        final TestContainer container = newContainer(testCase, testInstance);
+        container.invoke(SETUP);
+
+        Future f = spawn((Callable) () -> {
+            container.invoke(RUN);
+            return null;
+        });
+
+        assertCompletesEventually(f);
+        assertNoExceptions();
+        return testInstance;
+    }
+
+    private static TestContainer newContainer(TestCase testCase, Object testInstance) {
+        TestContextImpl testContext = new TestContextImpl(testCase.getId(), "localhost", mock(Server.class));
+        return new TestContainer(testContext, testInstance, testCase);
+    }
+
+    public static class KeyTest {
+        private final AtomicLong counter = new AtomicLong();
+        private final Set<Long> keys = ConcurrentHashMap.newKeySet();
+
+        @TimeStep
+        public void timeStep(BaseThreadState state) {
+            keys.add(state.nextKey());
+            counter.incrementAndGet();
+        }
+    }
+
+    public static class PlainThreadStateTest {
+
+        @TimeStep
+        public void timeStep(ThreadState state) {
+        }
+
+        public static class ThreadState {
+        }
+    }
+}
@@ -53,6 +53,33 @@ public class TestContainer_TimeStep_MultipleExecutionGroupsTest extends TestCont
         assertTrue(disjoint(testInstance.group1Threads, testInstance.group2Threads));
     }
 
+    @Test
+    public void testSetRatePerSecond_whenExecutionGroup() {
+        TestCase testCase = new TestCase("multipleExecutionGroupsTest")
+                .setProperty("group1RatePerSecond", 100)
+                .setProperty("group2RatePerSecond", 100)
+                .setProperty("class", MultipleExecutionGroupsTest.class);
+
+        TestContextImpl testContext = new TestContextImpl(testCase.getId(), "localhost", mock(Server.class));
+        TestContainer container = new TestContainer(testContext, new MultipleExecutionGroupsTest(), testCase);
+
+        assertEquals(200, container.setRatePerSecond("group1", 200), 0);
+        // the rate is applied to both groups
+        assertEquals(600, container.setRatePerSecond(null, 300), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetRatePerSecond_whenUnknownExecutionGroup() {
+        TestCase testCase = new TestCase("multipleExecutionGroupsTest")
+                .setProperty("group1RatePerSecond", 100)
+                .setProperty("class", MultipleExecutionGroupsTest.class);
+
+        TestContextImpl testContext = new TestContextImpl(testCase.getId(), "localhost", mock(Server.class));
+        TestContainer container = new TestContainer(testContext, new MultipleExecutionGroupsTest(), testCase);
+
+        container.setRatePerSecond("group3", 200);
+    }
+
     public static class MultipleExecutionGroupsTest {
         private final AtomicLong group1Counter = new AtomicLong(1000);
         private final AtomicLong group2Counter = new AtomicLong(2000);
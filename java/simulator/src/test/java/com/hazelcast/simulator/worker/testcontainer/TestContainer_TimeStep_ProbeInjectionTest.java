@@ -4,6 +4,7 @@ import com.hazelcast.simulator.common.TestCase;
 import com.hazelcast.simulator.probes.LatencyProbe;
 import com.hazelcast.simulator.probes.impl.NoopLatencyProbe;
 import com.hazelcast.simulator.probes.impl.HdrLatencyProbe;
+import com.hazelcast.simulator.probes.impl.StripedHdrLatencyProbe;
 import com.hazelcast.simulator.protocol.Server;
 import com.hazelcast.simulator.test.StopException;
 import com.hazelcast.simulator.test.annotations.StartNanos;
@@ -50,6 +51,32 @@ public class TestContainer_TimeStep_ProbeInjectionTest extends TestContainer_Abs
         assertInstanceOf(HdrLatencyProbe.class, testInstance.probe);
     }
 
+    @Test
+    public void testMeasureLatency_withProbeClass() throws Exception {
+        TestClass testInstance = new TestClass();
+        TestCase testCase = new TestCase("exceptionTest")
+                .setProperty("threadCount", 1)
+                .setProperty("measureLatency", true)
+                .setProperty("probeClass", StripedHdrLatencyProbe.class)
+                .setProperty("class", testInstance.getClass());
+
+        TestContextImpl testContext = new TestContextImpl(
+                testCase.getId(), "localhost", mock(Server.class));
+        final TestContainer container = new TestContainer(testContext, testInstance, testCase);
+        container.invoke(SETUP);
+
+        Future f = spawn(new Callable() {
+            @Override
+            public Object call() throws Exception {
+                container.invoke(RUN);
+                return null;
+            }
+        });
+
+        assertCompletesEventually(f);
+        assertInstanceOf(StripedHdrLatencyProbe.class, testInstance.probe);
+    }
+
     @Test
     public void testNoMeasureLatency() throws Exception {
         TestClass testInstance = new TestClass();
@@ -0,0 +1,115 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.test.BaseThreadState;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import com.hazelcast.simulator.utils.ThreadSpawner;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hazelcast.simulator.TestSupport.spawn;
+import static com.hazelcast.simulator.common.TestPhase.RUN;
+import static com.hazelcast.simulator.common.TestPhase.SETUP;
+import static com.hazelcast.simulator.utils.TestUtils.assertCompletesEventually;
+import static com.hazelcast.simulator.utils.TestUtils.assertNoExceptions;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+public class TestContainer_TimeStep_ThreadTypeTest extends TestContainer_AbstractTest {
+
+    @Test
+    public void testPlatform() throws Exception {
+        ThreadTypeTest testInstance = run(new TestCase("threadTypeTest")
+                .setProperty("threadCount", 4)
+                .setProperty("iterations", 100)
+                .setProperty("threadType", "platform")
+                .setProperty("class", ThreadTypeTest.class));
+
+        assertEquals(400, testInstance.counter.get());
+        assertEquals(4, testInstance.threadStates.size());
+        assertEquals(0, testInstance.virtualThreadCount.get());
+    }
+
+    @Test
+    public void testVirtual() throws Exception {
+        assumeTrue(ThreadSpawner.isVirtualThreadSupported());
+
+        ThreadTypeTest testInstance = run(new TestCase("threadTypeTest")
+                .setProperty("threadCount", 1000)
+                .setProperty("iterations", 10)
+                .setProperty("ratePerSecond", 100000)
+                .setProperty("threadType", "virtual")
+                .setProperty("class", ThreadTypeTest.class));
+
+        assertEquals(10000, testInstance.counter.get());
+        assertEquals(1000, testInstance.threadStates.size());
+        assertEquals(10000, testInstance.virtualThreadCount.get());
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testVirtual_whenNotSupported() {
+        assumeFalse(ThreadSpawner.isVirtualThreadSupported());
+
+        TestCase testCase = new TestCase("threadTypeTest")
+                .setProperty("threadType", "virtual")
+                .setProperty("class", ThreadTypeTest.class);
+        new TestContainer(newTestContext(testCase), new ThreadTypeTest(), testCase);
+    }
+
+    @Test(expected = IllegalTestException.class)
+    public void testInvalidThreadType() {
+        TestCase testCase = new TestCase("threadTypeTest")
+                .setProperty("threadType", "green")
+                .setProperty("class", ThreadTypeTest.class);
+        new TestContainer(newTestContext(testCase), new ThreadTypeTest(), testCase);
+    }
+
+    private static ThreadTypeTest run(TestCase testCase) throws Exception {
+        ThreadTypeTest testInstance = new ThreadTypeTest();
+        final TestContainer container = new TestContainer(newTestContext(testCase), testInstance, testCase);
+        container.invoke(SETUP);
+
+        Future f = spawn((Callable) () -> {
+            container.invoke(RUN);
+            return null;
+        });
+
+        assertCompletesEventually(f);
+        assertNoExceptions();
+        assertTrue(testInstance.counter.get() > 0);
+        return testInstance;
+    }
+
+    private static TestContextImpl newTestContext(TestCase testCase) {
+        return new TestContextImpl(testCase.getId(), "localhost", mock(Server.class));
+    }
+
+    public static class ThreadTypeTest {
+        private final AtomicLong counter = new AtomicLong();
+        private final AtomicLong virtualThreadCount = new AtomicLong();
+        private final Set<ThreadState> threadStates = Collections.synchronizedSet(
+                Collections.newSetFromMap(new IdentityHashMap<>()));
+
+        @TimeStep
+        public void timeStep(ThreadState state) {
+            threadStates.add(state);
+            counter.incrementAndGet();
+            if (ThreadSpawner.isVirtual(Thread.currentThread())) {
+                virtualThreadCount.incrementAndGet();
+            }
+        }
+
+        public class ThreadState extends BaseThreadState {
+        }
+    }
+}
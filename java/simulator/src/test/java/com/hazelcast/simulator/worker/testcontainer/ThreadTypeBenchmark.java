@@ -0,0 +1,132 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.probes.impl.HdrLatencyProbe;
+import com.hazelcast.simulator.protocol.Server;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import com.hazelcast.simulator.utils.ThreadSpawner;
+import com.hazelcast.simulator.worker.metronome.SleepingMetronome;
+import org.HdrHistogram.Histogram;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.locks.LockSupport;
+
+import static com.hazelcast.simulator.common.TestPhase.RUN;
+import static com.hazelcast.simulator.common.TestPhase.SETUP;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Compares platform and virtual timestep threads at the same offered load.
+ *
+ * Both thread types run the same timestep, a blocking call (simulated by parking), through the same
+ * {@link SleepingMetronome} at the same rate; only the type of thread differs. Since coordinated omission is accounted
+ * for, the latency is measured from the intended start time of every call, so a thread type that can't keep up with
+ * the offered load shows up as a higher latency and a lower throughput instead of being hidden.
+ *
+ * The throughput and the p50/p99/p99.9 latencies in microseconds are reported as secondary results.
+ *
+ * Requires Java 21+ for the virtual threads. Run using the main method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xss512k"})
+public class ThreadTypeBenchmark {
+
+    private static final int RATE_PER_SECOND = 20000;
+    private static final int RUN_SECONDS = 5;
+    private static final long BLOCKING_CALL_NANOS = MILLISECONDS.toNanos(1);
+
+    @Param({"platform", "virtual"})
+    public String threadType;
+
+    @Param({"100", "1000", "10000"})
+    public int threadCount;
+
+    private TestContextImpl testContext;
+    private TestContainer container;
+
+    @Setup(Level.Iteration)
+    public void setup() throws Exception {
+        if ("virtual".equals(threadType) && !ThreadSpawner.isVirtualThreadSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21+");
+        }
+
+        TestCase testCase = new TestCase("threadTypeBenchmark")
+                .setProperty("threadCount", threadCount)
+                .setProperty("threadType", threadType)
+                .setProperty("ratePerSecond", RATE_PER_SECOND)
+                .setProperty("metronomeClass", SleepingMetronome.class)
+                .setProperty("class", BlockingTest.class);
+        testContext = new TestContextImpl(testCase.getId(), "localhost", mock(Server.class));
+        container = new TestContainer(testContext, new BlockingTest(), testCase);
+        container.invoke(SETUP);
+    }
+
+    @Benchmark
+    public void run(Metrics metrics) throws Exception {
+        Thread runThread = new Thread(() -> {
+            try {
+                container.invoke(RUN);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        runThread.start();
+        SECONDS.sleep(RUN_SECONDS);
+        testContext.stop();
+        runThread.join();
+
+        HdrLatencyProbe probe = (HdrLatencyProbe) testContext.getLatencyProbes().get("timeStep");
+        Histogram histogram = probe.getRecorder().getIntervalHistogram();
+        metrics.throughput = histogram.getTotalCount() / RUN_SECONDS;
+        metrics.p50Us = NANOSECONDS.toMicros(histogram.getValueAtPercentile(50));
+        metrics.p99Us = NANOSECONDS.toMicros(histogram.getValueAtPercentile(99));
+        metrics.p999Us = NANOSECONDS.toMicros(histogram.getValueAtPercentile(99.9));
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Metrics {
+        public long throughput;
+        public long p50Us;
+        public long p99Us;
+        public long p999Us;
+    }
+
+    public static class BlockingTest {
+
+        @TimeStep
+        public void timeStep() {
+            LockSupport.parkNanos(BLOCKING_CALL_NANOS);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ThreadTypeBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
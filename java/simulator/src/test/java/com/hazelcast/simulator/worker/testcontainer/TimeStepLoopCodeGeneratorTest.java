@@ -1,14 +1,53 @@
 package com.hazelcast.simulator.worker.testcontainer;
 
+import com.hazelcast.simulator.common.TestCase;
+import com.hazelcast.simulator.probes.impl.HdrLatencyProbe;
+import com.hazelcast.simulator.test.annotations.TimeStep;
+import com.hazelcast.simulator.worker.metronome.EmptyMetronome;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
 import javax.tools.JavaFileObject;
+import java.io.File;
 
+import static com.hazelcast.simulator.utils.FileUtils.deleteQuiet;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingDirectory;
+import static com.hazelcast.simulator.utils.FileUtils.ensureExistingFile;
+import static com.hazelcast.simulator.utils.TestUtils.createTmpDirectory;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 public class TimeStepLoopCodeGeneratorTest {
 
-    private TimeStepLoopCodeGenerator codeGenerator = new TimeStepLoopCodeGenerator();
+    private File cacheDir;
+    private TimeStepLoopCodeGenerator codeGenerator;
+    private TimeStepModel timeStepModel;
+
+    @Before
+    public void before() {
+        cacheDir = createTmpDirectory();
+        TimeStepLoopClassCache.setDirectory(cacheDir);
+        TimeStepLoopClassCache.clear();
+        codeGenerator = new TimeStepLoopCodeGenerator();
+
+        TestCase testCase = new TestCase("foo").setProperty("class", CachedTest.class);
+        timeStepModel = new TimeStepModel(CachedTest.class, new PropertyBinding(testCase));
+    }
+
+    @After
+    public void after() {
+        TimeStepLoopClassCache.setDirectory(null);
+        TimeStepLoopClassCache.clear();
+        deleteQuiet(cacheDir);
+    }
 
     @Test(expected = IllegalStateException.class)
     public void testCompile_whenCompilerIsNull_thenThrowIllegalStateException() {
@@ -16,4 +55,87 @@ public class TimeStepLoopCodeGeneratorTest {
 
         codeGenerator.compile(null, javaFileObject, "className");
     }
+
+    @Test
+    public void testCompile_whenSameLoop_thenReuseClass() {
+        Class first = compile("test1", 0);
+        Class second = compile("test2", 0);
+
+        assertSame(first, second);
+        assertTrue(first.getSimpleName().startsWith("CachedTestLoop_"));
+    }
+
+    @Test
+    public void testCompile_whenDifferentOptions_thenDifferentClass() {
+        Class first = compile("test1", 0);
+        Class second = compile("test1", 1000);
+
+        assertNotEquals(first.getName(), second.getName());
+    }
+
+    @Test
+    public void testCompile_whenCachedOnDisk_thenLoadClass() {
+        Class first = compile("test1", 0);
+        File buildDir = TimeStepLoopClassCache.getDirectory();
+        assertEquals(cacheDir, buildDir.getParentFile());
+        assertTrue(new File(buildDir, first.getName() + ".class").isFile());
+
+        // a new worker using the same cache directory
+        TimeStepLoopClassCache.clear();
+        Class second = new TimeStepLoopCodeGenerator().compile("test2", "", timeStepModel, EmptyMetronome.class,
+                HdrLatencyProbe.class, 0, 0, false, 0, false, false, TimeStepLoopCodeGenerator.BACKEND_JAVAC);
+
+        assertNotSame(first, second);
+        assertEquals(first.getName(), second.getName());
+        String[] compileDirs = buildDir.list((dir, name) -> name.startsWith(".compile-"));
+        assertNotNull(compileDirs);
+        assertEquals(0, compileDirs.length);
+    }
+
+    @Test
+    public void testHash() {
+        String hash = TimeStepLoopClassCache.hash("code", CachedTest.class, null);
+
+        assertEquals(16, hash.length());
+        assertEquals(hash, TimeStepLoopClassCache.hash("code", CachedTest.class));
+        assertNotEquals(hash, TimeStepLoopClassCache.hash("other code", CachedTest.class));
+        assertNotEquals(hash, TimeStepLoopClassCache.hash("code", CachedTest.class, HdrLatencyProbe.class));
+    }
+
+    @Test
+    public void testHash_whenOtherBuild_thenDifferentHash() {
+        assertNotEquals(TimeStepLoopClassCache.hash("build1", "code", CachedTest.class),
+                TimeStepLoopClassCache.hash("build2", "code", CachedTest.class));
+    }
+
+    @Test
+    public void testSetDirectory_whenUnusedBuildDirectories_thenPruned() {
+        long unusedMillis = System.currentTimeMillis() - DAYS.toMillis(TimeStepLoopClassCache.MAX_UNUSED_DAYS + 1);
+        File oldBuildDir = new File(cacheDir, TimeStepLoopClassCache.BUILD_DIRECTORY_PREFIX + "old");
+        ensureExistingFile(ensureExistingDirectory(oldBuildDir), "Loop.class");
+        assertTrue(oldBuildDir.setLastModified(unusedMillis));
+        File recentBuildDir = new File(cacheDir, TimeStepLoopClassCache.BUILD_DIRECTORY_PREFIX + "recent");
+        ensureExistingDirectory(recentBuildDir);
+        File currentBuildDir = TimeStepLoopClassCache.getDirectory();
+        ensureExistingDirectory(currentBuildDir);
+        assertTrue(currentBuildDir.setLastModified(unusedMillis));
+
+        TimeStepLoopClassCache.setDirectory(cacheDir);
+
+        assertFalse(oldBuildDir.exists());
+        assertTrue(recentBuildDir.exists());
+        assertTrue(currentBuildDir.exists());
+    }
+
+    private Class compile(String testCaseId, long logFrequency) {
+        return codeGenerator.compile(testCaseId, "", timeStepModel, EmptyMetronome.class, HdrLatencyProbe.class,
+                logFrequency, 0, false, 0, false, false, TimeStepLoopCodeGenerator.BACKEND_JAVAC);
+    }
+
+    public static class CachedTest {
+
+        @TimeStep
+        public void timeStep() {
+        }
+    }
 }
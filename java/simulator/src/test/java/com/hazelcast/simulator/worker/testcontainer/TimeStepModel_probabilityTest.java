@@ -39,7 +39,7 @@ public class TimeStepModel_probabilityTest {
                 + "}\n", probs);
 
         assertProbability(model, "timeStep1", 1.0);
-        assertNull(model.getTimeStepProbabilityArray(""));
+        assertNull(model.getTimeStepSelector(""));
     }
 
     private void assertProbability(TimeStepModel model, String method, double value) {
@@ -107,7 +107,7 @@ public class TimeStepModel_probabilityTest {
 
         assertProbability(model, "timeStep1", 1.0);
         assertProbability(model, "timeStep2", 0.0);
-        assertNull(model.getTimeStepProbabilityArray(""));
+        assertNull(model.getTimeStepSelector(""));
     }
 
     @Test
@@ -127,8 +127,8 @@ public class TimeStepModel_probabilityTest {
         assertProbability(model, "b", "b1", 0.20);
         assertProbability(model, "b", "b2", 0.80);
 
-        assertNotNull(model.getTimeStepProbabilityArray("a"));
-        assertNotNull(model.getTimeStepProbabilityArray("b"));
+        assertNotNull(model.getTimeStepSelector("a"));
+        assertNotNull(model.getTimeStepSelector("b"));
     }
 
     @Test
@@ -151,8 +151,8 @@ public class TimeStepModel_probabilityTest {
         assertProbability(model, "b", "b1", 0.03);
         assertProbability(model, "b", "b2", 0.97);
 
-        assertNotNull(model.getTimeStepProbabilityArray("a"));
-        assertNotNull(model.getTimeStepProbabilityArray("b"));
+        assertNotNull(model.getTimeStepSelector("a"));
+        assertNotNull(model.getTimeStepSelector("b"));
     }
 
     @Test
@@ -169,7 +169,7 @@ public class TimeStepModel_probabilityTest {
         assertProbability(model, "a", 0.001);
         assertProbability(model, "b", 0.999);
 
-        assertNotNull(model.getTimeStepProbabilityArray(""));
+        assertNotNull(model.getTimeStepSelector(""));
     }
 
     @Test
@@ -184,7 +184,7 @@ public class TimeStepModel_probabilityTest {
         assertProbability(model, "a", 0.0001);
         assertProbability(model, "b", 0.9999);
 
-        assertNotNull(model.getTimeStepProbabilityArray(""));
+        assertNotNull(model.getTimeStepSelector(""));
     }
 
     @Test
@@ -199,7 +199,7 @@ public class TimeStepModel_probabilityTest {
         assertProbability(model, "a", 0.00001);
         assertProbability(model, "b", 0.99999);
 
-        assertNotNull(model.getTimeStepProbabilityArray(""));
+        assertNotNull(model.getTimeStepSelector(""));
     }
 
     @Test
@@ -214,7 +214,8 @@ public class TimeStepModel_probabilityTest {
         assertProbability(model, "a", 0.000001);
         assertProbability(model, "b", 0.999999);
 
-        assertNotNull(model.getTimeStepProbabilityArray(""));
+        // the selector is sized by the number of methods, not by the precision of the probabilities
+        assertEquals(2, model.getTimeStepSelector("").size());
     }
 
     @Test
@@ -228,7 +229,7 @@ public class TimeStepModel_probabilityTest {
 
         assertProbability(model, "timeStep1", 1.0);
         assertProbability(model, "timeStep2", 0.0);
-        assertNull(model.getTimeStepProbabilityArray(""));
+        assertNull(model.getTimeStepSelector(""));
     }
 
 
@@ -243,7 +244,7 @@ public class TimeStepModel_probabilityTest {
 
         assertProbability(model, "timeStep1", 0.5);
         assertProbability(model, "timeStep2", 0.5);
-        assertNotNull(model.getTimeStepProbabilityArray(""));
+        assertNotNull(model.getTimeStepSelector(""));
     }
 
     @Test
@@ -257,7 +258,7 @@ public class TimeStepModel_probabilityTest {
 
         assertProbability(model, "timeStep1", 0.2);
         assertProbability(model, "timeStep2", 0.8);
-        assertNotNull(model.getTimeStepProbabilityArray(""));
+        assertNotNull(model.getTimeStepSelector(""));
     }
 
     @Test
@@ -273,7 +274,7 @@ public class TimeStepModel_probabilityTest {
 
         assertProbability(model, "timeStep1", 0.3);
         assertProbability(model, "timeStep2", 0.7);
-        assertNotNull(model.getTimeStepProbabilityArray(""));
+        assertNotNull(model.getTimeStepSelector(""));
     }
 
     private TimeStepModel loadModel(String code, Map<String, Double> probs) {
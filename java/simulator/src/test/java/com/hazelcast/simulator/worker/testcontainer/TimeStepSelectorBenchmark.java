@@ -0,0 +1,81 @@
+package com.hazelcast.simulator.worker.testcontainer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+import static com.hazelcast.simulator.worker.testcontainer.Probability.methodProbabilitiesToMethodRatios;
+import static com.hazelcast.simulator.worker.testcontainer.Probability.ratiosToMethodProbabilityArray;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Compares the dispatch overhead of selecting a timestep method.
+ *
+ * The 'byteArray' variant is how the timestep loop used to select a method: a byte array sized by the precision of the
+ * probabilities, indexed using a {@link Random}. The 'alias' variant uses the {@link AliasMethodSelector} with a
+ * {@link SplittableRandom} per thread, like the timestep loop does now.
+ *
+ * Run using the main method.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class TimeStepSelectorBenchmark {
+
+    @Param({"byteArray", "alias"})
+    public String selector;
+
+    // 'coarse' needs a 10 byte array, 'fine' a 1.000.000 byte array.
+    @Param({"coarse", "fine"})
+    public String precision;
+
+    private final Random random = new Random();
+    private final SplittableRandom splittableRandom = new SplittableRandom();
+    private byte[] probs;
+    private AliasMethodSelector aliasMethodSelector;
+
+    @Setup
+    public void setup() {
+        double[] probabilities = "coarse".equals(precision)
+                ? new double[]{0.1, 0.2, 0.3, 0.4}
+                : new double[]{0.100001, 0.199999, 0.300003, 0.399997};
+        probs = ratiosToMethodProbabilityArray(methodProbabilitiesToMethodRatios(probabilities));
+        aliasMethodSelector = new AliasMethodSelector(probabilities);
+    }
+
+    @Benchmark
+    public int select() {
+        if ("alias".equals(selector)) {
+            return aliasMethodSelector.select(splittableRandom);
+        } else {
+            return probs[random.nextInt(probs.length)];
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TimeStepSelectorBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -4,7 +4,7 @@ import sys
 import argparse
 
 from simulator.perftest import PerftestCreateCli, PerftestCloneCli, PerftestRunCli, \
-    PerftestKillJavaCli, PerftestCollectCli, PerftestCleanCli
+    PerftestKillJavaCli, PerftestCollectCli, PerftestCleanCli, PerftestUpdateRateCli
 from simulator.perftest_report import PerfTestReportCli
 
 usage = '''perftest <command> [<args>]
@@ -15,6 +15,7 @@ The available commands are:
     collect     Collects the performance test data and stores it in result.yaml.
     run         Runs a tests.yaml which is a self contained set of tests
     kill_java   Kills all Java processes   
+    update_rate Changes the rate of a running test
     report      Generate performance report 
 '''
 
@@ -51,6 +52,9 @@ class PerftestCli:
     def kill_java(self):
         PerftestKillJavaCli(sys.argv[2:])
 
+    def update_rate(self):
+        PerftestUpdateRateCli(sys.argv[2:])
+
     def collect(self):
         PerftestCollectCli(sys.argv[2:])
 
@@ -548,6 +548,36 @@ class PerftestRunCli:
         perftest.run(tests_file, tags, args.skip_report, args.commit, pattern, run_label)
 
 
+class PerftestUpdateRateCli:
+
+    def __init__(self, argv):
+        parser = argparse.ArgumentParser(formatter_class=argparse.ArgumentDefaultsHelpFormatter,
+                                         description='Changes the rate of a running test. The rate is the rate per '
+                                                     'execution group on a single worker, like the ratePerSecond '
+                                                     'property of the test.')
+        parser.add_argument("run_path", help="The run directory of the running test")
+        parser.add_argument("test_id", help="The id of the test, e.g. the name of the test class")
+        parser.add_argument("rate", type=float, help="The new rate per second")
+        parser.add_argument('-g', '--group', nargs=1, default=[None],
+                            help="The execution group to change the rate of. By default all execution groups.")
+        args = parser.parse_args(argv)
+
+        if args.rate <= 0:
+            exit_with_error(f"rate must be larger than 0, but was {args.rate}")
+        if not path.isdir(args.run_path):
+            exit_with_error(f"Run directory [{args.run_path}] does not exist")
+
+        group = args.group[0]
+        key = "ratePerSecond" if group is None else f"{group}RatePerSecond"
+
+        # the coordinator polls for the file; it is moved into place so it is never read half written.
+        target = path.join(args.run_path, f"{args.test_id}.rate")
+        tmp = f"{target}.{uuid.uuid4().hex}.tmp"
+        write_file(tmp, f"{key}={args.rate}\n")
+        os.replace(tmp, target)
+        info(f"Requested rate {args.rate} for {args.test_id}" + ("" if group is None else f" executionGroup {group}"))
+
+
 class PerftestKillJavaCli:
 
     def __init__(self, argv):
@@ -211,6 +211,11 @@ class PerfTestReportCli:
                             nargs=1, default=[0],
                             type=int,
                             help='The cooldown period in seconds. The cooldown removes datapoints from the end.')
+        parser.add_argument('--percentiles',
+                            nargs=1,
+                            default=[None],
+                            help='The comma separated percentiles in the latency history, e.g. 50,99,99.9,99.9999. '
+                                 'By default 25,50,75,90,99,99.9,99.99,99.999.')
         parser.add_argument('-f', '--full',
                             help='Enable individual worker level diagrams.',
                             action="store_true")
@@ -242,6 +247,7 @@ class PerfTestReportCli:
         config = ReportConfig(report_dir)
         config.warmup_seconds = int(args.warmup[0])
         config.cooldown_seconds = int(args.cooldown[0])
+        config.percentiles = args.percentiles[0]
         config.image_width_px = int(args.width[0])
         config.image_height_px = int(args.height[0])
         config.worker_reporting = args.full
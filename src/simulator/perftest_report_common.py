@@ -35,6 +35,7 @@ class ReportConfig:
     image_height_px = 1200
     warmup_seconds = 0
     cooldown_seconds = 0
+    percentiles = None
     worker_reporting = True
     compare_last = False
     long_label = False
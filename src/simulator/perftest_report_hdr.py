@@ -21,40 +21,15 @@ def prepare_hdr(config: ReportConfig):
 
 
 def __merge_worker_hdr(run_dir):
-    dic = {}
-    for worker_dir_name in os.listdir(run_dir):
-        worker_dir = f"{run_dir}/{worker_dir_name}"
-        worker_id = extract_worker_id(worker_dir)
-        if not worker_id:
-            continue
-
-        for file_name in os.listdir(worker_dir):
-            if not file_name.endswith(".hdr"):
-                continue
-
-            hdr_file = f"{run_dir}/{worker_dir_name}/{file_name}"
-            files = dic.get(file_name)
-            if not files:
-                files = []
-                dic[file_name] = files
-            files.append(hdr_file)
-
+    # a single JVM merges the hdr files of all workers; for every hdr file name it writes {run_dir}/{file_name}.
+    # the intervals are merged into buckets of the performance monitor interval, which the merger infers from the
+    # length of the intervals in the hdr files.
+    command = f"""java -cp "{simulator_home}/lib/*" \
+                     com.hazelcast.simulator.utils.HistogramLogMerger \
+                     {run_dir} 2>/dev/null"""
 
-    for file_name, hdr_files in dic.items():
-        # write the list of files into a file and let Java processor read from it
-        hdr_list_file_name = file_name + "._merge_worker_hdr_input_files_list"
-        hdr_list_file = os.path.join(run_dir, hdr_list_file_name)
-        print(f"Writing file list for {file_name} into file {hdr_list_file}")
-        with open(hdr_list_file, 'w') as listing_file:
-            for hdr_file_path in hdr_files:
-                listing_file.write(hdr_file_path + '\n')
-
-        command = f"""java -cp "{simulator_home}/lib/*" \
-                         com.hazelcast.simulator.utils.HistogramLogMerger \
-                         {run_dir}/{file_name} {hdr_list_file} 2>/dev/null"""
-
-        print(f"Executing process for {command}")
-        shell(command)
+    print(f"Executing process for {command}")
+    shell(command)
 
 
 def __process_hdr(config: ReportConfig, run_dir, run_label):
@@ -122,8 +97,10 @@ def __prepare_hdr_file(config: ReportConfig, run_label, worker_id, hdr_file, bat
         duration = period.end_time - period.start_time
         end = duration - config.cooldown_seconds
         start_end += f" -end {end} "
-    
-    batch_process_output.write(f"{start_end} -i {hdr_file} -o {target_dir}/{hdr_file_name_no_ext} -outputValueUnitRatio 1000\n")
+
+    percentiles = f" -percentiles {config.percentiles} " if config.percentiles else ""
+
+    batch_process_output.write(f"{start_end}{percentiles} -i {hdr_file} -o {target_dir}/{hdr_file_name_no_ext} -outputValueUnitRatio 1000\n")
     return target_dir, hdr_file_name_no_ext
 
 
@@ -69,6 +69,9 @@ def __load_worker_operations_csv(run_dir, attributes):
             df = df.loc[~df.index.duplicated(keep='last')]
             df.drop(['epoch'], inplace=True, axis=1)
             df.drop(['timestamp'], inplace=True, axis=1)
+            # the load profile segment is a label, not a metric
+            if 'segment' in df.columns:
+                df.drop(['segment'], inplace=True, axis=1)
 
             new_attributes = attributes.copy()
             new_attributes["test_id"] = test_id
@@ -132,6 +135,9 @@ def __load_aggregated_operations_csv(run_dir, attributes):
         df = df.loc[~df.index.duplicated(keep='last')]
         df.drop(['epoch'], inplace=True, axis=1)
         df.drop(['timestamp'], inplace=True, axis=1)
+        # the load profile segment is a label, not a metric
+        if 'segment' in df.columns:
+            df.drop(['segment'], inplace=True, axis=1)
 
         new_attributes = attributes.copy()
         new_attributes["test_id"] = test_id